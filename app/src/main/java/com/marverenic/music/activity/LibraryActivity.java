@@ -31,6 +31,7 @@ import com.marverenic.music.fragments.ArtistFragment;
 import com.marverenic.music.fragments.GenreFragment;
 import com.marverenic.music.fragments.PlaylistFragment;
 import com.marverenic.music.fragments.SongFragment;
+import com.marverenic.music.lastfm.data.store.LastFmPrefetcher;
 import com.marverenic.music.utils.Util;
 import com.marverenic.music.view.FABMenu;
 
@@ -49,6 +50,7 @@ public class LibraryActivity extends BaseActivity implements View.OnClickListene
     @Inject MusicStore mMusicStore;
     @Inject PlaylistStore mPlaylistStore;
     @Inject PreferencesStore mPrefStore;
+    @Inject LastFmPrefetcher mLastFmPrefetcher;
 
     private SwipeRefreshLayout mRefreshLayout;
 
@@ -62,6 +64,7 @@ public class LibraryActivity extends BaseActivity implements View.OnClickListene
         initRefreshLayout();
         mMusicStore.loadAll();
         mPlaylistStore.loadPlaylists();
+        mLastFmPrefetcher.start();
 
         // Setup the FAB
         FABMenu fab = (FABMenu) findViewById(R.id.fab);
@@ -90,6 +93,17 @@ public class LibraryActivity extends BaseActivity implements View.OnClickListene
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Keep prefetching through configuration changes. The recreated activity's call to
+        // start() does nothing while it's still running.
+        if (!isChangingConfigurations()) {
+            mLastFmPrefetcher.stop();
+        }
+    }
+
     private void initRefreshLayout() {
         mRefreshLayout = (SwipeRefreshLayout) findViewById(R.id.library_refresh_layout);
         mRefreshLayout.setSize(SwipeRefreshLayout.DEFAULT);
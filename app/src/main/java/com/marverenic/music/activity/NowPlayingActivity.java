@@ -76,7 +76,6 @@ public class NowPlayingActivity extends BaseActivity implements GestureView.OnGe
 
     private ImageView artwork;
     private GestureView artworkWrapper;
-    private Song lastPlaying;
     private QueueFragment queueFragment;
 
     private MenuItem mRepeatMenuItem;
@@ -126,6 +125,12 @@ public class NowPlayingActivity extends BaseActivity implements GestureView.OnGe
             artworkWrapper.setGesturesEnabled(mPrefStore.enableNowPlayingGestures());
         }
 
+        PlayerController.observeArtwork()
+                .compose(bindToLifecycle())
+                .subscribe(this::setArtwork, throwable -> {
+                    Timber.e(throwable, "Failed to load artwork");
+                });
+
         onUpdate();
     }
 
@@ -507,20 +512,17 @@ public class NowPlayingActivity extends BaseActivity implements GestureView.OnGe
                 .show();
     }
 
+    private void setArtwork(Bitmap image) {
+        if (image == null) {
+            artwork.setImageResource(R.drawable.art_default_xl);
+        } else {
+            artwork.setImageBitmap(image);
+        }
+    }
+
     @Override
     public void onUpdate() {
         super.onUpdate();
-        final Song nowPlaying = PlayerController.getNowPlaying();
-        if (lastPlaying == null || !lastPlaying.equals(nowPlaying)) {
-            Bitmap image = PlayerController.getArtwork();
-            if (image == null) {
-                artwork.setImageResource(R.drawable.art_default_xl);
-            } else {
-                artwork.setImageBitmap(image);
-            }
-
-            lastPlaying = nowPlaying;
-        }
 
         if (mRepeatMenuItem != null) {
             updateRepeatIcon();
@@ -543,27 +545,19 @@ public class NowPlayingActivity extends BaseActivity implements GestureView.OnGe
 
     @Override
     public void onRightSwipe() {
-        int queuePosition = PlayerController.getQueuePosition() - 1;
-        if (queuePosition < 0 && mPrefStore.getRepeatMode() == MusicPlayer.REPEAT_ALL) {
-            queuePosition += PlayerController.getQueueSize();
-        }
-
-        if (queuePosition >= 0) {
-            PlayerController.changeSong(queuePosition);
-        } else {
-            PlayerController.seek(0);
-        }
-
+        PlayerController.skipBack();
     }
 
     @Override
     public void onTap() {
+        // The toggle is applied asynchronously, so the current state is still the old one
+        boolean wasPlaying = PlayerController.isPlaying();
         PlayerController.togglePlay();
 
         //noinspection deprecation
         artworkWrapper.setTapIndicator(getResources().getDrawable(
-                (PlayerController.isPlaying())
-                        ? R.drawable.ic_play_arrow_36dp
-                        : R.drawable.ic_pause_36dp));
+                (wasPlaying)
+                        ? R.drawable.ic_pause_36dp
+                        : R.drawable.ic_play_arrow_36dp));
     }
 }
@@ -95,8 +95,7 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                 .compose(bindToLifecycle())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(playlists -> {
-                    mPlaylistSection.setData(playlists);
-                    mAdapter.notifyDataSetChanged();
+                    mAdapter.setSectionData(mPlaylistSection, playlists);
                 }, throwable -> {
                     Timber.e(throwable, "Failed to search for playlists");
                 });
@@ -107,8 +106,7 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                 .compose(bindToLifecycle())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(songs -> {
-                    mSongSection.setData(songs);
-                    mAdapter.notifyDataSetChanged();
+                    mAdapter.setSectionData(mSongSection, songs);
                 }, throwable -> {
                     Timber.e(throwable, "Failed to search for songs");
                 });
@@ -119,8 +117,7 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                 .compose(bindToLifecycle())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(albums -> {
-                    mAlbumSection.setData(albums);
-                    mAdapter.notifyDataSetChanged();
+                    mAdapter.setSectionData(mAlbumSection, albums);
                 }, throwable -> {
                     Timber.e(throwable, "Failed to search for albums");
                 });
@@ -131,8 +128,7 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                 .compose(bindToLifecycle())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(artists -> {
-                    mArtistSection.setData(artists);
-                    mAdapter.notifyDataSetChanged();
+                    mAdapter.setSectionData(mArtistSection, artists);
                 }, throwable -> {
                     Timber.e(throwable, "Failed to search for artists");
                 });
@@ -143,8 +139,7 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                 .compose(bindToLifecycle())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(genres -> {
-                    mGenreSection.setData(genres);
-                    mAdapter.notifyDataSetChanged();
+                    mAdapter.setSectionData(mGenreSection, genres);
                 }, throwable -> {
                     Timber.e(throwable, "Failed to search for genres");
                 });
@@ -348,13 +343,15 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
             }
         }
 
-        mPlaylistStore.getSongs(playlist).subscribe(
-                songs -> {
-                    PlayerController.setQueue(songs, 0);
-                    PlayerController.begin();
-                }, throwable -> {
-                    Timber.e(throwable, "Failed to play playlist from intent");
-                });
+        mPlaylistStore.getSongs(playlist)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        songs -> {
+                            PlayerController.setQueue(songs, 0);
+                            PlayerController.begin();
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to play playlist from intent");
+                        });
     }
 
     private void playArtistResults() {
@@ -373,14 +370,16 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
                     });
         }
 
-        combinedSongs.subscribe(
-                songs -> {
-                    PlayerController.setQueue(songs, 0);
-                    PlayerController.begin();
-                },
-                throwable -> {
-                    Timber.e(throwable, "Failed to play artist from intent");
-                });
+        combinedSongs
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        songs -> {
+                            PlayerController.setQueue(songs, 0);
+                            PlayerController.begin();
+                        },
+                        throwable -> {
+                            Timber.e(throwable, "Failed to play artist from intent");
+                        });
     }
 
     private void playAlbumResults(String query) {
@@ -398,13 +397,15 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
             }
         }
 
-        mMusicStore.getSongs(album).subscribe(
-                songs -> {
-                    PlayerController.setQueue(songs, 0);
-                    PlayerController.begin();
-                }, throwable -> {
-                    Timber.e(throwable, "Failed to play album from intent");
-                });
+        mMusicStore.getSongs(album)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        songs -> {
+                            PlayerController.setQueue(songs, 0);
+                            PlayerController.begin();
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to play album from intent");
+                        });
     }
 
     private void playGenreResults(String query) {
@@ -421,13 +422,15 @@ public class SearchActivity extends BaseActivity implements SearchView.OnQueryTe
             }
         }
 
-        mMusicStore.getSongs(genre).subscribe(
-                songs -> {
-                    PlayerController.setQueue(songs, 0);
-                    PlayerController.begin();
-                }, throwable -> {
-                    Timber.e(throwable, "Failed to play genre from intent");
-                });
+        mMusicStore.getSongs(genre)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        songs -> {
+                            PlayerController.setQueue(songs, 0);
+                            PlayerController.begin();
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to play genre from intent");
+                        });
     }
 
 
@@ -29,6 +29,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class AlbumActivity extends BaseActivity {
@@ -58,6 +59,7 @@ public class AlbumActivity extends BaseActivity {
 
         if (reference != null) {
             mMusicStore.getSongs(reference)
+                    .observeOn(AndroidSchedulers.mainThread())
                     .compose(bindToLifecycle())
                     .subscribe(
                             songs -> {
@@ -128,8 +130,7 @@ public class AlbumActivity extends BaseActivity {
         }
 
         if (mSongSection != null) {
-            mSongSection.setData(mSongs);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mSongSection, mSongs);
         } else {
             mSongSection = new SongSection(this, mSongs);
             mAdapter.addSection(mSongSection);
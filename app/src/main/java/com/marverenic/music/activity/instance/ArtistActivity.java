@@ -14,6 +14,7 @@ import android.widget.ImageView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
+import com.marverenic.heterogeneousadapter.PrefetchScrollListener;
 import com.marverenic.music.JockeyApplication;
 import com.marverenic.music.R;
 import com.marverenic.music.activity.BaseActivity;
@@ -41,10 +42,14 @@ import com.marverenic.music.view.ViewUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 
+import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
@@ -70,6 +75,7 @@ public class ArtistActivity extends BaseActivity {
     private Artist mReference;
     private LfmArtist mLfmReference;
     private List<LfmArtist> mRelatedArtists;
+    private Map<LfmArtist, Artist> mRelatedLocalArtists;
     private List<Song> mSongs;
     private List<Album> mAlbums;
 
@@ -100,6 +106,7 @@ public class ArtistActivity extends BaseActivity {
         }
 
         mMusicStore.getSongs(mReference)
+                .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(
                         songs -> {
@@ -110,10 +117,12 @@ public class ArtistActivity extends BaseActivity {
                         });
 
         mMusicStore.getAlbums(mReference)
+                .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(
                         albums -> {
-                            mAlbums = albums;
+                            // Albums are shared with other callers, so sort a copy
+                            mAlbums = new ArrayList<>(albums);
 
                             // Sort the album list chronologically if all albums have years,
                             // otherwise sort alphabetically
@@ -131,18 +140,21 @@ public class ArtistActivity extends BaseActivity {
         mRecyclerView = (RecyclerView) findViewById(R.id.list);
         setupAdapter();
 
+        Observable<LfmArtist> lfmArtist;
         if (Util.canAccessInternet(this, mPrefStore.useMobileNetwork())) {
             setupLoadingAdapter();
-
-            mLfmStore.getArtistInfo(mReference.getArtistName())
-                    .compose(bindToLifecycle())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(this::setLastFmReference,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get Last.fm artist info");
-                                hideLoadingSpinner();
-                            });
+            lfmArtist = mLfmStore.getArtistInfo(mReference.getArtistName());
+        } else {
+            lfmArtist = mLfmStore.getCachedArtistInfo(mReference.getArtistName());
         }
+
+        lfmArtist.compose(bindToLifecycle())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::setLastFmReference,
+                        throwable -> {
+                            Timber.e(throwable, "Failed to get Last.fm artist info");
+                            hideLoadingSpinner();
+                        });
     }
 
     private boolean allEntriesHaveYears() {
@@ -162,20 +174,23 @@ public class ArtistActivity extends BaseActivity {
 
         mLfmReference = lfmArtist;
         mRelatedArtists = new ArrayList<>();
+        mRelatedLocalArtists = new HashMap<>();
 
-        for (LfmArtist relatedArtist : lfmArtist.getSimilarArtists()) {
-            mMusicStore.findArtistByName(relatedArtist.getName())
-                    .subscribe(
-                            found -> {
-                                if (found != null) {
-                                    mRelatedArtists.add(relatedArtist);
-                                    setupAdapter();
-                                }
-                            },
-                            throwable -> {
-                                Timber.e(throwable, "Failed to find artist");
-                            });
+        LfmArtist[] similarArtists = lfmArtist.getSimilarArtists();
+        List<String> similarArtistNames = new ArrayList<>(similarArtists.length);
+        for (LfmArtist similarArtist : similarArtists) {
+            similarArtistNames.add(similarArtist.getName());
         }
+
+        mMusicStore.findArtistsByName(similarArtistNames)
+                .compose(bindToLifecycle())
+                .subscribe(
+                        found -> {
+                            setRelatedArtists(similarArtists, found);
+                        },
+                        throwable -> {
+                            Timber.e(throwable, "Failed to find related artists");
+                        });
         setupAdapter();
 
         Image hero = mLfmReference.getImageBySize(Image.Size.MEGA);
@@ -190,6 +205,32 @@ public class ArtistActivity extends BaseActivity {
         }
     }
 
+    /**
+     * Shows the similar artists from Last.fm that are also in the library
+     * @param similarArtists Artists that Last.fm considers similar to this one
+     * @param localArtists The artists in the library with the same names as similar artists
+     */
+    private void setRelatedArtists(LfmArtist[] similarArtists, List<Artist> localArtists) {
+        Map<String, Artist> localArtistsByName = new HashMap<>(localArtists.size());
+        for (Artist artist : localArtists) {
+            localArtistsByName.put(artist.getArtistName().toUpperCase(Locale.ROOT), artist);
+        }
+
+        for (LfmArtist similarArtist : similarArtists) {
+            String name = similarArtist.getName().toUpperCase(Locale.ROOT);
+            Artist localArtist = localArtistsByName.get(name);
+
+            if (localArtist != null) {
+                mRelatedArtists.add(similarArtist);
+                mRelatedLocalArtists.put(similarArtist, localArtist);
+            }
+        }
+
+        if (!mRelatedArtists.isEmpty()) {
+            setupAdapter();
+        }
+    }
+
     private void setupAdapter() {
         if (mRecyclerView == null) {
             return;
@@ -225,6 +266,7 @@ public class ArtistActivity extends BaseActivity {
             });
 
             mRecyclerView.setAdapter(mAdapter);
+            new PrefetchScrollListener(mAdapter).attach(mRecyclerView);
         }
 
         setupLastFmAdapter();
@@ -293,7 +335,8 @@ public class ArtistActivity extends BaseActivity {
         }
 
         if (mRelatedArtistSection == null) {
-            mRelatedArtistSection = new RelatedArtistSection(mMusicStore, mRelatedArtists);
+            mRelatedArtistSection = new RelatedArtistSection(mRelatedArtists,
+                    mRelatedLocalArtists);
             mAdapter.addSection(mRelatedArtistSection, 1);
             mRecyclerView.addItemDecoration(
                     new GridSpacingDecoration(
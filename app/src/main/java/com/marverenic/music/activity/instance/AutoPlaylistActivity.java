@@ -30,6 +30,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class AutoPlaylistActivity extends BaseActivity
@@ -64,6 +65,7 @@ public class AutoPlaylistActivity extends BaseActivity
 
         mReference = getIntent().getParcelableExtra(PLAYLIST_EXTRA);
         mPlaylistStore.getSongs(mReference)
+                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
                         songs -> {
                             mSongs = songs;
@@ -119,8 +121,7 @@ public class AutoPlaylistActivity extends BaseActivity
             mSongSection = new SongSection(this, mSongs);
             mAdapter.addSection(mSongSection);
         } else {
-            mSongSection.setData(mSongs);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mSongSection, mSongs);
         }
     }
 
@@ -205,6 +206,7 @@ public class AutoPlaylistActivity extends BaseActivity
         boolean alreadyLoaded = mSongSection != null;
 
         mPlaylistStore.getSongs(mReference)
+                .observeOn(AndroidSchedulers.mainThread())
                 .skip(alreadyLoaded ? 1 : 0)
                 .take(1)
                 .subscribe(ignoredValue -> {
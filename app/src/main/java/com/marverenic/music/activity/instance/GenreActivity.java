@@ -23,6 +23,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class GenreActivity extends BaseActivity {
@@ -53,6 +54,7 @@ public class GenreActivity extends BaseActivity {
 
         if (reference != null) {
             mMusicStore.getSongs(reference)
+                    .observeOn(AndroidSchedulers.mainThread())
                     .compose(bindToLifecycle())
                     .subscribe(
                             songs -> {
@@ -112,8 +114,7 @@ public class GenreActivity extends BaseActivity {
         }
 
         if (mSongSection != null) {
-            mSongSection.setData(mSongs);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mSongSection, mSongs);
         } else {
             mSongSection = new SongSection(this, mSongs);
             mAdapter.addSection(mSongSection);
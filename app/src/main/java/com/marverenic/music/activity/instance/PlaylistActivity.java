@@ -67,10 +67,13 @@ public class PlaylistActivity extends BaseActivity implements PopupMenu.OnMenuIt
         mReference = getIntent().getParcelableExtra(PLAYLIST_EXTRA);
 
         mPlaylistStore.getSongs(mReference)
+                .observeOn(AndroidSchedulers.mainThread())
                 .compose(bindToLifecycle())
                 .subscribe(
                         songs -> {
-                            mSongs = songs;
+                            // Keep a copy, since the list is reordered when songs are dragged,
+                            // removed, or sorted
+                            mSongs = new ArrayList<>(songs);
                             setupAdapter();
                         }, throwable -> {
                             Timber.e(throwable, "Failed to get playlist contents");
@@ -112,15 +115,14 @@ public class PlaylistActivity extends BaseActivity implements PopupMenu.OnMenuIt
         }
 
         if (mSongs == null) {
-            mSongs = Collections.emptyList();
+            mSongs = new ArrayList<>();
         }
 
         if (mSongSection == null) {
             mSongSection = new PlaylistSongSection(this, mPlaylistStore, mSongs, mReference);
             mAdapter.setDragSection(mSongSection);
         } else {
-            mSongSection.setData(mSongs);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mSongSection, mSongs);
         }
     }
 
@@ -0,0 +1,10 @@
+package com.marverenic.music.data.annotations;
+
+import android.support.annotation.IntDef;
+
+@IntDef(value = {ArtworkSize.NOTIFICATION, ArtworkSize.LOCKSCREEN, ArtworkSize.NOW_PLAYING})
+public @interface ArtworkSize {
+    int NOTIFICATION = 0;
+    int LOCKSCREEN = 1;
+    int NOW_PLAYING = 2;
+}
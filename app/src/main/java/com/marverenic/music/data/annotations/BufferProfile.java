@@ -0,0 +1,10 @@
+package com.marverenic.music.data.annotations;
+
+import android.support.annotation.IntDef;
+
+@IntDef(value = {BufferProfile.STANDARD, BufferProfile.LOW_MEMORY, BufferProfile.FAST_START})
+public @interface BufferProfile {
+    int STANDARD = 0;
+    int LOW_MEMORY = 1;
+    int FAST_START = 2;
+}
@@ -10,6 +10,7 @@ import com.marverenic.music.activity.instance.AutoPlaylistActivity;
 import com.marverenic.music.activity.instance.AutoPlaylistEditActivity;
 import com.marverenic.music.activity.instance.GenreActivity;
 import com.marverenic.music.activity.instance.PlaylistActivity;
+import com.marverenic.music.data.store.ArtworkStore;
 import com.marverenic.music.dialog.AppendPlaylistDialogFragment;
 import com.marverenic.music.dialog.CreatePlaylistDialogFragment;
 import com.marverenic.music.dialog.PlaylistCollisionDialogFragment;
@@ -22,6 +23,7 @@ import com.marverenic.music.fragments.MiniplayerFragment;
 import com.marverenic.music.fragments.PlaylistFragment;
 import com.marverenic.music.fragments.PreferenceFragment;
 import com.marverenic.music.fragments.SongFragment;
+import com.marverenic.music.instances.section.AlbumSection;
 import com.marverenic.music.instances.section.LibraryEmptyState;
 import com.marverenic.music.player.MusicPlayer;
 import com.marverenic.music.viewmodel.AlbumViewModel;
@@ -71,7 +73,10 @@ public interface JockeyGraph {
     void inject(RuleViewModel viewModel);
 
     void inject(LibraryEmptyState emptyState);
+    void inject(AlbumSection section);
 
     void inject(MusicPlayer musicPlayer);
 
+    ArtworkStore getArtworkStore();
+
 }
@@ -2,13 +2,19 @@ package com.marverenic.music.data.inject;
 
 import android.content.Context;
 
+import com.marverenic.music.data.store.ArtworkStore;
+import com.marverenic.music.data.store.LocalArtworkStore;
 import com.marverenic.music.data.store.LocalMusicStore;
+import com.marverenic.music.data.store.LocalPaletteStore;
 import com.marverenic.music.data.store.LocalPlayCountStore;
 import com.marverenic.music.data.store.LocalPlaylistStore;
+import com.marverenic.music.data.store.LocalReplayGainStore;
 import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PaletteStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
 import com.marverenic.music.data.store.PreferencesStore;
+import com.marverenic.music.data.store.ReplayGainStore;
 
 import javax.inject.Singleton;
 
@@ -36,4 +42,22 @@ public class MediaStoreModule {
     public PlayCountStore providePlayCountStore(Context context) {
         return new LocalPlayCountStore(context);
     }
+
+    @Provides
+    @Singleton
+    public ArtworkStore provideArtworkStore(Context context) {
+        return new LocalArtworkStore(context);
+    }
+
+    @Provides
+    @Singleton
+    public PaletteStore providePaletteStore(Context context) {
+        return new LocalPaletteStore(context);
+    }
+
+    @Provides
+    @Singleton
+    public ReplayGainStore provideReplayGainStore(Context context) {
+        return new LocalReplayGainStore(context);
+    }
 }
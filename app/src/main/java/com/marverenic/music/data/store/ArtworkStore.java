@@ -0,0 +1,15 @@
+package com.marverenic.music.data.store;
+
+import android.graphics.Bitmap;
+
+import com.marverenic.music.data.annotations.ArtworkSize;
+import com.marverenic.music.instances.Song;
+
+import rx.Observable;
+
+public interface ArtworkStore {
+
+    Observable<Bitmap> getArtwork(Song song, @ArtworkSize int size);
+    void prefetchArtwork(Song song, @ArtworkSize int size);
+
+}
@@ -0,0 +1,381 @@
+package com.marverenic.music.data.store;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.support.v4.util.LongSparseArray;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.marverenic.music.instances.AutoPlaylist;
+import com.marverenic.music.instances.playlistrules.AutoPlaylistRule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import timber.log.Timber;
+
+/**
+ * Keeps the configurations of every auto playlist in a single binary file, indexed by playlist
+ * id. The file is read once and then kept in memory, so looking up auto playlists doesn't touch
+ * the disk. Every change rewrites the file atomically, so a failed write never leaves a partially
+ * written configuration behind.
+ *
+ * Configurations used to be saved as one JSON file per playlist. These are migrated into the new
+ * file the first time it's loaded.
+ */
+final class AutoPlaylistDefinitionStore {
+
+    private static final String DEFINITIONS_FILENAME = ".autoplaylists";
+    private static final String LEGACY_EXTENSION = ".jpl";
+
+    /**
+     * Appended to the name of a configuration file that couldn't be read when it's moved aside.
+     * This can't be ".bak", since {@link AtomicFile} would restore a file with that name over the
+     * next file that's written.
+     */
+    private static final String UNREADABLE_EXTENSION = ".unreadable";
+
+    private static final int MAGIC = 0x4A41504C; // "JAPL"
+    private static final int VERSION = 1;
+
+    private final Context mContext;
+    private final PublishSubject<List<AutoPlaylist>> mChanges;
+
+    /**
+     * Every auto playlist configuration keyed by playlist id, or {@code null} if configurations
+     * haven't been loaded yet. Guarded by {@code this}.
+     */
+    private LongSparseArray<AutoPlaylist> mDefinitions;
+
+    /**
+     * Whether changes can't be saved because the configuration file couldn't be read or moved
+     * aside, and writing would replace it. Guarded by {@code this}.
+     */
+    private boolean mReadOnly;
+
+    AutoPlaylistDefinitionStore(Context context) {
+        mContext = context;
+        mChanges = PublishSubject.create();
+    }
+
+    /**
+     * @return Every auto playlist configuration, sorted the same way as other playlists
+     */
+    synchronized List<AutoPlaylist> getAutoPlaylists() {
+        return snapshot(getDefinitions());
+    }
+
+    @Nullable
+    synchronized AutoPlaylist findById(long playlistId) {
+        return getDefinitions().get(playlistId);
+    }
+
+    /**
+     * Emits every auto playlist configuration whenever one is added, changed, or removed
+     */
+    Observable<List<AutoPlaylist>> getChanges() {
+        return mChanges.asObservable();
+    }
+
+    /**
+     * Adds or replaces the configuration of an auto playlist
+     */
+    void put(AutoPlaylist playlist) {
+        List<AutoPlaylist> updated;
+
+        synchronized (this) {
+            LongSparseArray<AutoPlaylist> definitions = getDefinitions();
+            AutoPlaylist saved = definitions.get(playlist.getPlaylistId());
+            if (saved != null && new AutoPlaylist.Builder(saved).isEqual(playlist)) {
+                return;
+            }
+
+            definitions.put(playlist.getPlaylistId(), playlist);
+            write(definitions);
+            updated = snapshot(definitions);
+        }
+
+        mChanges.onNext(updated);
+    }
+
+    /**
+     * Removes the configurations of several auto playlists. Ids that don't belong to an auto
+     * playlist are ignored.
+     */
+    void remove(Collection<Long> playlistIds) {
+        List<AutoPlaylist> updated;
+
+        synchronized (this) {
+            LongSparseArray<AutoPlaylist> definitions = getDefinitions();
+            boolean changed = false;
+
+            for (long playlistId : playlistIds) {
+                if (definitions.get(playlistId) != null) {
+                    definitions.remove(playlistId);
+                    changed = true;
+                }
+            }
+
+            if (!changed) {
+                return;
+            }
+
+            write(definitions);
+            updated = snapshot(definitions);
+        }
+
+        mChanges.onNext(updated);
+    }
+
+    private static List<AutoPlaylist> snapshot(LongSparseArray<AutoPlaylist> definitions) {
+        List<AutoPlaylist> playlists = new ArrayList<>(definitions.size());
+        for (int i = 0; i < definitions.size(); i++) {
+            playlists.add(definitions.valueAt(i));
+        }
+        Collections.sort(playlists);
+        return playlists;
+    }
+
+    private LongSparseArray<AutoPlaylist> getDefinitions() {
+        if (mDefinitions == null) {
+            mDefinitions = load();
+        }
+        return mDefinitions;
+    }
+
+    private AtomicFile getDefinitionsFile() {
+        return new AtomicFile(new File(mContext.getExternalFilesDir(null), DEFINITIONS_FILENAME));
+    }
+
+    private LongSparseArray<AutoPlaylist> load() {
+        AtomicFile file = getDefinitionsFile();
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+            return readDefinitions(in);
+        } catch (FileNotFoundException e) {
+            return migrateLegacyDefinitions();
+        } catch (IOException e) {
+            Timber.e(e, "Failed to read auto playlist configurations");
+            closeQuietly(in);
+            in = null;
+
+            moveAsideUnreadableFile(file);
+            return new LongSparseArray<>();
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Renames a configuration file that couldn't be read, so that saving new configurations
+     * doesn't destroy the playlists that may still be recovered from it. If it can't be renamed,
+     * this store stops saving changes for the rest of the session.
+     */
+    private void moveAsideUnreadableFile(AtomicFile file) {
+        File baseFile = file.getBaseFile();
+        File unreadableFile = new File(baseFile.getPath() + UNREADABLE_EXTENSION);
+
+        //noinspection ResultOfMethodCallIgnored
+        unreadableFile.delete();
+        if (!baseFile.renameTo(unreadableFile)) {
+            Timber.e("Failed to move aside %s. Auto playlist changes won't be saved.", baseFile);
+            mReadOnly = true;
+        }
+    }
+
+    private void write(LongSparseArray<AutoPlaylist> definitions) {
+        if (mReadOnly) {
+            return;
+        }
+
+        AtomicFile file = getDefinitionsFile();
+        FileOutputStream stream = null;
+
+        try {
+            stream = file.startWrite();
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            writeDefinitions(out, definitions);
+            out.flush();
+
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Timber.e(e, "Failed to write auto playlist configurations");
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static LongSparseArray<AutoPlaylist> readDefinitions(DataInputStream in)
+            throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an auto playlist configuration file");
+        }
+
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported auto playlist configuration version " + version);
+        }
+
+        int playlistCount = in.readInt();
+        LongSparseArray<AutoPlaylist> definitions = new LongSparseArray<>(playlistCount);
+
+        for (int i = 0; i < playlistCount; i++) {
+            AutoPlaylist playlist = readAutoPlaylist(in);
+            definitions.put(playlist.getPlaylistId(), playlist);
+        }
+
+        return definitions;
+    }
+
+    private static void writeDefinitions(DataOutputStream out,
+                                         LongSparseArray<AutoPlaylist> definitions)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(definitions.size());
+
+        for (int i = 0; i < definitions.size(); i++) {
+            writeAutoPlaylist(out, definitions.valueAt(i));
+        }
+    }
+
+    @SuppressWarnings("WrongConstant")
+    private static AutoPlaylist readAutoPlaylist(DataInputStream in) throws IOException {
+        AutoPlaylist.Builder builder = new AutoPlaylist.Builder()
+                .setId(in.readLong())
+                .setName(in.readUTF())
+                .setMaximumEntries(in.readInt())
+                .setTruncateMethod(in.readInt())
+                .setTruncateAscending(in.readBoolean())
+                .setMatchAllRules(in.readBoolean())
+                .setSortMethod(in.readInt())
+                .setSortAscending(in.readBoolean());
+
+        int ruleCount = in.readInt();
+        List<AutoPlaylistRule> rules = new ArrayList<>(ruleCount);
+
+        for (int i = 0; i < ruleCount; i++) {
+            rules.add(new AutoPlaylistRule.Factory()
+                    .setType(in.readInt())
+                    .setField(in.readInt())
+                    .setMatch(in.readInt())
+                    .setValue(in.readBoolean() ? in.readUTF() : null)
+                    .build());
+        }
+
+        return builder.setRules(rules).build();
+    }
+
+    private static void writeAutoPlaylist(DataOutputStream out, AutoPlaylist playlist)
+            throws IOException {
+        out.writeLong(playlist.getPlaylistId());
+        out.writeUTF(playlist.getPlaylistName());
+        out.writeInt(playlist.getMaximumEntries());
+        out.writeInt(playlist.getTruncateMethod());
+        out.writeBoolean(playlist.isTruncateAscending());
+        out.writeBoolean(playlist.isMatchAllRules());
+        out.writeInt(playlist.getSortMethod());
+        out.writeBoolean(playlist.isSortAscending());
+
+        List<AutoPlaylistRule> rules = playlist.getRules();
+        out.writeInt(rules.size());
+
+        for (AutoPlaylistRule rule : rules) {
+            out.writeInt(rule.getType());
+            out.writeInt(rule.getField());
+            out.writeInt(rule.getMatch());
+
+            out.writeBoolean(rule.getValue() != null);
+            if (rule.getValue() != null) {
+                out.writeUTF(rule.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads auto playlist configurations from the JSON files that were used before this store
+     * existed, and saves them into a single file. The JSON files are deleted once they've been
+     * migrated. Files that can't be parsed are left in place, so that they aren't lost.
+     */
+    private LongSparseArray<AutoPlaylist> migrateLegacyDefinitions() {
+        LongSparseArray<AutoPlaylist> definitions = new LongSparseArray<>();
+        File directory = mContext.getExternalFilesDir(null);
+
+        File[] legacyFiles = (directory == null) ? null : directory.listFiles(
+                (dir, filename) -> filename.endsWith(LEGACY_EXTENSION));
+
+        if (legacyFiles == null || legacyFiles.length == 0) {
+            return definitions;
+        }
+
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(AutoPlaylistRule.class, new AutoPlaylistRule.RuleTypeAdapter())
+                .create();
+
+        List<File> migratedFiles = new ArrayList<>(legacyFiles.length);
+
+        for (File legacyFile : legacyFiles) {
+            try {
+                AutoPlaylist playlist = readLegacyAutoPlaylist(gson, legacyFile);
+                definitions.put(playlist.getPlaylistId(), playlist);
+                migratedFiles.add(legacyFile);
+            } catch (IOException | RuntimeException e) {
+                Timber.e(e, "Failed to migrate auto playlist %s", legacyFile.getName());
+            }
+        }
+
+        write(definitions);
+
+        if (getDefinitionsFile().getBaseFile().exists()) {
+            for (File legacyFile : migratedFiles) {
+                //noinspection ResultOfMethodCallIgnored
+                legacyFile.delete();
+            }
+        }
+
+        return definitions;
+    }
+
+    private static AutoPlaylist readLegacyAutoPlaylist(Gson gson, File file) throws IOException {
+        FileReader reader = new FileReader(file);
+
+        try {
+            AutoPlaylist playlist = gson.fromJson(reader, AutoPlaylist.class);
+            if (playlist == null) {
+                throw new IOException("Empty auto playlist configuration");
+            }
+            return playlist;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Timber.w(e, "Failed to close stream");
+            }
+        }
+    }
+}
@@ -21,6 +21,9 @@ public class ImmutablePreferenceStore implements ReadOnlyPreferencesStore, Parce
     private final boolean mShuffled;
     private final int mRepeatMode;
     private final long mPreviousSleepTimerDurationMillis;
+    private final int mBufferProfile;
+    private final int mCrossfadeDuration;
+    private final boolean mNormalizeVolume;
     private final int mEqualizerPresetId;
     private final boolean mEqualizerEnabled;
     private final String mEqualizerSettings;
@@ -36,6 +39,9 @@ public class ImmutablePreferenceStore implements ReadOnlyPreferencesStore, Parce
         mBaseColor = preferencesStore.getBaseColor();
         mShuffled = preferencesStore.isShuffled();
         mPreviousSleepTimerDurationMillis = preferencesStore.getLastSleepTimerDuration();
+        mBufferProfile = preferencesStore.getBufferProfile();
+        mCrossfadeDuration = preferencesStore.getCrossfadeDuration();
+        mNormalizeVolume = preferencesStore.normalizeVolume();
         mRepeatMode = preferencesStore.getRepeatMode();
         mEqualizerPresetId = preferencesStore.getEqualizerPresetId();
         mEqualizerEnabled = preferencesStore.getEqualizerEnabled();
@@ -59,6 +65,9 @@ public class ImmutablePreferenceStore implements ReadOnlyPreferencesStore, Parce
         mBaseColor = in.readInt();
         mShuffled = in.readByte() != 0;
         mPreviousSleepTimerDurationMillis = in.readLong();
+        mBufferProfile = in.readInt();
+        mCrossfadeDuration = in.readInt();
+        mNormalizeVolume = in.readByte() != 0;
         mRepeatMode = in.readInt();
         mEqualizerPresetId = in.readInt();
         mEqualizerEnabled = in.readByte() != 0;
@@ -77,6 +86,9 @@ public class ImmutablePreferenceStore implements ReadOnlyPreferencesStore, Parce
         dest.writeInt(mBaseColor);
         dest.writeByte((byte) (mShuffled ? 1 : 0));
         dest.writeLong(mPreviousSleepTimerDurationMillis);
+        dest.writeInt(mBufferProfile);
+        dest.writeInt(mCrossfadeDuration);
+        dest.writeByte((byte) (mNormalizeVolume ? 1 : 0));
         dest.writeInt(mRepeatMode);
         dest.writeInt(mEqualizerPresetId);
         dest.writeByte((byte) (mEqualizerEnabled ? 1 : 0));
@@ -155,6 +167,21 @@ public class ImmutablePreferenceStore implements ReadOnlyPreferencesStore, Parce
         return mPreviousSleepTimerDurationMillis;
     }
 
+    @Override
+    public int getBufferProfile() {
+        return mBufferProfile;
+    }
+
+    @Override
+    public int getCrossfadeDuration() {
+        return mCrossfadeDuration;
+    }
+
+    @Override
+    public boolean normalizeVolume() {
+        return mNormalizeVolume;
+    }
+
     @Override
     public int getEqualizerPresetId() {
         return mEqualizerPresetId;
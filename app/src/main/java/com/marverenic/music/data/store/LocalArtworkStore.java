@@ -0,0 +1,327 @@
+package com.marverenic.music.data.store;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.util.DisplayMetrics;
+
+import com.marverenic.music.data.annotations.ArtworkSize;
+import com.marverenic.music.instances.Song;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * An {@link ArtworkStore} that reads artwork embedded in audio files. Artwork is decoded with
+ * {@link BitmapFactory.Options#inSampleSize} so that full resolution covers are never loaded into
+ * memory. Decoded thumbnails are kept in a bounded in-memory LRU cache and are also written to a
+ * disk cache keyed by album id so that they don't have to be extracted again. Thumbnails on disk
+ * are extracted again if the requested song's file has been modified since they were written.
+ */
+public class LocalArtworkStore implements ArtworkStore, ComponentCallbacks2 {
+
+    private static final String CACHE_DIR = "artwork";
+    private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024; // 20 MB
+    private static final int DISK_CACHE_QUALITY = 90;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final int LOCKSCREEN_SIZE_DP = 320;
+
+    /**
+     * The maximum number of albums to remember as not having artwork
+     */
+    private static final int MISSING_ARTWORK_CACHE_SIZE = 256;
+
+    private final Context mContext;
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    /**
+     * The modification time of songs whose files didn't have artwork, keyed by album id. Albums
+     * are checked again once the file of the requested song has been modified.
+     */
+    private final LruCache<Long, Long> mMissingArtwork;
+
+    /**
+     * The embedded picture that was most recently extracted, so that loading several sizes of
+     * the same artwork only reads it from the song's file once. Guarded by {@code this}.
+     */
+    private byte[] mLastPicture;
+    private long mLastPictureAlbumId;
+
+    public LocalArtworkStore(Context context) {
+        mContext = context;
+        mMissingArtwork = new LruCache<>(MISSING_ARTWORK_CACHE_SIZE);
+
+        // Use at most 1/8th of the available heap for artwork
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / 8);
+        mMemoryCache = new LruCache<String, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+
+        mContext.registerComponentCallbacks(this);
+    }
+
+    @Override
+    public Observable<Bitmap> getArtwork(Song song, @ArtworkSize int size) {
+        if (song == null) {
+            return Observable.just(null);
+        }
+
+        String key = getCacheKey(song, size);
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            return Observable.just(cached);
+        }
+
+        return Observable.fromCallable(() -> loadArtwork(song, size))
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public void prefetchArtwork(Song song, @ArtworkSize int size) {
+        if (song == null || mMemoryCache.get(getCacheKey(song, size)) != null) {
+            return;
+        }
+
+        getArtwork(song, size).subscribe(
+                bitmap -> {},
+                throwable -> {
+                    Timber.e(throwable, "Failed to prefetch artwork");
+                });
+    }
+
+    private String getCacheKey(Song song, @ArtworkSize int size) {
+        return song.getAlbumId() + "-" + getSizeInPixels(size);
+    }
+
+    private int getSizeInPixels(@ArtworkSize int size) {
+        DisplayMetrics metrics = mContext.getResources().getDisplayMetrics();
+
+        switch (size) {
+            case ArtworkSize.NOTIFICATION:
+                return mContext.getResources().getDimensionPixelSize(
+                        android.R.dimen.notification_large_icon_width);
+            case ArtworkSize.LOCKSCREEN:
+                return (int) (LOCKSCREEN_SIZE_DP * metrics.density);
+            case ArtworkSize.NOW_PLAYING:
+            default:
+                return Math.min(metrics.widthPixels, metrics.heightPixels);
+        }
+    }
+
+    @Nullable
+    private Bitmap loadArtwork(Song song, @ArtworkSize int size) {
+        String key = getCacheKey(song, size);
+        long lastModified = new File(song.getLocation()).lastModified();
+
+        Long missingSince = mMissingArtwork.get(song.getAlbumId());
+        if (missingSince != null && missingSince == lastModified) {
+            return null;
+        }
+
+        File cacheFile = new File(getCacheDir(), key + ".jpg");
+        Bitmap bitmap = null;
+
+        // Thumbnails are touched whenever they're used, so a song's file has only been changed
+        // since its thumbnail was written or last checked if it was modified more recently
+        if (cacheFile.exists() && cacheFile.lastModified() >= lastModified) {
+            bitmap = BitmapFactory.decodeFile(cacheFile.getAbsolutePath());
+            //noinspection ResultOfMethodCallIgnored
+            cacheFile.setLastModified(System.currentTimeMillis());
+        } else if (cacheFile.exists()) {
+            // The song's artwork may have been replaced, so extract it again
+            forgetEmbeddedPicture(song.getAlbumId());
+        }
+
+        if (bitmap == null) {
+            byte[] picture = getEmbeddedPicture(song);
+            bitmap = (picture == null) ? null : decodeArtwork(picture, getSizeInPixels(size));
+
+            if (bitmap == null) {
+                mMissingArtwork.put(song.getAlbumId(), lastModified);
+                //noinspection ResultOfMethodCallIgnored
+                cacheFile.delete();
+                return null;
+            }
+            mMissingArtwork.remove(song.getAlbumId());
+
+            writeToDiskCache(cacheFile, bitmap);
+        }
+
+        mMemoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Reads the picture embedded in a song's file. The player loads artwork in several sizes
+     * whenever the song changes, so the last picture that was read is kept and reused for other
+     * songs in the same album.
+     */
+    @Nullable
+    private synchronized byte[] getEmbeddedPicture(Song song) {
+        if (mLastPicture != null && mLastPictureAlbumId == song.getAlbumId()) {
+            return mLastPicture;
+        }
+
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+
+        try {
+            retriever.setDataSource(song.getLocation());
+            byte[] picture = retriever.getEmbeddedPicture();
+
+            mLastPicture = picture;
+            mLastPictureAlbumId = song.getAlbumId();
+            return picture;
+        } catch (Exception e) {
+            Timber.e(e, "Failed to load song artwork");
+            return null;
+        } finally {
+            retriever.release();
+        }
+    }
+
+    private synchronized void forgetEmbeddedPicture(long albumId) {
+        if (mLastPictureAlbumId == albumId) {
+            mLastPicture = null;
+        }
+    }
+
+    @Nullable
+    private static Bitmap decodeArtwork(byte[] picture, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+
+        options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight,
+                targetSize);
+        options.inJustDecodeBounds = false;
+
+        return BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+    }
+
+    /**
+     * Calculates the largest power of two that an image can be downsampled by while keeping both
+     * of its dimensions at least as large as the requested size
+     */
+    private static int calculateSampleSize(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetSize && height / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private File getCacheDir() {
+        File dir = new File(mContext.getCacheDir(), CACHE_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Timber.w("Failed to create artwork cache directory");
+        }
+        return dir;
+    }
+
+    /**
+     * Writes a thumbnail into the disk cache. The UI and player processes share the cache, so
+     * the thumbnail is written to a temporary file first and then renamed. Other processes will
+     * never see a partially written thumbnail.
+     */
+    private void writeToDiskCache(File file, Bitmap bitmap) {
+        File tempFile = null;
+        OutputStream outputStream = null;
+        boolean written = false;
+
+        try {
+            tempFile = File.createTempFile(file.getName(), TEMP_EXTENSION, file.getParentFile());
+            outputStream = new FileOutputStream(tempFile);
+            written = bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_QUALITY,
+                    outputStream);
+        } catch (IOException e) {
+            Timber.e(e, "Failed to write artwork to disk cache");
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    Timber.e(e, "Failed to close artwork cache file");
+                    written = false;
+                }
+            }
+        }
+
+        if (tempFile != null && (!written || !tempFile.renameTo(file))) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+
+        trimDiskCache();
+    }
+
+    /**
+     * Deletes the least recently used thumbnails in the disk cache until it fits within
+     * {@link #DISK_CACHE_SIZE}
+     */
+    private synchronized void trimDiskCache() {
+        File[] files = getCacheDir().listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+
+        if (totalSize <= DISK_CACHE_SIZE) {
+            return;
+        }
+
+        Arrays.sort(files, (f1, f2) -> Long.valueOf(f1.lastModified())
+                .compareTo(f2.lastModified()));
+
+        for (int i = 0; i < files.length && totalSize > DISK_CACHE_SIZE; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                totalSize -= length;
+            }
+        }
+    }
+
+    private synchronized void clearLastPicture() {
+        mLastPicture = null;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        clearLastPicture();
+        if (level >= TRIM_MEMORY_MODERATE) {
+            mMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clearLastPicture();
+        mMemoryCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+}
@@ -11,7 +11,10 @@ import com.marverenic.music.instances.Song;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
@@ -21,6 +24,11 @@ import timber.log.Timber;
 
 public class LocalMusicStore implements MusicStore {
 
+    /**
+     * The number of results to remember for each type of query that looks up part of the library
+     */
+    private static final int QUERY_CACHE_SIZE = 32;
+
     private Context mContext;
     private PreferencesStore mPreferencesStore;
 
@@ -34,6 +42,14 @@ public class LocalMusicStore implements MusicStore {
     private BehaviorSubject<List<Artist>> mArtists;
     private BehaviorSubject<List<Genre>> mGenres;
 
+    private final QueryCache<Long, List<Song>> mArtistSongs;
+    private final QueryCache<Long, List<Song>> mAlbumSongs;
+    private final QueryCache<Long, List<Song>> mGenreSongs;
+    private final QueryCache<Long, List<Album>> mArtistAlbums;
+    private final QueryCache<Long, Artist> mArtistsById;
+    private final QueryCache<Long, Album> mAlbumsById;
+    private final QueryCache<String, Artist> mArtistsByName;
+
     public LocalMusicStore(Context context, PreferencesStore preferencesStore) {
         mContext = context;
         mPreferencesStore = preferencesStore;
@@ -42,6 +58,14 @@ public class LocalMusicStore implements MusicStore {
         mAlbumLoadingState = BehaviorSubject.create(false);
         mArtistLoadingState = BehaviorSubject.create(false);
         mGenreLoadingState = BehaviorSubject.create(false);
+
+        mArtistSongs = new QueryCache<>(QUERY_CACHE_SIZE);
+        mAlbumSongs = new QueryCache<>(QUERY_CACHE_SIZE);
+        mGenreSongs = new QueryCache<>(QUERY_CACHE_SIZE);
+        mArtistAlbums = new QueryCache<>(QUERY_CACHE_SIZE);
+        mArtistsById = new QueryCache<>(QUERY_CACHE_SIZE);
+        mAlbumsById = new QueryCache<>(QUERY_CACHE_SIZE);
+        mArtistsByName = new QueryCache<>(QUERY_CACHE_SIZE);
     }
 
     @Override
@@ -63,6 +87,8 @@ public class LocalMusicStore implements MusicStore {
                 .observeOn(Schedulers.io())
                 .map(granted -> {
                     if (granted) {
+                        clearQueryCaches();
+
                         if (mSongs != null) {
                             mSongs.onNext(getAllSongs());
                         }
@@ -85,6 +111,16 @@ public class LocalMusicStore implements MusicStore {
                 .observeOn(AndroidSchedulers.mainThread());
     }
 
+    private void clearQueryCaches() {
+        mArtistSongs.clear();
+        mAlbumSongs.clear();
+        mGenreSongs.clear();
+        mArtistAlbums.clear();
+        mArtistsById.clear();
+        mAlbumsById.clear();
+        mArtistsByName.clear();
+    }
+
     @Override
     public Observable<Boolean> isLoading() {
         return Observable.combineLatest(mSongLoadingState, mArtistLoadingState, mAlbumLoadingState,
@@ -338,54 +374,126 @@ public class LocalMusicStore implements MusicStore {
 
     @Override
     public Observable<List<Song>> getSongs(Artist artist) {
-        String selection = MediaStore.Audio.Media.ARTIST_ID + " = ?";
-        String[] selectionArgs = {Long.toString(artist.getArtistId())};
+        long artistId = artist.getArtistId();
 
-        String directorySelection = getDirectoryInclusionExclusionSelection();
-        if (directorySelection != null) {
-            selection += " AND " + directorySelection;
-        }
+        return mArtistSongs.get(artistId, () -> {
+            String selection = MediaStore.Audio.Media.ARTIST_ID + " = ?";
+            String[] selectionArgs = {Long.toString(artistId)};
+
+            String directorySelection = getDirectoryInclusionExclusionSelection();
+            if (directorySelection != null) {
+                selection += " AND " + directorySelection;
+            }
 
-        return Observable.just(MediaStoreUtil.getSongs(mContext, selection, selectionArgs));
+            return Collections.unmodifiableList(
+                    MediaStoreUtil.getSongs(mContext, selection, selectionArgs));
+        });
     }
 
     @Override
     public Observable<List<Song>> getSongs(Album album) {
-        String selection = MediaStore.Audio.Media.ALBUM_ID + " = ? ";
-        String[] selectionArgs = {Long.toString(album.getAlbumId())};
+        long albumId = album.getAlbumId();
 
-        String directorySelection = getDirectoryInclusionExclusionSelection();
-        if (directorySelection != null) {
-            selection += " AND " + directorySelection;
-        }
+        return mAlbumSongs.get(albumId, () -> {
+            String selection = MediaStore.Audio.Media.ALBUM_ID + " = ? ";
+            String[] selectionArgs = {Long.toString(albumId)};
+
+            String directorySelection = getDirectoryInclusionExclusionSelection();
+            if (directorySelection != null) {
+                selection += " AND " + directorySelection;
+            }
 
-        return Observable.just(MediaStoreUtil.getSongs(mContext, selection, selectionArgs));
+            return Collections.unmodifiableList(
+                    MediaStoreUtil.getSongs(mContext, selection, selectionArgs));
+        });
     }
 
     @Override
     public Observable<List<Song>> getSongs(Genre genre) {
-        return Observable.just(MediaStoreUtil.getGenreSongs(mContext, genre,
-                getDirectoryInclusionExclusionSelection(), null));
+        return mGenreSongs.get(genre.getGenreId(), () -> {
+            return Collections.unmodifiableList(MediaStoreUtil.getGenreSongs(mContext, genre,
+                    getDirectoryInclusionExclusionSelection(), null));
+        });
+    }
+
+    @Override
+    public Observable<List<Song>> querySongs(String selection, String[] selectionArgs) {
+        return Observable.fromCallable(() -> {
+            if (!MediaStoreUtil.hasPermission(mContext)) {
+                return Collections.<Song>emptyList();
+            }
+
+            String query = "(" + selection + ")";
+            String directorySelection = getDirectoryInclusionExclusionSelection();
+            if (directorySelection != null) {
+                query += " AND (" + directorySelection + ")";
+            }
+
+            return MediaStoreUtil.getSongs(mContext, query, selectionArgs);
+        }).subscribeOn(Schedulers.io());
     }
 
     @Override
     public Observable<List<Album>> getAlbums(Artist artist) {
-        return Observable.just(filterAlbums(MediaStoreUtil.getArtistAlbums(mContext, artist)));
+        return mArtistAlbums.get((long) artist.getArtistId(), () -> {
+            return Collections.unmodifiableList(
+                    filterAlbums(MediaStoreUtil.getArtistAlbums(mContext, artist)));
+        });
     }
 
     @Override
     public Observable<Artist> findArtistById(long artistId) {
-        return Observable.just(MediaStoreUtil.findArtistById(mContext, artistId));
+        return mArtistsById.get(artistId, () -> {
+            return MediaStoreUtil.findArtistById(mContext, artistId);
+        });
     }
 
     @Override
     public Observable<Album> findAlbumById(long albumId) {
-        return Observable.just(MediaStoreUtil.findAlbumById(mContext, albumId));
+        return mAlbumsById.get(albumId, () -> {
+            return MediaStoreUtil.findAlbumById(mContext, albumId);
+        });
     }
 
     @Override
     public Observable<Artist> findArtistByName(String artistName) {
-        return Observable.just(MediaStoreUtil.findArtistByName(mContext, artistName));
+        return mArtistsByName.get(artistName, () -> {
+            return MediaStoreUtil.findArtistByName(mContext, artistName);
+        });
+    }
+
+    /**
+     * Finds several artists in the library by name at once. Names are matched against the
+     * artists that have already been loaded instead of querying the MediaStore for each name.
+     * @param artistNames The names of the artists to find. Case is ignored.
+     * @return The artists that were found, in the same order as their names. Names that don't
+     *         belong to an artist in the library are skipped.
+     */
+    @Override
+    public Observable<List<Artist>> findArtistsByName(List<String> artistNames) {
+        if (artistNames.isEmpty()) {
+            return Observable.just(Collections.emptyList());
+        }
+
+        return getArtists().take(1)
+                .observeOn(Schedulers.computation())
+                .map(artists -> {
+                    Map<String, Artist> artistsByName = new HashMap<>(artists.size());
+                    for (Artist artist : artists) {
+                        String key = artist.getArtistName().toUpperCase(Locale.ROOT);
+                        artistsByName.put(key, artist);
+                    }
+
+                    List<Artist> found = new ArrayList<>();
+                    for (String name : artistNames) {
+                        Artist artist = artistsByName.get(name.toUpperCase(Locale.ROOT));
+                        if (artist != null) {
+                            found.add(artist);
+                        }
+                    }
+                    return found;
+                })
+                .observeOn(AndroidSchedulers.mainThread());
     }
 
     @Override
@@ -0,0 +1,289 @@
+package com.marverenic.music.data.store;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.support.v4.util.LruCache;
+import android.support.v7.graphics.Palette;
+
+import com.marverenic.music.instances.Album;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * A {@link PaletteStore} that extracts swatches from album artwork on a small background thread
+ * pool. Swatches that are already cached are emitted synchronously, and newly extracted swatches
+ * are emitted on the main thread.
+ *
+ * Only the RGB value of each swatch is kept (text colors are derived from it by
+ * {@link Palette.Swatch}), so the cache is a bounded LRU map of album ids to packed ints. The
+ * cache is persisted to disk so that swatches survive process restarts.
+ */
+public class LocalPaletteStore implements PaletteStore {
+
+    private static final String CACHE_FILENAME = "palettes";
+    private static final int CACHE_VERSION = 1;
+    private static final int MAX_CACHE_ENTRIES = 4096;
+
+    private static final int EXTRACTION_THREADS = 2;
+    private static final int EXTRACTION_SIZE = 128;
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    /**
+     * Cached value for albums that don't have a usable swatch. Swatch colors are always opaque,
+     * so this can never collide with a real color.
+     */
+    private static final int NO_SWATCH = 0;
+
+    private final Context mContext;
+    private final LruCache<Long, Integer> mCache;
+    private final Map<Long, Observable<Palette.Swatch>> mPendingExtractions;
+    private final Scheduler mExtractionScheduler;
+
+    private final Object mLoadLock = new Object();
+    private boolean mLoaded;
+    private boolean mSaveScheduled;
+
+    public LocalPaletteStore(Context context) {
+        mContext = context;
+        mCache = new LruCache<>(MAX_CACHE_ENTRIES);
+        mPendingExtractions = new HashMap<>();
+        mExtractionScheduler = Schedulers.from(Executors.newFixedThreadPool(EXTRACTION_THREADS));
+
+        Observable.fromCallable(() -> {
+            loadCache();
+            return null;
+        })
+                .subscribeOn(Schedulers.io())
+                .subscribe(ignored -> {}, throwable -> {
+                    Timber.e(throwable, "Failed to load palette cache");
+                });
+    }
+
+    @Override
+    public Observable<Palette.Swatch> getSwatch(Album album) {
+        if (album.getArtUri() == null) {
+            return Observable.just(null);
+        }
+
+        Integer cached = mCache.get(album.getAlbumId());
+        if (cached != null) {
+            return Observable.just(unpack(cached));
+        }
+
+        synchronized (mPendingExtractions) {
+            Observable<Palette.Swatch> pending = mPendingExtractions.get(album.getAlbumId());
+            if (pending != null) {
+                return pending;
+            }
+
+            Observable<Palette.Swatch> extraction = Observable
+                    .fromCallable(() -> lookupOrExtract(album))
+                    .subscribeOn(mExtractionScheduler)
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .doOnTerminate(() -> {
+                        synchronized (mPendingExtractions) {
+                            mPendingExtractions.remove(album.getAlbumId());
+                        }
+                    })
+                    .cache();
+
+            mPendingExtractions.put(album.getAlbumId(), extraction);
+            return extraction;
+        }
+    }
+
+    @Override
+    public void prefetchSwatch(Album album) {
+        if (album.getArtUri() == null || mCache.get(album.getAlbumId()) != null) {
+            return;
+        }
+
+        getSwatch(album).subscribe(
+                swatch -> {},
+                throwable -> {
+                    Timber.e(throwable, "Failed to prefetch swatch");
+                });
+    }
+
+    @Nullable
+    private Palette.Swatch lookupOrExtract(Album album) throws IOException {
+        // The disk cache may still be loading when the first swatches are requested
+        loadCache();
+
+        Integer cached = mCache.get(album.getAlbumId());
+        if (cached != null) {
+            return unpack(cached);
+        }
+
+        Palette.Swatch swatch = extractSwatch(album.getArtUri());
+        mCache.put(album.getAlbumId(), (swatch == null) ? NO_SWATCH : swatch.getRgb());
+        scheduleSave();
+
+        return swatch;
+    }
+
+    @Nullable
+    private static Palette.Swatch extractSwatch(String artPath) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(artPath, options);
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= EXTRACTION_SIZE
+                && options.outHeight / (sampleSize * 2) >= EXTRACTION_SIZE) {
+            sampleSize *= 2;
+        }
+
+        options.inSampleSize = sampleSize;
+        options.inJustDecodeBounds = false;
+
+        Bitmap bitmap = BitmapFactory.decodeFile(artPath, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        Palette palette = Palette.from(bitmap).generate();
+        bitmap.recycle();
+
+        return pickSwatch(palette);
+    }
+
+    @Nullable
+    private static Palette.Swatch pickSwatch(Palette palette) {
+        if (palette.getVibrantSwatch() != null) {
+            return palette.getVibrantSwatch();
+        }
+        if (palette.getLightVibrantSwatch() != null) {
+            return palette.getLightVibrantSwatch();
+        }
+        if (palette.getDarkVibrantSwatch() != null) {
+            return palette.getDarkVibrantSwatch();
+        }
+        if (palette.getLightMutedSwatch() != null) {
+            return palette.getLightMutedSwatch();
+        }
+        if (palette.getDarkMutedSwatch() != null) {
+            return palette.getDarkMutedSwatch();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Palette.Swatch unpack(int packedColor) {
+        if (packedColor == NO_SWATCH) {
+            return null;
+        }
+        return new Palette.Swatch(packedColor, 1);
+    }
+
+    private AtomicFile getCacheFile() {
+        return new AtomicFile(new File(mContext.getCacheDir(), CACHE_FILENAME));
+    }
+
+    private void loadCache() throws IOException {
+        synchronized (mLoadLock) {
+            if (mLoaded) {
+                return;
+            }
+            mLoaded = true;
+
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(getCacheFile().openRead()));
+
+                if (in.readInt() != CACHE_VERSION) {
+                    Timber.i("Palette cache is from an old version. Ignoring it.");
+                    return;
+                }
+
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    long albumId = in.readLong();
+                    int color = in.readInt();
+
+                    // Don't replace swatches that were extracted while the file was being read
+                    if (mCache.get(albumId) == null) {
+                        mCache.put(albumId, color);
+                    }
+                }
+            } catch (FileNotFoundException ignored) {
+                Timber.i("Palette cache does not exist yet");
+            } finally {
+                if (in != null) {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    private void scheduleSave() {
+        synchronized (mLoadLock) {
+            if (mSaveScheduled) {
+                return;
+            }
+            mSaveScheduled = true;
+        }
+
+        Schedulers.io().createWorker().schedule(() -> {
+            synchronized (mLoadLock) {
+                mSaveScheduled = false;
+            }
+
+            try {
+                saveCache();
+            } catch (IOException e) {
+                Timber.e(e, "Failed to save palette cache");
+            }
+        }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void saveCache() throws IOException {
+        // Entries are written from least to most recently used, so that reading them back in
+        // order restores the same LRU ordering
+        Map<Long, Integer> snapshot = mCache.snapshot();
+
+        AtomicFile file = getCacheFile();
+        FileOutputStream stream = null;
+
+        try {
+            stream = file.startWrite();
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(CACHE_VERSION);
+            out.writeInt(snapshot.size());
+
+            for (Map.Entry<Long, Integer> entry : snapshot.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            throw e;
+        }
+    }
+}
@@ -11,11 +11,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
 import timber.log.Timber;
 
 public class LocalPlayCountStore implements PlayCountStore {
@@ -25,34 +28,125 @@ public class LocalPlayCountStore implements PlayCountStore {
             + "Jockey and should not be edited";
 
     private Context mContext;
-    private final LongSparseArray<Count> mCounts;
+    private LongSparseArray<Count> mCounts;
+    private final PublishSubject<Set<Long>> mChangedSongIds;
+
+    /**
+     * The ids of songs whose counts have been changed by this instance since play counts were
+     * last reloaded
+     */
+    private final Set<Long> mEditedSongIds;
+
+    /**
+     * A copy of the counts that were most recently read from disk, which is never edited. Guarded
+     * by {@code this}.
+     */
+    private LongSparseArray<Count> mSavedCounts;
 
     public LocalPlayCountStore(Context context) {
         mContext = context;
         mCounts = new LongSparseArray<>();
+        mChangedSongIds = PublishSubject.create();
+        mEditedSongIds = new HashSet<>();
+        mSavedCounts = new LongSparseArray<>();
     }
 
+    /**
+     * Reloads play counts from disk. The file is read and compared to the previous version on a
+     * background thread, and only the new counts are swapped in on the main thread.
+     */
     @Override
     public Observable<Void> refresh() {
-        return Observable.fromCallable(
-                () -> {
-                    mCounts.clear();
-                    Properties playCountMap = getPlayCounts();
-                    Enumeration iterator = playCountMap.propertyNames();
+        return Observable.fromCallable(this::readCounts)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .map(loadedCounts -> {
+                    setCounts(loadedCounts);
+                    return (Void) null;
+                })
+                .observeOn(Schedulers.io());
+    }
 
-                    while (iterator.hasMoreElements()) {
-                        String key = (String) iterator.nextElement();
-                        String value = playCountMap.getProperty(key);
+    private synchronized LoadedCounts readCounts() throws IOException {
+        Properties playCountMap = getPlayCounts();
+        Enumeration iterator = playCountMap.propertyNames();
 
-                        Count count = new Count(value);
+        LongSparseArray<Count> counts = new LongSparseArray<>(playCountMap.size());
+        LongSparseArray<Count> savedCounts = new LongSparseArray<>(playCountMap.size());
 
-                        mCounts.put(Long.parseLong(key), count);
-                    }
+        while (iterator.hasMoreElements()) {
+            String key = (String) iterator.nextElement();
+            String value = playCountMap.getProperty(key);
 
-                    return (Void) null;
-                })
-                .observeOn(Schedulers.io())
-                .subscribeOn(AndroidSchedulers.mainThread());
+            long songId = Long.parseLong(key);
+            Count count = new Count(value);
+
+            counts.put(songId, count);
+            savedCounts.put(songId, new Count(count));
+        }
+
+        Set<Long> changedSongIds = findChangedSongIds(mSavedCounts, savedCounts);
+        mSavedCounts = savedCounts;
+
+        return new LoadedCounts(counts, changedSongIds);
+    }
+
+    /**
+     * Replaces the counts in memory with counts that were read from disk. Must be called on the
+     * main thread.
+     */
+    private void setCounts(LoadedCounts loadedCounts) {
+        LongSparseArray<Count> counts = loadedCounts.mCounts;
+        Set<Long> changedSongIds = loadedCounts.mChangedSongIds;
+
+        // Songs that haven't been edited still have the counts that were last read from disk, so
+        // only edited songs have to be compared to the new counts here
+        for (long songId : mEditedSongIds) {
+            Count previous = mCounts.get(songId);
+            Count updated = counts.get(songId);
+
+            if ((previous == null) ? updated == null : previous.equals(updated)) {
+                changedSongIds.remove(songId);
+            } else {
+                changedSongIds.add(songId);
+            }
+        }
+
+        mEditedSongIds.clear();
+        mCounts = counts;
+
+        if (!changedSongIds.isEmpty()) {
+            mChangedSongIds.onNext(changedSongIds);
+        }
+    }
+
+    /**
+     * Emits the ids of songs whose play count, skip count, or play date changed when play counts
+     * were reloaded by {@link #refresh()}. Changes made by this instance aren't included.
+     */
+    @Override
+    public Observable<Set<Long>> getChangedSongIds() {
+        return mChangedSongIds.asObservable();
+    }
+
+    private static Set<Long> findChangedSongIds(LongSparseArray<Count> before,
+                                                LongSparseArray<Count> after) {
+        Set<Long> changed = new HashSet<>();
+
+        for (int i = 0; i < after.size(); i++) {
+            Count previous = before.get(after.keyAt(i));
+            if (previous == null || !previous.equals(after.valueAt(i))) {
+                changed.add(after.keyAt(i));
+            }
+        }
+
+        for (int i = 0; i < before.size(); i++) {
+            if (after.get(before.keyAt(i)) == null) {
+                changed.add(before.keyAt(i));
+            }
+        }
+
+        return changed;
     }
 
     private File getPlayCountFile() {
@@ -154,6 +248,8 @@ public class LocalPlayCountStore implements PlayCountStore {
     }
 
     private Count getOrInitializeCount(Song song) {
+        mEditedSongIds.add(song.getSongId());
+
         Count count = mCounts.get(song.getSongId());
         if (count == null) {
             count = new Count();
@@ -187,6 +283,12 @@ public class LocalPlayCountStore implements PlayCountStore {
         Count() {
         }
 
+        Count(Count other) {
+            mPlays = other.mPlays;
+            mSkips = other.mSkips;
+            mDate = other.mDate;
+        }
+
         Count(String commaSeparatedValues) {
             String[] originalValues = commaSeparatedValues.split(",");
 
@@ -207,5 +309,33 @@ public class LocalPlayCountStore implements PlayCountStore {
             return mPlays + "," + mSkips + "," + mDate;
         }
 
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (other == null || getClass() != other.getClass()) return false;
+
+            Count that = (Count) other;
+            return mPlays == that.mPlays && mSkips == that.mSkips && mDate == that.mDate;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mPlays;
+            result = 31 * result + mSkips;
+            result = 31 * result + (int) (mDate ^ (mDate >>> 32));
+            return result;
+        }
+
+    }
+
+    private static class LoadedCounts {
+
+        final LongSparseArray<Count> mCounts;
+        final Set<Long> mChangedSongIds;
+
+        LoadedCounts(LongSparseArray<Count> counts, Set<Long> changedSongIds) {
+            mCounts = counts;
+            mChangedSongIds = changedSongIds;
+        }
     }
 }
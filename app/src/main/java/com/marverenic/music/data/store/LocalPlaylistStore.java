@@ -4,21 +4,20 @@ import android.content.Context;
 import android.support.annotation.Nullable;
 import android.support.v4.util.ArrayMap;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.marverenic.music.R;
 import com.marverenic.music.instances.AutoPlaylist;
 import com.marverenic.music.instances.Playlist;
 import com.marverenic.music.instances.Song;
-import com.marverenic.music.instances.playlistrules.AutoPlaylistRule;
+import com.marverenic.music.instances.playlistrules.SongPredicate;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import rx.Observable;
 import rx.android.schedulers.AndroidSchedulers;
@@ -28,15 +27,35 @@ import timber.log.Timber;
 
 public class LocalPlaylistStore implements PlaylistStore {
 
-    private static final String AUTO_PLAYLIST_EXTENSION = ".jpl";
-
     // Used to generate Auto Playlist contents
     private MusicStore mMusicStore;
     private PlayCountStore mPlayCountStore;
 
     private Context mContext;
     private BehaviorSubject<List<Playlist>> mPlaylists;
-    private Map<AutoPlaylist, BehaviorSubject<List<Song>>> mAutoPlaylistSessionContents;
+    private final AutoPlaylistDefinitionStore mAutoPlaylistDefinitions;
+
+    /**
+     * The contents of playlists that have been loaded, keyed by playlist id. Entries are updated
+     * as playlists are edited through this store, and cleared when playlists are refreshed.
+     */
+    private final Map<Long, PlaylistMembers> mPlaylistMembers;
+
+    /**
+     * The number of times songs have been appended to a playlist whose contents weren't cached.
+     * Contents that were being loaded during one of these writes may be missing the new songs, so
+     * they aren't cached. Guarded by {@link #mPlaylistMembers}.
+     */
+    private int mUncachedAppendCount;
+
+    private final Map<AutoPlaylist, AutoPlaylistContents> mAutoPlaylistSessionContents;
+
+    /**
+     * The most recent version of the library that auto playlists have been updated against,
+     * keyed by song id. Guarded by {@link #mAutoPlaylistSessionContents}.
+     */
+    private Map<Long, Song> mLibrary;
+    private boolean mObservingAutoPlaylistDependencies;
 
     private BehaviorSubject<Boolean> mLoadingState;
 
@@ -45,6 +64,8 @@ public class LocalPlaylistStore implements PlaylistStore {
         mContext = context;
         mMusicStore = musicStore;
         mPlayCountStore = playCountStore;
+        mAutoPlaylistDefinitions = new AutoPlaylistDefinitionStore(context);
+        mPlaylistMembers = new HashMap<>();
         mAutoPlaylistSessionContents = new ArrayMap<>();
         mLoadingState = BehaviorSubject.create(false);
     }
@@ -66,8 +87,16 @@ public class LocalPlaylistStore implements PlaylistStore {
                 .observeOn(Schedulers.io())
                 .map(granted -> {
                     if (granted && mPlaylists != null) {
+                        // Playlists may have been edited by other apps
+                        synchronized (mPlaylistMembers) {
+                            mPlaylistMembers.clear();
+                        }
+
                         mPlaylists.onNext(getAllPlaylists());
-                        mAutoPlaylistSessionContents.clear();
+
+                        // Auto playlists are updated as the library changes, but play counts
+                        // changed by the player have to be reloaded to be picked up
+                        refreshPlayCounts();
                     }
                     mLoadingState.onNext(false);
                     return granted;
@@ -86,6 +115,11 @@ public class LocalPlaylistStore implements PlaylistStore {
             mPlaylists = BehaviorSubject.create();
             mLoadingState.onNext(true);
 
+            mAutoPlaylistDefinitions.getChanges()
+                    .subscribe(this::onAutoPlaylistsChanged, throwable -> {
+                        Timber.e(throwable, "Failed to update edited auto playlists");
+                    });
+
             MediaStoreUtil.getPermission(mContext)
                     .observeOn(Schedulers.io())
                     .subscribe(granted -> {
@@ -103,7 +137,52 @@ public class LocalPlaylistStore implements PlaylistStore {
     }
 
     private List<Playlist> getAllPlaylists() {
-        return MediaStoreUtil.getAllPlaylists(mContext);
+        List<Playlist> playlists =
+                new ArrayList<>(MediaStoreUtil.getPlaylists(mContext, null, null));
+        List<Long> orphanedIds = new ArrayList<>();
+
+        for (AutoPlaylist autoPlaylist : mAutoPlaylistDefinitions.getAutoPlaylists()) {
+            int index = playlists.indexOf(autoPlaylist);
+            if (index >= 0) {
+                playlists.set(index, autoPlaylist);
+            } else {
+                orphanedIds.add(autoPlaylist.getPlaylistId());
+            }
+        }
+
+        // If AutoPlaylists have been deleted outside of Jockey, delete their configurations
+        if (!orphanedIds.isEmpty()) {
+            mAutoPlaylistDefinitions.remove(orphanedIds);
+        }
+
+        Collections.sort(playlists);
+        return playlists;
+    }
+
+    /**
+     * Replaces playlists that have already been loaded with their latest auto playlist
+     * configurations
+     */
+    private void onAutoPlaylistsChanged(List<AutoPlaylist> autoPlaylists) {
+        if (mPlaylists.getValue() == null) {
+            return;
+        }
+
+        List<Playlist> updatedPlaylists = new ArrayList<>(mPlaylists.getValue());
+        boolean changed = false;
+
+        for (AutoPlaylist autoPlaylist : autoPlaylists) {
+            int index = updatedPlaylists.indexOf(autoPlaylist);
+            if (index >= 0 && updatedPlaylists.get(index) != autoPlaylist) {
+                updatedPlaylists.set(index, autoPlaylist);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            Collections.sort(updatedPlaylists);
+            mPlaylists.onNext(updatedPlaylists);
+        }
     }
 
     @Override
@@ -116,30 +195,350 @@ public class LocalPlaylistStore implements PlaylistStore {
     }
 
     private Observable<List<Song>> getPlaylistSongs(Playlist playlist) {
-        return Observable.just(MediaStoreUtil.getPlaylistSongs(mContext, playlist));
+        PlaylistMembers members;
+        synchronized (mPlaylistMembers) {
+            members = mPlaylistMembers.get(playlist.getPlaylistId());
+        }
+
+        if (members != null) {
+            return Observable.just(members.getSongs());
+        }
+
+        return Observable.fromCallable(() -> getPlaylistMembers(playlist).getSongs())
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Gets the cached contents of a playlist, or loads them from the MediaStore if they haven't
+     * been loaded yet. When the contents aren't cached, this method blocks while they're read.
+     */
+    private PlaylistMembers getPlaylistMembers(Playlist playlist) {
+        long playlistId = playlist.getPlaylistId();
+
+        int uncachedAppendCount;
+        synchronized (mPlaylistMembers) {
+            PlaylistMembers members = mPlaylistMembers.get(playlistId);
+            if (members != null) {
+                return members;
+            }
+            uncachedAppendCount = mUncachedAppendCount;
+        }
+
+        List<Song> songs = MediaStoreUtil.getPlaylistSongs(mContext, playlistId);
+        long nextPlayOrder = MediaStoreUtil.getNextPlayOrder(mContext, playlistId);
+
+        synchronized (mPlaylistMembers) {
+            // Another thread may have loaded or edited this playlist while it was being read
+            PlaylistMembers members = mPlaylistMembers.get(playlistId);
+            if (members == null) {
+                members = new PlaylistMembers(songs, nextPlayOrder);
+                if (uncachedAppendCount == mUncachedAppendCount) {
+                    mPlaylistMembers.put(playlistId, members);
+                }
+            }
+            return members;
+        }
+    }
+
+    private void setPlaylistMembers(Playlist playlist, List<Song> songs, long nextPlayOrder) {
+        synchronized (mPlaylistMembers) {
+            PlaylistMembers members = mPlaylistMembers.get(playlist.getPlaylistId());
+            if (members == null) {
+                mPlaylistMembers.put(playlist.getPlaylistId(),
+                        new PlaylistMembers(songs, nextPlayOrder));
+            } else {
+                members.set(songs, nextPlayOrder);
+            }
+        }
+    }
+
+    private void appendToPlaylistMembers(Playlist playlist, List<Song> songs) {
+        PlaylistMembers members;
+        synchronized (mPlaylistMembers) {
+            members = mPlaylistMembers.get(playlist.getPlaylistId());
+        }
+
+        if (members != null) {
+            long firstPlayOrder = members.append(songs);
+            MediaStoreUtil.appendToPlaylist(mContext, playlist, songs, firstPlayOrder);
+            return;
+        }
+
+        // Don't load the entire playlist just to add to the end of it
+        MediaStoreUtil.appendToPlaylist(mContext, playlist, songs);
+
+        synchronized (mPlaylistMembers) {
+            // Drop any contents that were loaded while the songs were being written
+            mPlaylistMembers.remove(playlist.getPlaylistId());
+            mUncachedAppendCount++;
+        }
+    }
+
+    private void removeFromPlaylistMembers(Playlist playlist, List<Song> songs) {
+        PlaylistMembers members;
+        synchronized (mPlaylistMembers) {
+            members = mPlaylistMembers.get(playlist.getPlaylistId());
+        }
+
+        if (members != null) {
+            members.removeAll(songs);
+        }
+        MediaStoreUtil.removeFromPlaylist(mContext, playlist, songs);
     }
 
     private Observable<List<Song>> getAutoPlaylistSongs(AutoPlaylist playlist) {
-        BehaviorSubject<List<Song>> subject;
+        AutoPlaylistContents contents;
+        boolean generate = false;
+
+        synchronized (mAutoPlaylistSessionContents) {
+            contents = mAutoPlaylistSessionContents.get(playlist);
+            if (contents == null) {
+                contents = new AutoPlaylistContents(playlist);
+                mAutoPlaylistSessionContents.put(playlist, contents);
+                generate = true;
+            }
+        }
 
-        if (mAutoPlaylistSessionContents.containsKey(playlist)) {
-            subject = mAutoPlaylistSessionContents.get(playlist);
-        } else {
-            subject = BehaviorSubject.create();
-            mAutoPlaylistSessionContents.put(playlist, subject);
+        BehaviorSubject<List<Song>> subject = contents.mSongs;
+
+        if (generate) {
+            observeAutoPlaylistDependencies();
+            AutoPlaylistContents generated = contents;
+            generateAutoPlaylist(contents).subscribe(songs -> {}, throwable -> {
+                Timber.e(throwable, "Failed to generate auto playlist");
+                discardAutoPlaylistContents(generated);
+            });
+        } else if (contents.mPlaylist.dependsOnPlayCounts()) {
+            // Pick up any songs that have been played since this playlist was last updated
+            refreshPlayCounts();
+        }
 
-            playlist.generatePlaylist(mMusicStore, this, mPlayCountStore)
-                    .subscribe(subject::onNext, subject::onError);
+        return subject.asObservable();
+    }
 
-            subject.observeOn(Schedulers.io())
-                    .subscribe(contents -> {
-                        editPlaylist(playlist, contents);
-                    }, throwable -> {
-                        Timber.e(throwable, "Failed to save playlist contents");
-                    });
+    /**
+     * Generates the contents of an auto playlist from scratch, and replaces its contents in the
+     * MediaStore
+     * @return An Observable that emits the new contents of the playlist once they've been written
+     */
+    private Observable<List<Song>> generateAutoPlaylist(AutoPlaylistContents contents) {
+        AutoPlaylist playlist;
+        int generation;
+
+        synchronized (contents) {
+            playlist = contents.mPlaylist;
+            generation = ++contents.mGeneration;
+        }
+
+        return mPlayCountStore.refresh()
+                .flatMap(ignored -> playlist.compileRules(mMusicStore, this, mPlayCountStore))
+                .flatMap(predicate -> playlist
+                        .generatePlaylist(predicate, mMusicStore, mPlayCountStore)
+                        .doOnNext(songs -> {
+                            synchronized (contents) {
+                                // A newer generation may have started with different rules
+                                if (contents.isCurrentGeneration(generation)) {
+                                    contents.mPredicate = predicate;
+                                    contents.mSongs.onNext(songs);
+                                }
+                            }
+                        }))
+                .observeOn(Schedulers.io())
+                .doOnNext(songs -> {
+                    synchronized (contents.mWriteLock) {
+                        if (contents.isCurrentGeneration(generation)) {
+                            editPlaylist(playlist, songs);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Forgets the contents of an auto playlist that couldn't be generated, so that it's generated
+     * again the next time it's requested. The playlist's subject is left open instead of being
+     * terminated with the error, since it's shared with every other subscriber.
+     */
+    private void discardAutoPlaylistContents(AutoPlaylistContents contents) {
+        synchronized (mAutoPlaylistSessionContents) {
+            AutoPlaylist playlist = contents.mPlaylist;
+            if (mAutoPlaylistSessionContents.get(playlist) == contents) {
+                mAutoPlaylistSessionContents.remove(playlist);
+            }
+        }
+    }
+
+    private void regenerateAutoPlaylist(AutoPlaylistContents contents) {
+        generateAutoPlaylist(contents).subscribe(songs -> {}, throwable -> {
+            Timber.e(throwable, "Failed to regenerate auto playlist");
+        });
+    }
+
+    private void refreshPlayCounts() {
+        mPlayCountStore.refresh().subscribe(ignored -> {}, throwable -> {
+            Timber.e(throwable, "Failed to refresh play counts");
+        });
+    }
+
+    private List<AutoPlaylistContents> getAutoPlaylistContents() {
+        synchronized (mAutoPlaylistSessionContents) {
+            return new ArrayList<>(mAutoPlaylistSessionContents.values());
+        }
+    }
+
+    /**
+     * Starts updating generated auto playlists when songs are added to or removed from the
+     * library, and when play counts change
+     */
+    private void observeAutoPlaylistDependencies() {
+        synchronized (mAutoPlaylistSessionContents) {
+            if (mObservingAutoPlaylistDependencies) {
+                return;
+            }
+            mObservingAutoPlaylistDependencies = true;
+        }
+
+        mMusicStore.getSongs()
+                .observeOn(Schedulers.io())
+                .subscribe(this::onLibraryChanged, throwable -> {
+                    Timber.e(throwable, "Failed to update auto playlists for library changes");
+                });
+
+        mPlayCountStore.getChangedSongIds()
+                .observeOn(Schedulers.io())
+                .subscribe(this::onPlayCountsChanged, throwable -> {
+                    Timber.e(throwable, "Failed to update auto playlists for play count changes");
+                });
+    }
+
+    private void onLibraryChanged(List<Song> library) {
+        Map<Long, Song> songsById = new HashMap<>(library.size());
+        for (Song song : library) {
+            songsById.put(song.getSongId(), song);
+        }
+
+        Map<Long, Song> previousLibrary;
+        synchronized (mAutoPlaylistSessionContents) {
+            previousLibrary = mLibrary;
+            mLibrary = songsById;
+        }
+
+        // The first version of the library is the one playlists were generated from
+        if (previousLibrary == null) {
+            return;
+        }
+
+        List<Song> addedSongs = new ArrayList<>();
+        for (Song song : library) {
+            if (!previousLibrary.containsKey(song.getSongId())) {
+                addedSongs.add(song);
+            }
+        }
+
+        List<Long> removedSongIds = new ArrayList<>();
+        for (Long songId : previousLibrary.keySet()) {
+            if (!songsById.containsKey(songId)) {
+                removedSongIds.add(songId);
+            }
+        }
+
+        if (addedSongs.isEmpty() && removedSongIds.isEmpty()) {
+            return;
         }
 
-        return subject.asObservable().observeOn(AndroidSchedulers.mainThread());
+        for (AutoPlaylistContents contents : getAutoPlaylistContents()) {
+            AutoPlaylist playlist = contents.mPlaylist;
+
+            if (playlist.isIncrementallyUpdatable() && !playlist.dependsOnCollections()) {
+                updateAutoPlaylist(contents, addedSongs, removedSongIds);
+            } else {
+                regenerateAutoPlaylist(contents);
+            }
+        }
+    }
+
+    private void onPlayCountsChanged(Set<Long> songIds) {
+        Map<Long, Song> library;
+        synchronized (mAutoPlaylistSessionContents) {
+            library = mLibrary;
+        }
+
+        if (library == null) {
+            return;
+        }
+
+        List<Song> changedSongs = new ArrayList<>(songIds.size());
+        for (Long songId : songIds) {
+            Song song = library.get(songId);
+            if (song != null) {
+                changedSongs.add(song);
+            }
+        }
+
+        for (AutoPlaylistContents contents : getAutoPlaylistContents()) {
+            AutoPlaylist playlist = contents.mPlaylist;
+
+            if (!playlist.dependsOnPlayCounts()) {
+                continue;
+            }
+
+            if (playlist.isIncrementallyUpdatable()) {
+                updateAutoPlaylist(contents, changedSongs, Collections.emptyList());
+            } else {
+                regenerateAutoPlaylist(contents);
+            }
+        }
+    }
+
+    /**
+     * Re-evaluates songs that have changed against an auto playlist's rules, and writes any songs
+     * that were added to or removed from the playlist to the MediaStore
+     */
+    private void updateAutoPlaylist(AutoPlaylistContents contents, List<Song> changedSongs,
+                                    List<Long> removedSongIds) {
+        List<Song> previousSongs;
+        List<Song> updatedSongs;
+
+        synchronized (contents) {
+            previousSongs = contents.mSongs.getValue();
+
+            // Playlists that are still being generated will already see these changes
+            if (contents.mPredicate == null || previousSongs == null) {
+                return;
+            }
+
+            updatedSongs = contents.mPlaylist.updatePlaylist(previousSongs, contents.mPredicate,
+                    changedSongs, removedSongIds, mPlayCountStore);
+
+            if (updatedSongs.equals(previousSongs)) {
+                return;
+            }
+
+            contents.mSongs.onNext(updatedSongs);
+        }
+
+        Set<Song> previousMembers = new HashSet<>(previousSongs);
+        Set<Song> updatedMembers = new HashSet<>(updatedSongs);
+
+        List<Song> removedMembers = new ArrayList<>();
+        for (Song song : previousSongs) {
+            if (!updatedMembers.contains(song)) {
+                removedMembers.add(song);
+            }
+        }
+
+        List<Song> addedMembers = new ArrayList<>();
+        for (Song song : updatedSongs) {
+            if (!previousMembers.contains(song)) {
+                addedMembers.add(song);
+            }
+        }
+
+        if (!removedMembers.isEmpty()) {
+            removeFromPlaylistMembers(contents.mPlaylist, removedMembers);
+        }
+        if (!addedMembers.isEmpty()) {
+            appendToPlaylistMembers(contents.mPlaylist, addedMembers);
+        }
     }
 
     @Override
@@ -206,6 +605,10 @@ public class LocalPlaylistStore implements PlaylistStore {
     public Playlist makePlaylist(String name, @Nullable List<Song> songs) {
         Playlist created = MediaStoreUtil.createPlaylist(mContext, name, songs);
 
+        // Songs in new playlists are numbered from 0
+        List<Song> contents = (songs == null) ? Collections.emptyList() : songs;
+        setPlaylistMembers(created, contents, contents.size());
+
         if (mPlaylists != null && mPlaylists.getValue() != null) {
             List<Playlist> updated = new ArrayList<>(mPlaylists.getValue());
             updated.add(created);
@@ -219,7 +622,26 @@ public class LocalPlaylistStore implements PlaylistStore {
 
     @Override
     public void removePlaylist(Playlist playlist) {
+        AutoPlaylistContents contents;
+        synchronized (mAutoPlaylistSessionContents) {
+            contents = mAutoPlaylistSessionContents.remove(playlist);
+        }
+
+        if (contents != null) {
+            // Wait for any write in progress so that it can't recreate the playlist's contents
+            synchronized (contents.mWriteLock) {
+                synchronized (contents) {
+                    contents.mRemoved = true;
+                }
+            }
+        }
+
         MediaStoreUtil.deletePlaylist(mContext, playlist);
+        mAutoPlaylistDefinitions.remove(Collections.singletonList(playlist.getPlaylistId()));
+
+        synchronized (mPlaylistMembers) {
+            mPlaylistMembers.remove(playlist.getPlaylistId());
+        }
 
         if (mPlaylists != null && mPlaylists.getValue() != null) {
             List<Playlist> updated = new ArrayList<>(mPlaylists.getValue());
@@ -231,78 +653,141 @@ public class LocalPlaylistStore implements PlaylistStore {
 
     @Override
     public void editPlaylist(Playlist playlist, List<Song> newSongs) {
-        MediaStoreUtil.editPlaylist(mContext, playlist, newSongs);
+        long nextPlayOrder = MediaStoreUtil.editPlaylist(mContext, playlist, newSongs);
+        setPlaylistMembers(playlist,
+                (newSongs == null) ? Collections.emptyList() : newSongs, nextPlayOrder);
     }
 
     @Override
     public void editPlaylist(AutoPlaylist replacement) {
+        // Loaded playlists are updated when the new configuration is saved
         saveAutoPlaylistConfiguration(replacement);
-
-        if (mPlaylists != null && mPlaylists.getValue() != null) {
-            List<Playlist> updatedPlaylists = new ArrayList<>(mPlaylists.getValue());
-
-            int index = updatedPlaylists.indexOf(replacement);
-            updatedPlaylists.set(index, replacement);
-
-            mPlaylists.onNext(updatedPlaylists);
-        }
     }
 
     private void saveAutoPlaylistConfiguration(AutoPlaylist playlist) {
+        AutoPlaylistContents contents;
+
+        synchronized (mAutoPlaylistSessionContents) {
+            contents = mAutoPlaylistSessionContents.get(playlist);
+            if (contents == null) {
+                contents = new AutoPlaylistContents(playlist);
+                mAutoPlaylistSessionContents.put(playlist, contents);
+            } else {
+                synchronized (contents) {
+                    contents.mPlaylist = playlist;
+                    contents.mPredicate = null;
+                }
+            }
+        }
+
+        mAutoPlaylistDefinitions.put(playlist);
+        observeAutoPlaylistDependencies();
+
         // Write an initial set of values to the MediaStore so other apps can see this playlist
-        playlist.generatePlaylist(mMusicStore, this, mPlayCountStore)
+        AutoPlaylistContents generated = contents;
+        generateAutoPlaylist(contents)
                 .take(1)
-                .observeOn(Schedulers.io())
-                .subscribe(contents -> {
-                    editPlaylist(playlist, contents);
-
-                    // Cache this result in memory
-                    BehaviorSubject<List<Song>> contentsSubject;
-                    if (mAutoPlaylistSessionContents.containsKey(playlist)) {
-                        contentsSubject = mAutoPlaylistSessionContents.get(playlist);
-                    } else {
-                        contentsSubject = BehaviorSubject.create();
-                        mAutoPlaylistSessionContents.put(playlist, contentsSubject);
-                    }
-                    contentsSubject.onNext(contents);
-
-                    try {
-                        writeAutoPlaylistConfiguration(playlist);
-                    } catch (IOException e) {
-                        Timber.e(e, "Failed to write autoPlaylist configuration");
-                    }
-                }, throwable -> {
+                .subscribe(songs -> {}, throwable -> {
                     Timber.e(throwable, "makePlaylist: Failed to initialize contents");
+                    discardAutoPlaylistContents(generated);
                 });
     }
 
-    private void writeAutoPlaylistConfiguration(AutoPlaylist playlist) throws IOException {
-        Gson gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(AutoPlaylistRule.class, new AutoPlaylistRule.RuleTypeAdapter())
-                .create();
-        FileWriter writer = null;
-
-        try {
-            String filename = playlist.getPlaylistName() + AUTO_PLAYLIST_EXTENSION;
-            String fullPath = mContext.getExternalFilesDir(null) + File.separator + filename;
-
-            writer = new FileWriter(fullPath);
-            writer.write(gson.toJson(playlist, AutoPlaylist.class));
-        } finally {
-            if (writer != null) {
-                writer.close();
-            }
-        }
-    }
-
     @Override
     public void addToPlaylist(Playlist playlist, Song song) {
-        MediaStoreUtil.appendToPlaylist(mContext, playlist, song);
+        appendToPlaylistMembers(playlist, Collections.singletonList(song));
     }
 
     @Override
     public void addToPlaylist(Playlist playlist, List<Song> songs) {
-        MediaStoreUtil.appendToPlaylist(mContext, playlist, songs);
+        appendToPlaylistMembers(playlist, songs);
+    }
+
+    /**
+     * The songs in a playlist, along with the play order to give the next song appended to it so
+     * that appending songs doesn't require counting the playlist's current members
+     */
+    static final class PlaylistMembers {
+
+        private List<Song> mSongs;
+        private long mNextPlayOrder;
+
+        PlaylistMembers(List<Song> songs, long nextPlayOrder) {
+            set(songs, nextPlayOrder);
+        }
+
+        /**
+         * @return A copy of the songs in this playlist. Callers are free to edit it, for example
+         *         to reorder songs before saving them, without changing these members.
+         */
+        synchronized List<Song> getSongs() {
+            return new ArrayList<>(mSongs);
+        }
+
+        synchronized void set(List<Song> songs, long nextPlayOrder) {
+            mSongs = Collections.unmodifiableList(new ArrayList<>(songs));
+            mNextPlayOrder = nextPlayOrder;
+        }
+
+        /**
+         * @return The play order to give the first appended song
+         */
+        synchronized long append(List<Song> songs) {
+            List<Song> updated = new ArrayList<>(mSongs.size() + songs.size());
+            updated.addAll(mSongs);
+            updated.addAll(songs);
+            mSongs = Collections.unmodifiableList(updated);
+
+            long firstPlayOrder = mNextPlayOrder;
+            mNextPlayOrder += songs.size();
+            return firstPlayOrder;
+        }
+
+        synchronized void removeAll(Collection<Song> songs) {
+            List<Song> updated = new ArrayList<>(mSongs);
+            updated.removeAll(new HashSet<>(songs));
+            mSongs = Collections.unmodifiableList(updated);
+        }
+    }
+
+    /**
+     * The contents of an auto playlist that have been generated during this session, along with
+     * the compiled rules that produced them so that individual songs can be re-evaluated as they
+     * change
+     */
+    private static final class AutoPlaylistContents {
+
+        final BehaviorSubject<List<Song>> mSongs;
+        volatile AutoPlaylist mPlaylist;
+        SongPredicate mPredicate;
+
+        /**
+         * Held while generated contents are written to the MediaStore, so that writes from
+         * different generations don't interleave
+         */
+        final Object mWriteLock;
+
+        /**
+         * Incremented every time this playlist starts being generated. Results of earlier
+         * generations are dropped, since they may have been generated from old rules. Guarded by
+         * {@code this}.
+         */
+        int mGeneration;
+
+        /**
+         * Whether this playlist has been removed, in which case generated contents are never
+         * written to the MediaStore. Guarded by {@code this}.
+         */
+        boolean mRemoved;
+
+        AutoPlaylistContents(AutoPlaylist playlist) {
+            mSongs = BehaviorSubject.create();
+            mPlaylist = playlist;
+            mWriteLock = new Object();
+        }
+
+        synchronized boolean isCurrentGeneration(int generation) {
+            return !mRemoved && mGeneration == generation;
+        }
     }
 }
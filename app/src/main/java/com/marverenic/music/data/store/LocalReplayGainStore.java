@@ -0,0 +1,296 @@
+package com.marverenic.music.data.store;
+
+import android.content.Context;
+import android.os.Process;
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.support.v4.util.LongSparseArray;
+
+import com.marverenic.music.instances.Song;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+import timber.log.Timber;
+
+/**
+ * A {@link ReplayGainStore} that reads ReplayGain tags from audio files, and measures the
+ * loudness of untagged files with an EBU R128 analysis. Gains are saved in a single binary file
+ * keyed by song id and kept in memory once they've been loaded, so looking one up never touches
+ * the disk. Songs are read and analyzed one at a time on a thread with the lowest priority, so
+ * that analysis doesn't compete with playback or the UI. New gains are saved once every song
+ * that's waiting to be analyzed has been finished, instead of rewriting the file after each one.
+ */
+public class LocalReplayGainStore implements ReplayGainStore {
+
+    private static final String GAINS_FILENAME = ".replaygain";
+
+    private static final int MAGIC = 0x4A524750; // "JRGP"
+    private static final int VERSION = 1;
+
+    /**
+     * The loudness that analyzed songs are normalized to, in LUFS. This is the reference level
+     * of ReplayGain 2.0, so measured gains match the gains written by most tagging tools.
+     */
+    private static final double REFERENCE_LOUDNESS = -18;
+
+    private final Context mContext;
+    private final Scheduler.Worker mWorker;
+
+    /**
+     * The gain of every song that has been read or analyzed in dB, keyed by song id, or
+     * {@code null} if gains haven't been loaded yet. Songs that couldn't be analyzed have a gain
+     * of {@link Float#NaN} so that they aren't analyzed again. Only modified on {@link #mWorker}.
+     * Guarded by {@code this}.
+     */
+    private LongSparseArray<Float> mGains;
+
+    /**
+     * Ids of songs that are waiting to be analyzed. Guarded by {@code this}.
+     */
+    private final Set<Long> mPendingSongIds;
+
+    /**
+     * Whether {@link #mGains} has changed since it was last saved. Guarded by {@code this}.
+     */
+    private boolean mUnsaved;
+
+    private final PublishSubject<Long> mAnalyzedSongIds;
+
+    public LocalReplayGainStore(Context context) {
+        mContext = context;
+        mPendingSongIds = new HashSet<>();
+        mAnalyzedSongIds = PublishSubject.create();
+
+        mWorker = Schedulers.from(Executors.newSingleThreadExecutor(runnable ->
+                new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                    runnable.run();
+                }, "ReplayGainAnalysis"))).createWorker();
+
+        // Load saved gains right away, so that they're ready by the time the first song starts
+        mWorker.schedule(this::getGains);
+    }
+
+    @Nullable
+    @Override
+    public synchronized Float getTrackGain(Song song) {
+        if (mGains == null) {
+            return null;
+        }
+
+        Float gain = mGains.get(song.getSongId());
+        return (gain == null || gain.isNaN()) ? null : gain;
+    }
+
+    /**
+     * Emits the id of a song when its gain becomes available after being read or analyzed. Ids
+     * are emitted on the analysis thread.
+     */
+    @Override
+    public Observable<Long> getAnalyzedSongIds() {
+        return mAnalyzedSongIds.asObservable();
+    }
+
+    @Override
+    public void analyze(List<Song> songs) {
+        for (Song song : songs) {
+            long songId = song.getSongId();
+
+            synchronized (this) {
+                boolean known = mGains != null && mGains.get(songId) != null;
+                if (known || !mPendingSongIds.add(songId)) {
+                    continue;
+                }
+            }
+
+            mWorker.schedule(() -> analyzeSong(song));
+        }
+    }
+
+    private void analyzeSong(Song song) {
+        long songId = song.getSongId();
+        LongSparseArray<Float> gains = getGains();
+        Float gain;
+
+        synchronized (this) {
+            gain = gains.get(songId);
+        }
+
+        if (gain == null) {
+            gain = measureTrackGain(song);
+        }
+
+        boolean added = false;
+        LongSparseArray<Float> snapshot = null;
+        synchronized (this) {
+            mPendingSongIds.remove(songId);
+            if (gain != null && gains.get(songId) == null) {
+                gains.put(songId, gain);
+                mUnsaved = true;
+                added = true;
+            }
+
+            // Songs are only queued for analysis after being added to mPendingSongIds, so once
+            // it's empty there's no more work coming and this is a good time to save
+            if (mUnsaved && mPendingSongIds.isEmpty()) {
+                snapshot = gains.clone();
+                mUnsaved = false;
+            }
+        }
+
+        if (added && !gain.isNaN()) {
+            mAnalyzedSongIds.onNext(songId);
+        }
+
+        if (snapshot != null) {
+            write(snapshot);
+        }
+    }
+
+    /**
+     * Reads the gain of a song from its ReplayGain tag, or analyzes it if it isn't tagged
+     * @return The gain of the song in dB, {@link Float#NaN} if the song couldn't be analyzed, or
+     *         {@code null} if the file couldn't be opened and should be analyzed again later
+     */
+    @Nullable
+    private static Float measureTrackGain(Song song) {
+        String location = song.getLocation();
+
+        try {
+            Float taggedGain = ReplayGainReader.readTrackGain(new File(location));
+            if (taggedGain != null) {
+                Timber.i("Read track gain of %s from tags (%.2f dB)", location, taggedGain);
+                return taggedGain;
+            }
+
+            long startTime = System.currentTimeMillis();
+            double loudness = LoudnessAnalyzer.measureIntegratedLoudness(location);
+            Timber.i("Measured loudness of %s in %d ms (%.2f LUFS)", location,
+                    System.currentTimeMillis() - startTime, loudness);
+
+            if (Double.isInfinite(loudness)) {
+                // Silent songs can't be normalized
+                return 0f;
+            }
+            return (float) (REFERENCE_LOUDNESS - loudness);
+        } catch (FileNotFoundException e) {
+            Timber.w(e, "Couldn't open %s to measure its track gain", location);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Timber.e(e, "Failed to measure track gain of %s", location);
+            return Float.NaN;
+        }
+    }
+
+    /**
+     * Loads saved gains if they haven't been loaded yet. This reads from the disk, so it should
+     * only be called on {@link #mWorker}.
+     */
+    private LongSparseArray<Float> getGains() {
+        synchronized (this) {
+            if (mGains != null) {
+                return mGains;
+            }
+        }
+
+        LongSparseArray<Float> gains = load();
+        synchronized (this) {
+            mGains = gains;
+        }
+        return gains;
+    }
+
+    private AtomicFile getGainsFile() {
+        return new AtomicFile(new File(mContext.getFilesDir(), GAINS_FILENAME));
+    }
+
+    private LongSparseArray<Float> load() {
+        AtomicFile file = getGainsFile();
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+            return readGains(in);
+        } catch (FileNotFoundException e) {
+            return new LongSparseArray<>();
+        } catch (IOException e) {
+            Timber.e(e, "Failed to read track gains");
+            return new LongSparseArray<>();
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Timber.w(e, "Failed to close stream");
+                }
+            }
+        }
+    }
+
+    private void write(LongSparseArray<Float> gains) {
+        AtomicFile file = getGainsFile();
+        FileOutputStream stream = null;
+
+        try {
+            stream = file.startWrite();
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            writeGains(out, gains);
+            out.flush();
+
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Timber.e(e, "Failed to write track gains");
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static LongSparseArray<Float> readGains(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a track gain file");
+        }
+
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported track gain file version " + version);
+        }
+
+        int count = in.readInt();
+        LongSparseArray<Float> gains = new LongSparseArray<>(count);
+
+        for (int i = 0; i < count; i++) {
+            gains.put(in.readLong(), in.readFloat());
+        }
+
+        return gains;
+    }
+
+    private static void writeGains(DataOutputStream out, LongSparseArray<Float> gains)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(gains.size());
+
+        for (int i = 0; i < gains.size(); i++) {
+            out.writeLong(gains.keyAt(i));
+            out.writeFloat(gains.valueAt(i));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.marverenic.music.data.store;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Decodes an audio file with the platform's decoders and measures its loudness with a
+ * {@link LoudnessMeter}. Files are decoded as fast as the decoder allows instead of in real time,
+ * so this should only be used on a background thread.
+ */
+final class LoudnessAnalyzer {
+
+    private static final long TIMEOUT_US = 10000;
+
+    /**
+     * This class is never instantiated
+     */
+    private LoudnessAnalyzer() {
+    }
+
+    /**
+     * Decodes an entire file and measures its integrated loudness
+     * @param location The path of the file to analyze
+     * @return The loudness of the file in LUFS, or {@link Double#NEGATIVE_INFINITY} if it's silent
+     * @throws IOException If the file couldn't be decoded
+     * @throws InterruptedIOException If the current thread was interrupted while decoding
+     */
+    static double measureIntegratedLoudness(String location) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+
+        try {
+            extractor.setDataSource(location);
+            MediaFormat format = selectAudioTrack(extractor);
+            if (format == null) {
+                throw new IOException("No audio track in " + location);
+            }
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            return decode(extractor, codec, format);
+        } catch (IllegalStateException e) {
+            // MediaCodec reports most decoding errors as IllegalStateExceptions
+            throw new IOException("Failed to decode " + location, e);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static double decode(MediaExtractor extractor, MediaCodec codec,
+                                 MediaFormat inputFormat) throws IOException {
+        // getInputBuffers() and getOutputBuffers() are the only way to access buffers before
+        // API 21, and still work on newer versions
+        ByteBuffer[] inputBuffers = codec.getInputBuffers();
+        ByteBuffer[] outputBuffers = codec.getOutputBuffers();
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        LoudnessMeter meter = createMeter(inputFormat);
+        short[] samples = new short[0];
+        boolean inputDone = false;
+
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Loudness analysis was interrupted");
+            }
+
+            if (!inputDone) {
+                int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                if (inputIndex >= 0) {
+                    int size = extractor.readSampleData(inputBuffers[inputIndex], 0);
+                    if (size < 0) {
+                        codec.queueInputBuffer(inputIndex, 0, 0, 0,
+                                MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+            if (outputIndex >= 0) {
+                ByteBuffer buffer = outputBuffers[outputIndex];
+                buffer.position(info.offset);
+                buffer.limit(info.offset + info.size);
+
+                // Decoders output 16-bit PCM in native byte order
+                ShortBuffer pcm = buffer.slice().order(ByteOrder.nativeOrder()).asShortBuffer();
+                int count = pcm.remaining();
+                if (samples.length < count) {
+                    samples = new short[count];
+                }
+                pcm.get(samples, 0, count);
+                meter.addSamples(samples, 0, count);
+
+                codec.releaseOutputBuffer(outputIndex, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return meter.getIntegratedLoudness();
+                }
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                outputBuffers = codec.getOutputBuffers();
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                // The decoded format is reported before any audio is decoded, and may have a
+                // different sample rate or channel count than the container claimed
+                meter = createMeter(codec.getOutputFormat());
+            }
+        }
+    }
+
+    private static LoudnessMeter createMeter(MediaFormat format) {
+        return new LoudnessMeter(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+    }
+}
@@ -0,0 +1,228 @@
+package com.marverenic.music.data.store;
+
+/**
+ * Measures the integrated loudness of audio as defined by EBU R128 and ITU-R BS.1770. Samples
+ * are K-weighted, their mean square is measured over 400 ms blocks that overlap by 75%, and
+ * blocks that are silent or much quieter than the rest of the audio are gated out before the
+ * loudness of the remaining blocks is averaged.
+ */
+final class LoudnessMeter {
+
+    /**
+     * Blocks quieter than this are always ignored, in LUFS
+     */
+    private static final double ABSOLUTE_GATE = -70;
+
+    /**
+     * Blocks quieter than the ungated loudness by more than this are ignored, in LU
+     */
+    private static final double RELATIVE_GATE = -10;
+
+    /**
+     * The number of 100 ms steps in each 400 ms gating block
+     */
+    private static final int STEPS_PER_BLOCK = 4;
+
+    private final int mChannelCount;
+    private final double[] mChannelWeights;
+    private final KWeightingFilter[] mFilters;
+
+    private final int mSamplesPerStep;
+    private int mSamplesInStep;
+
+    /**
+     * Sum of the squares of the filtered samples of each channel in the current step
+     */
+    private final double[] mStepEnergy;
+
+    /**
+     * The weighted mean square of the last few steps, used to build overlapping blocks
+     */
+    private final double[] mRecentSteps;
+    private int mStepCount;
+
+    /**
+     * The weighted mean square of every block measured so far
+     */
+    private double[] mBlocks;
+    private int mBlockCount;
+
+    LoudnessMeter(int sampleRate, int channelCount) {
+        if (sampleRate <= 0 || channelCount <= 0) {
+            throw new IllegalArgumentException("Invalid format: " + sampleRate + " Hz, "
+                    + channelCount + " channels");
+        }
+
+        mChannelCount = channelCount;
+        mChannelWeights = getChannelWeights(channelCount);
+        mFilters = new KWeightingFilter[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            mFilters[i] = new KWeightingFilter(sampleRate);
+        }
+
+        mSamplesPerStep = Math.max(1, sampleRate / 10);
+        mStepEnergy = new double[channelCount];
+        mRecentSteps = new double[STEPS_PER_BLOCK];
+        mBlocks = new double[64];
+    }
+
+    /**
+     * ITU-R BS.1770 weighs surround channels more heavily, and ignores the LFE channel. Layouts
+     * other than 5.1 are treated as front channels.
+     */
+    private static double[] getChannelWeights(int channelCount) {
+        double[] weights = new double[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            weights[i] = 1.0;
+        }
+
+        if (channelCount == 6) {
+            weights[3] = 0.0;
+            weights[4] = 1.41;
+            weights[5] = 1.41;
+        }
+        return weights;
+    }
+
+    /**
+     * Adds interleaved 16-bit PCM samples to the measurement
+     * @param samples The buffer containing the samples
+     * @param offset The index of the first sample to add
+     * @param length The number of samples to add. This should be a multiple of the channel count
+     */
+    void addSamples(short[] samples, int offset, int length) {
+        int end = offset + length - (length % mChannelCount);
+        for (int i = offset; i < end; i += mChannelCount) {
+            for (int channel = 0; channel < mChannelCount; channel++) {
+                double filtered = mFilters[channel].process(samples[i + channel] / 32768.0);
+                mStepEnergy[channel] += filtered * filtered;
+            }
+
+            if (++mSamplesInStep == mSamplesPerStep) {
+                finishStep();
+            }
+        }
+    }
+
+    private void finishStep() {
+        double energy = 0;
+        for (int channel = 0; channel < mChannelCount; channel++) {
+            energy += mChannelWeights[channel] * mStepEnergy[channel] / mSamplesInStep;
+            mStepEnergy[channel] = 0;
+        }
+        mSamplesInStep = 0;
+
+        mRecentSteps[mStepCount % STEPS_PER_BLOCK] = energy;
+        mStepCount++;
+
+        if (mStepCount >= STEPS_PER_BLOCK) {
+            double blockEnergy = 0;
+            for (double step : mRecentSteps) {
+                blockEnergy += step;
+            }
+            addBlock(blockEnergy / STEPS_PER_BLOCK);
+        }
+    }
+
+    private void addBlock(double energy) {
+        if (mBlockCount == mBlocks.length) {
+            double[] blocks = new double[mBlocks.length * 2];
+            System.arraycopy(mBlocks, 0, blocks, 0, mBlockCount);
+            mBlocks = blocks;
+        }
+        mBlocks[mBlockCount++] = energy;
+    }
+
+    /**
+     * @return The gated loudness of every sample added so far in LUFS, or
+     *         {@link Double#NEGATIVE_INFINITY} if the audio is silent or shorter than one block
+     */
+    double getIntegratedLoudness() {
+        double absoluteThreshold = toEnergy(ABSOLUTE_GATE);
+        double relativeThreshold = toEnergy(
+                toLoudness(meanAbove(absoluteThreshold)) + RELATIVE_GATE);
+
+        return toLoudness(meanAbove(Math.max(absoluteThreshold, relativeThreshold)));
+    }
+
+    private double meanAbove(double threshold) {
+        double sum = 0;
+        int count = 0;
+
+        for (int i = 0; i < mBlockCount; i++) {
+            if (mBlocks[i] > threshold) {
+                sum += mBlocks[i];
+                count++;
+            }
+        }
+
+        return (count == 0) ? 0 : sum / count;
+    }
+
+    private static double toLoudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double toEnergy(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+
+    /**
+     * The K-weighting filter from ITU-R BS.1770, made of a high shelf that models the acoustic
+     * effect of the head followed by a high pass filter. Coefficients are derived for any sample
+     * rate instead of using the published 48 kHz values.
+     */
+    private static final class KWeightingFilter {
+
+        private final double[] mShelf;
+        private final double[] mHighPass;
+        private final double[] mShelfState = new double[4];
+        private final double[] mHighPassState = new double[4];
+
+        KWeightingFilter(int sampleRate) {
+            double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+            double q = 0.7071752369554196;
+            double vh = Math.pow(10, 3.999843853973347 / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+
+            mShelf = new double[] {
+                    (vh + vb * k / q + k * k) / a0,
+                    2 * (k * k - vh) / a0,
+                    (vh - vb * k / q + k * k) / a0,
+                    2 * (k * k - 1) / a0,
+                    (1 - k / q + k * k) / a0
+            };
+
+            k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+            q = 0.5003270373238773;
+            a0 = 1 + k / q + k * k;
+
+            mHighPass = new double[] {
+                    1, -2, 1,
+                    2 * (k * k - 1) / a0,
+                    (1 - k / q + k * k) / a0
+            };
+        }
+
+        double process(double sample) {
+            return biquad(mHighPass, mHighPassState, biquad(mShelf, mShelfState, sample));
+        }
+
+        /**
+         * Runs one sample through a biquad filter in direct form I
+         * @param c The coefficients b0, b1, b2, a1, and a2
+         * @param state The previous two inputs and outputs: x1, x2, y1, and y2
+         */
+        private static double biquad(double[] c, double[] state, double x) {
+            double y = c[0] * x + c[1] * state[0] + c[2] * state[1]
+                    - c[3] * state[2] - c[4] * state[3];
+
+            state[1] = state[0];
+            state[0] = x;
+            state[3] = state[2];
+            state[2] = y;
+            return y;
+        }
+    }
+}
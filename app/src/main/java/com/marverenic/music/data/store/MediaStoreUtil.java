@@ -3,29 +3,28 @@ package com.marverenic.music.data.store;
 import android.Manifest;
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
+import android.os.RemoteException;
 import android.provider.MediaStore;
 import android.support.annotation.Nullable;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.marverenic.music.instances.Album;
 import com.marverenic.music.instances.Artist;
-import com.marverenic.music.instances.AutoPlaylist;
 import com.marverenic.music.instances.Genre;
 import com.marverenic.music.instances.Playlist;
 import com.marverenic.music.instances.Song;
-import com.marverenic.music.instances.playlistrules.AutoPlaylistRule;
 import com.marverenic.music.utils.Util;
 import com.tbruyelle.rxpermissions.RxPermissions;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,14 +35,16 @@ import timber.log.Timber;
 
 public final class MediaStoreUtil {
 
-    private static final String AUTO_PLAYLIST_EXTENSION = ".jpl";
-
     // This value is hardcoded into Android's sqlite implementation. If a query exceeds this many
     // variables, an SQLiteException will be thrown, so when doing long queries be sure to check
     // against this value. This value is defined as SQLITE_MAX_VARIABLE_NUMBER in
     // https://raw.githubusercontent.com/android/platform_external_sqlite/master/dist/sqlite3.c
     private static final int SQL_MAX_VARS = 999;
 
+    // Each ContentProviderOperation batch is sent in a single Binder transaction, which has a
+    // limited size. Large playlist edits are split into several batches to stay well below it.
+    private static final int MAX_BATCH_OPERATIONS = 250;
+
     private static final String[] SONG_PROJECTION = new String[]{
             MediaStore.Audio.Media.TITLE,
             MediaStore.Audio.Media._ID,
@@ -96,6 +97,12 @@ public final class MediaStoreUtil {
             MediaStore.Audio.Playlists.Members.TRACK
     };
 
+    private static final String[] PLAYLIST_MEMBER_PROJECTION = new String[]{
+            MediaStore.Audio.Playlists.Members._ID,
+            MediaStore.Audio.Playlists.Members.AUDIO_ID,
+            MediaStore.Audio.Playlists.Members.PLAY_ORDER
+    };
+
     private static boolean sAlreadyRequestedPermission = false;
 
     /**
@@ -211,25 +218,6 @@ public final class MediaStoreUtil {
         return genres;
     }
 
-    public static List<Playlist> getAllPlaylists(Context context) {
-        List<Playlist> playlists = getPlaylists(context, null, null);
-
-        for (Playlist p : getAutoPlaylists(context)) {
-            if (playlists.remove(p)) {
-                playlists.add(p);
-            } else {
-                // If AutoPlaylists have been deleted outside of Jockey, delete its configuration
-                //noinspection ResultOfMethodCallIgnored
-                new File(context.getExternalFilesDir(null)
-                        + "/" + p.getPlaylistName() + AUTO_PLAYLIST_EXTENSION)
-                        .delete();
-            }
-        }
-
-        Collections.sort(playlists);
-        return playlists;
-    }
-
     public static List<Playlist> getPlaylists(Context context, @Nullable String selection,
                                               @Nullable String[] selectionArgs) {
 
@@ -248,42 +236,6 @@ public final class MediaStoreUtil {
         return playlists;
     }
 
-    public static List<AutoPlaylist> getAutoPlaylists(Context context) {
-        List<AutoPlaylist> autoPlaylists = new ArrayList<>();
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(AutoPlaylistRule.class, new AutoPlaylistRule.RuleTypeAdapter())
-                .create();
-
-        try {
-            File externalFiles = new File(context.getExternalFilesDir(null) + "/");
-
-            if (externalFiles.exists() || externalFiles.mkdirs()) {
-                String[] files = externalFiles.list();
-                for (String file : files) {
-                    if (file.endsWith(AUTO_PLAYLIST_EXTENSION)) {
-                        String filePath = externalFiles + File.separator + file;
-                        autoPlaylists.add(readAutoPlaylist(gson, filePath));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            Timber.e(e, "Failed to read AutoPlaylist");
-        }
-
-        Collections.sort(autoPlaylists);
-        return autoPlaylists;
-    }
-
-    private static AutoPlaylist readAutoPlaylist(Gson gson, String path) throws IOException {
-        FileReader reader = new FileReader(path);
-
-        try {
-            return gson.fromJson(reader, AutoPlaylist.class);
-        } finally {
-            reader.close();
-        }
-    }
-
     public static List<Album> getArtistAlbums(Context context, Artist artist) {
         return getArtistAlbums(context, artist.getArtistId());
     }
@@ -458,12 +410,123 @@ public final class MediaStoreUtil {
                 new String[]{playlist.getPlaylistId() + ""});
     }
 
-    public static void editPlaylist(Context context, Playlist playlist,
+    /**
+     * Replaces the contents of a playlist. Only the member rows that have to change are written,
+     * so reordering or slightly changing a long playlist only touches a few rows.
+     * @param songs The new contents of the playlist, or {@code null} to clear it
+     * @return The play order to give a song appended to the edited playlist
+     * @see PlaylistDiff
+     */
+    public static long editPlaylist(Context context, Playlist playlist,
                                     @Nullable List<Song> songs) {
-        // Clear the playlist...
         Uri uri = MediaStore.Audio.Playlists.Members
                 .getContentUri("external", playlist.getPlaylistId());
         ContentResolver resolver = context.getContentResolver();
+
+        Cursor cur = resolver.query(uri, PLAYLIST_MEMBER_PROJECTION, null, null,
+                MediaStore.Audio.Playlists.Members.PLAY_ORDER + ", "
+                        + MediaStore.Audio.Playlists.Members._ID);
+
+        if (cur == null) {
+            throw new RuntimeException("Couldn\'t open Cursor");
+        }
+
+        long[] rowIds = new long[cur.getCount()];
+        long[] audioIds = new long[cur.getCount()];
+        long[] playOrders = new long[cur.getCount()];
+
+        int rowIdIndex = cur.getColumnIndex(MediaStore.Audio.Playlists.Members._ID);
+        int audioIdIndex = cur.getColumnIndex(MediaStore.Audio.Playlists.Members.AUDIO_ID);
+        int playOrderIndex = cur.getColumnIndex(MediaStore.Audio.Playlists.Members.PLAY_ORDER);
+
+        for (int i = 0; cur.moveToNext(); i++) {
+            rowIds[i] = cur.getLong(rowIdIndex);
+            audioIds[i] = cur.getLong(audioIdIndex);
+            playOrders[i] = cur.getLong(playOrderIndex);
+        }
+        cur.close();
+
+        long[] newAudioIds = new long[(songs == null) ? 0 : songs.size()];
+        for (int i = 0; i < newAudioIds.length; i++) {
+            newAudioIds[i] = songs.get(i).getSongId();
+        }
+
+        PlaylistDiff diff = PlaylistDiff.calculate(rowIds, audioIds, playOrders, newAudioIds);
+        if (diff.isEmpty()) {
+            return diff.getNextPlayOrder();
+        }
+
+        long nextPlayOrder;
+        try {
+            applyPlaylistDiff(resolver, uri, diff);
+            nextPlayOrder = diff.getNextPlayOrder();
+        } catch (RemoteException | OperationApplicationException e) {
+            Timber.e(e, "Failed to update playlist. Rewriting it instead.");
+            rewritePlaylist(resolver, uri, songs);
+            nextPlayOrder = newAudioIds.length + 1;
+        }
+
+        resolver.notifyChange(Uri.parse("content://media"), null);
+        return nextPlayOrder;
+    }
+
+    private static void applyPlaylistDiff(ContentResolver resolver, Uri uri, PlaylistDiff diff)
+            throws RemoteException, OperationApplicationException {
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+
+        // Delete rows in batches so that each query stays below SQL_MAX_VARS
+        List<Long> deletedRowIds = diff.getDeletedRowIds();
+        for (int start = 0; start < deletedRowIds.size(); start += SQL_MAX_VARS) {
+            int end = Math.min(start + SQL_MAX_VARS, deletedRowIds.size());
+
+            StringBuilder selection = new StringBuilder();
+            selection.append(MediaStore.Audio.Playlists.Members._ID).append(" IN (");
+
+            String[] selectionArgs = new String[end - start];
+            for (int i = start; i < end; i++) {
+                selection.append((i == start) ? "?" : ",?");
+                selectionArgs[i - start] = Long.toString(deletedRowIds.get(i));
+            }
+            selection.append(')');
+
+            operations.add(ContentProviderOperation.newDelete(uri)
+                    .withSelection(selection.toString(), selectionArgs)
+                    .build());
+        }
+
+        for (long[] row : diff.getUpdatedRows()) {
+            Uri rowUri = ContentUris.withAppendedId(uri, row[0]);
+            operations.add(ContentProviderOperation.newUpdate(rowUri)
+                    .withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, row[1])
+                    .build());
+
+            if (operations.size() >= MAX_BATCH_OPERATIONS) {
+                resolver.applyBatch(MediaStore.AUTHORITY, operations);
+                operations.clear();
+            }
+        }
+
+        for (long[] row : diff.getInsertedRows()) {
+            operations.add(ContentProviderOperation.newInsert(uri)
+                    .withValue(MediaStore.Audio.Playlists.Members.AUDIO_ID, row[0])
+                    .withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, row[1])
+                    .build());
+
+            if (operations.size() >= MAX_BATCH_OPERATIONS) {
+                resolver.applyBatch(MediaStore.AUTHORITY, operations);
+                operations.clear();
+            }
+        }
+
+        if (!operations.isEmpty()) {
+            resolver.applyBatch(MediaStore.AUTHORITY, operations);
+        }
+    }
+
+    private static void rewritePlaylist(ContentResolver resolver, Uri uri,
+                                        @Nullable List<Song> songs) {
+        // Clear the playlist...
         resolver.delete(uri, null, null);
 
         if (songs != null) {
@@ -477,24 +540,31 @@ public final class MediaStoreUtil {
                         songs.get(i).getSongId());
             }
             resolver.bulkInsert(uri, values);
-            resolver.notifyChange(Uri.parse("content://media"), null);
         }
     }
 
-    private static int getPlaylistSize(Context context, long playlistId) {
+    /**
+     * Finds the play order to give a song appended to the end of a playlist. Play orders aren't
+     * always consecutive, so this is one more than the largest play order in the playlist rather
+     * than the number of songs in it.
+     */
+    public static long getNextPlayOrder(Context context, long playlistId) {
         Cursor cur = context.getContentResolver().query(
                 MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId),
-                new String[]{MediaStore.Audio.Playlists.Members.AUDIO_ID},
+                new String[]{MediaStore.Audio.Playlists.Members.PLAY_ORDER},
                 null, null, null);
 
         if (cur == null) {
             throw new RuntimeException("Couldn\'t open Cursor");
         }
 
-        int count = cur.getCount();
+        long nextPlayOrder = 0;
+        while (cur.moveToNext()) {
+            nextPlayOrder = Math.max(nextPlayOrder, cur.getLong(0) + 1);
+        }
         cur.close();
 
-        return count;
+        return nextPlayOrder;
     }
 
     public static void appendToPlaylist(Context context, Playlist playlist, Song song) {
@@ -504,7 +574,7 @@ public final class MediaStoreUtil {
 
         ContentValues values = new ContentValues();
         values.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER,
-                getPlaylistSize(context, playlist.getPlaylistId()));
+                getNextPlayOrder(context, playlist.getPlaylistId()));
         values.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, song.getSongId());
 
         resolver.insert(uri, values);
@@ -512,16 +582,26 @@ public final class MediaStoreUtil {
     }
 
     public static void appendToPlaylist(Context context, Playlist playlist, List<Song> songs) {
+        appendToPlaylist(context, playlist, songs,
+                getNextPlayOrder(context, playlist.getPlaylistId()));
+    }
+
+    /**
+     * Adds songs to the end of a playlist
+     * @param firstPlayOrder The play order to give the first song. This must be larger than the
+     *                       play order of every song already in the playlist.
+     * @see #getNextPlayOrder(Context, long)
+     */
+    public static void appendToPlaylist(Context context, Playlist playlist, List<Song> songs,
+                                        long firstPlayOrder) {
         Uri uri = MediaStore.Audio.Playlists.Members
                 .getContentUri("external", playlist.getPlaylistId());
         ContentResolver resolver = context.getContentResolver();
 
-        int startingCount = getPlaylistSize(context, playlist.getPlaylistId());
-
         ContentValues[] values = new ContentValues[songs.size()];
         for (int i = 0; i < songs.size(); i++) {
             values[i] = new ContentValues();
-            values[i].put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, startingCount + i);
+            values[i].put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, firstPlayOrder + i);
             values[i].put(
                     MediaStore.Audio.Playlists.Members.AUDIO_ID,
                     songs.get(i).getSongId());
@@ -531,6 +611,31 @@ public final class MediaStoreUtil {
         resolver.notifyChange(Uri.parse("content://media"), null);
     }
 
+    public static void removeFromPlaylist(Context context, Playlist playlist, List<Song> songs) {
+        Uri uri = MediaStore.Audio.Playlists.Members
+                .getContentUri("external", playlist.getPlaylistId());
+        ContentResolver resolver = context.getContentResolver();
+
+        // Remove songs in batches so that each query stays below SQL_MAX_VARS
+        for (int start = 0; start < songs.size(); start += SQL_MAX_VARS) {
+            int end = Math.min(start + SQL_MAX_VARS, songs.size());
+
+            StringBuilder selection = new StringBuilder();
+            selection.append(MediaStore.Audio.Playlists.Members.AUDIO_ID).append(" IN (");
+
+            String[] selectionArgs = new String[end - start];
+            for (int i = start; i < end; i++) {
+                selection.append((i == start) ? "?" : ",?");
+                selectionArgs[i - start] = Long.toString(songs.get(i).getSongId());
+            }
+            selection.append(')');
+
+            resolver.delete(uri, selection.toString(), selectionArgs);
+        }
+
+        resolver.notifyChange(Uri.parse("content://media"), null);
+    }
+
     /**
      * Get a list of songs to play for a certain input file. If a song is passed as the file, then
      * the list will include other songs in the same directory. If a playlist is passed as the file,
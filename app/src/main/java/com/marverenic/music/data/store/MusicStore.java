@@ -31,6 +31,8 @@ public interface MusicStore {
 
     Observable<List<Song>> getSongs(Genre genre);
 
+    Observable<List<Song>> querySongs(String selection, String[] selectionArgs);
+
     Observable<List<Album>> getAlbums(Artist artist);
 
     Observable<Artist> findArtistById(long artistId);
@@ -39,6 +41,8 @@ public interface MusicStore {
 
     Observable<Artist> findArtistByName(String artistName);
 
+    Observable<List<Artist>> findArtistsByName(List<String> artistNames);
+
     Observable<List<Song>> searchForSongs(String query);
 
     Observable<List<Artist>> searchForArtists(String query);
@@ -0,0 +1,14 @@
+package com.marverenic.music.data.store;
+
+import android.support.v7.graphics.Palette;
+
+import com.marverenic.music.instances.Album;
+
+import rx.Observable;
+
+public interface PaletteStore {
+
+    Observable<Palette.Swatch> getSwatch(Album album);
+    void prefetchSwatch(Album album);
+
+}
@@ -2,11 +2,14 @@ package com.marverenic.music.data.store;
 
 import com.marverenic.music.instances.Song;
 
+import java.util.Set;
+
 import rx.Observable;
 
 public interface PlayCountStore {
 
     Observable<Void> refresh();
+    Observable<Set<Long>> getChangedSongIds();
     void save();
 
     int getPlayCount(Song song);
@@ -0,0 +1,211 @@
+package com.marverenic.music.data.store;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Calculates the smallest set of changes to the member rows of a MediaStore playlist needed to
+ * give it new contents. Rows that are already in the right order keep their play order and aren't
+ * written to. Other rows that are still in the playlist are given a new play order, rows for songs
+ * that were removed are deleted, and rows are only inserted for songs that weren't in the playlist
+ * before.
+ *
+ * Play orders are only used to sort members, so they don't have to be consecutive. A song that
+ * was removed leaves a gap behind, which is filled in by songs that are later moved or inserted
+ * into that part of the playlist.
+ */
+final class PlaylistDiff {
+
+    /**
+     * Play orders written by Jockey start from 1
+     */
+    private static final long FIRST_PLAY_ORDER = 1;
+
+    private final List<Long> mDeletedRowIds;
+    private final List<long[]> mUpdatedRows;
+    private final List<long[]> mInsertedRows;
+    private long mNextPlayOrder;
+
+    private PlaylistDiff() {
+        mDeletedRowIds = new ArrayList<>();
+        mUpdatedRows = new ArrayList<>();
+        mInsertedRows = new ArrayList<>();
+    }
+
+    /**
+     * @param rowIds The ids of the playlist's current member rows, sorted by play order
+     * @param audioIds The ids of the songs in each of the current member rows
+     * @param playOrders The play orders of each of the current member rows
+     * @param newAudioIds The ids of the songs that the playlist should contain, in order
+     */
+    static PlaylistDiff calculate(long[] rowIds, long[] audioIds, long[] playOrders,
+                                  long[] newAudioIds) {
+        PlaylistDiff diff = new PlaylistDiff();
+        int[] matches = matchRows(audioIds, newAudioIds);
+        boolean[] matched = new boolean[rowIds.length];
+        for (int match : matches) {
+            if (match >= 0) {
+                matched[match] = true;
+            }
+        }
+
+        for (int row = 0; row < rowIds.length; row++) {
+            if (!matched[row]) {
+                diff.mDeletedRowIds.add(rowIds[row]);
+            }
+        }
+
+        boolean[] kept = findLongestIncreasingSubsequence(matches);
+
+        long previousPlayOrder = FIRST_PLAY_ORDER - 1;
+        int start = 0;
+        int next = nextKept(kept, 0);
+
+        while (start < newAudioIds.length) {
+            int pending = next - start;
+
+            if (next < newAudioIds.length) {
+                long bound = playOrders[matches[next]];
+                if (bound - previousPlayOrder - 1 < pending) {
+                    // There isn't room to fit everything before this row, so move it too
+                    kept[next] = false;
+                    next = nextKept(kept, next + 1);
+                    continue;
+                }
+            }
+
+            for (int i = start; i < next; i++) {
+                long playOrder = ++previousPlayOrder;
+                int row = matches[i];
+
+                if (row < 0) {
+                    diff.mInsertedRows.add(new long[]{newAudioIds[i], playOrder});
+                } else if (playOrders[row] != playOrder) {
+                    diff.mUpdatedRows.add(new long[]{rowIds[row], playOrder});
+                }
+            }
+
+            if (next < newAudioIds.length) {
+                previousPlayOrder = playOrders[matches[next]];
+            }
+
+            start = next + 1;
+            next = nextKept(kept, start);
+        }
+
+        diff.mNextPlayOrder = previousPlayOrder + 1;
+        return diff;
+    }
+
+    /**
+     * Pairs each song in the new contents of a playlist with a row that already contains that
+     * song. When a song appears several times, its rows are used in the same order they were in.
+     * @return The index of the existing row to reuse for each position in the new contents, or -1
+     *         if a new row has to be inserted
+     */
+    private static int[] matchRows(long[] audioIds, long[] newAudioIds) {
+        Map<Long, Queue<Integer>> rowsBySong = new HashMap<>(audioIds.length);
+        for (int row = 0; row < audioIds.length; row++) {
+            Queue<Integer> rows = rowsBySong.get(audioIds[row]);
+            if (rows == null) {
+                rows = new ArrayDeque<>(1);
+                rowsBySong.put(audioIds[row], rows);
+            }
+            rows.add(row);
+        }
+
+        int[] matches = new int[newAudioIds.length];
+        for (int i = 0; i < newAudioIds.length; i++) {
+            Queue<Integer> rows = rowsBySong.get(newAudioIds[i]);
+            Integer row = (rows == null) ? null : rows.poll();
+            matches[i] = (row == null) ? -1 : row;
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the largest set of reused rows that are already in the right order relative to each
+     * other. These rows don't need to be moved.
+     * @param matches The existing row reused at each position, or -1 for new rows
+     * @return Whether the row at each position is part of the set
+     */
+    private static boolean[] findLongestIncreasingSubsequence(int[] matches) {
+        // tails[k] is the position of the smallest row that ends an increasing run of length k + 1
+        int[] tails = new int[matches.length];
+        int[] predecessors = new int[matches.length];
+        int length = 0;
+
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] < 0) {
+                continue;
+            }
+
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (matches[tails[mid]] < matches[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            predecessors[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] kept = new boolean[matches.length];
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    private static int nextKept(boolean[] kept, int from) {
+        int i = from;
+        while (i < kept.length && !kept[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    boolean isEmpty() {
+        return mDeletedRowIds.isEmpty() && mUpdatedRows.isEmpty() && mInsertedRows.isEmpty();
+    }
+
+    /**
+     * @return The ids of member rows to delete
+     */
+    List<Long> getDeletedRowIds() {
+        return mDeletedRowIds;
+    }
+
+    /**
+     * @return Pairs of member row ids and the new play order to give each of them
+     */
+    List<long[]> getUpdatedRows() {
+        return mUpdatedRows;
+    }
+
+    /**
+     * @return Pairs of song ids and play orders to insert new member rows with
+     */
+    List<long[]> getInsertedRows() {
+        return mInsertedRows;
+    }
+
+    /**
+     * @return The play order to give a song appended to the playlist once this diff is applied
+     */
+    long getNextPlayOrder() {
+        return mNextPlayOrder;
+    }
+}
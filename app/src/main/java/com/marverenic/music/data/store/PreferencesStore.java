@@ -3,6 +3,7 @@ package com.marverenic.music.data.store;
 import android.media.audiofx.Equalizer;
 
 import com.marverenic.music.data.annotations.BaseTheme;
+import com.marverenic.music.data.annotations.BufferProfile;
 import com.marverenic.music.data.annotations.PresetTheme;
 import com.marverenic.music.data.annotations.StartPage;
 
@@ -25,6 +26,9 @@ public interface PreferencesStore extends ReadOnlyPreferencesStore {
     void setRepeatMode(int repeatMode);
 
     void setLastSleepTimerDuration(long timeInMillis);
+    void setBufferProfile(@BufferProfile int bufferProfile);
+    void setCrossfadeDuration(int durationMillis);
+    void setNormalizeVolume(boolean normalizeVolume);
 
     void setEqualizerPresetId(int equalizerPresetId);
     void setEqualizerEnabled(boolean equalizerEnabled);
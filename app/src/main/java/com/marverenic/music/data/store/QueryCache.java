@@ -0,0 +1,93 @@
+package com.marverenic.music.data.store;
+
+import android.support.v4.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+/**
+ * Runs MediaStore queries in the background and remembers the results of the most recent ones.
+ * Queries don't run until the Observable returned by {@link #get(Object, Callable)} is subscribed
+ * to, and identical requests made while a query is running share its result instead of querying
+ * the MediaStore again.
+ *
+ * Null results aren't cached, so queries that don't find anything will run again the next time
+ * they're requested. Every request for a key receives the same result instance, so queries that
+ * return collections should make them unmodifiable.
+ *
+ * @param <K> The type of key that identifies a query, such as the id of the artist to look up
+ * @param <V> The type of value the query returns
+ */
+final class QueryCache<K, V> {
+
+    private final LruCache<K, V> mResults;
+    private final Map<K, Observable<V>> mPendingQueries;
+
+    /**
+     * Incremented whenever the cache is cleared, so results of queries that were started before
+     * then aren't saved
+     */
+    private int mGeneration;
+
+    /**
+     * @param maxSize The maximum number of results to remember
+     */
+    QueryCache(int maxSize) {
+        mResults = new LruCache<>(maxSize);
+        mPendingQueries = new HashMap<>();
+    }
+
+    /**
+     * @param key The key that identifies this query
+     * @param query Runs the query on a background thread
+     * @return An Observable that emits the result of the query once and then completes. The
+     *         result is emitted on the thread that ran the query, or on the subscribing thread if
+     *         it was already cached, so UI callers have to observe it on the main thread.
+     */
+    synchronized Observable<V> get(K key, Callable<V> query) {
+        V cached = mResults.get(key);
+        if (cached != null) {
+            return Observable.just(cached);
+        }
+
+        Observable<V> pending = mPendingQueries.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        int generation = mGeneration;
+        Observable<V> request = Observable.fromCallable(query)
+                .subscribeOn(Schedulers.io())
+                .doOnNext(result -> onQueryFinished(key, result, generation))
+                .doOnError(throwable -> onQueryFinished(key, null, generation))
+                .cache();
+
+        mPendingQueries.put(key, request);
+        return request;
+    }
+
+    private synchronized void onQueryFinished(K key, V result, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+
+        mPendingQueries.remove(key);
+        if (result != null) {
+            mResults.put(key, result);
+        }
+    }
+
+    /**
+     * Forgets all cached results. Queries that are running will still emit their results to
+     * their subscribers, but new requests will query the MediaStore again.
+     */
+    synchronized void clear() {
+        mGeneration++;
+        mResults.evictAll();
+        mPendingQueries.clear();
+    }
+}
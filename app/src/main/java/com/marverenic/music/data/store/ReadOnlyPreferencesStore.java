@@ -3,6 +3,7 @@ package com.marverenic.music.data.store;
 import android.media.audiofx.Equalizer;
 
 import com.marverenic.music.data.annotations.BaseTheme;
+import com.marverenic.music.data.annotations.BufferProfile;
 import com.marverenic.music.data.annotations.PresetTheme;
 import com.marverenic.music.data.annotations.StartPage;
 
@@ -24,6 +25,9 @@ public interface ReadOnlyPreferencesStore {
     int getRepeatMode();
 
     long getLastSleepTimerDuration();
+    @BufferProfile int getBufferProfile();
+    int getCrossfadeDuration();
+    boolean normalizeVolume();
 
     int getEqualizerPresetId();
     boolean getEqualizerEnabled();
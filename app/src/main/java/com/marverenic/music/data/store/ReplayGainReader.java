@@ -0,0 +1,424 @@
+package com.marverenic.music.data.store;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reads the ReplayGain track gain that tagging tools write into audio files. Gains are read from
+ * TXXX frames in ID3v2 tags, which are used by MP3 files, and from the Vorbis comments of FLAC
+ * files. Only the tag is read, so embedded artwork and audio data are skipped without being
+ * loaded into memory.
+ */
+final class ReplayGainReader {
+
+    private static final String TRACK_GAIN_KEY = "REPLAYGAIN_TRACK_GAIN";
+
+    /**
+     * Gains outside of this range, in dB, are assumed to be corrupt
+     */
+    private static final float MAX_GAIN = 64;
+
+    /**
+     * TXXX frames larger than this are skipped, since they can't be a ReplayGain tag
+     */
+    private static final int MAX_TEXT_FRAME_SIZE = 4096;
+
+    private static final int ID3_UNSYNCHRONISATION = 0x80;
+    private static final int ID3_EXTENDED_HEADER = 0x40;
+
+    private static final int ID3V24_FRAME_GROUPED = 0x40;
+    private static final int ID3V24_FRAME_COMPRESSED = 0x08;
+    private static final int ID3V24_FRAME_ENCRYPTED = 0x04;
+    private static final int ID3V24_FRAME_UNSYNCHRONISED = 0x02;
+    private static final int ID3V24_FRAME_DATA_LENGTH = 0x01;
+
+    private static final int FLAC_VORBIS_COMMENT = 4;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16 = Charset.forName("UTF-16");
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+    /**
+     * This class is never instantiated
+     */
+    private ReplayGainReader() {
+    }
+
+    /**
+     * @return The ReplayGain track gain of a file in dB, or {@code null} if it isn't tagged
+     */
+    @Nullable
+    static Float readTrackGain(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return readTrackGain(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param stream A stream positioned at the beginning of an audio file
+     * @return The ReplayGain track gain in dB, or {@code null} if the file isn't tagged or isn't
+     *         in a supported format
+     */
+    @Nullable
+    static Float readTrackGain(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        byte[] magic = new byte[4];
+
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            return null;
+        }
+
+        if (magic[0] == 'I' && magic[1] == 'D' && magic[2] == '3') {
+            return readId3TrackGain(in, magic[3]);
+        } else if (magic[0] == 'f' && magic[1] == 'L' && magic[2] == 'a' && magic[3] == 'C') {
+            return readFlacTrackGain(in);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the frames of an ID3v2 tag, starting right after the major version in its header
+     */
+    @Nullable
+    private static Float readId3TrackGain(DataInputStream in, int majorVersion)
+            throws IOException {
+        if (majorVersion < 2 || majorVersion > 4) {
+            return null;
+        }
+
+        in.readUnsignedByte(); // Minor version
+        int flags = in.readUnsignedByte();
+        int remaining = readSyncSafeInt(in);
+
+        if (majorVersion == 2 && (flags & ID3_EXTENDED_HEADER) != 0) {
+            // ID3v2.2 tags with this flag are compressed with an undefined scheme
+            return null;
+        }
+
+        boolean unsynchronised = (flags & ID3_UNSYNCHRONISATION) != 0;
+        if (unsynchronised && majorVersion < 4) {
+            // Before ID3v2.4, unsynchronisation applies to the entire tag including frame
+            // headers, so frames can't be found without decoding the whole tag. These files are
+            // rare enough that they're analyzed instead.
+            return null;
+        }
+
+        if (majorVersion > 2 && (flags & ID3_EXTENDED_HEADER) != 0) {
+            // Skip the extended header. Its size includes itself in ID3v2.4, but not in ID3v2.3
+            int size = (majorVersion == 4) ? readSyncSafeInt(in) - 4 : in.readInt();
+            skipFully(in, size);
+            remaining -= size + 4;
+        }
+
+        int idLength = (majorVersion == 2) ? 3 : 4;
+        int headerLength = (majorVersion == 2) ? 6 : 10;
+        String textFrameId = (majorVersion == 2) ? "TXX" : "TXXX";
+        byte[] id = new byte[idLength];
+
+        while (remaining >= headerLength) {
+            in.readFully(id);
+            if (id[0] == 0) {
+                // The rest of the tag is padding
+                return null;
+            }
+
+            int size;
+            if (majorVersion == 2) {
+                size = (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+            } else if (majorVersion == 3) {
+                size = in.readInt();
+            } else {
+                size = readSyncSafeInt(in);
+            }
+
+            int frameFlags = 0;
+            if (majorVersion > 2) {
+                frameFlags = in.readUnsignedShort();
+            }
+
+            remaining -= headerLength;
+            if (size < 0 || size > remaining) {
+                return null;
+            }
+            remaining -= size;
+
+            if (size > MAX_TEXT_FRAME_SIZE || !textFrameId.equals(new String(id, ISO_8859_1))) {
+                skipFully(in, size);
+                continue;
+            }
+
+            byte[] frame = new byte[size];
+            in.readFully(frame);
+
+            if (majorVersion == 4) {
+                frame = decodeId3v24Frame(frame, frameFlags, unsynchronised);
+                if (frame == null) {
+                    continue;
+                }
+            }
+
+            Float gain = parseUserTextFrame(frame);
+            if (gain != null) {
+                return gain;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes the fields that ID3v2.4 frame flags add in front of a frame's contents, and reverses
+     * the frame's unsynchronisation
+     * @param flags The frame's format flags
+     * @param tagUnsynchronised Whether the tag header says that every frame is unsynchronised
+     * @return The contents of the frame, or {@code null} if it's compressed or encrypted
+     */
+    @Nullable
+    private static byte[] decodeId3v24Frame(byte[] frame, int flags, boolean tagUnsynchronised) {
+        if ((flags & (ID3V24_FRAME_COMPRESSED | ID3V24_FRAME_ENCRYPTED)) != 0) {
+            return null;
+        }
+
+        int offset = 0;
+        if ((flags & ID3V24_FRAME_GROUPED) != 0) {
+            offset += 1; // Group identifier
+        }
+        if ((flags & ID3V24_FRAME_DATA_LENGTH) != 0) {
+            offset += 4; // Data length indicator
+        }
+
+        if (offset > frame.length) {
+            return null;
+        }
+
+        if (tagUnsynchronised || (flags & ID3V24_FRAME_UNSYNCHRONISED) != 0) {
+            return removeUnsynchronisation(frame, offset);
+        } else {
+            return Arrays.copyOfRange(frame, offset, frame.length);
+        }
+    }
+
+    /**
+     * Unsynchronisation inserts a zero after every 0xFF byte so that tags can't be mistaken for
+     * MPEG frame syncs. This removes those zeros.
+     */
+    private static byte[] removeUnsynchronisation(byte[] data, int offset) {
+        byte[] decoded = new byte[data.length - offset];
+        int length = 0;
+
+        for (int i = offset; i < data.length; i++) {
+            decoded[length++] = data[i];
+            if (data[i] == (byte) 0xFF && i + 1 < data.length && data[i + 1] == 0) {
+                i++;
+            }
+        }
+
+        return Arrays.copyOf(decoded, length);
+    }
+
+    /**
+     * Parses a user-defined text frame, which holds a description followed by a value
+     * @return The gain in this frame if it's a ReplayGain track gain, otherwise {@code null}
+     */
+    @Nullable
+    private static Float parseUserTextFrame(byte[] frame) {
+        if (frame.length < 2) {
+            return null;
+        }
+
+        int encoding = frame[0];
+        boolean wideCharacters = (encoding == 1 || encoding == 2);
+        Charset charset;
+
+        switch (encoding) {
+            case 0:
+                charset = ISO_8859_1;
+                break;
+            case 1:
+                charset = UTF_16;
+                break;
+            case 2:
+                charset = UTF_16BE;
+                break;
+            case 3:
+                charset = UTF_8;
+                break;
+            default:
+                return null;
+        }
+
+        int descriptionEnd = findTerminator(frame, 1, wideCharacters);
+        if (descriptionEnd < 0) {
+            return null;
+        }
+
+        String description = new String(frame, 1, descriptionEnd - 1, charset);
+        if (!TRACK_GAIN_KEY.equalsIgnoreCase(description.trim())) {
+            return null;
+        }
+
+        int valueStart = descriptionEnd + (wideCharacters ? 2 : 1);
+        int valueEnd = findTerminator(frame, valueStart, wideCharacters);
+        if (valueEnd < 0) {
+            valueEnd = frame.length;
+        }
+
+        return parseGain(new String(frame, valueStart, valueEnd - valueStart, charset));
+    }
+
+    /**
+     * @return The index of the first null terminator at or after {@code start}, or -1 if there
+     *         isn't one. Wide characters are terminated by two null bytes on a character boundary.
+     */
+    private static int findTerminator(byte[] data, int start, boolean wideCharacters) {
+        if (wideCharacters) {
+            for (int i = start; i + 1 < data.length; i += 2) {
+                if (data[i] == 0 && data[i + 1] == 0) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = start; i < data.length; i++) {
+                if (data[i] == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the metadata blocks of a FLAC file, starting right after its "fLaC" marker
+     */
+    @Nullable
+    private static Float readFlacTrackGain(DataInputStream in) throws IOException {
+        boolean lastBlock = false;
+
+        while (!lastBlock) {
+            int header = in.readUnsignedByte();
+            int length = (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+
+            lastBlock = (header & 0x80) != 0;
+            if ((header & 0x7F) != FLAC_VORBIS_COMMENT) {
+                skipFully(in, length);
+                continue;
+            }
+
+            byte[] block = new byte[length];
+            in.readFully(block);
+            return parseVorbisComments(block);
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses a Vorbis comment block, which is a vendor string followed by a list of
+     * "KEY=value" strings. Unlike the rest of a FLAC file, lengths in this block are
+     * little endian.
+     */
+    @Nullable
+    private static Float parseVorbisComments(byte[] block) {
+        int position = 0;
+        if (block.length < 8) {
+            return null;
+        }
+
+        long vendorLength = readLittleEndianInt(block, position);
+        position += 4;
+        if (vendorLength > block.length - position - 4) {
+            return null;
+        }
+        position += (int) vendorLength;
+
+        long commentCount = readLittleEndianInt(block, position);
+        position += 4;
+
+        String prefix = TRACK_GAIN_KEY + "=";
+        for (long i = 0; i < commentCount && position + 4 <= block.length; i++) {
+            long length = readLittleEndianInt(block, position);
+            position += 4;
+            if (length > block.length - position) {
+                return null;
+            }
+
+            String comment = new String(block, position, (int) length, UTF_8);
+            position += (int) length;
+
+            if (comment.length() > prefix.length()
+                    && comment.substring(0, prefix.length()).equalsIgnoreCase(prefix)) {
+                return parseGain(comment.substring(prefix.length()));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses a gain written like "-6.48 dB"
+     * @return The gain in dB, or {@code null} if it isn't a reasonable value
+     */
+    @Nullable
+    static Float parseGain(String value) {
+        String gain = value.trim();
+        if (gain.toLowerCase(Locale.ROOT).endsWith("db")) {
+            gain = gain.substring(0, gain.length() - 2).trim();
+        }
+
+        try {
+            float parsed = Float.parseFloat(gain);
+            if (Float.isNaN(parsed) || Math.abs(parsed) > MAX_GAIN) {
+                return null;
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int readSyncSafeInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 7) | (in.readUnsignedByte() & 0x7F);
+        }
+        return value;
+    }
+
+    private static long readLittleEndianInt(byte[] data, int offset) {
+        return (data[offset] & 0xFFL)
+                | (data[offset + 1] & 0xFFL) << 8
+                | (data[offset + 2] & 0xFFL) << 16
+                | (data[offset + 3] & 0xFFL) << 24;
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
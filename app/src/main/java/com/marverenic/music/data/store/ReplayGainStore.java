@@ -0,0 +1,17 @@
+package com.marverenic.music.data.store;
+
+import android.support.annotation.Nullable;
+
+import com.marverenic.music.instances.Song;
+
+import java.util.List;
+
+import rx.Observable;
+
+public interface ReplayGainStore {
+
+    @Nullable Float getTrackGain(Song song);
+    Observable<Long> getAnalyzedSongIds();
+    void analyze(List<Song> songs);
+
+}
@@ -8,6 +8,7 @@ import android.support.annotation.StringRes;
 
 import com.marverenic.music.R;
 import com.marverenic.music.data.annotations.BaseTheme;
+import com.marverenic.music.data.annotations.BufferProfile;
 import com.marverenic.music.data.annotations.PresetTheme;
 import com.marverenic.music.data.annotations.StartPage;
 import com.marverenic.music.player.MusicPlayer;
@@ -142,6 +143,22 @@ public class SharedPreferencesStore implements PreferencesStore {
         return getLong(R.string.pref_key_last_sleep_timer, TimeUnit.MINUTES.toMillis(15));
     }
 
+    @Override
+    @SuppressWarnings("WrongConstant")
+    public int getBufferProfile() {
+        return getInt(R.string.pref_key_buffer_profile, BufferProfile.STANDARD);
+    }
+
+    @Override
+    public int getCrossfadeDuration() {
+        return getInt(R.string.pref_key_crossfade_duration, 0);
+    }
+
+    @Override
+    public boolean normalizeVolume() {
+        return getBoolean(R.string.pref_key_normalize_volume, false);
+    }
+
     @Override
     public int getEqualizerPresetId() {
         return getInt(R.string.pref_key_eq_id, -1);
@@ -234,6 +251,21 @@ public class SharedPreferencesStore implements PreferencesStore {
         putLong(R.string.pref_key_last_sleep_timer, timeInMillis);
     }
 
+    @Override
+    public void setBufferProfile(@BufferProfile int bufferProfile) {
+        putInt(R.string.pref_key_buffer_profile, bufferProfile);
+    }
+
+    @Override
+    public void setCrossfadeDuration(int durationMillis) {
+        putInt(R.string.pref_key_crossfade_duration, durationMillis);
+    }
+
+    @Override
+    public void setNormalizeVolume(boolean normalizeVolume) {
+        putBoolean(R.string.pref_key_normalize_volume, normalizeVolume);
+    }
+
     @Override
     public void setEqualizerPresetId(int equalizerPresetId) {
         putInt(R.string.pref_key_eq_id, equalizerPresetId);
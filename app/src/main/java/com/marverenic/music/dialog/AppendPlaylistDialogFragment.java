@@ -26,6 +26,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class AppendPlaylistDialogFragment extends DialogFragment {
@@ -128,6 +129,7 @@ public class AppendPlaylistDialogFragment extends DialogFragment {
 
     private void addToPlaylist(Playlist playlist) {
         mPlaylistStore.getSongs(playlist)
+                .observeOn(AndroidSchedulers.mainThread())
                 .take(1)
                 .subscribe(
                         oldEntries -> {
@@ -25,6 +25,7 @@ import java.util.Set;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class PlaylistCollisionDialogFragment extends DialogFragment {
@@ -61,6 +62,7 @@ public class PlaylistCollisionDialogFragment extends DialogFragment {
         }
 
         mPlaylistStore.getSongs(mPlaylist)
+                .observeOn(AndroidSchedulers.mainThread())
                 .take(1)
                 .subscribe(songs -> {
                     mPlaylistContents = songs;
@@ -12,11 +12,13 @@ import android.view.ViewGroup;
 import com.marverenic.music.JockeyApplication;
 import com.marverenic.music.R;
 import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PaletteStore;
 import com.marverenic.music.instances.Album;
 import com.marverenic.music.instances.section.AlbumSection;
 import com.marverenic.music.instances.section.LibraryEmptyState;
 import com.marverenic.music.view.BackgroundDecoration;
 import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
+import com.marverenic.heterogeneousadapter.PrefetchScrollListener;
 import com.marverenic.music.view.GridSpacingDecoration;
 import com.marverenic.music.view.ViewUtils;
 
@@ -28,10 +30,17 @@ import timber.log.Timber;
 
 public class AlbumFragment extends BaseFragment {
 
+    /**
+     * The number of albums at the top of the list to extract swatches for before they're bound
+     */
+    private static final int INITIAL_SWATCH_PREFETCH_COUNT = 24;
+
     @Inject MusicStore mMusicStore;
+    @Inject PaletteStore mPaletteStore;
 
     private RecyclerView mRecyclerView;
     private HeterogeneousAdapter mAdapter;
+    private PrefetchScrollListener mPrefetchListener;
     private AlbumSection mAlbumSection;
     private List<Album> mAlbums;
 
@@ -44,6 +53,7 @@ public class AlbumFragment extends BaseFragment {
                 .subscribe(
                         albums -> {
                             mAlbums = albums;
+                            prefetchSwatches();
                             setupAdapter();
                         }, throwable -> {
                             Timber.e(throwable, "Failed to get all albums from MusicStore");
@@ -88,24 +98,38 @@ public class AlbumFragment extends BaseFragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (mPrefetchListener != null) {
+            mPrefetchListener.detach(mRecyclerView);
+            mPrefetchListener = null;
+        }
+
         mRecyclerView = null;
         mAdapter = null;
         mAlbumSection = null;
     }
 
+    private void prefetchSwatches() {
+        int count = Math.min(mAlbums.size(), INITIAL_SWATCH_PREFETCH_COUNT);
+        for (int i = 0; i < count; i++) {
+            mPaletteStore.prefetchSwatch(mAlbums.get(i));
+        }
+    }
+
     private void setupAdapter() {
         if (mRecyclerView == null || mAlbums == null) {
             return;
         }
 
         if (mAlbumSection != null) {
-            mAlbumSection.setData(mAlbums);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mAlbumSection, mAlbums);
         } else {
             mAdapter = new HeterogeneousAdapter();
             mAdapter.setHasStableIds(true);
             mRecyclerView.setAdapter(mAdapter);
 
+            mPrefetchListener = new PrefetchScrollListener(mAdapter);
+            mPrefetchListener.attach(mRecyclerView);
+
             mAlbumSection = new AlbumSection(this, mAlbums);
             mAdapter.addSection(mAlbumSection);
             mAdapter.setEmptyState(new LibraryEmptyState(getActivity()));
@@ -87,8 +87,7 @@ public class ArtistFragment extends BaseFragment {
         }
 
         if (mArtistSection != null) {
-            mArtistSection.setData(mArtists);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mArtistSection, mArtists);
         } else {
             mAdapter = new HeterogeneousAdapter();
             mAdapter.setHasStableIds(true);
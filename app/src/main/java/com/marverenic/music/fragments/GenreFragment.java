@@ -101,8 +101,7 @@ public class GenreFragment extends BaseFragment {
         }
 
         if (mGenreSection != null) {
-            mGenreSection.setData(mGenres);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mGenreSection, mGenres);
         } else {
             mAdapter = new HeterogeneousAdapter();
             mAdapter.setHasStableIds(true);
@@ -20,9 +20,13 @@ import com.marverenic.music.viewmodel.MiniplayerViewModel;
 
 import javax.inject.Inject;
 
-public class MiniplayerFragment extends Fragment implements PlayerController.UpdateListener {
+import rx.subscriptions.CompositeSubscription;
+import timber.log.Timber;
+
+public class MiniplayerFragment extends Fragment {
 
     private FragmentMiniplayerBinding mBinding;
+    private CompositeSubscription mPlayerSubscriptions;
 
     @Inject ThemeStore mThemeStore;
 
@@ -54,21 +58,35 @@ public class MiniplayerFragment extends Fragment implements PlayerController.Upd
     @Override
     public void onResume() {
         super.onResume();
-        PlayerController.registerUpdateListener(this);
-        onUpdate();
-        mBinding.getViewModel().onActivityEnterForeground();
+        MiniplayerViewModel viewModel = mBinding.getViewModel();
+
+        mPlayerSubscriptions = new CompositeSubscription();
+        mPlayerSubscriptions.add(PlayerController.observeNowPlaying().subscribe(
+                viewModel::setSong,
+                throwable -> {
+                    Timber.e(throwable, "Failed to update current song");
+                }));
+
+        mPlayerSubscriptions.add(PlayerController.observeIsPlaying().subscribe(
+                viewModel::setPlaying,
+                throwable -> {
+                    Timber.e(throwable, "Failed to update playing state");
+                }));
+
+        mPlayerSubscriptions.add(PlayerController.observeArtwork().subscribe(
+                viewModel::setArtwork,
+                throwable -> {
+                    Timber.e(throwable, "Failed to update artwork");
+                }));
+
+        viewModel.onActivityEnterForeground();
     }
 
     @Override
     public void onPause() {
         super.onPause();
-        PlayerController.unregisterUpdateListener(this);
+        mPlayerSubscriptions.unsubscribe();
+        mPlayerSubscriptions = null;
         mBinding.getViewModel().onActivityExitForeground();
     }
-
-    @Override
-    public void onUpdate() {
-        mBinding.getViewModel().setSong(PlayerController.getNowPlaying());
-        mBinding.getViewModel().setPlaying(PlayerController.isPlaying());
-    }
 }
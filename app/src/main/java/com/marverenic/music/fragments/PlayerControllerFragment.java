@@ -15,9 +15,13 @@ import com.marverenic.music.databinding.ViewNowPlayingControlPanelBinding;
 import com.marverenic.music.player.PlayerController;
 import com.marverenic.music.viewmodel.NowPlayingControllerViewModel;
 
-public class PlayerControllerFragment extends Fragment implements PlayerController.UpdateListener {
+import rx.subscriptions.CompositeSubscription;
+import timber.log.Timber;
+
+public class PlayerControllerFragment extends Fragment {
 
     private ViewNowPlayingControlPanelBinding mBinding;
+    private CompositeSubscription mPlayerSubscriptions;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -26,8 +30,6 @@ public class PlayerControllerFragment extends Fragment implements PlayerControll
         mBinding = ViewNowPlayingControlPanelBinding.inflate(inflater, container, false);
         mBinding.setViewModel(new NowPlayingControllerViewModel(this));
 
-        onUpdate();
-
         Drawable progress = mBinding.playerScrubber.songSeekBar.getProgressDrawable();
         if (progress instanceof StateListDrawable) {
             progress = progress.getCurrent();
@@ -44,25 +46,31 @@ public class PlayerControllerFragment extends Fragment implements PlayerControll
     @Override
     public void onPause() {
         super.onPause();
-        PlayerController.unregisterUpdateListener(this);
+        mPlayerSubscriptions.unsubscribe();
+        mPlayerSubscriptions = null;
     }
 
     @Override
     public void onResume() {
         super.onResume();
-        PlayerController.registerUpdateListener(this);
-        onUpdate();
-    }
+        NowPlayingControllerViewModel viewModel = mBinding.getViewModel();
 
-    @Override
-    public void onUpdate() {
-        if (mBinding == null || mBinding.getViewModel() == null) {
-            return;
-        }
+        mPlayerSubscriptions = new CompositeSubscription();
+        mPlayerSubscriptions.add(PlayerController.observeNowPlaying().subscribe(
+                song -> {
+                    viewModel.setSong(song);
+                    mBinding.executePendingBindings();
+                }, throwable -> {
+                    Timber.e(throwable, "Failed to update current song");
+                }));
 
-        mBinding.getViewModel().setSong(PlayerController.getNowPlaying());
-        mBinding.getViewModel().setPlaying(PlayerController.isPlaying());
-        mBinding.executePendingBindings();
+        mPlayerSubscriptions.add(PlayerController.observeIsPlaying().subscribe(
+                isPlaying -> {
+                    viewModel.setPlaying(isPlaying);
+                    mBinding.executePendingBindings();
+                }, throwable -> {
+                    Timber.e(throwable, "Failed to update playing state");
+                }));
     }
 
 }
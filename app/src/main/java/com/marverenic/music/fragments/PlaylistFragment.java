@@ -89,8 +89,7 @@ public class PlaylistFragment extends BaseFragment {
         }
 
         if (mPlaylistSection != null) {
-            mPlaylistSection.setData(mPlaylists);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mPlaylistSection, mPlaylists);
         } else {
             mAdapter = new HeterogeneousAdapter();
             mAdapter.setHasStableIds(true);
@@ -24,6 +24,7 @@ import com.marverenic.music.JockeyApplication;
 import com.marverenic.music.R;
 import com.marverenic.music.data.store.PreferencesStore;
 import com.marverenic.music.data.store.ThemeStore;
+import com.marverenic.music.player.PlayerController;
 import com.marverenic.music.utils.Util;
 import com.marverenic.music.view.BackgroundDecoration;
 import com.marverenic.music.view.DividerDecoration;
@@ -179,6 +180,10 @@ public class PreferenceFragment extends PreferenceFragmentCompat
 
             showDirectoryInclusionExclusionFragment(exclude);
             return true;
+        } else if (getString(R.string.pref_key_normalize_volume).equals(preference.getKey())) {
+            // Volume normalization is applied by the player, so send it the updated preference
+            // right away instead of waiting for it to restart
+            PlayerController.updatePlayerPreferences(mPrefStore);
         }
         return super.onPreferenceTreeClick(preference);
     }
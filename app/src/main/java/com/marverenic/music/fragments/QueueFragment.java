@@ -16,6 +16,7 @@ import android.view.ViewGroup;
 import com.marverenic.heterogeneousadapter.DragDropAdapter;
 import com.marverenic.heterogeneousadapter.DragDropDecoration;
 import com.marverenic.music.R;
+import com.marverenic.music.instances.Song;
 import com.marverenic.music.instances.section.LibraryEmptyState;
 import com.marverenic.music.instances.section.QueueSection;
 import com.marverenic.music.instances.section.SpacerSingleton;
@@ -26,16 +27,29 @@ import com.marverenic.music.view.InsetDecoration;
 import com.marverenic.music.view.QueueAnimator;
 import com.marverenic.music.view.SnappingScroller;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import rx.subscriptions.CompositeSubscription;
+import timber.log.Timber;
+
 import static android.content.res.Configuration.ORIENTATION_LANDSCAPE;
 
-public class QueueFragment extends Fragment implements PlayerController.UpdateListener {
+public class QueueFragment extends Fragment {
 
     private int lastPlayIndex;
 
+    /**
+     * Whether the list should jump to the current song after the next queue is shown. This is set
+     * when the queue is about to be reshuffled.
+     */
+    private boolean mJumpToNowPlaying;
+
     private RecyclerView mRecyclerView;
     private DragDropAdapter mAdapter;
     private QueueSection mQueueSection;
     private SpacerSingleton[] mBottomSpacers;
+    private CompositeSubscription mSubscriptions;
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -76,7 +90,8 @@ public class QueueFragment extends Fragment implements PlayerController.UpdateLi
             mAdapter.attach(mRecyclerView);
 
             mRecyclerView.setItemAnimator(new QueueAnimator());
-            mQueueSection = new QueueSection(this, PlayerController.getQueue());
+            // The queue is filled in once the first mirrored queue is observed
+            mQueueSection = new QueueSection(this, new ArrayList<>());
             mAdapter.setDragSection(mQueueSection);
 
             // Wait for a layout pass before calculating bottom spacing since it is dependent on the
@@ -104,9 +119,6 @@ public class QueueFragment extends Fragment implements PlayerController.UpdateLi
                     return "";
                 }
             });
-        } else if (!mQueueSection.getData().equals(PlayerController.getQueue())) {
-            mQueueSection.setData(PlayerController.getQueue());
-            mAdapter.notifyDataSetChanged();
         }
     }
 
@@ -167,23 +179,44 @@ public class QueueFragment extends Fragment implements PlayerController.UpdateLi
     @Override
     public void onResume() {
         super.onResume();
-        PlayerController.registerUpdateListener(this);
-        // Assume this fragment's data has gone stale since it was last in the foreground
-        onUpdate();
+        mSubscriptions = new CompositeSubscription(
+                PlayerController.observeQueuePosition().subscribe(
+                        this::onQueuePositionChanged,
+                        throwable -> {
+                            Timber.e(throwable, "Failed to update queue position");
+                        }),
+                PlayerController.observeQueue().subscribe(
+                        this::onQueueChanged,
+                        throwable -> {
+                            Timber.e(throwable, "Failed to update queue");
+                        }));
+
         scrollToNowPlaying();
     }
 
     @Override
     public void onPause() {
         super.onPause();
-        PlayerController.unregisterUpdateListener(this);
+        mSubscriptions.unsubscribe();
     }
 
-    @Override
-    public void onUpdate() {
-        setupAdapter();
+    /**
+     * Shows a new version of the queue. The queue is only emitted when its contents or order
+     * have changed, and only the songs that were moved, added or removed are updated in the list.
+     * @param queue The player's current queue
+     */
+    private void onQueueChanged(List<Song> queue) {
+        // The mirrored queue is shared with other observers, but the queue section's data is
+        // rearranged in place while songs are dragged, so give the section its own copy
+        mAdapter.setSectionData(mQueueSection, new ArrayList<>(queue));
+
+        if (mJumpToNowPlaying) {
+            mJumpToNowPlaying = false;
+            scrollToNowPlaying();
+        }
+    }
 
-        int currentIndex = PlayerController.getQueuePosition();
+    private void onQueuePositionChanged(int currentIndex) {
         int previousIndex = lastPlayIndex;
 
         if (currentIndex != lastPlayIndex) {
@@ -261,8 +294,8 @@ public class QueueFragment extends Fragment implements PlayerController.UpdateLi
     }
 
     public void updateShuffle() {
-        setupAdapter();
-        lastPlayIndex = PlayerController.getQueuePosition();
-        scrollToNowPlaying();
+        // The reshuffled queue will be shown once the player service has applied the new
+        // shuffle setting
+        mJumpToNowPlaying = true;
     }
 }
@@ -86,8 +86,7 @@ public class SongFragment extends BaseFragment {
         }
 
         if (mSongSection != null) {
-            mSongSection.setData(mSongs);
-            mAdapter.notifyDataSetChanged();
+            mAdapter.setSectionData(mSongSection, mSongs);
         } else {
             mAdapter = new HeterogeneousAdapter();
             mAdapter.setHasStableIds(true);
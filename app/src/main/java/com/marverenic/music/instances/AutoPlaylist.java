@@ -1,6 +1,5 @@
 package com.marverenic.music.instances;
 
-import android.annotation.SuppressLint;
 import android.os.Parcel;
 import android.os.Parcelable;
 
@@ -10,13 +9,19 @@ import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
 import com.marverenic.music.instances.playlistrules.AutoPlaylistRule;
 import com.marverenic.music.instances.playlistrules.AutoPlaylistRule.Field;
+import com.marverenic.music.instances.playlistrules.RuleCompiler;
+import com.marverenic.music.instances.playlistrules.RuleSelection;
+import com.marverenic.music.instances.playlistrules.SongPredicate;
+import com.marverenic.music.instances.playlistrules.SongSorter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import rx.Observable;
@@ -112,45 +117,147 @@ public class AutoPlaylist extends Playlist implements Parcelable {
             return Observable.just(Collections.emptyList());
         }
 
-        Observable<List<Song>> filtered = null;
+        // Perform the filter after play counts are refreshed
+        return playCountStore.refresh()
+                .flatMap(ignored -> compileRules(musicStore, playlistStore, playCountStore))
+                .flatMap(predicate -> generatePlaylist(predicate, musicStore, playCountStore));
+    }
 
-        for (AutoPlaylistRule rule : getRules()) {
-            Observable<List<Song>> ruleEntries;
-            ruleEntries = rule.applyFilter(playlistStore, musicStore, playCountStore);
+    /**
+     * Compiles the rules of this playlist into a single predicate
+     * @return An Observable that emits the compiled rules once and then completes
+     * @see RuleCompiler
+     */
+    public Observable<SongPredicate> compileRules(MusicStore musicStore,
+                                                  PlaylistStore playlistStore,
+                                                  PlayCountStore playCountStore) {
+        return RuleCompiler.compile(getRules(), isMatchAllRules(),
+                playlistStore, musicStore, playCountStore);
+    }
 
-            if (filtered == null) {
-                filtered = ruleEntries;
-            } else {
-                filtered = combineRules(filtered, ruleEntries);
-            }
-        }
+    /**
+     * Generates the contents of this playlist using rules that have already been compiled. Unlike
+     * {@link #generatePlaylist(MusicStore, PlaylistStore, PlayCountStore)}, play counts are not
+     * refreshed first.
+     * @param predicate The rules of this playlist, as returned by
+     *                  {@link #compileRules(MusicStore, PlaylistStore, PlayCountStore)}
+     */
+    public Observable<List<Song>> generatePlaylist(SongPredicate predicate,
+                                                   MusicStore musicStore,
+                                                   PlayCountStore playCountStore) {
 
-        // Perform the filter after play counts are refreshed
-        final Observable<List<Song>> finalFiltered = filtered;
-        Observable<List<Song>> matchingSongs = playCountStore.refresh()
-                .flatMap(ignored -> finalFiltered);
+        // Rules that can be expressed in SQL are used to only read potential matches from the
+        // MediaStore. Everything else is checked in memory.
+        RuleSelection selection = RuleSelection.translate(getRules(), isMatchAllRules());
+
+        Observable<List<Song>> matchingSongs = RuleCompiler.filter(musicStore, selection,
+                predicate);
 
         Observable<List<Song>> truncated = truncateFilteredSongs(matchingSongs, playCountStore);
         return sortFilteredSongs(truncated, playCountStore);
     }
 
-    private Observable<List<Song>> combineRules(Observable<List<Song>> result1,
-                                                Observable<List<Song>> result2) {
+    /**
+     * Updates previously generated contents of this playlist after some songs have changed,
+     * without scanning the rest of the library. Only the changed songs are checked against this
+     * playlist's rules. This may only be used if {@link #isIncrementallyUpdatable()} is true.
+     * @param contents The current contents of this playlist
+     * @param predicate The rules of this playlist, as returned by
+     *                  {@link #compileRules(MusicStore, PlaylistStore, PlayCountStore)}
+     * @param changedSongs Songs that were added to the library or whose play counts changed
+     * @param removedSongIds The ids of songs that were removed from the library
+     * @return The updated contents of this playlist in its sort order
+     */
+    public List<Song> updatePlaylist(List<Song> contents, SongPredicate predicate,
+                                     Collection<Song> changedSongs,
+                                     Collection<Long> removedSongIds,
+                                     PlayCountStore playCountStore) {
 
-        if (isMatchAllRules()) { // AND
-            return Observable.combineLatest(result1, result2, (songs, songs2) -> {
-                List<Song> merged = new ArrayList<>(songs);
-                merged.retainAll(songs2);
-                return merged;
-            });
-        } else { // OR
-            return Observable.combineLatest(result1, result2, (songs, songs2) -> {
-                Set<Song> mergedSet = new HashSet<>(songs);
-                mergedSet.addAll(songs2);
+        Map<Long, Song> changed = new LinkedHashMap<>();
+        for (Song song : changedSongs) {
+            changed.put(song.getSongId(), song);
+        }
 
-                return new ArrayList<>(mergedSet);
-            });
+        Set<Long> removed = new HashSet<>(removedSongIds);
+        List<Song> updated = new ArrayList<>(contents.size() + changed.size());
+
+        for (Song song : contents) {
+            if (removed.contains(song.getSongId())) {
+                continue;
+            }
+
+            Song replacement = changed.remove(song.getSongId());
+            if (replacement == null) {
+                updated.add(song);
+            } else if (predicate.test(replacement)) {
+                updated.add(replacement);
+            }
         }
+
+        for (Song song : changed.values()) {
+            if (predicate.test(song)) {
+                updated.add(song);
+            }
+        }
+
+        // Shuffled playlists keep their current order, and new songs are added to the end
+        if (getSortMethod() != AutoPlaylistRule.ID) {
+            SongSorter.sort(updated, getSortMethod(), isSortAscending(), playCountStore);
+        }
+
+        return updated;
+    }
+
+    /**
+     * @return Whether this playlist's contents can be kept up to date using
+     *         {@link #updatePlaylist(List, SongPredicate, Collection, Collection, PlayCountStore)}.
+     *         Playlists with a maximum number of entries have to be regenerated instead, since a
+     *         change to one song can push another one out of the playlist.
+     */
+    public boolean isIncrementallyUpdatable() {
+        return getMaximumEntries() < 0;
+    }
+
+    /**
+     * @return Whether this playlist has rules that depend on the contents of genres or other
+     *         playlists. The compiled form of these rules can't evaluate songs that have been
+     *         added to the library since they were compiled.
+     */
+    public boolean dependsOnCollections() {
+        for (AutoPlaylistRule rule : getRules()) {
+            if (rule.getType() == AutoPlaylistRule.GENRE
+                    || rule.getType() == AutoPlaylistRule.PLAYLIST) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the contents or order of this playlist can change when play counts, skip
+     *         counts, or play dates change
+     */
+    public boolean dependsOnPlayCounts() {
+        if (isPlayCountField(getSortMethod())) {
+            return true;
+        }
+
+        if (getMaximumEntries() >= 0 && isPlayCountField(getTruncateMethod())) {
+            return true;
+        }
+
+        for (AutoPlaylistRule rule : getRules()) {
+            if (rule.getType() == AutoPlaylistRule.SONG && isPlayCountField(rule.getField())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPlayCountField(@Field int field) {
+        return field == AutoPlaylistRule.PLAY_COUNT
+                || field == AutoPlaylistRule.SKIP_COUNT
+                || field == AutoPlaylistRule.DATE_PLAYED;
     }
 
     private Observable<List<Song>> truncateFilteredSongs(Observable<List<Song>> filterResult,
@@ -160,66 +267,20 @@ public class AutoPlaylist extends Playlist implements Parcelable {
         }
 
         return filterResult
-                .map(filteredSongs -> {
-                    sortSongListByField(filteredSongs, getTruncateMethod(), isSortAscending(),
-                            playCountStore);
-
-                    return filteredSongs;
-                }).map(sortedSongs -> {
-                    if (sortedSongs.size() > getMaximumEntries()) {
-                        return sortedSongs.subList(0, getMaximumEntries());
-                    } else {
-                        return sortedSongs;
-                    }
-                });
+                .map(filteredSongs -> SongSorter.top(filteredSongs, getTruncateMethod(),
+                        isTruncateAscending(), getMaximumEntries(), playCountStore));
     }
 
     private Observable<List<Song>> sortFilteredSongs(Observable<List<Song>> truncateResult,
                                                      PlayCountStore playCountStore) {
         return truncateResult
                 .map(truncatedSongs -> {
-                    sortSongListByField(truncatedSongs, getSortMethod(), isSortAscending(),
+                    SongSorter.sort(truncatedSongs, getSortMethod(), isSortAscending(),
                             playCountStore);
                     return truncatedSongs;
                 });
     }
 
-    private static void sortSongListByField(List<Song> songs, @Field int field, boolean ascending,
-                                            PlayCountStore playCountStore) {
-
-        if (field == AutoPlaylistRule.NAME) {
-            Collections.sort(songs);
-            if (!ascending) {
-                Collections.reverse(songs);
-            }
-        } else if (field == AutoPlaylistRule.ID) {
-            Collections.shuffle(songs);
-        } else {
-            Collections.sort(songs, getSortComparator(field, playCountStore));
-            if (ascending) {
-                Collections.reverse(songs);
-            }
-        }
-    }
-
-    @SuppressLint("SwitchIntDef")
-    private static Comparator<Song> getSortComparator(@Field int field,
-                                                      PlayCountStore playCountStore) {
-        switch (field) {
-            case AutoPlaylistRule.YEAR:
-                return Song.YEAR_COMPARATOR;
-            case AutoPlaylistRule.DATE_ADDED:
-                return Song.DATE_ADDED_COMPARATOR;
-            case AutoPlaylistRule.DATE_PLAYED:
-                return Song.playDateComparator(playCountStore);
-            case AutoPlaylistRule.PLAY_COUNT:
-                return Song.playCountComparator(playCountStore);
-            case AutoPlaylistRule.SKIP_COUNT:
-                return Song.skipCountComparator(playCountStore);
-        }
-        return null;
-    }
-
     public static final Parcelable.Creator<Parcelable> CREATOR =
             new Parcelable.Creator<Parcelable>() {
                 public AutoPlaylist createFromParcel(Parcel in) {
@@ -7,16 +7,8 @@ import android.os.Parcelable;
 import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
-import com.marverenic.music.instances.Album;
-import com.marverenic.music.instances.Song;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 public class AlbumRule extends AutoPlaylistRule implements Parcelable {
 
@@ -28,51 +20,25 @@ public class AlbumRule extends AutoPlaylistRule implements Parcelable {
         super(in);
     }
 
+    /**
+     * Every song already carries the id and name of its album, so this rule can be checked
+     * against songs directly without loading any albums
+     */
     @Override
-    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
-                                              PlayCountStore playCountStore) {
-        return musicStore.getAlbums()
-                .observeOn(Schedulers.computation())
-                .take(1)
-                .map(library -> {
-                    List<Album> filtered = new ArrayList<>();
-                    for (Album album : library) {
-                        if (includeAlbum(album)) {
-                            filtered.add(album);
-                        }
-                    }
-
-                    return filtered;
-                })
-                .map(albums -> {
-                    Set<Long> albumIds = new HashSet<>();
-
-                    for (Album album : albums) {
-                        albumIds.add(album.getAlbumId());
-                    }
-
-                    return albumIds;
-                })
-                .zipWith(musicStore.getSongs(), (albumIds, songs) -> {
-                    List<Song> filtered = new ArrayList<>();
-
-                    for (Song song : songs) {
-                        if (albumIds.contains(song.getAlbumId())) {
-                            filtered.add(song);
-                        }
-                    }
-
-                    return filtered;
-                });
+    public Observable<SongPredicate> compile(PlaylistStore playlistStore, MusicStore musicStore,
+                                             PlayCountStore playCountStore) {
+        return Observable.fromCallable(this::compilePredicate);
     }
 
     @SuppressLint("SwitchIntDef")
-    private boolean includeAlbum(Album album) {
+    private SongPredicate compilePredicate() {
         switch (getField()) {
             case AutoPlaylistRule.ID:
-                return checkId(album.getAlbumId());
+                NumberMatcher id = compileIdMatcher();
+                return song -> id.matches(song.getAlbumId());
             case AutoPlaylistRule.NAME:
-                return checkString(album.getAlbumName());
+                StringMatcher name = compileStringMatcher();
+                return song -> name.matches(song.getAlbumName());
         }
         throw new IllegalArgumentException("Cannot compare against field " + getField());
     }
@@ -7,16 +7,8 @@ import android.os.Parcelable;
 import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
-import com.marverenic.music.instances.Artist;
-import com.marverenic.music.instances.Song;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 public class ArtistRule extends AutoPlaylistRule implements Parcelable {
 
@@ -28,51 +20,25 @@ public class ArtistRule extends AutoPlaylistRule implements Parcelable {
         super(in);
     }
 
+    /**
+     * Every song already carries the id and name of its artist, so this rule can be checked
+     * against songs directly without loading any artists
+     */
     @Override
-    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
-                                              PlayCountStore playCountStore) {
-        return musicStore.getArtists()
-                .observeOn(Schedulers.computation())
-                .take(1)
-                .map(library -> {
-                    List<Artist> filtered = new ArrayList<>();
-                    for (Artist artist : library) {
-                        if (includeArtist(artist)) {
-                            filtered.add(artist);
-                        }
-                    }
-
-                    return filtered;
-                })
-                .map(artists -> {
-                    Set<Long> artistIds = new HashSet<>();
-
-                    for (Artist artist : artists) {
-                        artistIds.add((long) artist.getArtistId());
-                    }
-
-                    return artistIds;
-                })
-                .zipWith(musicStore.getSongs(), (artistIds, songs) -> {
-                    List<Song> filtered = new ArrayList<>();
-
-                    for (Song song : songs) {
-                        if (artistIds.contains(song.getArtistId())) {
-                            filtered.add(song);
-                        }
-                    }
-
-                    return filtered;
-                });
+    public Observable<SongPredicate> compile(PlaylistStore playlistStore, MusicStore musicStore,
+                                             PlayCountStore playCountStore) {
+        return Observable.fromCallable(this::compilePredicate);
     }
 
     @SuppressLint("SwitchIntDef")
-    private boolean includeArtist(Artist artist) {
+    private SongPredicate compilePredicate() {
         switch (getField()) {
             case AutoPlaylistRule.ID:
-                return checkId(artist.getArtistId());
+                NumberMatcher id = compileIdMatcher();
+                return song -> id.matches(song.getArtistId());
             case AutoPlaylistRule.NAME:
-                return checkString(artist.getArtistName());
+                StringMatcher name = compileStringMatcher();
+                return song -> name.matches(song.getArtistName());
         }
         throw new IllegalArgumentException("Cannot compare against field " + getField());
     }
@@ -13,11 +13,15 @@ import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
 import com.marverenic.music.instances.Song;
+import com.marverenic.music.utils.LongHashSet;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 import rx.Observable;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 public abstract class AutoPlaylistRule implements Parcelable {
 
@@ -71,6 +75,11 @@ public abstract class AutoPlaylistRule implements Parcelable {
 
     private final long mNumericValue;
 
+    /**
+     * The maximum number of MediaStore queries that a single rule will run at once
+     */
+    protected static final int MAX_CONCURRENT_QUERIES = 4;
+
     protected AutoPlaylistRule(@Type int type, @Field int field, @Match int match, String value) {
         mType = type;
         mField = field;
@@ -111,54 +120,133 @@ public abstract class AutoPlaylistRule implements Parcelable {
         return mMatch;
     }
 
+    /**
+     * Resolves this rule's match type into a comparison against an id. The comparison is chosen
+     * once so that checking each song doesn't have to switch over the match type again.
+     */
     @SuppressLint("SwitchIntDef")
-    protected boolean checkId(long actual) {
+    protected NumberMatcher compileIdMatcher() {
+        final long value = mNumericValue;
         switch (getMatch()) {
             case EQUALS:
-                return actual == mNumericValue;
+                return actual -> actual == value;
             case NOT_EQUALS:
-                return actual != mNumericValue;
+                return actual -> actual != value;
         }
         throw new IllegalArgumentException("Cannot compare ids with match type " + getMatch());
     }
 
+    /**
+     * Resolves this rule's match type into a case-insensitive comparison against a String
+     */
     @SuppressLint("SwitchIntDef")
-    protected boolean checkString(String actual) {
+    protected StringMatcher compileStringMatcher() {
+        final String value = (getValue() == null) ? "" : getValue();
         switch (getMatch()) {
             case EQUALS:
-                return actual.equalsIgnoreCase(getValue());
+                return actual -> actual != null && actual.equalsIgnoreCase(value);
             case NOT_EQUALS:
-                return !actual.equalsIgnoreCase(getValue());
+                return actual -> actual == null || !actual.equalsIgnoreCase(value);
             case CONTAINS:
-                return actual.toLowerCase().contains(getValue().toLowerCase());
+                return actual -> actual != null && containsIgnoreCase(actual, value);
             case NOT_CONTAINS:
-                return !actual.toLowerCase().contains(getValue().toLowerCase());
+                return actual -> actual == null || !containsIgnoreCase(actual, value);
         }
         throw new IllegalArgumentException("Cannot compare Strings with match type " + getMatch());
     }
 
+    /**
+     * Resolves this rule's match type into a comparison against a number
+     */
     @SuppressLint("SwitchIntDef")
-    protected boolean checkInt(long actual) {
+    protected NumberMatcher compileNumberMatcher() {
+        final long value = mNumericValue;
         switch (getMatch()) {
             case EQUALS:
-                return actual == mNumericValue;
+                return actual -> actual == value;
             case NOT_EQUALS:
-                return actual != mNumericValue;
+                return actual -> actual != value;
             case LESS_THAN:
-                return actual < mNumericValue;
+                return actual -> actual < value;
             case GREATER_THAN:
-                return actual > mNumericValue;
+                return actual -> actual > value;
         }
         throw new IllegalArgumentException("Cannot compare integers with match type" + getMatch());
     }
 
+    /**
+     * Creates a predicate that matches every song in a set of collections (like genres or
+     * playlists). The songs in each collection are loaded in parallel, with at most
+     * {@link #MAX_CONCURRENT_QUERIES} collections being loaded at once.
+     * @param collections The collections that match this rule
+     * @param getSongs Looks up the songs in a collection. This may block, and will be deferred to
+     *                 a background thread.
+     */
+    protected static <T> Observable<SongPredicate> compileMembershipLookup(
+            Observable<T> collections, Func1<T, Observable<List<Song>>> getSongs) {
+
+        return collections
+                .flatMap(collection -> Observable.defer(() -> getSongs.call(collection))
+                        .take(1)
+                        .subscribeOn(Schedulers.io()), MAX_CONCURRENT_QUERIES)
+                .collect(LongHashSet::new, (songIds, songs) -> {
+                    for (Song song : songs) {
+                        songIds.add(song.getSongId());
+                    }
+                })
+                .map(songIds -> (SongPredicate) song -> songIds.contains(song.getSongId()));
+    }
+
+    /**
+     * Case-insensitive equivalent of {@link String#contains(CharSequence)} that doesn't allocate
+     * lowercase copies of either String
+     */
+    private static boolean containsIgnoreCase(String haystack, String needle) {
+        int length = needle.length();
+        for (int i = haystack.length() - length; i >= 0; i--) {
+            if (haystack.regionMatches(true, i, needle, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getValue() {
         return mValue;
     }
 
-    public abstract Observable<List<Song>> applyFilter(PlaylistStore playlistStore,
-                                                       MusicStore musicStore,
-                                                       PlayCountStore playCountStore);
+    /**
+     * @return The value of this rule parsed as a number, or {@code 0} if it isn't a number
+     */
+    public long getNumericValue() {
+        return mNumericValue;
+    }
+
+    /**
+     * Turns this rule into a predicate that can be tested against individual songs. Any data that
+     * the predicate depends on (like the contents of a playlist) is loaded before the predicate is
+     * emitted, so testing songs against it never has to wait on another store.
+     * @return An Observable that emits one predicate and then completes
+     */
+    public abstract Observable<SongPredicate> compile(PlaylistStore playlistStore,
+                                                      MusicStore musicStore,
+                                                      PlayCountStore playCountStore);
+
+    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
+                                              PlayCountStore playCountStore) {
+        RuleSelection selection = RuleSelection.translate(Collections.singletonList(this), true);
+
+        return compile(playlistStore, musicStore, playCountStore)
+                .flatMap(predicate -> RuleCompiler.filter(musicStore, selection, predicate));
+    }
+
+    protected interface StringMatcher {
+        boolean matches(String actual);
+    }
+
+    protected interface NumberMatcher {
+        boolean matches(long actual);
+    }
 
     @SuppressWarnings("SimplifiableIfStatement")
     @Override
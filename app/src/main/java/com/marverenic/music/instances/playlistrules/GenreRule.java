@@ -8,12 +8,9 @@ import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
 import com.marverenic.music.instances.Genre;
-import com.marverenic.music.instances.Song;
-
-import java.util.ArrayList;
-import java.util.List;
 
 import rx.Observable;
+import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
 public class GenreRule extends AutoPlaylistRule implements Parcelable {
@@ -27,37 +24,25 @@ public class GenreRule extends AutoPlaylistRule implements Parcelable {
     }
 
     @Override
-    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
-                                              PlayCountStore playCountStore) {
-        return musicStore.getGenres()
+    public Observable<SongPredicate> compile(PlaylistStore playlistStore, MusicStore musicStore,
+                                             PlayCountStore playCountStore) {
+        Observable<Genre> matchingGenres = musicStore.getGenres()
                 .observeOn(Schedulers.computation())
                 .take(1)
-                .map(library -> {
-                    List<Genre> filtered = new ArrayList<>();
-                    for (Genre genre : library) {
-                        if (includeGenre(genre)) {
-                            filtered.add(genre);
-                        }
-                    }
+                .flatMap(library -> Observable.from(library).filter(compileGenreFilter()));
 
-                    return filtered;
-                })
-                .flatMap(Observable::from)
-                .concatMap(musicStore::getSongs)
-                .reduce((songs, songs2) -> {
-                    List<Song> merged = new ArrayList<>(songs);
-                    merged.addAll(songs2);
-                    return merged;
-                });
+        return compileMembershipLookup(matchingGenres, genre -> musicStore.getSongs(genre));
     }
 
     @SuppressLint("SwitchIntDef")
-    private boolean includeGenre(Genre genre) {
+    private Func1<Genre, Boolean> compileGenreFilter() {
         switch (getField()) {
             case ID:
-                return checkId(genre.getGenreId());
+                NumberMatcher id = compileIdMatcher();
+                return genre -> id.matches(genre.getGenreId());
             case NAME:
-                return checkString(genre.getGenreName());
+                StringMatcher name = compileStringMatcher();
+                return genre -> name.matches(genre.getGenreName());
         }
         throw new IllegalArgumentException("Cannot compare against field " + getField());
     }
@@ -8,12 +8,9 @@ import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
 import com.marverenic.music.instances.Playlist;
-import com.marverenic.music.instances.Song;
-
-import java.util.ArrayList;
-import java.util.List;
 
 import rx.Observable;
+import rx.functions.Func1;
 import rx.schedulers.Schedulers;
 
 public class PlaylistRule extends AutoPlaylistRule implements Parcelable {
@@ -27,37 +24,25 @@ public class PlaylistRule extends AutoPlaylistRule implements Parcelable {
     }
 
     @Override
-    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
-                                              PlayCountStore playCountStore) {
-        return playlistStore.getPlaylists()
+    public Observable<SongPredicate> compile(PlaylistStore playlistStore, MusicStore musicStore,
+                                             PlayCountStore playCountStore) {
+        Observable<Playlist> matchingPlaylists = playlistStore.getPlaylists()
                 .observeOn(Schedulers.computation())
                 .take(1)
-                .map(library -> {
-                    List<Playlist> filtered = new ArrayList<>();
-                    for (Playlist playlist : library) {
-                        if (includePlaylist(playlist)) {
-                            filtered.add(playlist);
-                        }
-                    }
+                .flatMap(library -> Observable.from(library).filter(compilePlaylistFilter()));
 
-                    return filtered;
-                })
-                .flatMap(Observable::from)
-                .concatMap(playlistStore::getSongs)
-                .reduce((songs, songs2) -> {
-                    List<Song> merged = new ArrayList<>(songs);
-                    merged.addAll(songs2);
-                    return merged;
-                });
+        return compileMembershipLookup(matchingPlaylists, playlistStore::getSongs);
     }
 
     @SuppressLint("SwitchIntDef")
-    private boolean includePlaylist(Playlist playlist) {
+    private Func1<Playlist, Boolean> compilePlaylistFilter() {
         switch (getField()) {
             case ID:
-                return checkId(playlist.getPlaylistId());
+                NumberMatcher id = compileIdMatcher();
+                return playlist -> id.matches(playlist.getPlaylistId());
             case NAME:
-                return checkString(playlist.getPlaylistName());
+                StringMatcher name = compileStringMatcher();
+                return playlist -> name.matches(playlist.getPlaylistName());
         }
         throw new IllegalArgumentException("Cannot compare against field " + getField());
     }
@@ -0,0 +1,161 @@
+package com.marverenic.music.instances.playlistrules;
+
+import android.support.annotation.Nullable;
+
+import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.data.store.PlaylistStore;
+import com.marverenic.music.instances.Song;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.schedulers.Schedulers;
+
+/**
+ * Fuses the rules of an auto playlist into a single {@link SongPredicate} so that the library
+ * only has to be scanned once to find every matching song, regardless of how many rules there
+ * are. Rules are ordered so that the cheapest checks run first, and evaluation stops as soon as
+ * the outcome for a song is known.
+ */
+public final class RuleCompiler {
+
+    /**
+     * Compares fields that are stored directly on a {@link Song}
+     */
+    private static final int COST_FIELD = 0;
+
+    /**
+     * Looks up a value in a map or a set, like play counts or the contents of a playlist
+     */
+    private static final int COST_LOOKUP = 1;
+
+    /**
+     * Compares Strings
+     */
+    private static final int COST_STRING = 2;
+
+    private static final SongPredicate NO_SONGS = song -> false;
+
+    /**
+     * This class is never instantiated
+     */
+    private RuleCompiler() {
+    }
+
+    /**
+     * Compiles a set of rules into a single predicate
+     * @param rules The rules to compile
+     * @param matchAllRules Whether songs have to match every rule (AND) or any rule (OR)
+     * @return An Observable that emits the fused predicate once every rule has been compiled. If
+     *         there are no rules, the predicate won't match any songs.
+     */
+    public static Observable<SongPredicate> compile(List<AutoPlaylistRule> rules,
+                                                    boolean matchAllRules,
+                                                    PlaylistStore playlistStore,
+                                                    MusicStore musicStore,
+                                                    PlayCountStore playCountStore) {
+        if (rules.isEmpty()) {
+            return Observable.just(NO_SONGS);
+        }
+
+        List<AutoPlaylistRule> ordered = new ArrayList<>(rules);
+        Collections.sort(ordered, (r1, r2) -> getEvaluationCost(r1) - getEvaluationCost(r2));
+
+        List<Observable<SongPredicate>> compiled = new ArrayList<>(ordered.size());
+        for (AutoPlaylistRule rule : ordered) {
+            compiled.add(rule.compile(playlistStore, musicStore, playCountStore));
+        }
+
+        return Observable.zip(compiled, results -> {
+            SongPredicate[] predicates = new SongPredicate[results.length];
+            for (int i = 0; i < results.length; i++) {
+                predicates[i] = (SongPredicate) results[i];
+            }
+
+            if (predicates.length == 1) {
+                return predicates[0];
+            } else if (matchAllRules) {
+                return allOf(predicates);
+            } else {
+                return anyOf(predicates);
+            }
+        });
+    }
+
+    /**
+     * Finds all songs in the library that match a predicate
+     * @param selection A selection that narrows down which songs have to be checked against the
+     *                  predicate, or {@code null} to check the entire library. Every song that
+     *                  matches the predicate must also match this selection.
+     * @return An Observable that emits the matching songs once and then completes
+     * @see RuleSelection#translate(List, boolean)
+     */
+    public static Observable<List<Song>> filter(MusicStore musicStore,
+                                                @Nullable RuleSelection selection,
+                                                SongPredicate predicate) {
+        Observable<List<Song>> candidates;
+        if (selection == null) {
+            candidates = musicStore.getSongs().take(1);
+        } else {
+            candidates = musicStore.querySongs(selection.getSelection(),
+                    selection.getSelectionArgs());
+        }
+
+        return candidates
+                .observeOn(Schedulers.computation())
+                .map(songs -> filter(songs, predicate));
+    }
+
+    private static List<Song> filter(List<Song> songs, SongPredicate predicate) {
+        List<Song> filtered = new ArrayList<>();
+        for (Song song : songs) {
+            if (predicate.test(song)) {
+                filtered.add(song);
+            }
+        }
+        return filtered;
+    }
+
+    private static SongPredicate allOf(SongPredicate[] predicates) {
+        return song -> {
+            for (SongPredicate predicate : predicates) {
+                if (!predicate.test(song)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static SongPredicate anyOf(SongPredicate[] predicates) {
+        return song -> {
+            for (SongPredicate predicate : predicates) {
+                if (predicate.test(song)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static int getEvaluationCost(AutoPlaylistRule rule) {
+        if (rule.getType() == AutoPlaylistRule.GENRE
+                || rule.getType() == AutoPlaylistRule.PLAYLIST) {
+            return COST_LOOKUP;
+        }
+
+        switch (rule.getField()) {
+            case AutoPlaylistRule.NAME:
+                return COST_STRING;
+            case AutoPlaylistRule.PLAY_COUNT:
+            case AutoPlaylistRule.SKIP_COUNT:
+            case AutoPlaylistRule.DATE_PLAYED:
+                return COST_LOOKUP;
+            default:
+                return COST_FIELD;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.marverenic.music.instances.playlistrules;
+
+import android.annotation.SuppressLint;
+import android.provider.MediaStore;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MediaStore selection translated from the rules of an auto playlist. Selections are only used
+ * to narrow down which rows are read from the MediaStore. Every song that's returned is still
+ * checked against the compiled rules, so selections may match songs that the rules don't (for
+ * instance, songs with missing tags), but never the other way around.
+ *
+ * Rules over song, artist and album ids, names, years and dates added can be translated. Rules
+ * that depend on play counts, genres or playlists are only checked in memory.
+ */
+public final class RuleSelection {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private final String mSelection;
+    private final String[] mSelectionArgs;
+
+    private RuleSelection(String selection, List<String> selectionArgs) {
+        mSelection = selection;
+        mSelectionArgs = selectionArgs.toArray(new String[selectionArgs.size()]);
+    }
+
+    /**
+     * Translates a set of rules into a MediaStore selection
+     * @param rules The rules to translate
+     * @param matchAllRules Whether songs have to match every rule (AND) or any rule (OR)
+     * @return A selection that every matching song satisfies, or {@code null} if the rules can't
+     *         be used to narrow down the library. When matching all rules, any rule that can't be
+     *         translated is left out of the selection. When matching any rule, every rule has to
+     *         be translatable.
+     */
+    @Nullable
+    public static RuleSelection translate(List<AutoPlaylistRule> rules, boolean matchAllRules) {
+        StringBuilder selection = new StringBuilder();
+        List<String> selectionArgs = new ArrayList<>();
+        String separator = (matchAllRules) ? " AND " : " OR ";
+
+        for (AutoPlaylistRule rule : rules) {
+            String clause = translate(rule, selectionArgs);
+
+            if (clause == null) {
+                if (matchAllRules) {
+                    continue;
+                } else {
+                    return null;
+                }
+            }
+
+            if (selection.length() > 0) {
+                selection.append(separator);
+            }
+            selection.append('(').append(clause).append(')');
+        }
+
+        if (selection.length() == 0) {
+            return null;
+        }
+
+        return new RuleSelection(selection.toString(), selectionArgs);
+    }
+
+    public String getSelection() {
+        return mSelection;
+    }
+
+    public String[] getSelectionArgs() {
+        return mSelectionArgs;
+    }
+
+    @Nullable
+    private static String translate(AutoPlaylistRule rule, List<String> selectionArgs) {
+        String column = getColumn(rule);
+        if (column == null) {
+            return null;
+        }
+
+        switch (rule.getField()) {
+            case AutoPlaylistRule.ID:
+                return translateId(column, rule);
+            case AutoPlaylistRule.NAME:
+                return translateString(column, rule, selectionArgs);
+            default:
+                return translateNumber(column, rule);
+        }
+    }
+
+    @Nullable
+    @SuppressLint("SwitchIntDef")
+    private static String getColumn(AutoPlaylistRule rule) {
+        switch (rule.getType()) {
+            case AutoPlaylistRule.SONG:
+                switch (rule.getField()) {
+                    case AutoPlaylistRule.ID:
+                        return MediaStore.Audio.Media._ID;
+                    case AutoPlaylistRule.NAME:
+                        return MediaStore.Audio.Media.TITLE;
+                    case AutoPlaylistRule.YEAR:
+                        return MediaStore.Audio.Media.YEAR;
+                    case AutoPlaylistRule.DATE_ADDED:
+                        return MediaStore.Audio.Media.DATE_ADDED;
+                }
+                return null;
+            case AutoPlaylistRule.ARTIST:
+                switch (rule.getField()) {
+                    case AutoPlaylistRule.ID:
+                        return MediaStore.Audio.Media.ARTIST_ID;
+                    case AutoPlaylistRule.NAME:
+                        return MediaStore.Audio.Media.ARTIST;
+                }
+                return null;
+            case AutoPlaylistRule.ALBUM:
+                switch (rule.getField()) {
+                    case AutoPlaylistRule.ID:
+                        return MediaStore.Audio.Media.ALBUM_ID;
+                    case AutoPlaylistRule.NAME:
+                        return MediaStore.Audio.Media.ALBUM;
+                }
+                return null;
+        }
+        return null;
+    }
+
+    @Nullable
+    @SuppressLint("SwitchIntDef")
+    private static String translateId(String column, AutoPlaylistRule rule) {
+        // Numeric values are parsed from the rule, so they're safe to inline
+        switch (rule.getMatch()) {
+            case AutoPlaylistRule.EQUALS:
+                return column + " = " + rule.getNumericValue();
+            case AutoPlaylistRule.NOT_EQUALS:
+                return column + " != " + rule.getNumericValue();
+        }
+        return null;
+    }
+
+    @Nullable
+    @SuppressLint("SwitchIntDef")
+    private static String translateNumber(String column, AutoPlaylistRule rule) {
+        // Songs without a value are treated as 0 when they're loaded
+        String value = "IFNULL(" + column + ", 0)";
+
+        switch (rule.getMatch()) {
+            case AutoPlaylistRule.EQUALS:
+                return value + " = " + rule.getNumericValue();
+            case AutoPlaylistRule.NOT_EQUALS:
+                return value + " != " + rule.getNumericValue();
+            case AutoPlaylistRule.LESS_THAN:
+                return value + " < " + rule.getNumericValue();
+            case AutoPlaylistRule.GREATER_THAN:
+                return value + " > " + rule.getNumericValue();
+        }
+        return null;
+    }
+
+    @Nullable
+    @SuppressLint("SwitchIntDef")
+    private static String translateString(String column, AutoPlaylistRule rule,
+                                          List<String> selectionArgs) {
+        String value = (rule.getValue() == null) ? "" : rule.getValue();
+        String pattern;
+        boolean negate;
+
+        switch (rule.getMatch()) {
+            case AutoPlaylistRule.EQUALS:
+                pattern = escapeLikePattern(value);
+                negate = false;
+                break;
+            case AutoPlaylistRule.NOT_EQUALS:
+                pattern = escapeLikePattern(value);
+                negate = true;
+                break;
+            case AutoPlaylistRule.CONTAINS:
+                pattern = "%" + escapeLikePattern(value) + "%";
+                negate = false;
+                break;
+            case AutoPlaylistRule.NOT_CONTAINS:
+                pattern = "%" + escapeLikePattern(value) + "%";
+                negate = true;
+                break;
+            default:
+                return null;
+        }
+
+        // LIKE only ignores case for ASCII characters, so it can't be used to look for other
+        // characters without missing songs that differ only in case
+        if (!negate && !isAscii(value)) {
+            return null;
+        }
+
+        selectionArgs.add(pattern);
+
+        // Songs with missing tags are given a placeholder name when they're loaded, which the
+        // in-memory check will compare against instead
+        return column + " IS NULL OR " + column + ((negate) ? " NOT LIKE ?" : " LIKE ?")
+                + " ESCAPE '" + LIKE_ESCAPE + "'";
+    }
+
+    private static String escapeLikePattern(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
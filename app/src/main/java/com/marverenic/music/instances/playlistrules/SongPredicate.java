@@ -0,0 +1,15 @@
+package com.marverenic.music.instances.playlistrules;
+
+import com.marverenic.music.instances.Song;
+
+/**
+ * A compiled form of one or more {@link AutoPlaylistRule}s that decides whether individual songs
+ * belong in an auto playlist
+ * @see AutoPlaylistRule#compile
+ * @see RuleCompiler
+ */
+public interface SongPredicate {
+
+    boolean test(Song song);
+
+}
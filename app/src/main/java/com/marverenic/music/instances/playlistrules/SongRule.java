@@ -1,18 +1,14 @@
 package com.marverenic.music.instances.playlistrules;
 
+import android.annotation.SuppressLint;
 import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PlaylistStore;
-import com.marverenic.music.instances.Song;
-
-import java.util.ArrayList;
-import java.util.List;
 
 import rx.Observable;
-import rx.schedulers.Schedulers;
 
 public class SongRule extends AutoPlaylistRule implements Parcelable {
 
@@ -25,38 +21,35 @@ public class SongRule extends AutoPlaylistRule implements Parcelable {
     }
 
     @Override
-    public Observable<List<Song>> applyFilter(PlaylistStore playlistStore, MusicStore musicStore,
-                                              PlayCountStore playCountStore) {
-        return musicStore.getSongs()
-                .observeOn(Schedulers.computation())
-                .take(1)
-                .map(library -> {
-                    List<Song> filtered = new ArrayList<>();
-                    for (Song song : library) {
-                        if (includeSong(song, playCountStore)) {
-                            filtered.add(song);
-                        }
-                    }
-                    return filtered;
-                });
+    public Observable<SongPredicate> compile(PlaylistStore playlistStore, MusicStore musicStore,
+                                             PlayCountStore playCountStore) {
+        return Observable.fromCallable(() -> compilePredicate(playCountStore));
     }
 
-    private boolean includeSong(Song song, PlayCountStore playCountStore) {
+    @SuppressLint("SwitchIntDef")
+    private SongPredicate compilePredicate(PlayCountStore playCountStore) {
         switch (getField()) {
             case ID:
-                return checkId(song.getSongId());
+                NumberMatcher id = compileIdMatcher();
+                return song -> id.matches(song.getSongId());
             case NAME:
-                return checkString(song.getSongName());
+                StringMatcher name = compileStringMatcher();
+                return song -> name.matches(song.getSongName());
             case PLAY_COUNT:
-                return checkInt(playCountStore.getPlayCount(song));
+                NumberMatcher playCount = compileNumberMatcher();
+                return song -> playCount.matches(playCountStore.getPlayCount(song));
             case SKIP_COUNT:
-                return checkInt(playCountStore.getPlayCount(song));
+                NumberMatcher skipCount = compileNumberMatcher();
+                return song -> skipCount.matches(playCountStore.getSkipCount(song));
             case YEAR:
-                return checkInt(song.getYear());
+                NumberMatcher year = compileNumberMatcher();
+                return song -> year.matches(song.getYear());
             case DATE_ADDED:
-                return checkInt(song.getDateAdded());
+                NumberMatcher dateAdded = compileNumberMatcher();
+                return song -> dateAdded.matches(song.getDateAdded());
             case DATE_PLAYED:
-                return checkInt(playCountStore.getPlayDate(song));
+                NumberMatcher datePlayed = compileNumberMatcher();
+                return song -> datePlayed.matches(playCountStore.getPlayDate(song));
         }
         throw new IllegalArgumentException("Cannot compare against field " + getField());
     }
@@ -0,0 +1,199 @@
+package com.marverenic.music.instances.playlistrules;
+
+import android.annotation.SuppressLint;
+
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.playlistrules.AutoPlaylistRule.Field;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Sorts and truncates the contents of auto playlists by one of the {@link Field}s that rules can
+ * compare against. The value of the field is looked up once per song before sorting, so play
+ * counts aren't read from the {@link PlayCountStore} on every comparison.
+ *
+ * Songs that have the same value are kept in the same order as {@link Song}'s comparators would
+ * leave them after a stable sort, so sorted playlists don't change between regenerations.
+ * Sorting by {@link AutoPlaylistRule#ID} shuffles songs instead.
+ */
+public final class SongSorter {
+
+    private static final Random sRandom = new Random();
+
+    /**
+     * This class is never instantiated
+     */
+    private SongSorter() {
+    }
+
+    /**
+     * Sorts a list of songs in place
+     * @param songs The songs to sort. Must be modifiable.
+     * @param field The field to sort by
+     * @param ascending Whether to sort ascending (A-Z, oldest to newest, or 0-infinity)
+     */
+    public static void sort(List<Song> songs, @Field int field, boolean ascending,
+                            PlayCountStore playCountStore) {
+        if (field == AutoPlaylistRule.ID) {
+            Collections.shuffle(songs, sRandom);
+            return;
+        }
+
+        Entry[] entries = createEntries(songs, field, playCountStore);
+        Arrays.sort(entries, getOrder(field, ascending));
+
+        for (int i = 0; i < entries.length; i++) {
+            songs.set(i, entries[i].mSong);
+        }
+    }
+
+    /**
+     * Finds the first songs in a list as if it were sorted, without sorting the entire list.
+     * This takes O(n log k) time to find k songs out of n, instead of the O(n log n) time needed
+     * to sort the whole list.
+     * @param songs The songs to choose from. This list isn't modified.
+     * @param field The field to sort by
+     * @param ascending Whether to sort ascending (A-Z, oldest to newest, or 0-infinity)
+     * @param count The maximum number of songs to keep
+     * @return A new list with the first {@code count} songs of the sorted list, in sorted order
+     */
+    public static List<Song> top(List<Song> songs, @Field int field, boolean ascending,
+                                 int count, PlayCountStore playCountStore) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        } else if (songs.size() <= count) {
+            List<Song> sorted = new ArrayList<>(songs);
+            sort(sorted, field, ascending, playCountStore);
+            return sorted;
+        }
+
+        if (field == AutoPlaylistRule.ID) {
+            return sample(songs, count);
+        }
+
+        Comparator<Entry> order = getOrder(field, ascending);
+
+        // The heap keeps the entry that would be sorted last at its head, so it's the one that's
+        // evicted when a song that would be sorted before it is found
+        PriorityQueue<Entry> heap = new PriorityQueue<>(count, Collections.reverseOrder(order));
+
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            Entry entry = new Entry(song, getKey(song, field, playCountStore), i);
+
+            if (heap.size() < count) {
+                heap.add(entry);
+            } else if (order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        Entry[] survivors = heap.toArray(new Entry[heap.size()]);
+        Arrays.sort(survivors, order);
+
+        List<Song> top = new ArrayList<>(survivors.length);
+        for (Entry entry : survivors) {
+            top.add(entry.mSong);
+        }
+        return top;
+    }
+
+    /**
+     * Chooses random songs from a list using a partial Fisher-Yates shuffle
+     */
+    private static List<Song> sample(List<Song> songs, int count) {
+        Song[] shuffled = songs.toArray(new Song[songs.size()]);
+
+        for (int i = 0; i < count; i++) {
+            int swap = i + sRandom.nextInt(shuffled.length - i);
+            Song temp = shuffled[i];
+            shuffled[i] = shuffled[swap];
+            shuffled[swap] = temp;
+        }
+
+        return new ArrayList<>(Arrays.asList(shuffled).subList(0, count));
+    }
+
+    private static Entry[] createEntries(List<Song> songs, @Field int field,
+                                         PlayCountStore playCountStore) {
+        Entry[] entries = new Entry[songs.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Song song = songs.get(i);
+            entries[i] = new Entry(song, getKey(song, field, playCountStore), i);
+        }
+        return entries;
+    }
+
+    @SuppressLint("SwitchIntDef")
+    private static long getKey(Song song, @Field int field, PlayCountStore playCountStore) {
+        switch (field) {
+            case AutoPlaylistRule.YEAR:
+                return song.getYear();
+            case AutoPlaylistRule.DATE_ADDED:
+                return song.getDateAdded();
+            case AutoPlaylistRule.DATE_PLAYED:
+                return playCountStore.getPlayDate(song);
+            case AutoPlaylistRule.PLAY_COUNT:
+                return playCountStore.getPlayCount(song);
+            case AutoPlaylistRule.SKIP_COUNT:
+                return playCountStore.getSkipCount(song);
+            default:
+                // Names are compared directly
+                return 0;
+        }
+    }
+
+    /**
+     * Songs sorted by name are sorted ascending and reversed when descending. Other fields are
+     * sorted descending by {@link Song}'s comparators and reversed when ascending. Ties are
+     * broken by the original position of each song to match the reversed stable sorts.
+     */
+    private static Comparator<Entry> getOrder(@Field int field, boolean ascending) {
+        if (field == AutoPlaylistRule.NAME) {
+            return (e1, e2) -> {
+                int diff = e1.mSong.compareTo(e2.mSong);
+                if (diff == 0) {
+                    diff = compareInt(e1.mIndex, e2.mIndex);
+                }
+                return (ascending) ? diff : -diff;
+            };
+        } else {
+            return (e1, e2) -> {
+                int diff = compareLong(e1.mKey, e2.mKey);
+                if (diff == 0) {
+                    diff = compareInt(e2.mIndex, e1.mIndex);
+                }
+                return (ascending) ? diff : -diff;
+            };
+        }
+    }
+
+    private static int compareLong(long l1, long l2) {
+        return (l1 < l2) ? -1 : ((l1 == l2) ? 0 : 1);
+    }
+
+    private static int compareInt(int i1, int i2) {
+        return (i1 < i2) ? -1 : ((i1 == i2) ? 0 : 1);
+    }
+
+    private static final class Entry {
+
+        final Song mSong;
+        final long mKey;
+        final int mIndex;
+
+        Entry(Song song, long key, int index) {
+            mSong = song;
+            mKey = key;
+            mIndex = index;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.marverenic.music.instances.section;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
@@ -7,34 +10,56 @@ import android.support.v7.app.AppCompatActivity;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.resource.drawable.GlideDrawable;
+import com.bumptech.glide.request.animation.GlideAnimation;
+import com.bumptech.glide.request.target.SimpleTarget;
+import com.bumptech.glide.request.target.Target;
+import com.marverenic.heterogeneousadapter.PrefetchSection;
+import com.marverenic.music.JockeyApplication;
+import com.marverenic.music.R;
+import com.marverenic.music.data.store.PaletteStore;
 import com.marverenic.music.databinding.InstanceAlbumBinding;
 import com.marverenic.music.instances.Album;
 import com.marverenic.heterogeneousadapter.EnhancedViewHolder;
 import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
 import com.marverenic.music.viewmodel.AlbumViewModel;
 
+import java.io.File;
 import java.util.List;
 
-public class AlbumSection extends HeterogeneousAdapter.ListSection<Album> {
+import javax.inject.Inject;
 
+public class AlbumSection extends HeterogeneousAdapter.ListSection<Album>
+        implements PrefetchSection<Album> {
+
+    @Inject PaletteStore mPaletteStore;
+
+    private Context mContext;
     private FragmentManager mFragmentManager;
+    private int mThumbnailSize;
 
     public AlbumSection(AppCompatActivity activity, @NonNull List<Album> data) {
-        this(activity.getSupportFragmentManager(), data);
+        this(activity, activity.getSupportFragmentManager(), data);
     }
 
     public AlbumSection(Fragment fragment, @NonNull List<Album> data) {
-        this(fragment.getFragmentManager(), data);
+        this(fragment.getContext(), fragment.getFragmentManager(), data);
     }
 
-    public AlbumSection(FragmentManager fragmentManager, @NonNull List<Album> data) {
+    public AlbumSection(Context context, FragmentManager fragmentManager,
+                        @NonNull List<Album> data) {
         super(data);
+        mContext = context;
         mFragmentManager = fragmentManager;
+        mThumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.grid_width);
+
+        JockeyApplication.getComponent(context).inject(this);
     }
 
     @Override
-    public int getId(int position) {
-        return (int) get(position).getAlbumId();
+    public int getItemId(Album album) {
+        return (int) album.getAlbumId();
     }
 
     @Override
@@ -46,6 +71,23 @@ public class AlbumSection extends HeterogeneousAdapter.ListSection<Album> {
         return new ViewHolder(binding);
     }
 
+    @Override
+    public PrefetchRequest prefetch(Album item, int sectionPosition) {
+        if (item.getArtUri() == null) {
+            return null;
+        }
+
+        mPaletteStore.prefetchSwatch(item);
+
+        // This request has to match the one made by AlbumViewModel so that the prefetched
+        // thumbnail ends up under the same memory cache key
+        Target<GlideDrawable> target = Glide.with(mContext)
+                .load(new File(item.getArtUri()))
+                .into(new PreloadTarget(mThumbnailSize));
+
+        return () -> Glide.clear(target);
+    }
+
     private class ViewHolder extends EnhancedViewHolder<Album> {
 
         private InstanceAlbumBinding mBinding;
@@ -61,4 +103,25 @@ public class AlbumSection extends HeterogeneousAdapter.ListSection<Album> {
             mBinding.getViewModel().setAlbum(item);
         }
     }
+
+    /**
+     * A target that releases its thumbnail as soon as it's loaded. Releasing the thumbnail moves
+     * it from Glide's active resources into its memory cache, where it will be picked up when the
+     * album is bound.
+     */
+    private static class PreloadTarget extends SimpleTarget<GlideDrawable> {
+
+        private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+        public PreloadTarget(int size) {
+            super(size, size);
+        }
+
+        @Override
+        public void onResourceReady(GlideDrawable resource,
+                                    GlideAnimation<? super GlideDrawable> glideAnimation) {
+            // Targets can't be cleared while Glide is still delivering a resource to them
+            sMainHandler.post(() -> Glide.clear(this));
+        }
+    }
 }
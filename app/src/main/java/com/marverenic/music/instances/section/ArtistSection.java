@@ -33,8 +33,8 @@ public class ArtistSection extends HeterogeneousAdapter.ListSection<Artist> {
     }
 
     @Override
-    public int getId(int position) {
-        return get(position).getArtistId();
+    public int getItemId(Artist artist) {
+        return artist.getArtistId();
     }
 
     @Override
@@ -1,8 +1,8 @@
 package com.marverenic.music.instances.section;
 
-import android.support.v4.util.ArrayMap;
 import android.view.ViewGroup;
 
+import com.marverenic.heterogeneousadapter.DiffableSection;
 import com.marverenic.heterogeneousadapter.DragDropAdapter;
 import com.marverenic.heterogeneousadapter.EnhancedViewHolder;
 import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
@@ -10,43 +10,116 @@ import com.marverenic.music.R;
 import com.marverenic.music.instances.Song;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 
-public abstract class EditableSongSection extends DragDropAdapter.DragSection<Song> {
+public abstract class EditableSongSection extends DragDropAdapter.DragSection<Song>
+        implements DiffableSection<Song> {
 
     protected List<Song> mData;
-    private final List<Integer> mIds;
+    private List<Integer> mIds;
 
     public EditableSongSection(List<Song> data) {
-        mIds = new ArrayList<>();
+        mData = Collections.emptyList();
+        mIds = Collections.emptyList();
         setData(data);
     }
 
+    /**
+     * Replaces the data in this section. Every occurrence of a song keeps the ID it had in the
+     * old data, in the order that those occurrences were shown. This means that after a drag and
+     * drop gesture reorders duplicate songs, each of them keeps its ID once the reordered data
+     * is set, instead of the IDs being renumbered by position.
+     */
+    @Override
     public void setData(List<Song> data) {
+        mIds = assignIds(mData, mIds, data);
         mData = data;
-        buildIdMap();
     }
 
-    private void buildIdMap() {
-        mIds.clear();
-        Map<Song, Integer> occurrences = new ArrayMap<>();
-        for (Song song : mData) {
-            Integer count = occurrences.get(song);
-            if (count == null) {
-                count = 0;
+    @Override
+    public int[] getIds(List<Song> data) {
+        List<Integer> ids = assignIds(mData, mIds, data);
+        int[] idArray = new int[ids.size()];
+        for (int i = 0; i < idArray.length; i++) {
+            idArray[i] = ids.get(i);
+        }
+        return idArray;
+    }
+
+    private static List<Integer> assignIds(List<Song> previousData, List<Integer> previousIds,
+                                           List<Song> data) {
+        Map<Song, Queue<Integer>> reusableIds = new HashMap<>();
+        // The old data may have been edited in place, in which case IDs are only reused for the
+        // positions that still exist
+        int reusableCount = Math.min(previousData.size(), previousIds.size());
+        for (int i = 0; i < reusableCount; i++) {
+            Song song = previousData.get(i);
+            Queue<Integer> songIds = reusableIds.get(song);
+            if (songIds == null) {
+                songIds = new LinkedList<>();
+                reusableIds.put(song, songIds);
+            }
+            songIds.add(previousIds.get(i));
+        }
+
+        List<Integer> ids = new ArrayList<>(data.size());
+        Set<Integer> usedIds = new HashSet<>();
+        for (Song song : data) {
+            Queue<Integer> songIds = reusableIds.get(song);
+            Integer id = (songIds == null) ? null : songIds.poll();
+            ids.add(id);
+            if (id != null) {
+                usedIds.add(id);
+            }
+        }
+
+        // Occurrences that weren't in the old data get the first ID for their song that isn't
+        // already taken by another item
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                long songId = data.get(i).getSongId();
+                int occurrence = 0;
+                while (usedIds.contains(getOccurrenceId(songId, occurrence))) {
+                    occurrence++;
+                }
+
+                int id = getOccurrenceId(songId, occurrence);
+                ids.set(i, id);
+                usedIds.add(id);
             }
+        }
+
+        return ids;
+    }
 
-            int id = (int) (song.getSongId() * Math.pow(7, count));
-            mIds.add(id);
-            occurrences.put(song, ++count);
+    /**
+     * @return The ID to try for a song when it already appears {@code occurrence} times. IDs are
+     *         never negative, since the adapter combines them with the section's type ID.
+     */
+    private static int getOccurrenceId(long songId, int occurrence) {
+        if (occurrence == 0) {
+            return (int) (songId & Integer.MAX_VALUE);
         }
+        return (int) ((songId * 31 + occurrence) * 0x9E3779B1L) & Integer.MAX_VALUE;
     }
 
+    @Override
     public List<Song> getData() {
         return mData;
     }
 
+    @Override
+    public boolean areContentsTheSame(Song oldItem, Song newItem) {
+        return oldItem.equals(newItem);
+    }
+
     @Override
     public int getId(int position) {
         return mIds.get(position);
@@ -33,8 +33,8 @@ public class GenreSection extends HeterogeneousAdapter.ListSection<Genre> {
     }
 
     @Override
-    public int getId(int position) {
-        return (int) get(position).getGenreId();
+    public int getItemId(Genre genre) {
+        return (int) genre.getGenreId();
     }
 
     @Override
@@ -25,8 +25,8 @@ public class PlaylistSection extends HeterogeneousAdapter.ListSection<Playlist>
     }
 
     @Override
-    public int getId(int position) {
-        return (int) get(position).getPlaylistId();
+    public int getItemId(Playlist playlist) {
+        return (int) playlist.getPlaylistId();
     }
 
     public static class ViewHolder extends EnhancedViewHolder<Playlist> {
@@ -19,22 +19,25 @@ import com.marverenic.heterogeneousadapter.EnhancedViewHolder;
 import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
 import com.marverenic.music.R;
 import com.marverenic.music.activity.instance.ArtistActivity;
-import com.marverenic.music.data.store.MusicStore;
 import com.marverenic.music.instances.Artist;
 import com.marverenic.music.lastfm.model.Image;
 import com.marverenic.music.lastfm.model.LfmArtist;
 
 import java.util.List;
-
-import timber.log.Timber;
+import java.util.Map;
 
 public class RelatedArtistSection extends HeterogeneousAdapter.ListSection<LfmArtist> {
 
-    private MusicStore mMusicStore;
+    private Map<LfmArtist, Artist> mLocalArtists;
 
-    public RelatedArtistSection(MusicStore musicStore, @NonNull List<LfmArtist> data) {
+    /**
+     * @param data The similar artists to show
+     * @param localArtists The artist in the library that each similar artist refers to
+     */
+    public RelatedArtistSection(@NonNull List<LfmArtist> data,
+                                @NonNull Map<LfmArtist, Artist> localArtists) {
         super(data);
-        mMusicStore = musicStore;
+        mLocalArtists = localArtists;
     }
 
     @Override
@@ -46,8 +49,8 @@ public class RelatedArtistSection extends HeterogeneousAdapter.ListSection<LfmAr
     }
 
     @Override
-    public int getId(int position) {
-        return get(position).getMbid().hashCode();
+    public int getItemId(LfmArtist artist) {
+        return artist.getMbid().hashCode();
     }
 
     private class ViewHolder extends EnhancedViewHolder<LfmArtist>
@@ -71,14 +74,7 @@ public class RelatedArtistSection extends HeterogeneousAdapter.ListSection<LfmAr
 
         @Override
         public void onUpdate(LfmArtist item, int sectionPosition) {
-            mMusicStore.findArtistByName(item.getName())
-                    .take(1)
-                    .subscribe(
-                            artist -> {
-                                localReference = artist;
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to get local reference");
-                            });
+            localReference = mLocalArtists.get(item);
 
             Image image = item.getImageBySize(Image.Size.MEDIUM);
             String artUrl = (image == null) ? null : image.getUrl();
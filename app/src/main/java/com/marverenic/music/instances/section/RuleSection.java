@@ -30,8 +30,8 @@ public class RuleSection extends HeterogeneousAdapter.ListSection<AutoPlaylistRu
     }
 
     @Override
-    public int getId(int position) {
-        return get(position).hashCode();
+    public int getItemId(AutoPlaylistRule rule) {
+        return rule.hashCode();
     }
 
     public class ViewHolder extends EnhancedViewHolder<AutoPlaylistRule> {
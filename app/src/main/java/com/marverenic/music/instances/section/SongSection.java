@@ -34,8 +34,8 @@ public class SongSection extends HeterogeneousAdapter.ListSection<Song> {
     }
 
     @Override
-    public int getId(int position) {
-        return (int) get(position).getSongId();
+    public int getItemId(Song song) {
+        return (int) song.getSongId();
     }
 
     @Override
@@ -36,7 +36,7 @@ public final class LastFmApi {
      * The overridden cache duration to keep data from GET requests. By default, Last.fm's API
      * returns 1 day, but its API policy requires that items be cached for a week.
      */
-    private static final long CACHE_DURATION_SEC = 7 * 24 * 60 * 60;
+    public static final long CACHE_DURATION_SEC = 7 * 24 * 60 * 60;
 
     /**
      * The maximum size of the cache. This is currently set at 10 MiB
@@ -2,19 +2,33 @@ package com.marverenic.music.lastfm.data.inject;
 
 import android.content.Context;
 
+import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.lastfm.api.LastFmApi;
 import com.marverenic.music.lastfm.api.LastFmService;
+import com.marverenic.music.lastfm.data.store.LastFmArtistCache;
+import com.marverenic.music.lastfm.data.store.LastFmPrefetcher;
 import com.marverenic.music.lastfm.data.store.LastFmStore;
 import com.marverenic.music.lastfm.data.store.NetworkLastFmStore;
+import com.marverenic.music.utils.Util;
+
+import java.io.File;
 
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
+import rx.schedulers.Schedulers;
 
 @Module
 public class LastFmModule {
 
+    /**
+     * The directory name to keep cached artist information in. This directory is placed in the
+     * app's internal files directory so that it isn't cleared when the device is low on storage
+     */
+    private static final String ARTIST_CACHE_DIR = "lastfm-artists";
+
     @Provides
     @Singleton
     public LastFmService provideLastFmService(Context context) {
@@ -23,8 +37,20 @@ public class LastFmModule {
 
     @Provides
     @Singleton
-    public LastFmStore provideLastFmStore(LastFmService service) {
-        return new NetworkLastFmStore(service);
+    public LastFmStore provideLastFmStore(Context context, LastFmService service) {
+        File cacheDir = new File(context.getFilesDir(), ARTIST_CACHE_DIR);
+        return new NetworkLastFmStore(service, new LastFmArtistCache(cacheDir));
+    }
+
+    @Provides
+    @Singleton
+    public LastFmPrefetcher provideLastFmPrefetcher(Context context, MusicStore musicStore,
+                                                    PlayCountStore playCountStore,
+                                                    LastFmStore lastFmStore) {
+        // Prefetching is only allowed on unmetered networks, regardless of whether the user
+        // allows Last.fm to be used over mobile data
+        return new LastFmPrefetcher(musicStore, playCountStore, lastFmStore,
+                () -> Util.canAccessInternet(context, false), Schedulers.computation());
     }
 
 }
@@ -0,0 +1,306 @@
+package com.marverenic.music.lastfm.data.store;
+
+import android.support.annotation.Nullable;
+import android.support.v4.util.AtomicFile;
+import android.support.v4.util.LruCache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.marverenic.music.lastfm.api.LastFmApi;
+import com.marverenic.music.lastfm.model.LfmArtist;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Saves artist information from Last.fm on the disk so that it's available across restarts and
+ * while offline. Each artist is kept in its own file, named after a hash of the artist's
+ * normalized name, so that "Foo  Fighters" and "foo fighters" share an entry.
+ *
+ * Entries are kept for as long as there's room for them. Once the cache grows past its maximum
+ * size, the least recently used entries are deleted. Entries older than Last.fm's caching policy
+ * are still returned, but are marked as expired so that they can be refreshed.
+ */
+public final class LastFmArtistCache {
+
+    private static final String FILE_EXTENSION = ".json";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The maximum size of all entries on the disk. This is currently set at 4 MiB
+     */
+    private static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The number of recently used entries to keep decoded in memory
+     */
+    private static final int MEMORY_CACHE_SIZE = 32;
+
+    private static final long TTL_MILLIS = LastFmApi.CACHE_DURATION_SEC * 1000;
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    private final Gson mGson;
+    private final LruCache<String, Entry> mMemoryCache;
+
+    /**
+     * The size of each file in the cache, ordered from least to most recently used, or
+     * {@code null} if the directory hasn't been scanned yet. Guarded by {@code this}.
+     */
+    private LinkedHashMap<String, Long> mFileSizes;
+    private long mTotalSize;
+
+    public LastFmArtistCache(File directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    public LastFmArtistCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        mGson = new Gson();
+        mMemoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+    }
+
+    /**
+     * Converts an artist name into the key its entry is saved under. Names are compared without
+     * regard to case or surrounding and repeated whitespace.
+     */
+    public static String normalizeName(String artistName) {
+        return artistName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Looks up an artist in the cache. This may read from the disk, and shouldn't be called on
+     * the main thread.
+     * @param artistName The name of the artist to look up
+     * @return The cached entry for this artist, or {@code null} if it isn't in the cache
+     */
+    @Nullable
+    public synchronized Entry get(String artistName) {
+        String key = normalizeName(artistName);
+        String filename = getFilename(key);
+
+        Entry entry = mMemoryCache.get(key);
+        if (entry != null) {
+            touch(filename);
+            return entry;
+        }
+
+        if (!getFileSizes().containsKey(filename)) {
+            return null;
+        }
+
+        entry = read(filename);
+        if (entry == null || !key.equals(entry.mKey) || entry.mArtist == null) {
+            return null;
+        }
+
+        mMemoryCache.put(key, entry);
+        touch(filename);
+        return entry;
+    }
+
+    /**
+     * Adds or replaces an artist in the cache, and evicts old entries if the cache has grown too
+     * large. This writes to the disk, and shouldn't be called on the main thread.
+     * @param artistName The name that the artist was looked up with
+     * @param artist The artist information returned by Last.fm
+     */
+    public synchronized void put(String artistName, LfmArtist artist) {
+        String key = normalizeName(artistName);
+        String filename = getFilename(key);
+
+        Entry entry = new Entry(key, System.currentTimeMillis(), artist);
+        mMemoryCache.put(key, entry);
+
+        long size = write(filename, entry);
+        Long previousSize = getFileSizes().remove(filename);
+        if (previousSize != null) {
+            mTotalSize -= previousSize;
+        }
+
+        if (size >= 0) {
+            mFileSizes.put(filename, size);
+            mTotalSize += size;
+        }
+
+        trimToSize();
+    }
+
+    private LinkedHashMap<String, Long> getFileSizes() {
+        if (mFileSizes == null) {
+            mFileSizes = new LinkedHashMap<>(16, 0.75f, true);
+            mTotalSize = 0;
+
+            File[] files = mDirectory.listFiles(
+                    (dir, filename) -> filename.endsWith(FILE_EXTENSION));
+
+            if (files != null) {
+                // Files are touched when they're used, so their modification times give the
+                // order they were last used in
+                Arrays.sort(files, (f1, f2) -> {
+                    long t1 = f1.lastModified();
+                    long t2 = f2.lastModified();
+                    return (t1 < t2) ? -1 : ((t1 == t2) ? 0 : 1);
+                });
+
+                for (File file : files) {
+                    mFileSizes.put(file.getName(), file.length());
+                    mTotalSize += file.length();
+                }
+            }
+
+            trimToSize();
+        }
+        return mFileSizes;
+    }
+
+    private void touch(String filename) {
+        if (getFileSizes().get(filename) != null) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(mDirectory, filename).setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mFileSizes.entrySet().iterator();
+
+        while (mTotalSize > mMaxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mTotalSize -= eldest.getValue();
+
+            getFile(eldest.getKey()).delete();
+        }
+    }
+
+    private AtomicFile getFile(String filename) {
+        return new AtomicFile(new File(mDirectory, filename));
+    }
+
+    @Nullable
+    private Entry read(String filename) {
+        Reader reader = null;
+
+        try {
+            reader = new InputStreamReader(getFile(filename).openRead(), UTF_8);
+            return mGson.fromJson(reader, Entry.class);
+        } catch (IOException | JsonParseException e) {
+            Timber.w(e, "Failed to read cached Last.fm artist");
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    Timber.w(e, "Failed to close stream");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The size of the written file in bytes, or -1 if it couldn't be written
+     */
+    private long write(String filename, Entry entry) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Timber.w("Failed to create Last.fm cache directory");
+            return -1;
+        }
+
+        AtomicFile file = getFile(filename);
+        FileOutputStream stream = null;
+
+        try {
+            byte[] contents = mGson.toJson(entry).getBytes(UTF_8);
+
+            stream = file.startWrite();
+            stream.write(contents);
+            file.finishWrite(stream);
+
+            return contents.length;
+        } catch (IOException e) {
+            Timber.w(e, "Failed to write cached Last.fm artist");
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+            return -1;
+        }
+    }
+
+    private static String getFilename(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF_8));
+            StringBuilder filename = new StringBuilder(hash.length * 2 + FILE_EXTENSION.length());
+
+            for (byte b : hash) {
+                filename.append(Character.forDigit((b >> 4) & 0xF, 16));
+                filename.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return filename.append(FILE_EXTENSION).toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java implementation is required to support SHA-1
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static final class Entry {
+
+        @SerializedName("key")
+        private String mKey;
+
+        @SerializedName("fetched")
+        private long mFetchTime;
+
+        @SerializedName("artist")
+        private LfmArtist mArtist;
+
+        /**
+         * This constructor is used by GSON when reading entries from the disk
+         */
+        private Entry() {
+
+        }
+
+        private Entry(String key, long fetchTime, LfmArtist artist) {
+            mKey = key;
+            mFetchTime = fetchTime;
+            mArtist = artist;
+        }
+
+        public LfmArtist getArtist() {
+            return mArtist;
+        }
+
+        /**
+         * @return The time this artist was fetched from Last.fm, in milliseconds since the epoch
+         */
+        public long getFetchTime() {
+            return mFetchTime;
+        }
+
+        /**
+         * @return Whether this entry is older than Last.fm's caching policy allows, and should be
+         *         fetched again
+         */
+        public boolean isExpired() {
+            long age = System.currentTimeMillis() - mFetchTime;
+            return age < 0 || age > TTL_MILLIS;
+        }
+    }
+}
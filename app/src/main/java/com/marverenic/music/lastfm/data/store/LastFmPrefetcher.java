@@ -0,0 +1,165 @@
+package com.marverenic.music.lastfm.data.store;
+
+import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.instances.Artist;
+import com.marverenic.music.instances.Song;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Func0;
+import timber.log.Timber;
+
+/**
+ * Fetches Last.fm information for every artist in the library in the background, so that artist
+ * pages can be shown from the cache instead of waiting on the network. Artists are fetched in
+ * order of how often their songs have been played, and artists that are already cached and
+ * haven't expired are skipped.
+ *
+ * Requests are rate limited by a {@link TokenBucket} to stay well within Last.fm's API limits.
+ * Prefetching only runs while the network check passed to the constructor allows it, and stops
+ * as soon as it doesn't. It will pick up where it left off the next time it's started.
+ */
+public class LastFmPrefetcher {
+
+    /**
+     * The number of requests that can be sent back-to-back before being rate limited
+     */
+    private static final int BURST_SIZE = 3;
+
+    /**
+     * The average time between requests once the burst has been used up
+     */
+    private static final long REQUEST_INTERVAL_MS = 2000;
+
+    private final MusicStore mMusicStore;
+    private final PlayCountStore mPlayCountStore;
+    private final LastFmStore mLastFmStore;
+    private final Func0<Boolean> mCanUseNetwork;
+    private final Scheduler mScheduler;
+    private final TokenBucket mTokenBucket;
+
+    private Subscription mSubscription;
+
+    /**
+     * @param canUseNetwork Checks whether prefetching is allowed to use the current network
+     * @param scheduler The scheduler to sort artists and wait for the rate limit on
+     */
+    public LastFmPrefetcher(MusicStore musicStore, PlayCountStore playCountStore,
+                            LastFmStore lastFmStore, Func0<Boolean> canUseNetwork,
+                            Scheduler scheduler) {
+        mMusicStore = musicStore;
+        mPlayCountStore = playCountStore;
+        mLastFmStore = lastFmStore;
+        mCanUseNetwork = canUseNetwork;
+        mScheduler = scheduler;
+        mTokenBucket = new TokenBucket(BURST_SIZE, REQUEST_INTERVAL_MS, scheduler);
+    }
+
+    /**
+     * Starts prefetching artist information if the network allows it. Does nothing if
+     * prefetching is already running.
+     */
+    public synchronized void start() {
+        if (isRunning() || !mCanUseNetwork.call()) {
+            return;
+        }
+
+        mSubscription = getPrioritizedArtists()
+                .concatMap(Observable::from)
+                .concatMap(this::prefetch)
+                .takeWhile(canContinue -> canContinue)
+                .subscribe(
+                        ignored -> {},
+                        throwable -> Timber.e(throwable, "Failed to prefetch Last.fm artists"),
+                        () -> Timber.i("Finished prefetching Last.fm artists"));
+    }
+
+    /**
+     * Stops prefetching artist information. Requests that have already been sent will still be
+     * saved in the cache.
+     */
+    public synchronized void stop() {
+        if (mSubscription != null) {
+            mSubscription.unsubscribe();
+            mSubscription = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return mSubscription != null && !mSubscription.isUnsubscribed();
+    }
+
+    private Observable<List<Artist>> getPrioritizedArtists() {
+        return mPlayCountStore.refresh()
+                .take(1)
+                .flatMap(ignored -> mMusicStore.getArtists().take(1))
+                .observeOn(mScheduler)
+                .flatMap(artists -> mMusicStore.getSongs()
+                        .take(1)
+                        .observeOn(mScheduler)
+                        .map(songs -> sortByPlayCount(artists, songs)));
+    }
+
+    private List<Artist> sortByPlayCount(List<Artist> artists, List<Song> songs) {
+        Map<Long, Integer> playCounts = new HashMap<>(artists.size());
+        for (Song song : songs) {
+            int playCount = mPlayCountStore.getPlayCount(song);
+            if (playCount > 0) {
+                Integer previous = playCounts.get(song.getArtistId());
+                int total = (previous == null) ? playCount : previous + playCount;
+                playCounts.put(song.getArtistId(), total);
+            }
+        }
+
+        List<Artist> sorted = new ArrayList<>(artists);
+        Collections.sort(sorted, (a1, a2) -> {
+            Integer c1 = playCounts.get((long) a1.getArtistId());
+            Integer c2 = playCounts.get((long) a2.getArtistId());
+            return ((c2 == null) ? 0 : c2) - ((c1 == null) ? 0 : c1);
+        });
+
+        return sorted;
+    }
+
+    /**
+     * Fetches an artist if it isn't already cached
+     * @return An Observable that emits whether prefetching should continue with the next artist
+     */
+    private Observable<Boolean> prefetch(Artist artist) {
+        String artistName = artist.getArtistName();
+
+        return mLastFmStore.hasFreshArtistInfo(artistName)
+                .flatMap(fresh -> {
+                    if (fresh) {
+                        return Observable.just(true);
+                    }
+
+                    return Observable.defer(() -> Observable.timer(
+                            mTokenBucket.take(), TimeUnit.MILLISECONDS, mScheduler))
+                            .flatMap(ignored -> fetch(artistName));
+                });
+    }
+
+    private Observable<Boolean> fetch(String artistName) {
+        if (!mCanUseNetwork.call()) {
+            Timber.i("Stopped prefetching Last.fm artists because the network changed");
+            return Observable.just(false);
+        }
+
+        return mLastFmStore.getArtistInfo(artistName)
+                .map(lfmArtist -> true)
+                .onErrorReturn(throwable -> {
+                    Timber.w(throwable, "Failed to prefetch Last.fm info for %s", artistName);
+                    return true;
+                });
+    }
+}
@@ -8,4 +8,8 @@ public interface LastFmStore {
 
     Observable<LfmArtist> getArtistInfo(String artistName);
 
+    Observable<LfmArtist> getCachedArtistInfo(String artistName);
+
+    Observable<Boolean> hasFreshArtistInfo(String artistName);
+
 }
@@ -1,46 +1,130 @@
 package com.marverenic.music.lastfm.data.store;
 
-import android.support.v4.util.SimpleArrayMap;
-
 import com.marverenic.music.lastfm.api.LastFmService;
 import com.marverenic.music.lastfm.model.LfmArtist;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import rx.Observable;
 import rx.exceptions.Exceptions;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
 
 public class NetworkLastFmStore implements LastFmStore {
 
-    private LastFmService mService;
-    private SimpleArrayMap<String, Observable<LfmArtist>> mCachedArtistInfo;
+    private final LastFmService mService;
+    private final LastFmArtistCache mCache;
+
+    /**
+     * Requests that haven't finished yet, keyed by normalized artist name. Guarded by itself.
+     */
+    private final Map<String, Observable<LfmArtist>> mPendingRequests;
+
+    /**
+     * Normalized names of expired artists that are being fetched again. Guarded by itself.
+     */
+    private final Set<String> mRevalidatingArtists;
 
-    public NetworkLastFmStore(LastFmService service) {
+    public NetworkLastFmStore(LastFmService service, LastFmArtistCache cache) {
         mService = service;
-        mCachedArtistInfo = new SimpleArrayMap<>();
+        mCache = cache;
+        mPendingRequests = new HashMap<>();
+        mRevalidatingArtists = new HashSet<>();
     }
 
     @Override
     public Observable<LfmArtist> getArtistInfo(String artistName) {
-        Observable<LfmArtist> result = mCachedArtistInfo.get(artistName);
-        if (result == null) {
-            result = mService.getArtistInfo(artistName)
-                    .map(response -> {
-                        if (!response.isSuccessful()) {
-                            String message = "Call to getArtistInfo failed with response code "
-                                    + response.code()
-                                    + "\n" + response.message();
-
-                            throw Exceptions.propagate(new IOException(message));
+        String key = LastFmArtistCache.normalizeName(artistName);
+
+        synchronized (mPendingRequests) {
+            Observable<LfmArtist> pending = mPendingRequests.get(key);
+            if (pending != null) {
+                return pending;
+            }
+
+            Observable<LfmArtist> request = Observable.fromCallable(() -> mCache.get(artistName))
+                    .subscribeOn(Schedulers.io())
+                    .flatMap(cached -> {
+                        if (cached == null) {
+                            return fetchArtistInfo(artistName);
                         }
 
-                        return response.body().getArtist();
+                        if (cached.isExpired()) {
+                            revalidate(key, artistName);
+                        }
+                        return Observable.just(cached.getArtist());
+                    })
+                    .doOnTerminate(() -> {
+                        synchronized (mPendingRequests) {
+                            mPendingRequests.remove(key);
+                        }
                     })
                     .cache();
 
-            mCachedArtistInfo.put(artistName, result);
+            mPendingRequests.put(key, request);
+            return request;
         }
+    }
+
+    @Override
+    public Observable<LfmArtist> getCachedArtistInfo(String artistName) {
+        return Observable.fromCallable(() -> mCache.get(artistName))
+                .map(cached -> (cached == null) ? null : cached.getArtist())
+                .subscribeOn(Schedulers.io());
+    }
+
+    @Override
+    public Observable<Boolean> hasFreshArtistInfo(String artistName) {
+        return Observable.fromCallable(() -> {
+            LastFmArtistCache.Entry cached = mCache.get(artistName);
+            return cached != null && !cached.isExpired();
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Fetches an artist that has expired in the cache in the background, so that the next
+     * request for it gets up-to-date information. If this fails, the expired information is
+     * kept and will be used until the artist can be fetched.
+     */
+    private void revalidate(String key, String artistName) {
+        synchronized (mRevalidatingArtists) {
+            if (!mRevalidatingArtists.add(key)) {
+                return;
+            }
+        }
+
+        fetchArtistInfo(artistName)
+                .doOnTerminate(() -> {
+                    synchronized (mRevalidatingArtists) {
+                        mRevalidatingArtists.remove(key);
+                    }
+                })
+                .subscribe(
+                        artist -> Timber.v("Refreshed Last.fm info for %s", artistName),
+                        throwable -> Timber.w(throwable, "Failed to refresh Last.fm info"));
+    }
+
+    private Observable<LfmArtist> fetchArtistInfo(String artistName) {
+        return mService.getArtistInfo(artistName)
+                .map(response -> {
+                    if (!response.isSuccessful()) {
+                        String message = "Call to getArtistInfo failed with response code "
+                                + response.code()
+                                + "\n" + response.message();
+
+                        throw Exceptions.propagate(new IOException(message));
+                    }
 
-        return result;
+                    return response.body().getArtist();
+                })
+                .doOnNext(artist -> {
+                    if (artist != null) {
+                        mCache.put(artistName, artist);
+                    }
+                });
     }
 }
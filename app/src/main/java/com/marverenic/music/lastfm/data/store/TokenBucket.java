@@ -0,0 +1,55 @@
+package com.marverenic.music.lastfm.data.store;
+
+import rx.Scheduler;
+
+/**
+ * Limits how often requests can be made. The bucket holds up to a fixed number of tokens and is
+ * refilled with one token per interval. Each request takes a token, and has to wait for the next
+ * refill if the bucket is empty. This allows short bursts of requests while keeping the average
+ * rate at or below one request per interval.
+ *
+ * Instead of counting tokens, the bucket remembers the time at which it would be completely
+ * full again. This gives the same behavior without needing a timer to refill the bucket.
+ */
+final class TokenBucket {
+
+    private final int mCapacity;
+    private final long mIntervalMillis;
+    private final Scheduler mScheduler;
+
+    /**
+     * The time at which the bucket will be full, in the time of {@link #mScheduler}
+     */
+    private long mFullTime;
+
+    /**
+     * @param capacity The maximum number of requests that can be made back-to-back
+     * @param intervalMillis The time it takes to refill one token
+     * @param scheduler The scheduler whose clock is used to measure time
+     */
+    TokenBucket(int capacity, long intervalMillis, Scheduler scheduler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+
+        mCapacity = capacity;
+        mIntervalMillis = intervalMillis;
+        mScheduler = scheduler;
+        mFullTime = Long.MIN_VALUE;
+    }
+
+    /**
+     * Takes a token from the bucket
+     * @return The number of milliseconds to wait before the request the token was taken for may
+     *         be made, or 0 if it may be made right away
+     */
+    synchronized long take() {
+        long now = mScheduler.now();
+        long fullTime = Math.max(mFullTime, now);
+
+        long availableTime = fullTime - (mCapacity - 1) * mIntervalMillis;
+        mFullTime = fullTime + mIntervalMillis;
+
+        return Math.max(0, availableTime - now);
+    }
+}
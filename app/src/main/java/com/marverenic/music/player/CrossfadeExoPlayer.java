@@ -0,0 +1,661 @@
+package com.marverenic.music.player;
+
+import android.content.Context;
+import android.media.audiofx.Equalizer;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlaybackException;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.ExoPlayerFactory;
+import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.audio.AudioTrack;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+import com.marverenic.music.data.annotations.BufferProfile;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.utils.Internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * A {@link QueuedMediaPlayer} that crossfades between songs. Two ExoPlayer instances, or decks,
+ * are used. The active deck plays the queue, and the standby deck prepares the next song a few
+ * seconds before the crossfade begins. When the active song reaches the crossfade window, the
+ * standby deck starts playing and becomes the active deck, and the volumes of both decks are
+ * ramped with equal-power curves until the previous deck is silent and can be stopped.
+ *
+ * Every step of a transition is scheduled on a {@link Handler} ahead of time. Preparing the
+ * next song, opening its file, and buffering its first samples all happen before its playback
+ * starts, so a transition only has to change the volume of both decks.
+ *
+ * Songs that are too short to crossfade, or that are reached by skipping, move to the next song
+ * in the active deck without a fade. Each deck plays the queue as a concatenated media source,
+ * so these transitions are gapless. ExoPlayer reads the encoder delay and padding from each
+ * song's LAME or iTunes gapless metadata and passes them to the decoder so that they're trimmed.
+ */
+public class CrossfadeExoPlayer implements QueuedMediaPlayer {
+
+    /**
+     * How long before a crossfade begins to prepare the next song on the standby deck
+     */
+    private static final long PRE_ROLL_MS = 5000;
+
+    /**
+     * How often the volumes of both decks are updated during a crossfade
+     */
+    private static final long FADE_STEP_MS = 40;
+
+    /**
+     * How long to wait before checking the active song again if its duration isn't known yet
+     */
+    private static final long DURATION_RETRY_MS = 500;
+
+    static {
+        AudioTrack.enablePreV21AudioSessionWorkaround = true;
+    }
+
+    private final Handler mHandler;
+    private final long mCrossfadeMs;
+    private final Deck[] mDecks;
+    private int mActiveDeck;
+
+    private ExoPlayerState mState;
+    private float mVolume;
+
+    private boolean mRepeatAll;
+    private boolean mRepeatOne;
+
+    @Nullable
+    private PlaybackEventListener mEventListener;
+
+    private List<Song> mQueue;
+    private int mQueueIndex;
+
+    /**
+     * The queue index of the song prepared on the standby deck, or -1 if it isn't prepared
+     */
+    private int mPreRolledIndex;
+
+    /**
+     * Whether the standby deck is fading out the previous song
+     */
+    private boolean mFading;
+    private long mFadeStartTime;
+
+    private final Runnable mTransitionCheck = this::checkTransition;
+    private final Runnable mFadeStep = this::stepFade;
+
+    /**
+     * @param context A Context used to create the players
+     * @param bufferProfile How much media each deck should load ahead of its playback position.
+     *                      This can't be changed after the player is created.
+     * @param crossfadeMs The length of the crossfade between songs in milliseconds
+     */
+    public CrossfadeExoPlayer(Context context, @BufferProfile int bufferProfile,
+                              long crossfadeMs) {
+        mHandler = new Handler();
+        mCrossfadeMs = crossfadeMs;
+        mState = ExoPlayerState.IDLE;
+        mVolume = 1f;
+        mQueue = Collections.emptyList();
+        mPreRolledIndex = -1;
+
+        mDecks = new Deck[] {
+                new Deck(context, bufferProfile),
+                new Deck(context, bufferProfile)
+        };
+    }
+
+    private EqualizedExoPlayer active() {
+        return mDecks[mActiveDeck].mPlayer;
+    }
+
+    private EqualizedExoPlayer standby() {
+        return mDecks[1 - mActiveDeck].mPlayer;
+    }
+
+    /**
+     * @return The volume that the active deck should play at when it isn't fading
+     */
+    private float getActiveVolume() {
+        return mVolume * mDecks[mActiveDeck].mTrackGain;
+    }
+
+    private void onCompletion(Song completed) {
+        if (mEventListener != null) {
+            mEventListener.onCompletion(completed);
+        }
+    }
+
+    private void onStart() {
+        if (mEventListener != null) {
+            mEventListener.onSongStart();
+        }
+        checkTransition();
+    }
+
+    @Internal void onActiveStateChanged(int playbackState) {
+        if (mState != ExoPlayerState.ENDED && playbackState == ExoPlayer.STATE_ENDED) {
+            active().setPlayWhenReady(false);
+            onCompletion(getNowPlaying());
+        }
+        mState = ExoPlayerState.fromInt(playbackState);
+
+        if (playbackState == ExoPlayer.STATE_READY) {
+            checkTransition();
+        }
+    }
+
+    @Internal void onActivePositionDiscontinuity() {
+        int currentQueueIndex = active().getCurrentWindowIndex() % mQueue.size();
+        if (mQueueIndex != currentQueueIndex) {
+            onCompletion(getNowPlaying());
+            if (!mRepeatOne) {
+                mQueueIndex = currentQueueIndex;
+                onStart();
+            }
+        } else {
+            checkTransition();
+        }
+    }
+
+    @Internal void onError(ExoPlaybackException error, boolean fromActiveDeck) {
+        if (!fromActiveDeck && !mFading) {
+            // Fall back to a gapless transition if the next song couldn't be prepared
+            releaseStandby();
+        }
+
+        if (mEventListener != null) {
+            mEventListener.onError(error);
+        }
+    }
+
+    /**
+     * @return The queue index of the song that will play after the current one, or -1 if the
+     *         queue will end or loop the current song instead
+     */
+    private int getNextQueueIndex() {
+        if (mRepeatOne || mQueue.isEmpty()) {
+            return -1;
+        }
+
+        int next = mQueueIndex + 1;
+        if (next < mQueue.size()) {
+            return next;
+        }
+        return mRepeatAll ? 0 : -1;
+    }
+
+    /**
+     * Schedules the next step of the transition to the next song. This prepares the standby deck
+     * when the crossfade is close, and starts the crossfade once the active song reaches it.
+     */
+    private void checkTransition() {
+        mHandler.removeCallbacks(mTransitionCheck);
+
+        int next = getNextQueueIndex();
+        if (mFading || next < 0 || !isPlaying() || mState != ExoPlayerState.READY) {
+            return;
+        }
+
+        long duration = active().getDuration();
+        if (duration == C.TIME_UNSET) {
+            mHandler.postDelayed(mTransitionCheck, DURATION_RETRY_MS);
+            return;
+        }
+
+        if (duration < 2 * mCrossfadeMs) {
+            // This song is too short to fade out of. Let the active deck move to the next song
+            return;
+        }
+
+        long timeUntilFade = duration - mCrossfadeMs - active().getCurrentPosition();
+
+        if (timeUntilFade <= PRE_ROLL_MS && mPreRolledIndex != next) {
+            preRoll(next);
+        }
+
+        if (timeUntilFade <= 0) {
+            if (-timeUntilFade < mCrossfadeMs / 2) {
+                startFade();
+            }
+            // Otherwise it's too late to crossfade, and the active deck will move to the next
+            // song on its own
+        } else if (timeUntilFade > PRE_ROLL_MS) {
+            mHandler.postDelayed(mTransitionCheck, timeUntilFade - PRE_ROLL_MS);
+        } else {
+            mHandler.postDelayed(mTransitionCheck, timeUntilFade);
+        }
+    }
+
+    /**
+     * Prepares a song on the standby deck so that it can start playing immediately
+     */
+    private void preRoll(int queueIndex) {
+        EqualizedExoPlayer standby = standby();
+        standby.setPlayWhenReady(false);
+        standby.setVolume(0f);
+        mDecks[1 - mActiveDeck].mTrackGain = 1f;
+        standby.prepare(QueuedExoPlayer.buildMediaSource(mQueue, queueIndex, false, mRepeatAll));
+        standby.seekTo(queueIndex, 0);
+
+        mPreRolledIndex = queueIndex;
+    }
+
+    private void startFade() {
+        Song outgoing = getNowPlaying();
+
+        switchToPreRolled();
+        mFading = true;
+        mFadeStartTime = SystemClock.uptimeMillis();
+        stepFade();
+
+        onCompletion(outgoing);
+        onStart();
+    }
+
+    /**
+     * Makes the standby deck the active deck. The previously active deck keeps playing, and
+     * should either be faded out or stopped.
+     */
+    private void switchToPreRolled() {
+        boolean playWhenReady = isPlaying();
+
+        mQueueIndex = mPreRolledIndex;
+        mPreRolledIndex = -1;
+        mActiveDeck = 1 - mActiveDeck;
+
+        active().setPlayWhenReady(playWhenReady);
+        mState = ExoPlayerState.fromInt(active().getPlaybackState());
+    }
+
+    private void stepFade() {
+        mHandler.removeCallbacks(mFadeStep);
+
+        long elapsed = SystemClock.uptimeMillis() - mFadeStartTime;
+        float progress = Math.min(1f, elapsed / (float) mCrossfadeMs);
+        double angle = progress * Math.PI / 2;
+
+        active().setVolume(getActiveVolume() * (float) Math.sin(angle));
+        standby().setVolume(mVolume * mDecks[1 - mActiveDeck].mTrackGain
+                * (float) Math.cos(angle));
+
+        if (progress < 1f) {
+            mHandler.postDelayed(mFadeStep, FADE_STEP_MS);
+        } else {
+            finishFade();
+        }
+    }
+
+    @Internal void finishFade() {
+        mHandler.removeCallbacks(mFadeStep);
+        mFading = false;
+
+        releaseStandby();
+        checkTransition();
+    }
+
+    /**
+     * Stops the standby deck, cancels any crossfade that's in progress, and restores the volume
+     * of the active deck
+     */
+    private void releaseStandby() {
+        mHandler.removeCallbacks(mFadeStep);
+        mFading = false;
+        mPreRolledIndex = -1;
+
+        EqualizedExoPlayer standby = standby();
+        standby.setPlayWhenReady(false);
+        standby.stop();
+
+        active().setVolume(getActiveVolume());
+    }
+
+    /**
+     * Cancels any pending or running transition. This should be called before the active deck
+     * is seeked or prepared again.
+     */
+    private void cancelTransition() {
+        mHandler.removeCallbacks(mTransitionCheck);
+        if (mFading || mPreRolledIndex >= 0) {
+            releaseStandby();
+        }
+    }
+
+    @Override
+    public void setPlaybackEventListener(@Nullable PlaybackEventListener listener) {
+        mEventListener = listener;
+    }
+
+    @Override
+    public Song getNowPlaying() {
+        if (mQueue == null || mQueue.isEmpty()) {
+            return null;
+        }
+        return mQueue.get(mQueueIndex);
+    }
+
+    @Override
+    public List<Song> getQueue() {
+        return mQueue;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return mQueue.size();
+    }
+
+    @Override
+    public void setQueue(@NonNull List<Song> queue) {
+        if (queue.size() >= mQueue.size()) {
+            setQueue(queue, mQueueIndex);
+        } else {
+            setQueue(queue, 0);
+        }
+    }
+
+    @Override
+    public void setQueue(@NonNull List<Song> queue, int index) {
+        if (index < 0 || (index >= queue.size() && !queue.isEmpty())) {
+            throw new IllegalArgumentException("index must between 0 and queue.size");
+        }
+
+        if (queue.isEmpty()) {
+            reset();
+        } else {
+            mQueue = queue;
+            mQueueIndex = index;
+
+            Song nowPlaying = getNowPlaying();
+            boolean songChanged = nowPlaying == null || !nowPlaying.equals(queue.get(index));
+            prepare(isPlaying(), songChanged);
+        }
+    }
+
+    @Override
+    public void setQueueIndex(int index) {
+        if (index == mQueueIndex) {
+            seekTo(0);
+        } else if (index == mPreRolledIndex && !mFading) {
+            switchToPreRolled();
+            releaseStandby();
+            onStart();
+        } else if (mRepeatOne) {
+            cancelTransition();
+            mQueueIndex = index;
+            prepare(true, true);
+        } else {
+            seekToWindow(index);
+        }
+    }
+
+    @Override
+    public int getQueueIndex() {
+        return mQueueIndex;
+    }
+
+    @Override
+    public void prepare(boolean playWhenReady) {
+        cancelTransition();
+        active().seekTo(0);
+        active().setPlayWhenReady(playWhenReady);
+        checkTransition();
+    }
+
+    private void prepare(boolean playWhenReady, boolean resetPosition) {
+        if (mQueue == null) {
+            return;
+        }
+
+        int startingPosition = resetPosition ? 0 : getCurrentPosition();
+        cancelTransition();
+
+        EqualizedExoPlayer active = active();
+        active.prepare(QueuedExoPlayer.buildMediaSource(mQueue, mQueueIndex, mRepeatOne,
+                mRepeatAll));
+        active.seekTo(mQueueIndex, startingPosition);
+        active.setPlayWhenReady(playWhenReady);
+    }
+
+    @Override
+    public void skip() {
+        int next = (mQueueIndex + 1) % mQueue.size();
+
+        if (next == mPreRolledIndex && !mFading) {
+            // The next song is already prepared, so start it without waiting on the active deck
+            switchToPreRolled();
+            releaseStandby();
+            onStart();
+            return;
+        }
+
+        seekToWindow(QueueWindows.getNextWindow(active().getCurrentWindowIndex(), mQueueIndex,
+                mQueue.size(), mRepeatAll));
+    }
+
+    @Override
+    public void skipPrevious() {
+        seekToWindow(QueueWindows.getPreviousWindow(active().getCurrentWindowIndex(),
+                mQueueIndex, mQueue.size(), mRepeatAll));
+    }
+
+    /**
+     * Starts playing a different song on the active deck. The queue index is updated before
+     * ExoPlayer reports the position discontinuity, so the new song is reported as started here.
+     */
+    private void seekToWindow(int window) {
+        cancelTransition();
+        mQueueIndex = QueueWindows.toQueueIndex(window, mQueue.size());
+        active().seekTo(window, 0);
+        onStart();
+    }
+
+    @Override
+    public void seekTo(int mSec) {
+        cancelTransition();
+        active().seekTo(mQueueIndex, mSec);
+        checkTransition();
+    }
+
+    @Override
+    public void stop() {
+        cancelTransition();
+        active().stop();
+        active().seekToDefaultPosition();
+    }
+
+    @Override
+    public void play() {
+        active().setPlayWhenReady(true);
+        checkTransition();
+    }
+
+    @Override
+    public void pause() {
+        if (mFading) {
+            releaseStandby();
+        }
+        mHandler.removeCallbacks(mTransitionCheck);
+        active().setPlayWhenReady(false);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return (int) active().getCurrentPosition();
+    }
+
+    @Override
+    public int getDuration() {
+        return (int) active().getDuration();
+    }
+
+    @Override
+    public PlayerState getState() {
+        return mState;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return mState == ExoPlayerState.ENDED;
+    }
+
+    @Override
+    public boolean isPaused() {
+        return !active().getPlayWhenReady();
+    }
+
+    @Override
+    public boolean isStopped() {
+        return mState == ExoPlayerState.IDLE;
+    }
+
+    @Override
+    public boolean isPreparing() {
+        return mState == ExoPlayerState.BUFFERING;
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        mVolume = volume;
+        if (mFading) {
+            stepFade();
+        } else {
+            active().setVolume(getActiveVolume());
+        }
+    }
+
+    /**
+     * Sets the gain of the current song. Each deck keeps the gain of the song it's playing, so the
+     * outgoing song keeps its own gain while it fades out.
+     */
+    @Override
+    public void setTrackGain(float gain) {
+        mDecks[mActiveDeck].mTrackGain = gain;
+        if (mFading) {
+            stepFade();
+        } else {
+            active().setVolume(getActiveVolume());
+        }
+    }
+
+    @Override
+    public void setEqualizer(boolean enabled, Equalizer.Settings settings) {
+        for (Deck deck : mDecks) {
+            deck.mPlayer.setEqualizerSettings(enabled, settings);
+        }
+    }
+
+    @Override
+    public void enableRepeatAll() {
+        if (!mRepeatAll) {
+            mRepeatAll = true;
+            mRepeatOne = false;
+            prepare(isPlaying(), false);
+        }
+    }
+
+    @Override
+    public void enableRepeatOne() {
+        if (!mRepeatOne) {
+            mRepeatOne = true;
+            mRepeatAll = false;
+            prepare(isPlaying(), false);
+        }
+    }
+
+    @Override
+    public void enableRepeatNone() {
+        if (mRepeatAll || mRepeatOne) {
+            mRepeatOne = false;
+            mRepeatAll = false;
+            prepare(isPlaying(), false);
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return active().getPlayWhenReady();
+    }
+
+    @Override
+    public void reset() {
+        mQueue = Collections.emptyList();
+        mQueueIndex = 0;
+        prepare(false, true);
+    }
+
+    @Override
+    public void release() {
+        mHandler.removeCallbacksAndMessages(null);
+        for (Deck deck : mDecks) {
+            deck.mPlayer.release();
+        }
+    }
+
+    private final class Deck implements ExoPlayer.EventListener {
+
+        private final EqualizedExoPlayer mPlayer;
+        private float mTrackGain;
+
+        Deck(Context context, @BufferProfile int bufferProfile) {
+            SimpleExoPlayer baseInstance = ExoPlayerFactory.newSimpleInstance(context,
+                    new DefaultTrackSelector(mHandler),
+                    QueuedExoPlayer.createLoadControl(bufferProfile));
+
+            mPlayer = new EqualizedExoPlayer(context, baseInstance);
+            mPlayer.addListener(this);
+            mTrackGain = 1f;
+        }
+
+        private boolean isActive() {
+            return mDecks[mActiveDeck] == this;
+        }
+
+        @Override
+        public void onLoadingChanged(boolean isLoading) {
+            Timber.i("onLoadingChanged (%b, active: %b)", isLoading, isActive());
+        }
+
+        @Override
+        public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+            Timber.i("onPlayerStateChanged (active: %b)", isActive());
+            if (isActive()) {
+                onActiveStateChanged(playbackState);
+            } else if (mFading && playbackState == ExoPlayer.STATE_ENDED) {
+                finishFade();
+            }
+        }
+
+        @Override
+        public void onTimelineChanged(Timeline timeline, Object manifest) {
+            Timber.i("onTimelineChanged (active: %b)", isActive());
+            if (isActive()) {
+                onStart();
+            }
+        }
+
+        @Override
+        public void onPlayerError(ExoPlaybackException error) {
+            Timber.i("onPlayerError (active: %b)", isActive());
+            onError(error, isActive());
+        }
+
+        @Override
+        public void onPositionDiscontinuity() {
+            Timber.i("onPositionDiscontinuity (active: %b)", isActive());
+            if (isActive()) {
+                onActivePositionDiscontinuity();
+            } else if (mFading) {
+                // The fading song ended and its deck moved on to the song that's already playing
+                finishFade();
+            }
+        }
+    }
+}
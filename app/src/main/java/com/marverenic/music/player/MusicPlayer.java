@@ -20,14 +20,16 @@ import android.view.KeyEvent;
 import com.marverenic.music.JockeyApplication;
 import com.marverenic.music.R;
 import com.marverenic.music.activity.NowPlayingActivity;
+import com.marverenic.music.data.annotations.ArtworkSize;
+import com.marverenic.music.data.store.ArtworkStore;
 import com.marverenic.music.data.store.MediaStoreUtil;
 import com.marverenic.music.data.store.PlayCountStore;
 import com.marverenic.music.data.store.PreferencesStore;
 import com.marverenic.music.data.store.ReadOnlyPreferencesStore;
 import com.marverenic.music.data.store.RemotePreferenceStore;
+import com.marverenic.music.data.store.ReplayGainStore;
 import com.marverenic.music.data.store.SharedPreferencesStore;
 import com.marverenic.music.instances.Song;
-import com.marverenic.music.utils.Util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -42,6 +44,9 @@ import java.util.Scanner;
 
 import javax.inject.Inject;
 
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 import static android.content.Intent.ACTION_HEADSET_PLUG;
@@ -156,6 +161,12 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
      */
     private static final float DUCK_VOLUME = 0.5f;
 
+    /**
+     * The number of songs after the current song to analyze when volume normalization is
+     * enabled, so that their gain is known by the time they start playing
+     */
+    private static final int NORMALIZATION_LOOKAHEAD = 5;
+
     private QueuedMediaPlayer mMediaPlayer;
     private Context mContext;
     private Handler mHandler;
@@ -166,6 +177,13 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
     private List<Song> mQueue;
     private List<Song> mQueueShuffled;
 
+    /**
+     * Incremented every time the contents or order of the queue change. This allows clients to
+     * avoid fetching the queue when only the queue position has changed.
+     * @see #getQueueRevision()
+     */
+    private int mQueueRevision;
+
     private boolean mShuffle;
     private int mRepeat;
     private int mMultiRepeat;
@@ -182,11 +200,26 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
     private boolean mResumeOnFocusGain = false;
 
     /**
-     * The album artwork of the current song
+     * Whether each song should be played at the gain saved in {@link #mReplayGainStore}
+     * @see #applyTrackGain()
+     */
+    private boolean mNormalizeVolume;
+
+    /**
+     * The album artwork of the current song, sized for the lock screen
      */
     private Bitmap mArtwork;
 
+    /**
+     * The album artwork of the current song, sized for the notification's large icon
+     */
+    private Bitmap mNotificationArtwork;
+    private Subscription mArtworkSubscription;
+    private Subscription mReplayGainSubscription;
+
     @Inject PlayCountStore mPlayCountStore;
+    @Inject ArtworkStore mArtworkStore;
+    @Inject ReplayGainStore mReplayGainStore;
     private RemotePreferenceStore mRemotePreferenceStore;
 
     private final Runnable mSleepTimerRunnable = this::onSleepTimerEnd;
@@ -212,8 +245,17 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
                     Timber.e(throwable, "init: Failed to read play count store values");
                 });
 
-        // Initialize the media player
-        mMediaPlayer = new QueuedExoPlayer(context);
+        // Initialize the media player. The buffer profile and crossfade duration are only read
+        // here, so changes to them take effect the next time the player is created
+        ReadOnlyPreferencesStore preferencesStore = new SharedPreferencesStore(mContext);
+        int bufferProfile = preferencesStore.getBufferProfile();
+        int crossfadeDuration = preferencesStore.getCrossfadeDuration();
+
+        if (crossfadeDuration > 0) {
+            mMediaPlayer = new CrossfadeExoPlayer(context, bufferProfile, crossfadeDuration);
+        } else {
+            mMediaPlayer = new QueuedExoPlayer(context, bufferProfile);
+        }
         mMediaPlayer.setPlaybackEventListener(this);
 
         mQueue = new ArrayList<>();
@@ -226,6 +268,14 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         filter.addAction(ACTION_AUDIO_BECOMING_NOISY);
         context.registerReceiver(mHeadphoneListener, filter);
 
+        // Songs that start playing before they've been analyzed are normalized as soon as their
+        // gain is known, instead of playing at their original volume until the next song
+        mReplayGainSubscription = mReplayGainStore.getAnalyzedSongIds()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::onSongAnalyzed, throwable -> {
+                    Timber.e(throwable, "Failed to observe track gains");
+                });
+
         loadPrefs();
         initMediaSession();
     }
@@ -247,6 +297,7 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         mShuffle = preferencesStore.isShuffled();
         setRepeat(preferencesStore.getRepeatMode());
         setMultiRepeat(mRemotePreferenceStore.getMultiRepeatCount());
+        mNormalizeVolume = preferencesStore.normalizeVolume();
 
         initEqualizer(preferencesStore);
         startSleepTimer(mRemotePreferenceStore.getSleepTimerEndTime());
@@ -264,6 +315,11 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
 
         setRepeat(preferencesStore.getRepeatMode());
         initEqualizer(preferencesStore);
+
+        if (preferencesStore.normalizeVolume() != mNormalizeVolume) {
+            mNormalizeVolume = preferencesStore.normalizeVolume();
+            applyTrackGain();
+        }
     }
 
     /**
@@ -307,6 +363,47 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
                 preferencesStore.getEqualizerSettings());
     }
 
+    /**
+     * Sets the volume of the current song to the gain saved for it, and starts measuring the gain
+     * of the songs after it. Gains are only looked up in memory here, so songs that haven't been
+     * analyzed yet play at their original volume until their analysis finishes.
+     * @see #onSongAnalyzed(long)
+     */
+    private void applyTrackGain() {
+        Song nowPlaying = getNowPlaying();
+        updateTrackGain(nowPlaying);
+
+        if (mNormalizeVolume && nowPlaying != null) {
+            List<Song> queue = mMediaPlayer.getQueue();
+            int start = mMediaPlayer.getQueueIndex();
+            int end = Math.min(queue.size(), start + 1 + NORMALIZATION_LOOKAHEAD);
+            mReplayGainStore.analyze(new ArrayList<>(queue.subList(start, end)));
+        }
+    }
+
+    private void updateTrackGain(Song nowPlaying) {
+        Float gain = (mNormalizeVolume && nowPlaying != null)
+                ? mReplayGainStore.getTrackGain(nowPlaying)
+                : null;
+
+        // The player can only make songs quieter, so songs that are quieter than the reference
+        // loudness play at their original volume
+        float volume = (gain == null) ? 1f : Math.min(1f, (float) Math.pow(10, gain / 20));
+        Timber.i("Setting track gain to %s dB (volume %.3f)", gain, volume);
+        mMediaPlayer.setTrackGain(volume);
+    }
+
+    private void onSongAnalyzed(long songId) {
+        if (mMediaPlayer == null || !mNormalizeVolume) {
+            return;
+        }
+
+        Song nowPlaying = getNowPlaying();
+        if (nowPlaying != null && nowPlaying.getSongId() == songId) {
+            updateTrackGain(nowPlaying);
+        }
+    }
+
     /**
      * Saves the player's current state to a file with the name {@link #QUEUE_FILE} in
      * the app's external files directory specified by {@link Context#getExternalFilesDir(String)}
@@ -384,7 +481,7 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
             setBackingQueue(queuePosition);
             mMediaPlayer.seekTo(currentPosition);
 
-            mArtwork = Util.fetchFullArt(getNowPlaying());
+            loadArtwork();
         } catch(FileNotFoundException ignored) {
             Timber.i("State does not exist. Using empty state");
             // If there's no queue file, just restore to an empty state
@@ -393,6 +490,7 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
             mQueue.clear();
             mQueueShuffled.clear();
             mMediaPlayer.reset();
+            mQueueRevision++;
         } finally {
             if (scanner != null) {
                 scanner.close();
@@ -400,6 +498,61 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         }
     }
 
+    /**
+     * Asynchronously loads the artwork for the current song from the {@link ArtworkStore} and
+     * updates the {@link MediaSessionCompat} when it becomes available. The artwork for the next
+     * song in the queue is also prefetched so that it's ready by the time that song starts.
+     */
+    private void loadArtwork() {
+        if (mArtworkSubscription != null) {
+            mArtworkSubscription.unsubscribe();
+        }
+
+        Song nowPlaying = getNowPlaying();
+        mArtwork = null;
+        mNotificationArtwork = null;
+
+        mArtworkSubscription = Observable.zip(
+                mArtworkStore.getArtwork(nowPlaying, ArtworkSize.LOCKSCREEN),
+                mArtworkStore.getArtwork(nowPlaying, ArtworkSize.NOTIFICATION),
+                (lockscreenArt, notificationArt) -> new Bitmap[] {lockscreenArt, notificationArt})
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        artwork -> {
+                            mArtwork = artwork[0];
+                            mNotificationArtwork = artwork[1];
+                            updateNowPlaying();
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to load artwork");
+                        });
+
+        Song next = getNextSong();
+        if (next != null) {
+            mArtworkStore.prefetchArtwork(next, ArtworkSize.LOCKSCREEN);
+            mArtworkStore.prefetchArtwork(next, ArtworkSize.NOTIFICATION);
+        }
+    }
+
+    /**
+     * @return The song that will play after the current song finishes, or {@code null} if this
+     *         is the last song in the queue
+     */
+    private Song getNextSong() {
+        List<Song> queue = mMediaPlayer.getQueue();
+        if (queue == null || queue.isEmpty()) {
+            return null;
+        }
+
+        int nextIndex = mMediaPlayer.getQueueIndex() + 1;
+        if (nextIndex < queue.size()) {
+            return queue.get(nextIndex);
+        } else if (mRepeat == REPEAT_ALL) {
+            return queue.get(0);
+        } else {
+            return null;
+        }
+    }
+
     public void setPlaybackChangeListener(OnPlaybackChangeListener listener) {
         mCallback = listener;
     }
@@ -426,7 +579,8 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
                     .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_SUBTITLE,
                             nowPlaying.getArtistName())
                     .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, getDuration())
-                    .putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, mArtwork);
+                    .putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, mArtwork)
+                    .putBitmap(MediaMetadataCompat.METADATA_KEY_DISPLAY_ICON, mNotificationArtwork);
             mMediaSession.setMetadata(metadataBuilder.build());
 
             PlaybackStateCompat.Builder state = new PlaybackStateCompat.Builder().setActions(
@@ -654,6 +808,56 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         }
     }
 
+    /**
+     * Skips forward by several songs at once. This has the same effect as calling {@link #skip()}
+     * {@code count} times, except that the backing {@link QueuedMediaPlayer} only changes tracks
+     * once. Every song that is passed over is logged as a skip. Does nothing if the queue is empty.
+     * @param count The number of songs to skip. Must be at least 1.
+     * @see #skip()
+     */
+    public void skip(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        } else if (mQueue.isEmpty()) {
+            return;
+        } else if (count == 1) {
+            skip();
+            return;
+        }
+
+        Timber.i("Skipping %d songs", count);
+        if (!mMediaPlayer.isComplete()) {
+            logPlay();
+        }
+
+        setMultiRepeat(0);
+
+        int currentIndex = mMediaPlayer.getQueueIndex();
+        int targetIndex = currentIndex + count;
+
+        if (mRepeat == REPEAT_ALL) {
+            targetIndex %= mQueue.size();
+        } else {
+            targetIndex = Math.min(targetIndex, mQueue.size() - 1);
+        }
+
+        if (targetIndex == currentIndex && mRepeat != REPEAT_ALL) {
+            // We're already at the end of the queue, so there's nowhere to skip to
+            return;
+        }
+
+        // Songs that we pass over would have been skipped immediately after starting
+        int passedOver = (mRepeat == REPEAT_ALL) ? count - 1 : targetIndex - currentIndex - 1;
+        if (passedOver > 0) {
+            for (int i = 1; i <= passedOver; i++) {
+                mPlayCountStore.incrementSkipCount(mQueue.get((currentIndex + i) % mQueue.size()));
+            }
+            mPlayCountStore.save();
+        }
+
+        mMediaPlayer.setQueueIndex(targetIndex);
+    }
+
     /**
      * Records a play or skip for the current song based on the current time of the backing
      * {@link MediaPlayer} as returned by {@link #getCurrentPosition()}
@@ -715,6 +919,39 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         }
     }
 
+    /**
+     * Moves back by several songs at once and starts playing. Unlike {@link #skipPrevious()}, this
+     * always changes songs instead of restarting the current one. If this would move past the
+     * beginning of the queue, it loops to the end if repeat all is enabled. Otherwise it stops at
+     * the first song, or restarts the current song if the first song is already playing. Does
+     * nothing if the queue is empty.
+     * @param count The number of songs to move back by. Must be at least 1.
+     * @see #skip(int)
+     */
+    public void skipBack(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        } else if (mQueue.isEmpty()) {
+            return;
+        }
+
+        Timber.i("Skipping back %d songs", count);
+        int currentIndex = mMediaPlayer.getQueueIndex();
+        int targetIndex = currentIndex - count;
+
+        if (mRepeat == REPEAT_ALL) {
+            targetIndex = (targetIndex % mQueue.size() + mQueue.size()) % mQueue.size();
+        } else if (currentIndex == 0) {
+            Timber.i("Restarting current song...");
+            seekTo(0);
+            return;
+        } else {
+            targetIndex = Math.max(targetIndex, 0);
+        }
+
+        changeSong(targetIndex);
+    }
+
     /**
      * Stops music playback
      */
@@ -767,6 +1004,15 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         return mMediaPlayer.getQueue();
     }
 
+    /**
+     * @return A number that changes every time the contents or order of the queue change. If two
+     *         calls return the same revision, then {@link #getQueue()} will also return the same
+     *         songs in the same order.
+     */
+    public int getQueueRevision() {
+        return mQueueRevision;
+    }
+
     /**
      * @return The current index in the queue that is being played
      */
@@ -880,6 +1126,7 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         } else {
             mMediaPlayer.setQueue(mQueue, index);
         }
+        mQueueRevision++;
     }
 
     /**
@@ -976,6 +1223,7 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
             mMediaPlayer.setQueue(mQueue, position);
         }
         mShuffle = shuffle;
+        mQueueRevision++;
         updateNowPlaying();
     }
 
@@ -1053,6 +1301,11 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
         // Make sure to disable the sleep timer to purge any delayed runnables in the message queue
         startSleepTimer(0);
 
+        if (mArtworkSubscription != null) {
+            mArtworkSubscription.unsubscribe();
+        }
+        mReplayGainSubscription.unsubscribe();
+
         mFocused = false;
         mCallback = null;
         mMediaPlayer.stop();
@@ -1100,7 +1353,8 @@ public class MusicPlayer implements AudioManager.OnAudioFocusChangeListener,
     @Override
     public void onSongStart() {
         Timber.i("Started new song");
-        mArtwork = Util.fetchFullArt(getNowPlaying());
+        applyTrackGain();
+        loadArtwork();
         updateNowPlaying();
         updateUi();
     }
@@ -0,0 +1,277 @@
+package com.marverenic.music.player;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.RemoteException;
+import android.support.annotation.Nullable;
+
+import com.marverenic.music.IPlayerService;
+import com.marverenic.music.instances.Song;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Serializes commands sent to the remote {@link PlayerService} on a background thread so that
+ * the UI thread never has to wait on a binder transaction. Commands that haven't been dispatched
+ * yet are merged with newly added commands whenever it's safe to do so. This way, rapidly repeated
+ * actions (mashing the skip button, dragging a seek bar, or reordering the queue) only cross the
+ * process boundary once.
+ */
+final class PlayerCommandQueue {
+
+    private final Object mLock = new Object();
+    private final ArrayDeque<Command> mPending;
+    private final Handler mWorker;
+    private final Runnable mDrainRunnable;
+    private final OnDispatchListener mListener;
+
+    private volatile IPlayerService mService;
+    private boolean mDrainScheduled;
+
+    PlayerCommandQueue(OnDispatchListener listener) {
+        mListener = listener;
+        mPending = new ArrayDeque<>();
+        mDrainRunnable = this::drain;
+
+        HandlerThread thread = new HandlerThread("PlayerCommandQueue");
+        thread.start();
+        mWorker = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Sets the binder that pending and future commands will be sent to
+     * @param service The remote service to dispatch commands to, or {@code null} if the service
+     *                has been disconnected. Commands dispatched without a service are dropped.
+     */
+    void setService(@Nullable IPlayerService service) {
+        mService = service;
+    }
+
+    /**
+     * Adds a command to the end of this queue. If the last pending command can absorb the new
+     * command, the two will be sent to the service as a single command.
+     * @param command The command to send to the remote service
+     */
+    void enqueue(Command command) {
+        synchronized (mLock) {
+            Command last = mPending.peekLast();
+            Command merged = (last == null) ? null : last.mergeWith(command);
+
+            if (merged != null) {
+                mPending.pollLast();
+                mPending.addLast(merged);
+            } else {
+                mPending.addLast(command);
+            }
+
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Notifies this queue's {@link OnDispatchListener} on the worker thread once all currently
+     * pending commands have been sent, even if there are no pending commands
+     */
+    void requestSync() {
+        synchronized (mLock) {
+            scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!mDrainScheduled) {
+            mDrainScheduled = true;
+            mWorker.post(mDrainRunnable);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Command next;
+            synchronized (mLock) {
+                next = mPending.pollFirst();
+                if (next == null) {
+                    mDrainScheduled = false;
+                    break;
+                }
+            }
+
+            dispatch(next);
+        }
+
+        mListener.onDispatched(mService);
+    }
+
+    private void dispatch(Command command) {
+        IPlayerService service = mService;
+        if (service == null) {
+            Timber.w("Player service is not bound. Dropping command.");
+            return;
+        }
+
+        try {
+            command.execute(service);
+        } catch (RemoteException exception) {
+            Timber.e(exception, command.getFailureMessage());
+        }
+    }
+
+    interface OnDispatchListener {
+        /**
+         * Called on the queue's worker thread whenever all pending commands have been sent to
+         * the remote service
+         * @param service The remote service that commands were sent to, or {@code null} if the
+         *                service isn't bound
+         */
+        void onDispatched(@Nullable IPlayerService service);
+    }
+
+    interface RemoteAction {
+        void execute(IPlayerService service) throws RemoteException;
+    }
+
+    static class Command {
+
+        private final RemoteAction mAction;
+        private final String mFailureMessage;
+
+        Command(RemoteAction action, String failureMessage) {
+            mAction = action;
+            mFailureMessage = failureMessage;
+        }
+
+        void execute(IPlayerService service) throws RemoteException {
+            mAction.execute(service);
+        }
+
+        String getFailureMessage() {
+            return mFailureMessage;
+        }
+
+        /**
+         * @param next A command that was enqueued immediately after this one
+         * @return A single command that has the same effect as running this command followed by
+         *         {@code next}, or {@code null} if these commands can't be combined
+         */
+        @Nullable
+        Command mergeWith(Command next) {
+            return null;
+        }
+    }
+
+    /**
+     * Skips forward by some number of songs. Consecutive skips are folded into one skip-by-N
+     */
+    static class SkipCommand extends Command {
+
+        private final int mCount;
+
+        SkipCommand(int count) {
+            super(null, "Failed to skip current track");
+            mCount = count;
+        }
+
+        @Override
+        void execute(IPlayerService service) throws RemoteException {
+            if (mCount == 1) {
+                service.skip();
+            } else {
+                service.skipBy(mCount);
+            }
+        }
+
+        @Override
+        Command mergeWith(Command next) {
+            if (next instanceof SkipCommand) {
+                return new SkipCommand(mCount + ((SkipCommand) next).mCount);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Moves back by some number of songs. Consecutive skips back are folded into one
+     */
+    static class SkipBackCommand extends Command {
+
+        private final int mCount;
+
+        SkipBackCommand(int count) {
+            super(null, "Failed to skip backward");
+            mCount = count;
+        }
+
+        @Override
+        void execute(IPlayerService service) throws RemoteException {
+            service.skipBackBy(mCount);
+        }
+
+        @Override
+        Command mergeWith(Command next) {
+            if (next instanceof SkipBackCommand) {
+                return new SkipBackCommand(mCount + ((SkipBackCommand) next).mCount);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Seeks within the current song. Consecutive seeks only keep the most recent position
+     */
+    static class SeekCommand extends Command {
+
+        private final int mPosition;
+
+        SeekCommand(int position) {
+            super(null, "Failed to seek");
+            mPosition = position;
+        }
+
+        @Override
+        void execute(IPlayerService service) throws RemoteException {
+            service.seekTo(mPosition);
+        }
+
+        @Override
+        Command mergeWith(Command next) {
+            if (next instanceof SeekCommand) {
+                return next;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the contents of the queue without interrupting playback. Since each edit replaces
+     * the entire queue, consecutive edits only keep the most recent one.
+     */
+    static class EditQueueCommand extends Command {
+
+        private final List<Song> mQueue;
+        private final int mQueuePosition;
+
+        EditQueueCommand(List<Song> queue, int queuePosition) {
+            super(null, "Failed to edit queue");
+            // Copy the queue since callers may keep modifying their list before it's dispatched
+            mQueue = new ArrayList<>(queue);
+            mQueuePosition = queuePosition;
+        }
+
+        @Override
+        void execute(IPlayerService service) throws RemoteException {
+            service.editQueue(mQueue, mQueuePosition);
+        }
+
+        @Override
+        Command mergeWith(Command next) {
+            if (next instanceof EditQueueCommand) {
+                return next;
+            }
+            return null;
+        }
+    }
+}
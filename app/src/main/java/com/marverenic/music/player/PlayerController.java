@@ -6,15 +6,26 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.graphics.Bitmap;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.os.RemoteException;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
 
 import com.marverenic.music.IPlayerService;
+import com.marverenic.music.JockeyApplication;
+import com.marverenic.music.data.annotations.ArtworkSize;
+import com.marverenic.music.data.store.ArtworkStore;
 import com.marverenic.music.data.store.ImmutablePreferenceStore;
 import com.marverenic.music.data.store.MediaStoreUtil;
 import com.marverenic.music.data.store.ReadOnlyPreferencesStore;
 import com.marverenic.music.instances.Song;
-import com.marverenic.music.utils.Util;
+import com.marverenic.music.player.PlayerCommandQueue.Command;
+import com.marverenic.music.player.PlayerCommandQueue.EditQueueCommand;
+import com.marverenic.music.player.PlayerCommandQueue.SeekCommand;
+import com.marverenic.music.player.PlayerCommandQueue.SkipBackCommand;
+import com.marverenic.music.player.PlayerCommandQueue.SkipCommand;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -22,21 +33,68 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.subjects.BehaviorSubject;
 import timber.log.Timber;
 
 public final class PlayerController {
 
+    private static final int NO_QUEUE_REVISION = -1;
+
     private static Context applicationContext;
-    private static IPlayerService playerService;
+    private static ArtworkStore artworkStore;
+    private static volatile IPlayerService playerService;
     private static Set<UpdateListener> updateListeners;
     private static Set<InfoListener> infoListeners;
     private static Set<ErrorListener> errorListeners;
-    private static Bitmap artwork;
+
+    private static Handler mainHandler;
+    private static PlayerCommandQueue commandQueue;
+    private static boolean uiUpdateScheduled;
+
+    private static BehaviorSubject<Song> nowPlaying;
+    private static BehaviorSubject<List<Song>> queue;
+    private static BehaviorSubject<Integer> queuePosition;
+    private static BehaviorSubject<Boolean> playing;
+    private static BehaviorSubject<Integer> duration;
+    private static BehaviorSubject<Integer> multiRepeatCount;
+    private static BehaviorSubject<Long> sleepTimerEndTime;
+    private static BehaviorSubject<Bitmap> mirroredArtwork;
+
+    private static volatile boolean mirrorQueue;
+    /**
+     * The revision of the queue that was last fetched into {@link #queue}. The queue is only
+     * fetched again when the player service reports a different revision.
+     * @see MusicPlayer#getQueueRevision()
+     */
+    private static volatile int mirroredQueueRevision = NO_QUEUE_REVISION;
+    private static volatile boolean mirrorArtwork;
+    private static volatile Song mirroredArtworkSong;
+    private static Subscription artworkSubscription;
 
     static {
         updateListeners = new HashSet<>();
         errorListeners = new HashSet<>();
         infoListeners = new HashSet<>();
+
+        nowPlaying = BehaviorSubject.create((Song) null);
+        queue = BehaviorSubject.create(Collections.<Song>emptyList());
+        queuePosition = BehaviorSubject.create(0);
+        playing = BehaviorSubject.create(false);
+        duration = BehaviorSubject.create(Integer.MAX_VALUE);
+        multiRepeatCount = BehaviorSubject.create(0);
+        sleepTimerEndTime = BehaviorSubject.create(0L);
+        mirroredArtwork = BehaviorSubject.create((Bitmap) null);
+
+        mainHandler = new Handler(Looper.getMainLooper());
+        commandQueue = new PlayerCommandQueue(service -> {
+            if (service != null) {
+                refreshState(service);
+            }
+            mainHandler.post(PlayerController::scheduleUiUpdate);
+        });
     }
 
     // This class is never instantiated
@@ -58,6 +116,7 @@ public final class PlayerController {
             }
 
             applicationContext = context;
+            artworkStore = JockeyApplication.getComponent(context).getArtworkStore();
 
             Intent serviceIntent = new Intent(context, PlayerService.class);
 
@@ -69,12 +128,16 @@ public final class PlayerController {
                 @Override
                 public void onServiceConnected(ComponentName name, IBinder service) {
                     playerService = IPlayerService.Stub.asInterface(service);
-                    updateUi();
+                    // Queue revisions aren't meaningful across different instances of the service
+                    mirroredQueueRevision = NO_QUEUE_REVISION;
+                    commandQueue.setService(playerService);
+                    commandQueue.requestSync();
                 }
 
                 @Override
                 public void onServiceDisconnected(ComponentName name) {
                     playerService = null;
+                    commandQueue.setService(null);
                     applicationContext = null;
                 }
             }, Context.BIND_WAIVE_PRIORITY);
@@ -147,6 +210,21 @@ public final class PlayerController {
         errorListeners.remove(l);
     }
 
+    /**
+     * Requests that all Update Listeners be notified on the next frame. Multiple requests made
+     * before the next frame is drawn will only cause listeners to be notified once. This method
+     * must be called from the main thread.
+     */
+    private static void scheduleUiUpdate() {
+        if (!uiUpdateScheduled) {
+            uiUpdateScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameTimeNanos -> {
+                uiUpdateScheduled = false;
+                updateUi();
+            });
+        }
+    }
+
     /**
      * Called to alert all Update Listeners that the Player's state has changed
      */
@@ -177,6 +255,163 @@ public final class PlayerController {
         }
     }
 
+    /**
+     * Reads the current state of the player service into the local state mirror so that it can
+     * be observed without blocking on the service. This is always called on the command queue's
+     * worker thread after pending commands have been sent.
+     * @param service The player service to read state from
+     */
+    private static void refreshState(IPlayerService service) {
+        try {
+            Song currentSong = service.getNowPlaying();
+
+            publish(nowPlaying, currentSong);
+            publish(queuePosition, service.getQueuePosition());
+            publish(playing, service.isPlaying());
+            publish(duration, service.getDuration());
+            publish(multiRepeatCount, service.getMultiRepeatCount());
+            publish(sleepTimerEndTime, service.getSleepTimerEndTime());
+
+            if (mirrorQueue) {
+                int revision = service.getQueueRevision();
+                if (revision != mirroredQueueRevision) {
+                    mirroredQueueRevision = revision;
+                    queue.onNext(service.getQueue());
+                }
+            }
+
+            if (mirrorArtwork && !equal(currentSong, mirroredArtworkSong)) {
+                mirroredArtworkSong = currentSong;
+                loadArtwork(currentSong);
+            }
+        } catch (RemoteException exception) {
+            Timber.e(exception, "Failed to refresh player state");
+        }
+    }
+
+    /**
+     * Loads the artwork of a song in the background and publishes it to {@link #mirroredArtwork}
+     * once it's ready. This keeps disk reads and bitmap decoding off of the command queue's
+     * worker thread, so that commands sent after a song change aren't delayed by it.
+     */
+    private static void loadArtwork(Song song) {
+        if (artworkSubscription != null) {
+            artworkSubscription.unsubscribe();
+        }
+
+        artworkSubscription = artworkStore.getArtwork(song, ArtworkSize.NOW_PLAYING)
+                // Drop artwork that finishes loading after the song has changed again
+                .filter(artwork -> equal(song, mirroredArtworkSong))
+                .subscribe(
+                        mirroredArtwork::onNext,
+                        throwable -> Timber.e(throwable, "Failed to load artwork"));
+    }
+
+    private static <T> void publish(BehaviorSubject<T> subject, T value) {
+        if (!equal(subject.getValue(), value)) {
+            subject.onNext(value);
+        }
+    }
+
+    private static boolean equal(@Nullable Object a, @Nullable Object b) {
+        return (a == null) ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns an {@link Observable} that replays the most recently mirrored value of a state
+     * subject on the main thread and emits again whenever the player service's state changes
+     */
+    private static <T> Observable<T> observe(BehaviorSubject<T> subject) {
+        return subject.asObservable().observeOn(AndroidSchedulers.mainThread());
+    }
+
+    /**
+     * @return An {@link Observable} of the song currently being played by the player service.
+     *         Emits {@code null} when nothing is playing.
+     * @see #getNowPlaying()
+     */
+    public static Observable<Song> observeNowPlaying() {
+        return observe(nowPlaying);
+    }
+
+    /**
+     * @return An {@link Observable} of the player service's current queue. A new queue is only
+     *         emitted when the songs in the queue or their order have changed.
+     * @see #getQueue()
+     */
+    public static Observable<List<Song>> observeQueue() {
+        if (!mirrorQueue) {
+            mirrorQueue = true;
+            commandQueue.requestSync();
+        }
+        return observe(queue);
+    }
+
+    /**
+     * @return An {@link Observable} of the index of the currently playing song in the queue
+     * @see #getQueuePosition()
+     */
+    public static Observable<Integer> observeQueuePosition() {
+        return observe(queuePosition);
+    }
+
+    /**
+     * @return An {@link Observable} that emits whether or not the player service is playing music
+     * @see #isPlaying()
+     */
+    public static Observable<Boolean> observeIsPlaying() {
+        return observe(playing);
+    }
+
+    /**
+     * @return An {@link Observable} of the duration of the current song in milliseconds
+     * @see #getDuration()
+     */
+    public static Observable<Integer> observeDuration() {
+        return observe(duration);
+    }
+
+    /**
+     * @return An {@link Observable} of the number of times the current song will repeat
+     * @see #getMultiRepeatCount()
+     */
+    public static Observable<Integer> observeMultiRepeatCount() {
+        return observe(multiRepeatCount);
+    }
+
+    /**
+     * @return An {@link Observable} of the time that the sleep timer will end at, or 0 if the
+     *         sleep timer isn't enabled
+     * @see #getSleepTimerEndTime()
+     */
+    public static Observable<Long> observeSleepTimerEndTime() {
+        return observe(sleepTimerEndTime);
+    }
+
+    /**
+     * @return An {@link Observable} of the album artwork for the current song, sized for the now
+     *         playing page. Emits {@code null} if the current song doesn't have artwork.
+     */
+    public static Observable<Bitmap> observeArtwork() {
+        if (!mirrorArtwork) {
+            mirrorArtwork = true;
+            commandQueue.requestSync();
+        }
+        return observe(mirroredArtwork);
+    }
+
+    /**
+     * Sends a command to the player service in the background. Commands are dispatched in the
+     * order that they're enqueued, and are dropped if the service hasn't been bound yet.
+     * @param command The command to send
+     * @see PlayerCommandQueue
+     */
+    private static void enqueue(Command command) {
+        if (playerService != null) {
+            commandQueue.enqueue(command);
+        }
+    }
+
     /**
      * Stop playback completely and end the player service process. If you call this from the UI
      * thread make sure that you don't want to play music for the rest of the lifetime of the
@@ -184,30 +419,16 @@ public final class PlayerController {
      * See {@link MusicPlayer#stop()}
      */
     public static void stop() {
-        if (playerService != null) {
-            try {
-                playerService.stop();
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to stop playback");
-            }
-        }
+        enqueue(new Command(IPlayerService::stop, "Failed to stop playback"));
     }
 
     /**
-     * Skip to the next song in the queue.
+     * Skip to the next song in the queue. Repeated calls made before the player service has
+     * handled the first one are combined into a single skip.
      * See {@link MusicPlayer#skip()}
      */
     public static void skip() {
-        if (playerService != null) {
-            try {
-                playerService.skip();
-                artwork = null;
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to skip current track");
-            }
-        }
+        enqueue(new SkipCommand(1));
     }
 
     /**
@@ -215,15 +436,18 @@ public final class PlayerController {
      * See {@link MusicPlayer#skipPrevious()}
      */
     public static void previous() {
-        if (playerService != null) {
-            try {
-                playerService.previous();
-                artwork = null;
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to skip backward");
-            }
-        }
+        enqueue(new Command(IPlayerService::previous, "Failed to skip backward"));
+    }
+
+    /**
+     * Moves back to the song before the current one and starts playing it. Unlike
+     * {@link #previous()}, this never restarts the current song unless it's the first song in the
+     * queue. Repeated calls made before the player service has handled the first one are combined
+     * into a single skip.
+     * See {@link MusicPlayer#skipBack(int)}
+     */
+    public static void skipBack() {
+        enqueue(new SkipBackCommand(1));
     }
 
     /**
@@ -231,15 +455,7 @@ public final class PlayerController {
      * See {@link MusicPlayer#prepare(boolean)}
      */
     public static void begin() {
-        if (playerService != null) {
-            try {
-                playerService.begin();
-                artwork = null;
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to begin playback");
-            }
-        }
+        enqueue(new Command(IPlayerService::begin, "Failed to begin playback"));
     }
 
     /**
@@ -247,14 +463,7 @@ public final class PlayerController {
      * See {@link MusicPlayer#togglePlay()}
      */
     public static void togglePlay() {
-        if (playerService != null) {
-            try {
-                playerService.togglePlay();
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to toggle playback");
-            }
-        }
+        enqueue(new Command(IPlayerService::togglePlay, "Failed to toggle playback"));
     }
 
     /**
@@ -262,14 +471,7 @@ public final class PlayerController {
      * See {@link MusicPlayer#play()}
      */
     public static void play() {
-        if (playerService != null) {
-            try {
-                playerService.play();
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to resume playback");
-            }
-        }
+        enqueue(new Command(IPlayerService::play, "Failed to resume playback"));
     }
 
     /**
@@ -277,24 +479,13 @@ public final class PlayerController {
      * See {@link MusicPlayer#pause()}
      */
     public static void pause() {
-        if (playerService != null) {
-            try {
-                playerService.pause();
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to pause playback");
-            }
-        }
+        enqueue(new Command(IPlayerService::pause, "Failed to pause playback"));
     }
 
     public static void updatePlayerPreferences(ReadOnlyPreferencesStore preferencesStore) {
-        if (playerService != null) {
-            try {
-                playerService.setPreferences(new ImmutablePreferenceStore(preferencesStore));
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to update remote player preferences");
-            }
-        }
+        ImmutablePreferenceStore preferences = new ImmutablePreferenceStore(preferencesStore);
+        enqueue(new Command(service -> service.setPreferences(preferences),
+                "Failed to update remote player preferences"));
     }
 
     /**
@@ -304,28 +495,17 @@ public final class PlayerController {
      * See {@link MusicPlayer#setQueue(List, int)}
      */
     public static void setQueue(final List<Song> newQueue, final int newPosition) {
-        if (playerService != null) {
-            try {
-                playerService.setQueue(newQueue, newPosition);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to set queue");
-            }
-        }
+        List<Song> queue = new ArrayList<>(newQueue);
+        enqueue(new Command(service -> service.setQueue(queue, newPosition),
+                "Failed to set queue"));
     }
 
     /**
      * Removes all songs from the queue and stops playback
      */
     public static void clearQueue() {
-        if (playerService != null) {
-            try {
-                playerService.setQueue(new ArrayList<>(), 0);
-                artwork = null;
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to clear queue");
-            }
-        }
+        enqueue(new Command(service -> service.setQueue(new ArrayList<>(), 0),
+                "Failed to clear queue"));
     }
 
     /**
@@ -334,15 +514,8 @@ public final class PlayerController {
      * See {@link MusicPlayer#changeSong(int)}
      */
     public static void changeSong(int queuePosition) {
-        if (playerService != null) {
-            try {
-                playerService.changeSong(queuePosition);
-                artwork = null;
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to change song");
-            }
-        }
+        enqueue(new Command(service -> service.changeSong(queuePosition),
+                "Failed to change song"));
     }
 
     /**
@@ -352,14 +525,58 @@ public final class PlayerController {
      * See {@link MusicPlayer#editQueue(List, int)}
      */
     public static void editQueue(List<Song> queue, int queuePosition) {
-        if (playerService != null) {
-            try {
-                playerService.editQueue(queue, queuePosition);
-                updateUi();
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to edit queue");
+        enqueue(new EditQueueCommand(queue, queuePosition));
+    }
+
+    /**
+     * Removes a song from the queue without interrupting playback, unless the removed song is
+     * playing, in which case the song after it starts playing. The position of the current song
+     * is read once the removal reaches the player service, so removals made right after a skip
+     * keep the right song playing.
+     * @param queue The queue with the song removed
+     * @param index The index that the song was removed from
+     * @return A {@link QueueRemoval} that can be passed to
+     *         {@link #restoreToQueue(List, QueueRemoval)} to undo this removal
+     */
+    public static QueueRemoval removeFromQueue(List<Song> queue, int index) {
+        QueueRemoval removal = new QueueRemoval(index);
+        List<Song> copy = new ArrayList<>(queue);
+
+        enqueue(new Command(service -> {
+            int queuePosition = service.getQueuePosition();
+            removal.mRemovedNowPlaying = (queuePosition == index);
+
+            int newQueuePosition = (queuePosition > index) ? queuePosition - 1 : queuePosition;
+            service.editQueue(copy, Math.min(newQueuePosition, copy.size() - 1));
+
+            if (removal.mRemovedNowPlaying) {
+                service.begin();
             }
-        }
+        }, "Failed to remove song from queue"));
+
+        return removal;
+    }
+
+    /**
+     * Puts a song that was removed with {@link #removeFromQueue(List, int)} back into the queue.
+     * If the song was playing when it was removed, it starts playing again.
+     * @param queue The queue with the song added back at its original index
+     * @param removal The removal to undo
+     */
+    public static void restoreToQueue(List<Song> queue, QueueRemoval removal) {
+        List<Song> copy = new ArrayList<>(queue);
+
+        enqueue(new Command(service -> {
+            if (removal.mRemovedNowPlaying) {
+                service.editQueue(copy, removal.mIndex);
+                service.begin();
+            } else {
+                int queuePosition = service.getQueuePosition();
+                service.editQueue(copy, (queuePosition >= removal.mIndex)
+                        ? queuePosition + 1
+                        : queuePosition);
+            }
+        }, "Failed to restore song to queue"));
     }
 
     /**
@@ -368,13 +585,8 @@ public final class PlayerController {
      * See {@link MusicPlayer#queueNext(Song)}
      */
     public static void queueNext(final Song song) {
-        if (playerService != null) {
-            try {
-                playerService.queueNext(song);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to queue next song");
-            }
-        }
+        enqueue(new Command(service -> service.queueNext(song),
+                "Failed to queue next song"));
     }
 
     /**
@@ -383,13 +595,9 @@ public final class PlayerController {
      * See {@link MusicPlayer#queueNext(List)}
      */
     public static void queueNext(final List<Song> songs) {
-        if (playerService != null) {
-            try {
-                playerService.queueNextList(songs);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to queue next songs");
-            }
-        }
+        List<Song> copy = new ArrayList<>(songs);
+        enqueue(new Command(service -> service.queueNextList(copy),
+                "Failed to queue next songs"));
     }
 
     /**
@@ -398,13 +606,8 @@ public final class PlayerController {
      * See {@link MusicPlayer#queueLast(Song)}
      */
     public static void queueLast(final Song song) {
-        if (playerService != null) {
-            try {
-                playerService.queueLast(song);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to queue last song");
-            }
-        }
+        enqueue(new Command(service -> service.queueLast(song),
+                "Failed to queue last song"));
     }
 
     /**
@@ -413,31 +616,26 @@ public final class PlayerController {
      * See {@link MusicPlayer#queueLast(List)}
      */
     public static void queueLast(final List<Song> songs) {
-        if (playerService != null) {
-            try {
-                playerService.queueLastList(songs);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to queue last songs");
-            }
-        }
+        List<Song> copy = new ArrayList<>(songs);
+        enqueue(new Command(service -> service.queueLastList(copy),
+                "Failed to queue last songs"));
     }
 
     /**
-     * Seek to a different time in the current song
+     * Seek to a different time in the current song. If several seeks are requested before the
+     * player service has handled the first one, only the most recent position is sent.
      * @param position The new seek position in milliseconds
      */
     public static void seek(final int position) {
-        if (playerService != null) {
-            try {
-                playerService.seekTo(position);
-            } catch (RemoteException exception) {
-                Timber.e(exception, "Failed to seek");
-            }
-        }
+        enqueue(new SeekCommand(position));
     }
 
     /**
+     * Reads the playing state directly from the player service. Commands that are still waiting
+     * in the command queue haven't been applied yet, so this may not reflect a call to
+     * {@link #play()}, {@link #pause()} or {@link #togglePlay()} that was just made.
      * @return if the player service is currently playing music
+     * @see #observeIsPlaying() to be notified once queued commands have been applied
      */
     public static boolean isPlaying() {
         if (playerService == null) {
@@ -453,7 +651,10 @@ public final class PlayerController {
     }
 
     /**
+     * Like the other getters in this class, this doesn't wait for queued commands, so it may
+     * still return the previous song right after a skip.
      * @return The song currently being played by the player service (null if nothing is playing)
+     * @see #observeNowPlaying()
      */
     public static Song getNowPlaying() {
         if (playerService == null) {
@@ -469,7 +670,9 @@ public final class PlayerController {
     }
 
     /**
-     * @return The current queue of the player service
+     * @return The current queue of the player service. Edits that are still waiting in the
+     *         command queue aren't included.
+     * @see #observeQueue()
      */
     public static List<Song> getQueue() {
         if (playerService == null) {
@@ -485,7 +688,9 @@ public final class PlayerController {
     }
 
     /**
-     * @return The index of the currently playing song in the player service's queue
+     * @return The index of the currently playing song in the player service's queue. Skips that
+     *         haven't been sent to the player service yet aren't reflected.
+     * @see #observeQueuePosition()
      */
     public static int getQueuePosition() {
         if (playerService == null) {
@@ -517,7 +722,8 @@ public final class PlayerController {
     }
 
     /**
-     * @return The current seek position of the now playing song in milliseconds
+     * @return The current seek position of the now playing song in milliseconds. A
+     *         {@link #seek(int)} that is still queued isn't reflected.
      */
     public static int getCurrentPosition() {
         if (playerService == null) {
@@ -561,15 +767,8 @@ public final class PlayerController {
     }
 
     public static void setMultiRepeatCount(int count) {
-        if (playerService == null) {
-            return;
-        }
-
-        try {
-            playerService.setMultiRepeatCount(count);
-        } catch (RemoteException exception) {
-            Timber.e(exception, "Failed to set Multi-Repeat count");
-        }
+        enqueue(new Command(service -> service.setMultiRepeatCount(count),
+                "Failed to set Multi-Repeat count"));
     }
 
     public static long getSleepTimerEndTime() {
@@ -586,31 +785,14 @@ public final class PlayerController {
     }
 
     public static void setSleepTimerEndTime(long timestampInMillis) {
-        if (playerService == null) {
-            return;
-        }
-
-        try {
-            playerService.setSleepTimerEndTime(timestampInMillis);
-        } catch (RemoteException exception) {
-            Timber.e(exception, "Failed to set sleep timer value");
-        }
+        enqueue(new Command(service -> service.setSleepTimerEndTime(timestampInMillis),
+                "Failed to set sleep timer value"));
     }
 
     public static void disableSleepTimer() {
         setSleepTimerEndTime(0);
     }
 
-    /**
-     * @return The album artwork for the current song
-     */
-    public static Bitmap getArtwork() {
-        if (artwork == null) {
-            artwork = Util.fetchFullArt(getNowPlaying());
-        }
-        return artwork;
-    }
-
     /**
      * A {@link BroadcastReceiver} class listening for intents with an
      * {@link MusicPlayer#UPDATE_BROADCAST} action. This broadcast must be sent ordered with this
@@ -622,8 +804,7 @@ public final class PlayerController {
         @Override
         public void onReceive(Context context, Intent intent) {
             if (intent.getAction().equals(MusicPlayer.UPDATE_BROADCAST)) {
-                artwork = null;
-                updateUi();
+                commandQueue.requestSync();
             } else if (intent.getAction().equals(MusicPlayer.INFO_BROADCAST)) {
                 alertInfo(intent.getExtras().getString(MusicPlayer.INFO_EXTRA_MESSAGE));
             } else if (intent.getAction().equals(MusicPlayer.ERROR_BROADCAST)) {
@@ -633,6 +814,24 @@ public final class PlayerController {
 
     }
 
+    /**
+     * A song that was removed from the queue by {@link #removeFromQueue(List, int)}
+     */
+    public static final class QueueRemoval {
+
+        private final int mIndex;
+
+        /**
+         * Whether the removed song was playing. Set on the command queue's thread when the
+         * removal is sent to the player service, which always happens before it can be undone.
+         */
+        private volatile boolean mRemovedNowPlaying;
+
+        private QueueRemoval(int index) {
+            mIndex = index;
+        }
+    }
+
     public interface UpdateListener {
         void onUpdate();
     }
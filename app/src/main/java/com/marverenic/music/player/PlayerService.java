@@ -319,6 +319,26 @@ public class PlayerService extends Service implements MusicPlayer.OnPlaybackChan
             }
         }
 
+        @Override
+        public void skipBy(int count) throws RemoteException {
+            try {
+                instance.musicPlayer.skip(count);
+            } catch (RuntimeException exception) {
+                Timber.e(exception, "Remote call to PlayerService.skipBy(...) failed");
+                throw exception;
+            }
+        }
+
+        @Override
+        public void skipBackBy(int count) throws RemoteException {
+            try {
+                instance.musicPlayer.skipBack(count);
+            } catch (RuntimeException exception) {
+                Timber.e(exception, "Remote call to PlayerService.skipBackBy(...) failed");
+                throw exception;
+            }
+        }
+
         @Override
         public void previous() throws RemoteException {
             try {
@@ -492,6 +512,16 @@ public class PlayerService extends Service implements MusicPlayer.OnPlaybackChan
             }
         }
 
+        @Override
+        public int getQueueRevision() throws RemoteException {
+            try {
+                return instance.musicPlayer.getQueueRevision();
+            } catch (RuntimeException exception) {
+                Timber.e(exception, "Remote call to PlayerService.getQueueRevision() failed");
+                throw exception;
+            }
+        }
+
         @Override
         public int getQueuePosition() throws RemoteException {
             try {
@@ -0,0 +1,57 @@
+package com.marverenic.music.player;
+
+/**
+ * Maps queue positions to the windows of the timeline that ExoPlayer plays a queue with. Without
+ * repeat all, every song in the queue has exactly one window. With repeat all, the queue is
+ * wrapped in a looping source whose timeline repeats the queue, so each song appears in several
+ * windows and moving to an adjacent song means moving to an adjacent window.
+ */
+final class QueueWindows {
+
+    /**
+     * This class is never instantiated
+     */
+    private QueueWindows() {
+    }
+
+    /**
+     * @return The index in the queue of the song played in a window
+     */
+    static int toQueueIndex(int window, int queueSize) {
+        return window % queueSize;
+    }
+
+    /**
+     * @param currentWindow The window that is currently playing
+     * @param queueIndex The index of the current song in the queue
+     * @param queueSize The number of songs in the queue. Must be at least 1.
+     * @param repeatAll Whether the timeline loops the queue
+     * @return The window to seek to in order to skip to the next song. The queue wraps around to
+     *         its first song after the last one.
+     */
+    static int getNextWindow(int currentWindow, int queueIndex, int queueSize,
+                             boolean repeatAll) {
+        if (repeatAll) {
+            // Seeking forward in the looping timeline lets ExoPlayer reuse anything it has
+            // already loaded for the next song
+            return currentWindow + 1;
+        }
+        return (queueIndex + 1) % queueSize;
+    }
+
+    /**
+     * @param currentWindow The window that is currently playing
+     * @param queueIndex The index of the current song in the queue
+     * @param queueSize The number of songs in the queue. Must be at least 1.
+     * @param repeatAll Whether the timeline loops the queue
+     * @return The window to seek to in order to skip to the previous song. The queue wraps around
+     *         to its last song before the first one.
+     */
+    static int getPreviousWindow(int currentWindow, int queueIndex, int queueSize,
+                                 boolean repeatAll) {
+        if (repeatAll && currentWindow > 0) {
+            return currentWindow - 1;
+        }
+        return (queueIndex - 1 + queueSize) % queueSize;
+    }
+}
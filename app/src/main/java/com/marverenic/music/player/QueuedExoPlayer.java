@@ -7,6 +7,7 @@ import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.DefaultLoadControl;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.ExoPlayer;
@@ -24,11 +25,14 @@ import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
 import com.google.android.exoplayer2.trackselection.TrackSelector;
 import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
 import com.google.android.exoplayer2.upstream.FileDataSourceFactory;
+import com.marverenic.music.data.annotations.BufferProfile;
 import com.marverenic.music.instances.Song;
 import com.marverenic.music.utils.Internal;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -39,6 +43,7 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
     private Context mContext;
     private EqualizedExoPlayer mExoPlayer;
     private ExoPlayerState mState;
+    private SongPreloader mPreloader;
 
     private boolean mRepeatAll;
     private boolean mRepeatOne;
@@ -49,20 +54,30 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
     private List<Song> mQueue;
     private int mQueueIndex;
 
+    private float mVolume;
+    private float mTrackGain;
+
     static {
         AudioTrack.enablePreV21AudioSessionWorkaround = true;
     }
 
-    public QueuedExoPlayer(Context context) {
+    /**
+     * @param context A Context used to create the player
+     * @param bufferProfile How much media the player should load ahead of the playback position.
+     *                      This can't be changed after the player is created.
+     */
+    public QueuedExoPlayer(Context context, @BufferProfile int bufferProfile) {
         mContext = context;
         mState = ExoPlayerState.IDLE;
+        mVolume = 1f;
+        mTrackGain = 1f;
 
         TrackSelector trackSelector = new DefaultTrackSelector(new Handler());
-        LoadControl loadControl = new DefaultLoadControl();
+        LoadControl loadControl = createLoadControl(bufferProfile);
         SimpleExoPlayer baseInstance = ExoPlayerFactory.newSimpleInstance(mContext,
                 trackSelector, loadControl);
         mExoPlayer = new EqualizedExoPlayer(context, baseInstance);
-
+        mPreloader = new SongPreloader(new DefaultExtractorsFactory());
 
         mExoPlayer.addListener(new ExoPlayer.EventListener() {
             @Override
@@ -96,6 +111,29 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
         });
     }
 
+    /**
+     * Creates a LoadControl for a buffer profile. ExoPlayer's default buffer durations are meant
+     * for streaming over a network, but every song played by Jockey is read from a local file,
+     * so much less media has to be kept in memory to avoid running out of buffered data.
+     */
+    static LoadControl createLoadControl(@BufferProfile int bufferProfile) {
+        DefaultAllocator allocator = new DefaultAllocator(C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+        switch (bufferProfile) {
+            case BufferProfile.LOW_MEMORY:
+                // Keep a few seconds of audio in memory, and start playing as soon as a short
+                // buffer has been loaded
+                return new DefaultLoadControl(allocator, 2500, 5000, 500, 1000);
+            case BufferProfile.FAST_START:
+                // Start playing as soon as any audio is available. Local files can be read much
+                // faster than they're played, so the rest of the buffer fills up quickly
+                return new DefaultLoadControl(allocator, 10000, 20000, 100, 500);
+            case BufferProfile.STANDARD:
+            default:
+                return new DefaultLoadControl(allocator);
+        }
+    }
+
     @Internal void onPlayerStateChanged(int playbackState) {
         if (mState != ExoPlayerState.ENDED && playbackState == ExoPlayer.STATE_ENDED) {
             mExoPlayer.setPlayWhenReady(false);
@@ -114,6 +152,33 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
         if (mEventListener != null) {
             mEventListener.onSongStart();
         }
+        preloadAdjacentSongs();
+    }
+
+    /**
+     * Reads the beginning of the songs before and after the current song, so that they can start
+     * playing right away if the user skips to them
+     */
+    private void preloadAdjacentSongs() {
+        if (mQueue == null || mQueue.size() <= 1) {
+            mPreloader.cancel();
+            return;
+        }
+
+        List<Song> adjacentSongs = new ArrayList<>(2);
+        int size = mQueue.size();
+
+        if (mQueueIndex + 1 < size || mRepeatAll) {
+            adjacentSongs.add(mQueue.get((mQueueIndex + 1) % size));
+        }
+        if (mQueueIndex > 0 || mRepeatAll) {
+            Song previous = mQueue.get((mQueueIndex - 1 + size) % size);
+            if (!adjacentSongs.contains(previous)) {
+                adjacentSongs.add(previous);
+            }
+        }
+
+        mPreloader.preload(adjacentSongs);
     }
 
     @Internal void onTimelineChanged() {
@@ -191,13 +256,11 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
     public void setQueueIndex(int index) {
         if (index == mQueueIndex) {
             seekTo(0);
-        } else {
+        } else if (mRepeatOne) {
             mQueueIndex = index;
-            if (mRepeatOne) {
-                prepare(true, true);
-            } else {
-                mExoPlayer.seekTo(index, 0);
-            }
+            prepare(true, true);
+        } else {
+            seekToWindow(index);
         }
     }
 
@@ -217,76 +280,86 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
             return;
         }
 
+        int startingPosition = resetPosition ? 0 : getCurrentPosition();
+
+        mExoPlayer.prepare(buildMediaSource(mQueue, mQueueIndex, mRepeatOne, mRepeatAll));
+        mExoPlayer.seekTo(mQueueIndex, startingPosition);
+        mExoPlayer.setPlayWhenReady(playWhenReady);
+    }
+
+    /**
+     * Builds a MediaSource that plays a queue of songs. Songs in the queue are concatenated so
+     * that ExoPlayer can move between them without any gaps.
+     * @param queue The songs to play
+     * @param queueIndex The index of the song to loop if {@code repeatOne} is {@code true}
+     * @param repeatOne Whether to loop the song at {@code queueIndex} instead of playing the queue
+     * @param repeatAll Whether to loop the entire queue
+     */
+    static MediaSource buildMediaSource(List<Song> queue, int queueIndex, boolean repeatOne,
+                                        boolean repeatAll) {
         DataSource.Factory srcFactory = new FileDataSourceFactory();
         ExtractorsFactory extFactory = new DefaultExtractorsFactory();
 
-        int startingPosition = resetPosition ? 0 : getCurrentPosition();
-
-        if (mRepeatOne) {
-            mExoPlayer.prepare(buildRepeatOneMediaSource(srcFactory, extFactory));
-        } else if (mRepeatAll) {
-            mExoPlayer.prepare(buildRepeatAllMediaSource(srcFactory, extFactory));
+        if (repeatOne) {
+            return buildRepeatOneMediaSource(queue.get(queueIndex), srcFactory, extFactory);
+        } else if (repeatAll) {
+            return buildRepeatAllMediaSource(queue, srcFactory, extFactory);
         } else {
-            mExoPlayer.prepare(buildNoRepeatMediaSource(srcFactory, extFactory));
+            return buildNoRepeatMediaSource(queue, srcFactory, extFactory);
         }
-
-        mExoPlayer.seekTo(mQueueIndex, startingPosition);
-        mExoPlayer.setPlayWhenReady(playWhenReady);
     }
 
-    private MediaSource buildRepeatOneMediaSource(DataSource.Factory srcFactory,
-                                                  ExtractorsFactory extFactory) {
+    private static MediaSource buildRepeatOneMediaSource(Song song,
+                                                         DataSource.Factory srcFactory,
+                                                         ExtractorsFactory extFactory) {
 
-        Uri uri = Uri.fromFile(new File(mQueue.get(mQueueIndex).getLocation()));
+        Uri uri = Uri.fromFile(new File(song.getLocation()));
         MediaSource source = new ExtractorMediaSource(uri, srcFactory, extFactory, null, null);
         return new LoopingMediaSource(source);
     }
 
-    private MediaSource buildNoRepeatMediaSource(DataSource.Factory srcFactory,
-                                                 ExtractorsFactory extFactory) {
+    private static MediaSource buildNoRepeatMediaSource(List<Song> songs,
+                                                        DataSource.Factory srcFactory,
+                                                        ExtractorsFactory extFactory) {
 
-        MediaSource[] queue = new MediaSource[mQueue.size()];
+        MediaSource[] queue = new MediaSource[songs.size()];
 
         for (int i = 0; i < queue.length; i++) {
-            Uri uri = Uri.fromFile(new File(mQueue.get(i).getLocation()));
+            Uri uri = Uri.fromFile(new File(songs.get(i).getLocation()));
             queue[i] = new ExtractorMediaSource(uri, srcFactory, extFactory, null, null);
         }
 
         return new ConcatenatingMediaSource(queue);
     }
 
-    private MediaSource buildRepeatAllMediaSource(DataSource.Factory sourceFactory,
-                                                  ExtractorsFactory extractorsFactory) {
+    private static MediaSource buildRepeatAllMediaSource(List<Song> songs,
+                                                         DataSource.Factory sourceFactory,
+                                                         ExtractorsFactory extractorsFactory) {
 
-        MediaSource queue = buildNoRepeatMediaSource(sourceFactory, extractorsFactory);
+        MediaSource queue = buildNoRepeatMediaSource(songs, sourceFactory, extractorsFactory);
         return new LoopingMediaSource(queue);
     }
 
     @Override
     public void skip() {
-        mQueueIndex++;
-        mQueueIndex %= mQueue.size();
-
-        if (mRepeatAll) {
-            prepare(true, true);
-        } else {
-            mExoPlayer.seekTo(mQueueIndex, 0);
-        }
+        seekToWindow(QueueWindows.getNextWindow(mExoPlayer.getCurrentWindowIndex(), mQueueIndex,
+                mQueue.size(), mRepeatAll));
     }
 
     @Override
     public void skipPrevious() {
-        mQueueIndex--;
-        mQueueIndex %= mQueue.size();
-        if (mQueueIndex < 0) {
-            mQueueIndex += mQueue.size();
-        }
+        seekToWindow(QueueWindows.getPreviousWindow(mExoPlayer.getCurrentWindowIndex(),
+                mQueueIndex, mQueue.size(), mRepeatAll));
+    }
 
-        if (mRepeatAll) {
-            prepare(true, true);
-        } else {
-            mExoPlayer.seekTo(mQueueIndex, 0);
-        }
+    /**
+     * Starts playing a different song in the current timeline. The queue index is updated before
+     * ExoPlayer reports the position discontinuity, so the new song is reported as started here.
+     */
+    private void seekToWindow(int window) {
+        mQueueIndex = QueueWindows.toQueueIndex(window, mQueue.size());
+        mExoPlayer.seekTo(window, 0);
+        onStart();
     }
 
     @Override
@@ -347,7 +420,14 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
 
     @Override
     public void setVolume(float volume) {
-        mExoPlayer.setVolume(volume);
+        mVolume = volume;
+        mExoPlayer.setVolume(mVolume * mTrackGain);
+    }
+
+    @Override
+    public void setTrackGain(float gain) {
+        mTrackGain = gain;
+        mExoPlayer.setVolume(mVolume * mTrackGain);
     }
 
     @Override
@@ -396,6 +476,7 @@ public class QueuedExoPlayer implements QueuedMediaPlayer {
 
     @Override
     public void release() {
+        mPreloader.cancel();
         mExoPlayer.release();
         mExoPlayer = null;
         mContext = null;
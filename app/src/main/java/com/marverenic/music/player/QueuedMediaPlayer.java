@@ -56,6 +56,8 @@ public interface QueuedMediaPlayer {
 
     void setVolume(float volume);
 
+    void setTrackGain(float gain);
+
     void setEqualizer(boolean enabled, Equalizer.Settings settings);
 
     void enableRepeatAll();
@@ -0,0 +1,143 @@
+package com.marverenic.music.player;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.extractor.DefaultExtractorInput;
+import com.google.android.exoplayer2.extractor.Extractor;
+import com.google.android.exoplayer2.extractor.ExtractorInput;
+import com.google.android.exoplayer2.extractor.ExtractorsFactory;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.FileDataSource;
+import com.marverenic.music.instances.Song;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Reads the beginning of songs that are likely to be played next on a background thread, so that
+ * skipping to them doesn't have to wait on storage. Each file is opened and sniffed by the same
+ * extractors that ExoPlayer uses, and its first few hundred kilobytes are read. When the player
+ * opens the file, these reads are served from the OS's page cache instead of from slow storage
+ * like an SD card.
+ */
+class SongPreloader {
+
+    /**
+     * The number of bytes to read from the beginning of each file, after it's been sniffed
+     */
+    private static final int WARM_UP_BYTES = 256 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ExtractorsFactory mExtractorsFactory;
+
+    private List<String> mLocations;
+    private Subscription mSubscription;
+
+    SongPreloader(ExtractorsFactory extractorsFactory) {
+        mExtractorsFactory = extractorsFactory;
+        mLocations = Collections.emptyList();
+    }
+
+    /**
+     * Starts reading the beginning of several songs in the background. Any songs that were
+     * still being read from a previous call are skipped.
+     * @param songs The songs to read, in the order they should be read in
+     */
+    void preload(List<Song> songs) {
+        List<String> locations = new ArrayList<>(songs.size());
+        for (Song song : songs) {
+            locations.add(song.getLocation());
+        }
+
+        if (locations.equals(mLocations)) {
+            return;
+        }
+
+        cancel();
+        mLocations = locations;
+        mSubscription = Observable.from(locations)
+                .subscribeOn(Schedulers.io())
+                .map(this::warmUp)
+                .subscribe(
+                        warmedUp -> {},
+                        throwable -> Timber.w(throwable, "Failed to preload songs"));
+    }
+
+    /**
+     * Stops reading songs that haven't been preloaded yet
+     */
+    void cancel() {
+        if (mSubscription != null) {
+            mSubscription.unsubscribe();
+            mSubscription = null;
+        }
+        mLocations = Collections.emptyList();
+    }
+
+    /**
+     * @return Whether the file at this location could be read
+     */
+    private boolean warmUp(String location) {
+        FileDataSource source = new FileDataSource();
+
+        try {
+            long length = source.open(new DataSpec(Uri.fromFile(new File(location))));
+            ExtractorInput input = new DefaultExtractorInput(source, 0, length);
+
+            sniff(input);
+            input.resetPeekPosition();
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int bytesRead = 0;
+            while (bytesRead < WARM_UP_BYTES) {
+                int result = input.read(buffer, 0, buffer.length);
+                if (result == C.RESULT_END_OF_INPUT) {
+                    break;
+                }
+                bytesRead += result;
+            }
+
+            return true;
+        } catch (IOException e) {
+            Timber.w(e, "Failed to preload %s", location);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                Timber.w(e, "Failed to close %s", location);
+            }
+        }
+    }
+
+    /**
+     * Sniffs a file with each extractor until one of them recognizes it. This reads the same
+     * headers that ExoPlayer reads when it starts to play the file.
+     */
+    private void sniff(ExtractorInput input) throws IOException, InterruptedException {
+        for (Extractor extractor : mExtractorsFactory.createExtractors()) {
+            try {
+                if (extractor.sniff(input)) {
+                    return;
+                }
+            } catch (EOFException e) {
+                // The file is shorter than this extractor expected, so it doesn't recognize it
+            } finally {
+                input.resetPeekPosition();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.marverenic.music.utils;
+
+/**
+ * A set of primitive longs backed by an open-addressed hash table. Unlike a
+ * {@link java.util.HashSet} of {@link Long}s, adding a value doesn't allocate a boxed Long or a
+ * map entry, which keeps large sets of ids compact and cheap to look up.
+ *
+ * This class is not thread safe.
+ */
+public final class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Marks empty slots in the table. Since 0 can't be stored in the table, whether it's in the
+     * set is tracked separately.
+     */
+    private static final long EMPTY = 0;
+
+    private long[] mTable;
+    private int mSize;
+    private boolean mContainsEmpty;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of values this set is expected to hold. The set will grow if
+     *                     more values are added.
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        mTable = new long[capacity];
+    }
+
+    /**
+     * @return true if the value was added, or false if it was already in this set
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (mContainsEmpty) {
+                return false;
+            }
+            mContainsEmpty = true;
+            mSize++;
+            return true;
+        }
+
+        if (insert(mTable, value)) {
+            mSize++;
+            if (mSize > mTable.length * LOAD_FACTOR) {
+                grow();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return mContainsEmpty;
+        }
+
+        int mask = mTable.length - 1;
+        for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+            long slot = mTable[i];
+            if (slot == value) {
+                return true;
+            } else if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    private void grow() {
+        long[] table = new long[mTable.length * 2];
+        for (long value : mTable) {
+            if (value != EMPTY) {
+                insert(table, value);
+            }
+        }
+        mTable = table;
+    }
+
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+            long slot = table[i];
+            if (slot == value) {
+                return false;
+            } else if (slot == EMPTY) {
+                table[i] = value;
+                return true;
+            }
+        }
+    }
+
+    private static int hash(long value) {
+        // Fibonacci hashing spreads sequential ids across the table instead of filling it in runs
+        int hash = (int) (value ^ (value >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -5,20 +5,13 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.media.MediaMetadataRetriever;
 import android.media.audiofx.AudioEffect;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Build;
 
-import com.marverenic.music.instances.Song;
-
 import java.util.UUID;
 
-import timber.log.Timber;
-
 import static android.content.Context.CONNECTIVITY_SERVICE;
 
 public final class Util {
@@ -117,24 +110,4 @@ public final class Util {
         }
         return false;
     }
-
-    public static Bitmap fetchFullArt(Song song) {
-        if (song == null) {
-            return null;
-        }
-
-        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-
-        try {
-            retriever.setDataSource(song.getLocation());
-            byte[] stream = retriever.getEmbeddedPicture();
-            if (stream != null) {
-                return BitmapFactory.decodeByteArray(stream, 0, stream.length);
-            }
-        } catch (Exception e) {
-            Timber.e(e, "Failed to load full song artwork");
-        }
-        return null;
-    }
-
 }
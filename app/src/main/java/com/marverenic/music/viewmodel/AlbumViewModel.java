@@ -19,26 +19,24 @@ import android.view.View;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.drawable.GlideDrawable;
-import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
-import com.bumptech.glide.request.target.Target;
 import com.marverenic.music.JockeyApplication;
 import com.marverenic.music.R;
 import com.marverenic.music.activity.instance.AlbumActivity;
 import com.marverenic.music.activity.instance.ArtistActivity;
 import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PaletteStore;
 import com.marverenic.music.dialog.AppendPlaylistDialogFragment;
 import com.marverenic.music.instances.Album;
 import com.marverenic.music.player.PlayerController;
-import com.marverenic.music.view.ViewUtils;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
 
 import javax.inject.Inject;
 
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class AlbumViewModel extends BaseObservable {
@@ -46,6 +44,7 @@ public class AlbumViewModel extends BaseObservable {
     private static final String TAG_PLAYLIST_DIALOG = "SongViewModel.PlaylistDialog";
 
     @Inject MusicStore mMusicStore;
+    @Inject PaletteStore mPaletteStore;
 
     private Context mContext;
     private FragmentManager mFragmentManager;
@@ -56,6 +55,8 @@ public class AlbumViewModel extends BaseObservable {
     private ObservableInt mArtistTextColor;
     private ObservableInt mBackgroundColor;
 
+    private Subscription mSwatchSubscription;
+
     public AlbumViewModel(Context context, FragmentManager fragmentManager) {
         mContext = context;
         mFragmentManager = fragmentManager;
@@ -73,6 +74,11 @@ public class AlbumViewModel extends BaseObservable {
 
         defaultColors();
 
+        if (mSwatchSubscription != null) {
+            mSwatchSubscription.unsubscribe();
+            mSwatchSubscription = null;
+        }
+
         if (mAlbum.getArtUri() != null) {
             int imageSize = mContext.getResources().getDimensionPixelSize(R.dimen.grid_width);
 
@@ -80,9 +86,9 @@ public class AlbumViewModel extends BaseObservable {
                     .load(new File(mAlbum.getArtUri()))
                     .placeholder(R.drawable.art_default)
                     .error(R.drawable.art_default)
-                    .listener(new PaletteListener(mTitleTextColor, mArtistTextColor,
-                            mBackgroundColor))
                     .into(new ObservableTarget(imageSize, mArtistImage));
+
+            loadSwatch();
         } else {
             Drawable fallback = ResourcesCompat.getDrawable(mContext.getResources(),
                     R.drawable.art_default, mContext.getTheme());
@@ -93,6 +99,52 @@ public class AlbumViewModel extends BaseObservable {
         notifyChange();
     }
 
+    private void loadSwatch() {
+        // Swatches that are already cached are emitted synchronously and can be applied
+        // immediately. Anything else is animated in once it has been extracted.
+        boolean[] subscribing = {true};
+
+        mSwatchSubscription = mPaletteStore.getSwatch(mAlbum)
+                .subscribe(
+                        swatch -> {
+                            if (subscribing[0]) {
+                                setSwatch(swatch);
+                            } else {
+                                animateSwatch(swatch);
+                            }
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to load swatch");
+                        });
+
+        subscribing[0] = false;
+    }
+
+    private void setSwatch(Palette.Swatch swatch) {
+        if (swatch == null) {
+            return;
+        }
+
+        mBackgroundColor.set(swatch.getRgb());
+        mTitleTextColor.set(swatch.getTitleTextColor());
+        mArtistTextColor.set(swatch.getBodyTextColor());
+    }
+
+    private void animateSwatch(Palette.Swatch swatch) {
+        if (swatch == null) {
+            return;
+        }
+
+        animateColorValue(mBackgroundColor, swatch.getRgb());
+        animateColorValue(mTitleTextColor, swatch.getTitleTextColor());
+        animateColorValue(mArtistTextColor, swatch.getBodyTextColor());
+    }
+
+    private static void animateColorValue(ObservableInt target, @ColorInt int toColor) {
+        ObjectAnimator.ofObject(target, "", new ArgbEvaluator(), target.get(), toColor)
+                .setDuration(300)
+                .start();
+    }
+
     private void defaultColors() {
         defaultColors(mContext, mTitleTextColor, mArtistTextColor, mBackgroundColor);
     }
@@ -149,40 +201,50 @@ public class AlbumViewModel extends BaseObservable {
         return menuItem -> {
             switch (menuItem.getItemId()) {
                 case R.id.menu_item_queue_item_next:
-                    mMusicStore.getSongs(mAlbum).subscribe(
-                            PlayerController::queueNext,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mAlbum)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueNext,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_queue_item_last:
-                    mMusicStore.getSongs(mAlbum).subscribe(
-                            PlayerController::queueLast,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mAlbum)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueLast,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_navigate_to_artist:
-                    mMusicStore.findArtistById(mAlbum.getArtistId()).subscribe(
-                            artist -> {
-                                mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to find artist");
-                            });
+                    mMusicStore.findArtistById(mAlbum.getArtistId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    artist -> {
+                                        mContext.startActivity(
+                                                ArtistActivity.newIntent(mContext, artist));
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to find artist");
+                                    });
 
                     return true;
                 case R.id.menu_item_add_to_playlist:
-                    mMusicStore.getSongs(mAlbum).subscribe(
-                            songs -> {
-                                new AppendPlaylistDialogFragment.Builder(mContext, mFragmentManager)
-                                        .setSongs(songs, mAlbum.getAlbumName())
-                                        .showSnackbarIn(R.id.list)
-                                        .show(TAG_PLAYLIST_DIALOG);
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mAlbum)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    songs -> {
+                                        new AppendPlaylistDialogFragment.Builder(
+                                                        mContext, mFragmentManager)
+                                                .setSongs(songs, mAlbum.getAlbumName())
+                                                .showSnackbarIn(R.id.list)
+                                                .show(TAG_PLAYLIST_DIALOG);
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
             }
@@ -235,103 +297,4 @@ public class AlbumViewModel extends BaseObservable {
             mTarget.set(resource);
         }
     }
-
-    private static class PaletteListener implements RequestListener<File, GlideDrawable> {
-
-        private static Map<File, Palette.Swatch> sColorMap;
-
-        private ObservableInt mTitleTextColor;
-        private ObservableInt mArtistTextColor;
-        private ObservableInt mBackgroundColor;
-
-        static {
-            sColorMap = new HashMap<>();
-        }
-
-        public PaletteListener(ObservableInt title, ObservableInt artist,
-                               ObservableInt background) {
-            mTitleTextColor = title;
-            mArtistTextColor = artist;
-            mBackgroundColor = background;
-        }
-
-        @Override
-        public boolean onException(Exception e, File model, Target<GlideDrawable> target,
-                                   boolean isFirstResource) {
-            return false;
-        }
-
-        @Override
-        public boolean onResourceReady(GlideDrawable resource, File model,
-                                       Target<GlideDrawable> target, boolean isFromMemoryCache,
-                                       boolean isFirstResource) {
-
-            if (sColorMap.containsKey(model)) {
-                Palette.Swatch swatch = sColorMap.get(model);
-                if (isFromMemoryCache) {
-                    setSwatch(swatch);
-                } else {
-                    animateSwatch(swatch);
-                }
-            } else {
-                generateSwatch(model, resource);
-            }
-
-            return false;
-        }
-
-        private void generateSwatch(File source, Drawable image) {
-            Palette.from(ViewUtils.drawableToBitmap(image)).generate(palette -> {
-                Palette.Swatch swatch = pickSwatch(palette);
-
-                sColorMap.put(source, swatch);
-                animateSwatch(swatch);
-            });
-        }
-
-        private void setSwatch(Palette.Swatch swatch) {
-            if (swatch == null) {
-                return;
-            }
-
-            mBackgroundColor.set(swatch.getRgb());
-            mTitleTextColor.set(swatch.getTitleTextColor());
-            mArtistTextColor.set(swatch.getBodyTextColor());
-        }
-
-        private void animateSwatch(Palette.Swatch swatch) {
-            if (swatch == null) {
-                return;
-            }
-
-            animateColorValue(mBackgroundColor, swatch.getRgb());
-            animateColorValue(mTitleTextColor, swatch.getTitleTextColor());
-            animateColorValue(mArtistTextColor, swatch.getBodyTextColor());
-        }
-
-        private void animateColorValue(ObservableInt target, @ColorInt int toColor) {
-            ObjectAnimator.ofObject(target, "", new ArgbEvaluator(), target.get(), toColor)
-                    .setDuration(300)
-                    .start();
-        }
-
-        private Palette.Swatch pickSwatch(Palette palette) {
-            if (palette.getVibrantSwatch() != null) {
-                return palette.getVibrantSwatch();
-            }
-            if (palette.getLightVibrantSwatch() != null) {
-                return palette.getLightVibrantSwatch();
-            }
-            if (palette.getDarkVibrantSwatch() != null) {
-                return palette.getDarkVibrantSwatch();
-            }
-            if (palette.getLightMutedSwatch() != null) {
-                return palette.getLightMutedSwatch();
-            }
-            if (palette.getDarkMutedSwatch() != null) {
-                return palette.getDarkMutedSwatch();
-            }
-            return null;
-        }
-    }
 }
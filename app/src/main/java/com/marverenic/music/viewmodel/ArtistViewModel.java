@@ -17,6 +17,7 @@ import com.marverenic.music.player.PlayerController;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class ArtistViewModel extends BaseObservable {
@@ -62,31 +63,38 @@ public class ArtistViewModel extends BaseObservable {
         return menuItem -> {
             switch (menuItem.getItemId()) {
                 case R.id.menu_item_queue_item_next:
-                    mMusicStore.getSongs(mArtist).subscribe(
-                            PlayerController::queueNext,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mArtist)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueNext,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_queue_item_last:
-                    mMusicStore.getSongs(mArtist).subscribe(
-                            PlayerController::queueLast,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mArtist)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueLast,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_add_to_playlist:
-                    mMusicStore.getSongs(mArtist).subscribe(
-                            songs -> {
-                                new AppendPlaylistDialogFragment.Builder(mContext, mFragmentManager)
-                                        .setSongs(songs, mArtist.getArtistName())
-                                        .showSnackbarIn(R.id.list)
-                                        .show(TAG_PLAYLIST_DIALOG);
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mArtist)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    songs -> {
+                                        new AppendPlaylistDialogFragment.Builder(
+                                                        mContext, mFragmentManager)
+                                                .setSongs(songs, mArtist.getArtistName())
+                                                .showSnackbarIn(R.id.list)
+                                                .show(TAG_PLAYLIST_DIALOG);
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
             }
@@ -17,6 +17,7 @@ import com.marverenic.music.player.PlayerController;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class GenreViewModel extends BaseObservable {
@@ -62,31 +63,38 @@ public class GenreViewModel extends BaseObservable {
         return menuItem -> {
             switch (menuItem.getItemId()) {
                 case R.id.menu_item_queue_item_next:
-                    mMusicStore.getSongs(mGenre).subscribe(
-                            PlayerController::queueNext,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mGenre)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueNext,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_queue_item_last:
-                    mMusicStore.getSongs(mGenre).subscribe(
-                            PlayerController::queueLast,
-                            throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mGenre)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    PlayerController::queueLast,
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
                 case R.id.menu_item_add_to_playlist:
-                    mMusicStore.getSongs(mGenre).subscribe(
-                            songs -> {
-                                new AppendPlaylistDialogFragment.Builder(mContext, mFragmentManager)
-                                        .setSongs(songs, mGenre.getGenreName())
-                                        .showSnackbarIn(R.id.list)
-                                        .show(TAG_PLAYLIST_DIALOG);
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to get songs");
-                            });
+                    mMusicStore.getSongs(mGenre)
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    songs -> {
+                                        new AppendPlaylistDialogFragment.Builder(
+                                                        mContext, mFragmentManager)
+                                                .setSongs(songs, mGenre.getGenreName())
+                                                .showSnackbarIn(R.id.list)
+                                                .show(TAG_PLAYLIST_DIALOG);
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to get songs");
+                                    });
 
                     return true;
             }
@@ -34,6 +34,8 @@ public class MiniplayerViewModel extends BaseObservable {
 
     @Nullable
     private Song mSong;
+    @Nullable
+    private Bitmap mArtwork;
     private boolean mPlaying;
     private boolean mAnimateSlideInOut;
 
@@ -57,7 +59,6 @@ public class MiniplayerViewModel extends BaseObservable {
         notifyPropertyChanged(BR.songTitle);
         notifyPropertyChanged(BR.songArtist);
         notifyPropertyChanged(BR.songDuration);
-        notifyPropertyChanged(BR.artwork);
 
         if (mAnimateSlideInOut) {
             animateTranslation();
@@ -85,6 +86,11 @@ public class MiniplayerViewModel extends BaseObservable {
         slideAnimation.start();
     }
 
+    public void setArtwork(@Nullable Bitmap artwork) {
+        mArtwork = artwork;
+        notifyPropertyChanged(BR.artwork);
+    }
+
     public void setPlaying(boolean playing) {
         mPlaying = playing;
         notifyPropertyChanged(BR.togglePlayIcon);
@@ -139,12 +145,11 @@ public class MiniplayerViewModel extends BaseObservable {
 
     @Bindable
     public Bitmap getArtwork() {
-        Bitmap art = PlayerController.getArtwork();
-        if (art == null) {
+        if (mArtwork == null) {
             Drawable defaultArt = ContextCompat.getDrawable(mContext, R.drawable.art_default);
             return ViewUtils.drawableToBitmap(defaultArt);
         } else {
-            return art;
+            return mArtwork;
         }
     }
 
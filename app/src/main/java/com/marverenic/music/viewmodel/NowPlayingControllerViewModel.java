@@ -37,6 +37,7 @@ import javax.inject.Inject;
 
 import rx.Observable;
 import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
@@ -254,23 +255,29 @@ public class NowPlayingControllerViewModel extends BaseObservable {
         return item -> {
             switch (item.getItemId()) {
                 case R.id.menu_item_navigate_to_artist:
-                    mMusicStore.findArtistById(song.getArtistId()).subscribe(
-                            artist -> {
-                                mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
-                            },
-                            throwable -> {
-                                Timber.e(throwable, "Failed to find artist");
-                            });
+                    mMusicStore.findArtistById(song.getArtistId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    artist -> {
+                                        mContext.startActivity(
+                                                ArtistActivity.newIntent(mContext, artist));
+                                    },
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to find artist");
+                                    });
 
                     return true;
                 case R.id.menu_item_navigate_to_album:
-                    mMusicStore.findAlbumById(song.getAlbumId()).subscribe(
-                            album -> {
-                                mContext.startActivity(AlbumActivity.newIntent(mContext, album));
-                            },
-                            throwable -> {
-                                Timber.e(throwable, "Failed to find album");
-                            });
+                    mMusicStore.findAlbumById(song.getAlbumId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    album -> {
+                                        mContext.startActivity(
+                                                AlbumActivity.newIntent(mContext, album));
+                                    },
+                                    throwable -> {
+                                        Timber.e(throwable, "Failed to find album");
+                                    });
 
                     return true;
                 case R.id.menu_item_add_to_playlist:
@@ -285,24 +292,15 @@ public class NowPlayingControllerViewModel extends BaseObservable {
     }
 
     public View.OnClickListener onSkipNextClick() {
-        return v -> {
-            PlayerController.skip();
-            setSong(PlayerController.getNowPlaying());
-        };
+        return v -> PlayerController.skip();
     }
 
     public View.OnClickListener onSkipBackClick() {
-        return v -> {
-            PlayerController.previous();
-            setSong(PlayerController.getNowPlaying());
-        };
+        return v -> PlayerController.previous();
     }
 
     public View.OnClickListener onTogglePlayClick() {
-        return v -> {
-            PlayerController.togglePlay();
-            setPlaying(PlayerController.isPlaying());
-        };
+        return v -> PlayerController.togglePlay();
     }
 
     public OnSeekBarChangeListener onSeek() {
@@ -15,6 +15,7 @@ import com.marverenic.music.player.PlayerController;
 
 import java.util.List;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class PlaylistSongViewModel extends SongViewModel {
@@ -53,21 +54,27 @@ public class PlaylistSongViewModel extends SongViewModel {
                     PlayerController.queueLast(getReference());
                     return true;
                 case R.id.menu_item_navigate_to_artist:
-                    mMusicStore.findArtistById(getReference().getArtistId()).subscribe(
-                            artist -> {
-                                mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to find artist");
-                            });
+                    mMusicStore.findArtistById(getReference().getArtistId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    artist -> {
+                                        mContext.startActivity(
+                                                ArtistActivity.newIntent(mContext, artist));
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to find artist");
+                                    });
 
                     return true;
                 case R.id.menu_item_navigate_to_album:
-                    mMusicStore.findAlbumById(getReference().getAlbumId()).subscribe(
-                            album -> {
-                                mContext.startActivity(AlbumActivity.newIntent(mContext, album));
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to find album");
-                            });
+                    mMusicStore.findAlbumById(getReference().getAlbumId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    album -> {
+                                        mContext.startActivity(
+                                                AlbumActivity.newIntent(mContext, album));
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to find album");
+                                    });
 
                     return true;
                 case R.id.menu_item_remove:
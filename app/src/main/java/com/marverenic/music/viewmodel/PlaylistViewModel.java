@@ -20,6 +20,7 @@ import com.marverenic.music.player.PlayerController;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 import static android.support.design.widget.Snackbar.LENGTH_LONG;
@@ -104,19 +105,23 @@ public class PlaylistViewModel extends BaseObservable {
     }
 
     private void queuePlaylistNext() {
-        mPlaylistStore.getSongs(mPlaylist).subscribe(
-                PlayerController::queueNext,
-                throwable -> {
-                    Timber.e(throwable, "Failed to get songs");
-                });
+        mPlaylistStore.getSongs(mPlaylist)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        PlayerController::queueNext,
+                        throwable -> {
+                            Timber.e(throwable, "Failed to get songs");
+                        });
     }
 
     private void queuePlaylistLast() {
-        mPlaylistStore.getSongs(mPlaylist).subscribe(
-                PlayerController::queueLast,
-                throwable -> {
-                    Timber.e(throwable, "Failed to get songs");
-                });
+        mPlaylistStore.getSongs(mPlaylist)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        PlayerController::queueLast,
+                        throwable -> {
+                            Timber.e(throwable, "Failed to get songs");
+                        });
     }
 
     private void editThisAsAutoPlaylist() {
@@ -131,6 +136,7 @@ public class PlaylistViewModel extends BaseObservable {
         String message = mContext.getString(R.string.message_removed_playlist, playlistName);
 
         mPlaylistStore.getSongs(removed)
+                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(originalContents -> {
                     mPlaylistStore.removePlaylist(removed);
 
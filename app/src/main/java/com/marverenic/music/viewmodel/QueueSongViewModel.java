@@ -13,9 +13,11 @@ import com.marverenic.music.activity.instance.ArtistActivity;
 import com.marverenic.music.dialog.AppendPlaylistDialogFragment;
 import com.marverenic.music.instances.Song;
 import com.marverenic.music.player.PlayerController;
+import com.marverenic.music.player.PlayerController.QueueRemoval;
 
 import java.util.List;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 import static android.support.design.widget.Snackbar.LENGTH_LONG;
@@ -84,21 +86,25 @@ public class QueueSongViewModel extends SongViewModel {
     }
 
     private void navigateToArtist() {
-        mMusicStore.findArtistById(getReference().getArtistId()).subscribe(
-                artist -> {
-                    mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
-                }, throwable -> {
-                    Timber.e(throwable, "Failed to find artist");
-                });
+        mMusicStore.findArtistById(getReference().getArtistId())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        artist -> {
+                            mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to find artist");
+                        });
     }
 
     private void navigateToAlbum() {
-        mMusicStore.findAlbumById(getReference().getAlbumId()).subscribe(
-                album -> {
-                    mContext.startActivity(AlbumActivity.newIntent(mContext, album));
-                }, throwable -> {
-                    Timber.e(throwable, "Failed to find album");
-                });
+        mMusicStore.findAlbumById(getReference().getAlbumId())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        album -> {
+                            mContext.startActivity(AlbumActivity.newIntent(mContext, album));
+                        }, throwable -> {
+                            Timber.e(throwable, "Failed to find album");
+                        });
     }
 
     private void addToPlaylist() {
@@ -111,22 +117,10 @@ public class QueueSongViewModel extends SongViewModel {
     }
 
     private void removeFromQueue(View snackbarContainer) {
-        int oldQueuePosition = PlayerController.getQueuePosition();
         int itemPosition = getIndex();
 
         getSongs().remove(itemPosition);
-
-        int newQueuePosition = (oldQueuePosition > itemPosition)
-                ? oldQueuePosition - 1
-                : oldQueuePosition;
-
-        newQueuePosition = Math.min(newQueuePosition, getSongs().size() - 1);
-
-        PlayerController.editQueue(getSongs(), newQueuePosition);
-
-        if (oldQueuePosition == itemPosition) {
-            PlayerController.begin();
-        }
+        QueueRemoval removal = PlayerController.removeFromQueue(getSongs(), itemPosition);
 
         mRemoveListener.onRemove();
 
@@ -136,10 +130,7 @@ public class QueueSongViewModel extends SongViewModel {
         Snackbar.make(snackbarContainer, message, LENGTH_LONG)
                 .setAction(R.string.action_undo, v -> {
                     getSongs().add(itemPosition, removed);
-                    PlayerController.editQueue(getSongs(), oldQueuePosition);
-                    if (oldQueuePosition == itemPosition) {
-                        PlayerController.begin();
-                    }
+                    PlayerController.restoreToQueue(getSongs(), removal);
                     mRemoveListener.onRemove();
                 })
                 .show();
@@ -22,6 +22,7 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import rx.android.schedulers.AndroidSchedulers;
 import timber.log.Timber;
 
 public class SongViewModel extends BaseObservable {
@@ -109,21 +110,27 @@ public class SongViewModel extends BaseObservable {
                     PlayerController.queueLast(mReference);
                     return true;
                 case R.id.menu_item_navigate_to_artist:
-                    mMusicStore.findArtistById(mReference.getArtistId()).subscribe(
-                            artist -> {
-                                mContext.startActivity(ArtistActivity.newIntent(mContext, artist));
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to find artist");
-                            });
+                    mMusicStore.findArtistById(mReference.getArtistId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    artist -> {
+                                        mContext.startActivity(
+                                                ArtistActivity.newIntent(mContext, artist));
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to find artist");
+                                    });
 
                     return true;
                 case R.id.menu_item_navigate_to_album:
-                    mMusicStore.findAlbumById(mReference.getAlbumId()).subscribe(
-                            album -> {
-                                mContext.startActivity(AlbumActivity.newIntent(mContext, album));
-                            }, throwable -> {
-                                Timber.e(throwable, "Failed to find album", throwable);
-                            });
+                    mMusicStore.findAlbumById(mReference.getAlbumId())
+                            .observeOn(AndroidSchedulers.mainThread())
+                            .subscribe(
+                                    album -> {
+                                        mContext.startActivity(
+                                                AlbumActivity.newIntent(mContext, album));
+                                    }, throwable -> {
+                                        Timber.e(throwable, "Failed to find album", throwable);
+                                    });
                     return true;
                 case R.id.menu_item_add_to_playlist:
                     new AppendPlaylistDialogFragment.Builder(mContext, mFragmentManager)
@@ -0,0 +1,95 @@
+package com.marverenic.music.benchmark;
+
+import java.util.Locale;
+
+/**
+ * A minimal microbenchmark runner modeled after JMH. Each benchmark is warmed up for a fixed
+ * amount of time so that the JIT has compiled its hot paths, and is then measured over several
+ * timed iterations. Results are reported as the average time per operation along with the
+ * standard deviation between iterations.
+ *
+ * Benchmarks are skipped unless the {@code jockey.benchmark} system property is set, which is
+ * done by running the unit tests with {@code ./gradlew testDebugUnitTest -Pbenchmark}.
+ */
+public final class Benchmark {
+
+    private static final String ENABLED_PROPERTY = "jockey.benchmark";
+
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    /**
+     * Results of each operation are written here so that the JIT can't eliminate work whose
+     * result is never used
+     */
+    private static volatile Object sBlackhole;
+
+    /**
+     * This class is never instantiated
+     */
+    private Benchmark() {
+    }
+
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Runs a benchmark and prints its results to standard out
+     * @param name A name to report the results under
+     * @param operation The operation to measure
+     * @return The average time of one operation in nanoseconds
+     */
+    public static double run(String name, Operation operation) throws Exception {
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            sBlackhole = operation.run();
+        }
+
+        double[] samples = new double[MEASUREMENT_ITERATIONS];
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            samples[i] = measureIteration(operation);
+        }
+
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= samples.length;
+
+        double variance = 0;
+        for (double sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        double deviation = Math.sqrt(variance / samples.length);
+
+        System.out.println(String.format(Locale.US, "%-64s %14.3f us/op  ± %10.3f",
+                name, mean / 1000, deviation / 1000));
+
+        return mean;
+    }
+
+    /**
+     * Runs an operation repeatedly for one iteration
+     * @return The average time of one operation during this iteration in nanoseconds
+     */
+    private static double measureIteration(Operation operation) throws Exception {
+        long start = System.nanoTime();
+        long end = start + ITERATION_NANOS;
+        long now;
+        int operations = 0;
+
+        do {
+            sBlackhole = operation.run();
+            operations++;
+            now = System.nanoTime();
+        } while (now < end);
+
+        return (now - start) / (double) operations;
+    }
+}
@@ -0,0 +1,53 @@
+package com.marverenic.music.benchmark;
+
+import com.marverenic.music.data.store.FakePlayCountStore;
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares synthetic libraries between benchmarks so that each size is only generated once
+ */
+public final class BenchmarkLibraries {
+
+    /**
+     * Library sizes that benchmarks are run against, formatted for
+     * {@link org.junit.runners.Parameterized}
+     */
+    public static final Collection<Object[]> SIZES = Arrays.asList(new Object[][]{
+            {1_000}, {10_000}, {100_000}
+    });
+
+    private static final long SEED = 0x4A6F636B6579L;
+
+    private static final Map<Integer, SyntheticLibrary> sLibraries = new HashMap<>();
+    private static final Map<Integer, PlayCountStore> sPlayCounts = new HashMap<>();
+
+    /**
+     * This class is never instantiated
+     */
+    private BenchmarkLibraries() {
+    }
+
+    public static synchronized SyntheticLibrary get(int size) {
+        SyntheticLibrary library = sLibraries.get(size);
+        if (library == null) {
+            library = new SyntheticLibrary(size, SEED);
+            sLibraries.put(size, library);
+        }
+        return library;
+    }
+
+    public static synchronized PlayCountStore getPlayCounts(int size) {
+        PlayCountStore playCounts = sPlayCounts.get(size);
+        if (playCounts == null) {
+            playCounts = new FakePlayCountStore(get(size), SEED);
+            sPlayCounts.put(size, playCounts);
+        }
+        return playCounts;
+    }
+}
@@ -0,0 +1,73 @@
+package com.marverenic.music.data.store;
+
+import com.marverenic.music.instances.Album;
+import com.marverenic.music.instances.Artist;
+import com.marverenic.music.instances.Genre;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * An in-memory {@link MusicStore} backed by a {@link SyntheticLibrary}. Search methods are
+ * inherited from {@link LocalMusicStore} so that they can be benchmarked against the same data.
+ */
+public class FakeMusicStore extends LocalMusicStore {
+
+    private final SyntheticLibrary mLibrary;
+
+    public FakeMusicStore(SyntheticLibrary library) {
+        super(null, null);
+        mLibrary = library;
+    }
+
+    @Override
+    public void loadAll() {
+    }
+
+    @Override
+    public Observable<Boolean> refresh() {
+        return Observable.just(true);
+    }
+
+    @Override
+    public Observable<Boolean> isLoading() {
+        return Observable.just(false);
+    }
+
+    @Override
+    public Observable<List<Song>> getSongs() {
+        return Observable.just(mLibrary.getSongs());
+    }
+
+    @Override
+    public Observable<List<Album>> getAlbums() {
+        return Observable.just(mLibrary.getAlbums());
+    }
+
+    @Override
+    public Observable<List<Artist>> getArtists() {
+        return Observable.just(mLibrary.getArtists());
+    }
+
+    @Override
+    public Observable<List<Genre>> getGenres() {
+        return Observable.just(mLibrary.getGenres());
+    }
+
+    @Override
+    public Observable<List<Song>> getSongs(Genre genre) {
+        return Observable.just(mLibrary.getSongs(genre));
+    }
+
+    /**
+     * Selections only have to match a superset of the songs that an auto playlist's rules match,
+     * so the entire library is returned instead of evaluating SQL
+     */
+    @Override
+    public Observable<List<Song>> querySongs(String selection, String[] selectionArgs) {
+        return getSongs();
+    }
+}
@@ -0,0 +1,55 @@
+package com.marverenic.music.data.store;
+
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import java.util.Random;
+import java.util.Set;
+
+import rx.Observable;
+
+/**
+ * A {@link LocalPlayCountStore} that's never read from or written to disk. Songs in a
+ * {@link SyntheticLibrary} are given random play counts, skip counts, and play dates, with most
+ * songs having rarely or never been played.
+ */
+public class FakePlayCountStore extends LocalPlayCountStore {
+
+    private static final long FIRST_PLAY_DATE = 1451606400L; // Jan 1, 2016
+    private static final int PLAY_DATE_RANGE = 365 * 24 * 60 * 60;
+
+    public FakePlayCountStore() {
+        super(null);
+    }
+
+    public FakePlayCountStore(SyntheticLibrary library, long seed) {
+        this();
+        Random random = new Random(seed);
+
+        for (Song song : library.getSongs()) {
+            // Squaring a uniform distribution favors low play counts
+            double popularity = random.nextDouble() * random.nextDouble();
+            int plays = (int) (popularity * 200);
+
+            if (plays > 0) {
+                setPlayCount(song, plays);
+                setSkipCount(song, random.nextInt(plays / 4 + 1));
+                setPlayDate(song, FIRST_PLAY_DATE + random.nextInt(PLAY_DATE_RANGE));
+            }
+        }
+    }
+
+    @Override
+    public Observable<Void> refresh() {
+        return Observable.just(null);
+    }
+
+    @Override
+    public Observable<Set<Long>> getChangedSongIds() {
+        return Observable.never();
+    }
+
+    @Override
+    public void save() {
+    }
+}
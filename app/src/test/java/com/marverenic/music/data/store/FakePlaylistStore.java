@@ -0,0 +1,98 @@
+package com.marverenic.music.data.store;
+
+import android.support.annotation.Nullable;
+
+import com.marverenic.music.instances.AutoPlaylist;
+import com.marverenic.music.instances.Playlist;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import java.util.List;
+
+import rx.Observable;
+
+/**
+ * A read-only, in-memory {@link PlaylistStore} backed by a {@link SyntheticLibrary}
+ */
+public class FakePlaylistStore implements PlaylistStore {
+
+    private final SyntheticLibrary mLibrary;
+
+    public FakePlaylistStore(SyntheticLibrary library) {
+        mLibrary = library;
+    }
+
+    @Override
+    public void loadPlaylists() {
+    }
+
+    @Override
+    public Observable<Boolean> refresh() {
+        return Observable.just(true);
+    }
+
+    @Override
+    public Observable<Boolean> isLoading() {
+        return Observable.just(false);
+    }
+
+    @Override
+    public Observable<List<Playlist>> getPlaylists() {
+        return Observable.just(mLibrary.getPlaylists());
+    }
+
+    @Override
+    public Observable<List<Song>> getSongs(Playlist playlist) {
+        return Observable.just(mLibrary.getSongs(playlist));
+    }
+
+    @Override
+    public Observable<List<Playlist>> searchForPlaylists(String query) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String verifyPlaylistName(String playlistName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Playlist makePlaylist(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AutoPlaylist makePlaylist(AutoPlaylist model) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Playlist makePlaylist(String name, @Nullable List<Song> songs) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removePlaylist(Playlist playlist) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void editPlaylist(Playlist playlist, List<Song> newSongs) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void editPlaylist(AutoPlaylist replacementModel) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addToPlaylist(Playlist playlist, Song song) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addToPlaylist(Playlist playlist, List<Song> songs) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,65 @@
+package com.marverenic.music.data.store;
+
+import com.marverenic.music.benchmark.Benchmark;
+import com.marverenic.music.benchmark.BenchmarkLibraries;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class LocalMusicStoreBenchmark {
+
+    private final int mLibrarySize;
+    private MusicStore mMusicStore;
+
+    public LocalMusicStoreBenchmark(int librarySize) {
+        mLibrarySize = librarySize;
+    }
+
+    @Parameterized.Parameters(name = "{0} songs")
+    public static Collection<Object[]> librarySizes() {
+        return BenchmarkLibraries.SIZES;
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(Benchmark.isEnabled());
+        mMusicStore = new FakeMusicStore(BenchmarkLibraries.get(mLibrarySize));
+    }
+
+    @Test
+    public void searchForSongs() throws Exception {
+        Benchmark.run("LocalMusicStore.searchForSongs (" + mLibrarySize + " songs)",
+                () -> mMusicStore.searchForSongs("night").toBlocking().first());
+    }
+
+    @Test
+    public void searchForSongsWithoutMatches() throws Exception {
+        Benchmark.run("LocalMusicStore.searchForSongs, no matches (" + mLibrarySize + " songs)",
+                () -> mMusicStore.searchForSongs("zzz").toBlocking().first());
+    }
+
+    @Test
+    public void searchForArtists() throws Exception {
+        Benchmark.run("LocalMusicStore.searchForArtists (" + mLibrarySize + " songs)",
+                () -> mMusicStore.searchForArtists("night").toBlocking().first());
+    }
+
+    @Test
+    public void searchForAlbums() throws Exception {
+        Benchmark.run("LocalMusicStore.searchForAlbums (" + mLibrarySize + " songs)",
+                () -> mMusicStore.searchForAlbums("night").toBlocking().first());
+    }
+
+    @Test
+    public void searchForGenres() throws Exception {
+        Benchmark.run("LocalMusicStore.searchForGenres (" + mLibrarySize + " songs)",
+                () -> mMusicStore.searchForGenres("rock").toBlocking().first());
+    }
+}
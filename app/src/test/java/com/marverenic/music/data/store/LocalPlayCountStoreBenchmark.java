@@ -0,0 +1,63 @@
+package com.marverenic.music.data.store;
+
+import com.marverenic.music.benchmark.Benchmark;
+import com.marverenic.music.benchmark.BenchmarkLibraries;
+import com.marverenic.music.instances.Song;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class LocalPlayCountStoreBenchmark {
+
+    private final int mLibrarySize;
+    private List<Song> mSongs;
+
+    public LocalPlayCountStoreBenchmark(int librarySize) {
+        mLibrarySize = librarySize;
+    }
+
+    @Parameterized.Parameters(name = "{0} songs")
+    public static Collection<Object[]> librarySizes() {
+        return BenchmarkLibraries.SIZES;
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(Benchmark.isEnabled());
+        mSongs = BenchmarkLibraries.get(mLibrarySize).getSongs();
+    }
+
+    @Test
+    public void populateCounts() throws Exception {
+        Benchmark.run("LocalPlayCountStore.setPlayCount (" + mLibrarySize + " songs)", () -> {
+            PlayCountStore playCountStore = new FakePlayCountStore();
+            for (int i = 0; i < mSongs.size(); i++) {
+                playCountStore.setPlayCount(mSongs.get(i), i);
+            }
+            return playCountStore;
+        });
+    }
+
+    @Test
+    public void readCounts() throws Exception {
+        PlayCountStore playCountStore = BenchmarkLibraries.getPlayCounts(mLibrarySize);
+
+        Benchmark.run("LocalPlayCountStore.getPlayCount (" + mLibrarySize + " songs)", () -> {
+            long total = 0;
+            for (Song song : mSongs) {
+                total += playCountStore.getPlayCount(song);
+                total += playCountStore.getSkipCount(song);
+                total += playCountStore.getPlayDate(song);
+            }
+            return total;
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.marverenic.music.data.store;
+
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LocalPlaylistStoreTest {
+
+    private static final long SEED = 0x4A4F434B;
+
+    private List<Song> mSongs;
+    private LocalPlaylistStore.PlaylistMembers mMembers;
+
+    @Before
+    public void setUp() {
+        mSongs = new ArrayList<>(new SyntheticLibrary(20, SEED).getSongs());
+        mMembers = new LocalPlaylistStore.PlaylistMembers(mSongs, mSongs.size());
+    }
+
+    @Test
+    public void testReturnedSongsCanBeEdited() {
+        List<Song> songs = mMembers.getSongs();
+
+        // These are the same edits that dragging, swiping, undoing, and sorting make
+        songs.set(0, songs.set(1, songs.get(0)));
+        Song removed = songs.remove(2);
+        songs.add(2, removed);
+        Collections.sort(songs);
+
+        assertEquals(mSongs.size(), songs.size());
+    }
+
+    @Test
+    public void testEditingReturnedSongsDoesNotChangeMembers() {
+        List<Song> songs = mMembers.getSongs();
+        songs.clear();
+
+        assertEquals(mSongs, mMembers.getSongs());
+    }
+
+    @Test
+    public void testAppendAndRemoveAreVisibleInNewCopies() {
+        Song appended = mSongs.get(0);
+        List<Song> before = mMembers.getSongs();
+
+        assertEquals(mSongs.size(), mMembers.append(Collections.singletonList(appended)));
+        assertEquals(mSongs.size() + 1, mMembers.getSongs().size());
+        assertEquals(mSongs.size(), before.size());
+
+        mMembers.removeAll(Collections.singletonList(appended));
+        assertEquals(mSongs.size() - 1, mMembers.getSongs().size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.marverenic.music.data.store;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link LoudnessMeter} against test signals from EBU Tech 3341, which specifies the
+ * loudness that a compliant meter should report for each of them
+ */
+public class LoudnessMeterTest {
+
+    private static final double TOLERANCE = 0.1;
+
+    @Test
+    public void testSineWaveAtReferenceLevel() {
+        for (int sampleRate : new int[] {44100, 48000}) {
+            LoudnessMeter meter = new LoudnessMeter(sampleRate, 2);
+            addSine(meter, sampleRate, -23, 20);
+
+            assertEquals(-23, meter.getIntegratedLoudness(), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testRelativeGateIgnoresQuietPassages() {
+        LoudnessMeter meter = new LoudnessMeter(48000, 2);
+        addSine(meter, 48000, -36, 10);
+        addSine(meter, 48000, -23, 60);
+        addSine(meter, 48000, -36, 10);
+
+        assertEquals(-23, meter.getIntegratedLoudness(), TOLERANCE);
+    }
+
+    @Test
+    public void testSilenceHasNoLoudness() {
+        LoudnessMeter meter = new LoudnessMeter(44100, 2);
+        meter.addSamples(new short[44100 * 2 * 5], 0, 44100 * 2 * 5);
+
+        assertTrue(Double.isInfinite(meter.getIntegratedLoudness()));
+    }
+
+    /**
+     * Adds a 1 kHz sine wave with the same amplitude in both channels
+     * @param level The peak amplitude of the wave in dBFS
+     */
+    private static void addSine(LoudnessMeter meter, int sampleRate, double level, int seconds) {
+        double amplitude = Math.pow(10, level / 20) * Short.MAX_VALUE;
+        short[] samples = new short[sampleRate * seconds * 2];
+
+        for (int i = 0; i < sampleRate * seconds; i++) {
+            short sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * 1000 * i
+                    / sampleRate));
+            samples[2 * i] = sample;
+            samples[2 * i + 1] = sample;
+        }
+
+        meter.addSamples(samples, 0, samples.length);
+    }
+}
@@ -0,0 +1,226 @@
+package com.marverenic.music.data.store;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlaylistDiffTest {
+
+    @Test
+    public void testUnchangedPlaylistIsEmpty() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3, 4);
+        PlaylistDiff diff = table.diff(1, 2, 3, 4);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(5, diff.getNextPlayOrder());
+    }
+
+    @Test
+    public void testMoveToFront() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3, 4, 5);
+        table.apply(table.diff(5, 1, 2, 3, 4));
+
+        assertArrayEquals(new long[]{5, 1, 2, 3, 4}, table.getSongs());
+        assertEquals(5, table.getRowCount());
+    }
+
+    @Test
+    public void testMoveToEnd() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3, 4, 5);
+        PlaylistDiff diff = table.diff(2, 3, 4, 5, 1);
+        table.apply(diff);
+
+        assertArrayEquals(new long[]{2, 3, 4, 5, 1}, table.getSongs());
+
+        // Every other row is already in order, so only the moved row should be written
+        assertEquals(1, diff.getUpdatedRows().size());
+        assertTrue(diff.getInsertedRows().isEmpty());
+        assertTrue(diff.getDeletedRowIds().isEmpty());
+    }
+
+    @Test
+    public void testReorderWithDuplicates() {
+        MemberTable table = MemberTable.withSongs(1, 2, 1, 3, 2, 1);
+        PlaylistDiff diff = table.diff(2, 1, 1, 3, 1, 2);
+        table.apply(diff);
+
+        assertArrayEquals(new long[]{2, 1, 1, 3, 1, 2}, table.getSongs());
+
+        // Duplicate songs should reuse their existing rows instead of replacing them
+        assertTrue(diff.getInsertedRows().isEmpty());
+        assertTrue(diff.getDeletedRowIds().isEmpty());
+    }
+
+    @Test
+    public void testDeletesAndInserts() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3, 4, 5, 6);
+        PlaylistDiff diff = table.diff(7, 2, 8, 4, 6, 9);
+        table.apply(diff);
+
+        assertArrayEquals(new long[]{7, 2, 8, 4, 6, 9}, table.getSongs());
+        assertEquals(3, diff.getDeletedRowIds().size());
+        assertEquals(3, diff.getInsertedRows().size());
+    }
+
+    @Test
+    public void testRemovedSongsLeaveGapsForInserts() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3, 4);
+        PlaylistDiff diff = table.diff(1, 5, 3, 4);
+        table.apply(diff);
+
+        assertArrayEquals(new long[]{1, 5, 3, 4}, table.getSongs());
+        assertTrue(diff.getUpdatedRows().isEmpty());
+    }
+
+    @Test
+    public void testClearPlaylist() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3);
+        table.apply(table.diff());
+
+        assertEquals(0, table.getRowCount());
+    }
+
+    @Test
+    public void testPlayOrdersStartingFromZero() {
+        // Other apps number playlist members from 0
+        MemberTable table = new MemberTable();
+        table.addRow(1, 0);
+        table.addRow(2, 1);
+        table.addRow(3, 2);
+
+        table.apply(table.diff(3, 1, 2, 4));
+        assertArrayEquals(new long[]{3, 1, 2, 4}, table.getSongs());
+
+        table.apply(table.diff(4, 3, 1, 2));
+        assertArrayEquals(new long[]{4, 3, 1, 2}, table.getSongs());
+    }
+
+    @Test
+    public void testRepeatedPlayOrders() {
+        // Rows with the same play order are sorted by row id
+        MemberTable table = new MemberTable();
+        table.addRow(1, 1);
+        table.addRow(2, 1);
+        table.addRow(3, 1);
+        table.addRow(4, 2);
+        table.addRow(5, 2);
+
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, table.getSongs());
+
+        PlaylistDiff diff = table.diff(1, 2, 3, 4, 5);
+        table.apply(diff);
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, table.getSongs());
+
+        table.apply(table.diff(5, 3, 1, 4, 2));
+        assertArrayEquals(new long[]{5, 3, 1, 4, 2}, table.getSongs());
+    }
+
+    @Test
+    public void testNextPlayOrderFollowsLastRow() {
+        MemberTable table = MemberTable.withSongs(1, 2, 3);
+        PlaylistDiff diff = table.diff(3, 1, 4);
+        table.apply(diff);
+
+        table.addRow(5, diff.getNextPlayOrder());
+        assertArrayEquals(new long[]{3, 1, 4, 5}, table.getSongs());
+    }
+
+    /**
+     * A simulated table of MediaStore playlist member rows that {@link PlaylistDiff}s can be
+     * applied to. Rows are read in the same order as {@link MediaStoreUtil#editPlaylist}, by play
+     * order and then by row id.
+     */
+    private static class MemberTable {
+
+        private final List<long[]> mRows = new ArrayList<>();
+        private long mNextRowId = 100;
+
+        static MemberTable withSongs(long... audioIds) {
+            MemberTable table = new MemberTable();
+            for (int i = 0; i < audioIds.length; i++) {
+                table.addRow(audioIds[i], i + 1);
+            }
+            return table;
+        }
+
+        void addRow(long audioId, long playOrder) {
+            mRows.add(new long[]{mNextRowId++, audioId, playOrder});
+        }
+
+        int getRowCount() {
+            return mRows.size();
+        }
+
+        PlaylistDiff diff(long... newAudioIds) {
+            List<long[]> rows = getSortedRows();
+            long[] rowIds = new long[rows.size()];
+            long[] audioIds = new long[rows.size()];
+            long[] playOrders = new long[rows.size()];
+
+            for (int i = 0; i < rows.size(); i++) {
+                rowIds[i] = rows.get(i)[0];
+                audioIds[i] = rows.get(i)[1];
+                playOrders[i] = rows.get(i)[2];
+            }
+
+            return PlaylistDiff.calculate(rowIds, audioIds, playOrders, newAudioIds);
+        }
+
+        void apply(PlaylistDiff diff) {
+            for (long rowId : diff.getDeletedRowIds()) {
+                mRows.remove(findRow(rowId));
+            }
+
+            for (long[] update : diff.getUpdatedRows()) {
+                findRow(update[0])[2] = update[1];
+            }
+
+            for (long[] insert : diff.getInsertedRows()) {
+                addRow(insert[0], insert[1]);
+            }
+
+            // Every row should have its own play order so that the order doesn't depend on ids
+            List<long[]> rows = getSortedRows();
+            for (int i = 1; i < rows.size(); i++) {
+                assertTrue(rows.get(i - 1)[2] < rows.get(i)[2]);
+            }
+
+            if (!rows.isEmpty()) {
+                assertTrue(rows.get(rows.size() - 1)[2] < diff.getNextPlayOrder());
+            }
+        }
+
+        long[] getSongs() {
+            List<long[]> rows = getSortedRows();
+            long[] songs = new long[rows.size()];
+            for (int i = 0; i < songs.length; i++) {
+                songs[i] = rows.get(i)[1];
+            }
+            return songs;
+        }
+
+        private long[] findRow(long rowId) {
+            for (long[] row : mRows) {
+                if (row[0] == rowId) {
+                    return row;
+                }
+            }
+            throw new AssertionError("No row with id " + rowId);
+        }
+
+        private List<long[]> getSortedRows() {
+            List<long[]> sorted = new ArrayList<>(mRows);
+            Collections.sort(sorted, (left, right) -> {
+                int comparison = Long.compare(left[2], right[2]);
+                return (comparison != 0) ? comparison : Long.compare(left[0], right[0]);
+            });
+            return sorted;
+        }
+    }
+}
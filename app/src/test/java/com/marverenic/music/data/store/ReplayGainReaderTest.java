@@ -0,0 +1,227 @@
+package com.marverenic.music.data.store;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ReplayGainReaderTest {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void testReadsId3v24TrackGain() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "APIC", new byte[20000], true);
+        writeId3Frame(frames, "TXXX", textFrame(3, "REPLAYGAIN_ALBUM_GAIN", "-9.10 dB"), true);
+        writeId3Frame(frames, "TXXX", textFrame(3, "REPLAYGAIN_TRACK_GAIN", "-6.48 dB"), true);
+
+        assertEquals(-6.48f, read(id3Tag(4, frames.toByteArray())), DELTA);
+    }
+
+    @Test
+    public void testReadsId3v23Utf16TrackGain() throws IOException {
+        byte[] description = utf16("replaygain_track_gain");
+        byte[] value = utf16("+2.5 dB");
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(1);
+        frame.write(description);
+        frame.write(new byte[] {0, 0});
+        frame.write(value);
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TXXX", frame.toByteArray(), false);
+
+        assertEquals(2.5f, read(id3Tag(3, frames.toByteArray())), DELTA);
+    }
+
+    @Test
+    public void testReadsUnsynchronisedId3v24TrackGain() throws IOException {
+        // The byte order mark of UTF-16 text starts with 0xFF, so unsynchronisation inserts a
+        // zero after it
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(1);
+        frame.write(unsynchronise(utf16("REPLAYGAIN_TRACK_GAIN")));
+        frame.write(new byte[] {0, 0});
+        frame.write(unsynchronise(utf16("-4.75 dB")));
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TXXX", frame.toByteArray(), true, 0);
+
+        assertEquals(-4.75f, read(id3Tag(4, 0x80, frames.toByteArray())), DELTA);
+    }
+
+    @Test
+    public void testReadsUnsynchronisedId3v24FrameWithDataLength() throws IOException {
+        byte[] contents = textFrame(3, "REPLAYGAIN_TRACK_GAIN", "-1.25 dB");
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        writeSyncSafeInt(frame, contents.length);
+        frame.write(unsynchronise(contents));
+
+        // Frame flags for unsynchronisation and a data length indicator
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TXXX", frame.toByteArray(), true, 0x03);
+
+        assertEquals(-1.25f, read(id3Tag(4, 0, frames.toByteArray())), DELTA);
+    }
+
+    @Test
+    public void testSkipsUnsynchronisedId3v23Tag() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TXXX", textFrame(0, "REPLAYGAIN_TRACK_GAIN", "-6.48 dB"), false);
+
+        assertNull(read(id3Tag(3, 0x80, frames.toByteArray())));
+    }
+
+    @Test
+    public void testReadsFlacTrackGain() throws IOException {
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        writeVorbisString(comments, "reference libFLAC 1.3.2");
+        writeLittleEndianInt(comments, 2);
+        writeVorbisString(comments, "ARTIST=Someone");
+        writeVorbisString(comments, "REPLAYGAIN_TRACK_GAIN=-3.21 dB");
+        byte[] block = comments.toByteArray();
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write("fLaC".getBytes(ISO_8859_1));
+        writeFlacBlock(file, 0, new byte[34], false);
+        writeFlacBlock(file, 4, block, true);
+
+        assertEquals(-3.21f, read(file.toByteArray()), DELTA);
+    }
+
+    @Test
+    public void testUntaggedFileHasNoGain() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TIT2", textFrame(0, "", "Title"), true);
+
+        assertNull(read(id3Tag(4, frames.toByteArray())));
+        assertNull(read(new byte[] {(byte) 0xFF, (byte) 0xFB, 0x10, 0x00, 0x00}));
+        assertNull(read(new byte[0]));
+    }
+
+    @Test
+    public void testParseGain() {
+        assertEquals(-6.48f, ReplayGainReader.parseGain(" -6.48 dB "), DELTA);
+        assertEquals(1.2f, ReplayGainReader.parseGain("+1.20"), DELTA);
+        assertNull(ReplayGainReader.parseGain("loud"));
+        assertNull(ReplayGainReader.parseGain("NaN dB"));
+        assertNull(ReplayGainReader.parseGain("-400 dB"));
+    }
+
+    private static Float read(byte[] file) throws IOException {
+        return ReplayGainReader.readTrackGain(new ByteArrayInputStream(file));
+    }
+
+    private static byte[] id3Tag(int majorVersion, byte[] frames) {
+        return id3Tag(majorVersion, 0, frames);
+    }
+
+    private static byte[] id3Tag(int majorVersion, int flags, byte[] frames) {
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        tag.write('I');
+        tag.write('D');
+        tag.write('3');
+        tag.write(majorVersion);
+        tag.write(0);
+        tag.write(flags);
+        writeSyncSafeInt(tag, frames.length + 64);
+        tag.write(frames, 0, frames.length);
+        tag.write(new byte[64], 0, 64); // Padding
+        tag.write(new byte[256], 0, 256); // Audio data
+        return tag.toByteArray();
+    }
+
+    private static byte[] textFrame(int encoding, String description, String value)
+            throws IOException {
+        Charset charset = (encoding == 0) ? ISO_8859_1 : UTF_8;
+
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(encoding);
+        frame.write(description.getBytes(charset));
+        frame.write(0);
+        frame.write(value.getBytes(charset));
+        return frame.toByteArray();
+    }
+
+    private static byte[] utf16(String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xFE);
+        out.write(value.getBytes(UTF_16LE));
+        return out.toByteArray();
+    }
+
+    private static byte[] unsynchronise(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte b : data) {
+            out.write(b);
+            if (b == (byte) 0xFF) {
+                out.write(0);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeId3Frame(ByteArrayOutputStream out, String id, byte[] data,
+                                      boolean syncSafe) throws IOException {
+        writeId3Frame(out, id, data, syncSafe, 0);
+    }
+
+    private static void writeId3Frame(ByteArrayOutputStream out, String id, byte[] data,
+                                      boolean syncSafe, int flags) throws IOException {
+        out.write(id.getBytes(ISO_8859_1));
+        if (syncSafe) {
+            writeSyncSafeInt(out, data.length);
+        } else {
+            out.write(data.length >>> 24);
+            out.write(data.length >>> 16);
+            out.write(data.length >>> 8);
+            out.write(data.length);
+        }
+        out.write(flags >>> 8);
+        out.write(flags);
+        out.write(data);
+    }
+
+    private static void writeSyncSafeInt(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 21) & 0x7F);
+        out.write((value >>> 14) & 0x7F);
+        out.write((value >>> 7) & 0x7F);
+        out.write(value & 0x7F);
+    }
+
+    private static void writeFlacBlock(ByteArrayOutputStream out, int type, byte[] data,
+                                       boolean last) throws IOException {
+        out.write(type | (last ? 0x80 : 0));
+        out.write(data.length >>> 16);
+        out.write(data.length >>> 8);
+        out.write(data.length);
+        out.write(data);
+    }
+
+    private static void writeVorbisString(ByteArrayOutputStream out, String value)
+            throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeLittleEndianInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeLittleEndianInt(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
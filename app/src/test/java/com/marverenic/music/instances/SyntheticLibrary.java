@@ -0,0 +1,197 @@
+package com.marverenic.music.instances;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates a library of fake songs, albums, artists, genres and playlists to benchmark against.
+ * The same size and seed always produce the same library.
+ */
+public final class SyntheticLibrary {
+
+    private static final String[] WORDS = {
+            "love", "night", "heart", "dream", "fire", "light", "rain", "summer", "city", "river",
+            "gold", "shadow", "home", "road", "blue", "wild", "time", "star", "ocean", "stone",
+            "echo", "paper", "glass", "electric", "midnight", "silver", "highway", "ghost",
+            "garden", "thunder", "winter", "neon", "velvet", "broken", "young", "forever"
+    };
+
+    private static final String[] GENRES = {
+            "Rock", "Alternative Rock", "Indie Rock", "Punk Rock", "Hard Rock", "Classic Rock",
+            "Progressive Rock", "Folk Rock", "Pop", "Synth Pop", "Dream Pop", "Electronic",
+            "House", "Techno", "Ambient", "Hip Hop", "Rap", "R&B", "Soul", "Funk", "Jazz",
+            "Blues", "Country", "Folk", "Classical", "Metal", "Heavy Metal", "Reggae", "Ska",
+            "Soundtrack"
+    };
+
+    private static final int SONGS_PER_ALBUM = 10;
+    private static final int ALBUMS_PER_ARTIST = 3;
+    private static final int PLAYLIST_COUNT = 25;
+    private static final int PLAYLIST_SIZE = 100;
+
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEAR_RANGE = 67;
+    private static final long FIRST_DATE_ADDED = 1293840000L; // Jan 1, 2011
+    private static final long DATE_ADDED_RANGE = 6L * 365 * 24 * 60 * 60;
+
+    private final List<Song> mSongs;
+    private final List<Album> mAlbums;
+    private final List<Artist> mArtists;
+    private final List<Genre> mGenres;
+    private final List<Playlist> mPlaylists;
+    private final Map<Long, List<Song>> mGenreContents;
+    private final Map<Long, List<Song>> mPlaylistContents;
+
+    public SyntheticLibrary(int songCount, long seed) {
+        Random random = new Random(seed);
+
+        int albumCount = Math.max(1, songCount / SONGS_PER_ALBUM);
+        int artistCount = Math.max(1, albumCount / ALBUMS_PER_ARTIST);
+
+        mArtists = new ArrayList<>(artistCount);
+        for (int i = 0; i < artistCount; i++) {
+            mArtists.add(new Artist(i + 1, makeTitle(random, 2)));
+        }
+
+        mGenres = new ArrayList<>(GENRES.length);
+        mGenreContents = new HashMap<>();
+        for (int i = 0; i < GENRES.length; i++) {
+            Genre genre = newInstance(Genre.class);
+            genre.genreId = i + 1;
+            genre.genreName = GENRES[i];
+
+            mGenres.add(genre);
+            mGenreContents.put(genre.genreId, new ArrayList<>());
+        }
+
+        mSongs = new ArrayList<>(songCount);
+        for (int i = 0; i < songCount; i++) {
+            int album = random.nextInt(albumCount);
+            Artist artist = mArtists.get(album % artistCount);
+
+            Song song = newInstance(Song.class);
+            song.songId = i + 1;
+            song.songName = makeTitle(random, 1 + random.nextInt(4));
+            song.artistId = artist.getArtistId();
+            song.artistName = artist.getArtistName();
+            song.albumId = album + 1;
+            song.albumName = "Album " + (album + 1);
+            song.songDuration = 120_000 + random.nextInt(300_000);
+            song.location = "/storage/emulated/0/Music/" + song.songId + ".mp3";
+            song.year = FIRST_YEAR + random.nextInt(YEAR_RANGE);
+            song.dateAdded = FIRST_DATE_ADDED + (long) (random.nextDouble() * DATE_ADDED_RANGE);
+            song.trackNumber = 1 + random.nextInt(SONGS_PER_ALBUM);
+
+            mSongs.add(song);
+
+            // Albums tend to belong to a single genre
+            mGenreContents.get(mGenres.get(album % mGenres.size()).genreId).add(song);
+        }
+
+        mAlbums = makeAlbums(mSongs);
+
+        mPlaylists = new ArrayList<>(PLAYLIST_COUNT);
+        mPlaylistContents = new HashMap<>();
+        for (int i = 0; i < PLAYLIST_COUNT; i++) {
+            Playlist playlist = new Playlist(i + 1, makeTitle(random, 2));
+
+            List<Song> contents = new ArrayList<>(PLAYLIST_SIZE);
+            for (int j = 0; j < Math.min(PLAYLIST_SIZE, songCount); j++) {
+                contents.add(mSongs.get(random.nextInt(songCount)));
+            }
+
+            mPlaylists.add(playlist);
+            mPlaylistContents.put(playlist.getPlaylistId(), contents);
+        }
+    }
+
+    private static String makeTitle(Random random, int wordCount) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return title.toString();
+    }
+
+    /**
+     * Creates an album for every album id that songs were assigned to. Like the MediaStore, an
+     * album's year is the year of its newest song.
+     */
+    private static List<Album> makeAlbums(List<Song> songs) {
+        List<Album> albums = new ArrayList<>();
+        Map<Long, Album> albumsById = new HashMap<>();
+
+        for (Song song : songs) {
+            Album album = albumsById.get(song.albumId);
+            if (album == null) {
+                album = newInstance(Album.class);
+                album.albumId = song.albumId;
+                album.albumName = song.albumName;
+                album.artistId = song.artistId;
+                album.artistName = song.artistName;
+                album.year = song.year;
+
+                albumsById.put(album.albumId, album);
+                albums.add(album);
+            } else {
+                album.year = Math.max(album.year, song.year);
+            }
+        }
+
+        return albums;
+    }
+
+    /**
+     * Library models can only be created from Cursors and Parcels, so their no-argument
+     * constructors are used to create empty instances whose fields are then filled in directly
+     */
+    private static <T> T newInstance(Class<T> type) {
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Failed to instantiate " + type.getSimpleName(), e);
+        }
+    }
+
+    public List<Song> getSongs() {
+        return Collections.unmodifiableList(mSongs);
+    }
+
+    public List<Album> getAlbums() {
+        return Collections.unmodifiableList(mAlbums);
+    }
+
+    public List<Artist> getArtists() {
+        return Collections.unmodifiableList(mArtists);
+    }
+
+    public List<Genre> getGenres() {
+        return Collections.unmodifiableList(mGenres);
+    }
+
+    public List<Song> getSongs(Genre genre) {
+        List<Song> contents = mGenreContents.get(genre.getGenreId());
+        return (contents == null) ? Collections.emptyList() : contents;
+    }
+
+    public List<Playlist> getPlaylists() {
+        return Collections.unmodifiableList(mPlaylists);
+    }
+
+    public List<Song> getSongs(Playlist playlist) {
+        List<Song> contents = mPlaylistContents.get(playlist.getPlaylistId());
+        return (contents == null) ? Collections.emptyList() : contents;
+    }
+}
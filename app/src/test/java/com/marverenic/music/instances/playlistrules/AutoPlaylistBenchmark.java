@@ -0,0 +1,148 @@
+package com.marverenic.music.instances.playlistrules;
+
+import com.marverenic.music.benchmark.Benchmark;
+import com.marverenic.music.benchmark.BenchmarkLibraries;
+import com.marverenic.music.data.store.FakeMusicStore;
+import com.marverenic.music.data.store.FakePlaylistStore;
+import com.marverenic.music.data.store.MusicStore;
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.data.store.PlaylistStore;
+import com.marverenic.music.instances.AutoPlaylist;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class AutoPlaylistBenchmark {
+
+    private final int mLibrarySize;
+
+    private MusicStore mMusicStore;
+    private PlaylistStore mPlaylistStore;
+    private PlayCountStore mPlayCountStore;
+
+    public AutoPlaylistBenchmark(int librarySize) {
+        mLibrarySize = librarySize;
+    }
+
+    @Parameterized.Parameters(name = "{0} songs")
+    public static Collection<Object[]> librarySizes() {
+        return BenchmarkLibraries.SIZES;
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(Benchmark.isEnabled());
+
+        SyntheticLibrary library = BenchmarkLibraries.get(mLibrarySize);
+        mMusicStore = new FakeMusicStore(library);
+        mPlaylistStore = new FakePlaylistStore(library);
+        mPlayCountStore = BenchmarkLibraries.getPlayCounts(mLibrarySize);
+    }
+
+    private static AutoPlaylistRule rule(int type, int field, int match, String value) {
+        return new AutoPlaylistRule.Factory()
+                .setType(type)
+                .setField(field)
+                .setMatch(match)
+                .setValue(value)
+                .build();
+    }
+
+    private static AutoPlaylist.Builder playlist(boolean matchAllRules, AutoPlaylistRule... rules) {
+        return new AutoPlaylist.Builder()
+                .setName("Benchmark")
+                .setMaximumEntries(AutoPlaylist.UNLIMITED_ENTRIES)
+                .setMatchAllRules(matchAllRules)
+                .setRules(rules)
+                .setSortMethod(AutoPlaylistRule.NAME)
+                .setSortAscending(true);
+    }
+
+    private void benchmark(String name, AutoPlaylist playlist) throws Exception {
+        Benchmark.run(name + " (" + mLibrarySize + " songs)", () ->
+                playlist.generatePlaylist(mMusicStore, mPlaylistStore, mPlayCountStore)
+                        .toBlocking()
+                        .first());
+    }
+
+    @Test
+    public void singleSongRule() throws Exception {
+        benchmark("Song year > 1990", playlist(true,
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.YEAR,
+                        AutoPlaylistRule.GREATER_THAN, "1990")
+        ).build());
+    }
+
+    @Test
+    public void songNameRule() throws Exception {
+        benchmark("Song name contains \"night\"", playlist(true,
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.CONTAINS, "night")
+        ).build());
+    }
+
+    @Test
+    public void matchAllRules() throws Exception {
+        benchmark("AND of 4 rules", playlist(true,
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.NOT_CONTAINS, "love"),
+                rule(AutoPlaylistRule.ARTIST, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.CONTAINS, "e"),
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.PLAY_COUNT,
+                        AutoPlaylistRule.GREATER_THAN, "5"),
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.YEAR,
+                        AutoPlaylistRule.GREATER_THAN, "1980")
+        ).build());
+    }
+
+    @Test
+    public void matchAnyRule() throws Exception {
+        benchmark("OR of 4 rules", playlist(false,
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.CONTAINS, "love"),
+                rule(AutoPlaylistRule.ALBUM, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.EQUALS, "Album 7"),
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.SKIP_COUNT,
+                        AutoPlaylistRule.GREATER_THAN, "20"),
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.YEAR,
+                        AutoPlaylistRule.EQUALS, "1999")
+        ).build());
+    }
+
+    @Test
+    public void genreRule() throws Exception {
+        benchmark("Genre name contains \"rock\"", playlist(true,
+                rule(AutoPlaylistRule.GENRE, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.CONTAINS, "rock")
+        ).build());
+    }
+
+    @Test
+    public void playlistRule() throws Exception {
+        benchmark("In any playlist", playlist(true,
+                rule(AutoPlaylistRule.PLAYLIST, AutoPlaylistRule.NAME,
+                        AutoPlaylistRule.NOT_EQUALS, "")
+        ).build());
+    }
+
+    @Test
+    public void mostPlayed() throws Exception {
+        benchmark("Top 25 most played", playlist(true,
+                rule(AutoPlaylistRule.SONG, AutoPlaylistRule.PLAY_COUNT,
+                        AutoPlaylistRule.GREATER_THAN, "0"))
+                .setMaximumEntries(25)
+                .setTruncateMethod(AutoPlaylistRule.PLAY_COUNT)
+                .setTruncateAscending(false)
+                .setSortMethod(AutoPlaylistRule.PLAY_COUNT)
+                .setSortAscending(false)
+                .build());
+    }
+}
@@ -0,0 +1,104 @@
+package com.marverenic.music.instances.playlistrules;
+
+import com.marverenic.music.benchmark.Benchmark;
+import com.marverenic.music.benchmark.BenchmarkLibraries;
+import com.marverenic.music.data.store.PlayCountStore;
+import com.marverenic.music.instances.Song;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class SongSorterBenchmark {
+
+    private final int mLibrarySize;
+
+    private List<Song> mSongs;
+    private PlayCountStore mPlayCountStore;
+
+    public SongSorterBenchmark(int librarySize) {
+        mLibrarySize = librarySize;
+    }
+
+    @Parameterized.Parameters(name = "{0} songs")
+    public static Collection<Object[]> librarySizes() {
+        return BenchmarkLibraries.SIZES;
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(Benchmark.isEnabled());
+
+        mSongs = BenchmarkLibraries.get(mLibrarySize).getSongs();
+        mPlayCountStore = BenchmarkLibraries.getPlayCounts(mLibrarySize);
+    }
+
+    private void benchmarkComparator(String name, Comparator<Song> comparator)
+            throws Exception {
+        Benchmark.run(name + " (" + mLibrarySize + " songs)", () -> {
+            List<Song> sorted = new ArrayList<>(mSongs);
+            Collections.sort(sorted, comparator);
+            return sorted;
+        });
+    }
+
+    private void benchmarkSorter(String name, int field, boolean ascending) throws Exception {
+        Benchmark.run(name + " (" + mLibrarySize + " songs)", () -> {
+            List<Song> sorted = new ArrayList<>(mSongs);
+            SongSorter.sort(sorted, field, ascending, mPlayCountStore);
+            return sorted;
+        });
+    }
+
+    @Test
+    public void sortByName() throws Exception {
+        benchmarkComparator("Collections.sort by name", null);
+        benchmarkSorter("SongSorter.sort by name", AutoPlaylistRule.NAME, true);
+    }
+
+    @Test
+    public void sortByArtist() throws Exception {
+        benchmarkComparator("Collections.sort by artist", Song.ARTIST_COMPARATOR);
+    }
+
+    @Test
+    public void sortByYear() throws Exception {
+        benchmarkComparator("Collections.sort by year", Song.YEAR_COMPARATOR);
+        benchmarkSorter("SongSorter.sort by year", AutoPlaylistRule.YEAR, false);
+    }
+
+    @Test
+    public void sortByDateAdded() throws Exception {
+        benchmarkComparator("Collections.sort by date added", Song.DATE_ADDED_COMPARATOR);
+        benchmarkSorter("SongSorter.sort by date added", AutoPlaylistRule.DATE_ADDED, false);
+    }
+
+    @Test
+    public void sortByPlayCount() throws Exception {
+        benchmarkComparator("Collections.sort by play count",
+                Song.playCountComparator(mPlayCountStore));
+        benchmarkSorter("SongSorter.sort by play count", AutoPlaylistRule.PLAY_COUNT, false);
+    }
+
+    @Test
+    public void mostPlayed() throws Exception {
+        Benchmark.run("Collections.sort and truncate to 25 (" + mLibrarySize + " songs)", () -> {
+            List<Song> sorted = new ArrayList<>(mSongs);
+            Collections.sort(sorted, Song.playCountComparator(mPlayCountStore));
+            return new ArrayList<>(sorted.subList(0, 25));
+        });
+
+        Benchmark.run("SongSorter.top 25 (" + mLibrarySize + " songs)", () ->
+                SongSorter.top(mSongs, AutoPlaylistRule.PLAY_COUNT, false, 25, mPlayCountStore));
+    }
+}
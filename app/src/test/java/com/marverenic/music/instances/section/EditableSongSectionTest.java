@@ -0,0 +1,127 @@
+package com.marverenic.music.instances.section;
+
+import android.view.ViewGroup;
+
+import com.marverenic.heterogeneousadapter.EnhancedViewHolder;
+import com.marverenic.heterogeneousadapter.HeterogeneousAdapter;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class EditableSongSectionTest {
+
+    private static final long SEED = 0x4A4F434B;
+
+    private Song mSong;
+    private Song mDuplicatedSong;
+    private EditableSongSection mSection;
+
+    @Before
+    public void setUp() {
+        List<Song> library = new SyntheticLibrary(2, SEED).getSongs();
+        mSong = library.get(0);
+        mDuplicatedSong = library.get(1);
+
+        List<Song> data = new ArrayList<>();
+        data.add(mDuplicatedSong);
+        data.add(mSong);
+        data.add(mDuplicatedSong);
+
+        mSection = new TestSection(data);
+    }
+
+    @Test
+    public void testDuplicateSongsHaveDistinctIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < mSection.getItemCount(null); i++) {
+            ids.add(mSection.getId(i));
+        }
+
+        assertEquals(mSection.getItemCount(null), ids.size());
+    }
+
+    @Test
+    public void testIdsFollowDuplicatesAfterDrag() {
+        int firstId = mSection.getId(0);
+        int lastId = mSection.getId(2);
+
+        mSection.onDrag(0, 1);
+        mSection.onDrag(1, 2);
+
+        // Setting the reordered data, like the playlist does after a drop, shouldn't renumber
+        // the duplicates by their new positions
+        mSection.setData(new ArrayList<>(mSection.getData()));
+
+        assertEquals(lastId, mSection.getId(1));
+        assertEquals(firstId, mSection.getId(2));
+    }
+
+    @Test
+    public void testGetIdsDoesNotChangeSection() {
+        List<Song> oldData = mSection.getData();
+        List<Integer> oldIds = getIds();
+
+        List<Song> newData = new ArrayList<>(oldData);
+        newData.remove(0);
+        newData.add(mDuplicatedSong);
+        newData.add(mDuplicatedSong);
+
+        int[] candidateIds = mSection.getIds(newData);
+
+        assertSame(oldData, mSection.getData());
+        assertEquals(oldIds, getIds());
+
+        mSection.setData(newData);
+        assertEquals(newData.size(), candidateIds.length);
+        for (int i = 0; i < candidateIds.length; i++) {
+            assertEquals(candidateIds[i], mSection.getId(i));
+        }
+    }
+
+    @Test
+    public void testNewDuplicatesDontReuseIds() {
+        List<Song> data = new ArrayList<>(mSection.getData());
+        data.add(0, mDuplicatedSong);
+        mSection.setData(data);
+
+        List<Integer> ids = getIds();
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        assertFalse(ids.get(0) < 0);
+    }
+
+    private List<Integer> getIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < mSection.getItemCount(null); i++) {
+            ids.add(mSection.getId(i));
+        }
+        return ids;
+    }
+
+    private static class TestSection extends EditableSongSection {
+
+        TestSection(List<Song> data) {
+            super(data);
+        }
+
+        @Override
+        protected void onDrop(int from, int to) {
+        }
+
+        @Override
+        public EnhancedViewHolder<Song> createViewHolder(HeterogeneousAdapter adapter,
+                                                         ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
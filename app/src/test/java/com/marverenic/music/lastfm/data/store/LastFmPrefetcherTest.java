@@ -0,0 +1,211 @@
+package com.marverenic.music.lastfm.data.store;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.marverenic.music.data.store.FakeMusicStore;
+import com.marverenic.music.data.store.FakePlayCountStore;
+import com.marverenic.music.instances.Artist;
+import com.marverenic.music.instances.Song;
+import com.marverenic.music.instances.SyntheticLibrary;
+import com.marverenic.music.lastfm.api.LastFmService;
+import com.marverenic.music.lastfm.api.model.LfmArtistResponse;
+import com.marverenic.music.lastfm.model.LfmArtist;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Response;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LastFmPrefetcherTest {
+
+    private static final int LIBRARY_SIZE = 300;
+    private static final long SEED = 0x4A4F434B;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private SyntheticLibrary mLibrary;
+    private FakePlayCountStore mPlayCountStore;
+    private FakeLastFmService mService;
+    private LastFmArtistCache mCache;
+    private TestScheduler mScheduler;
+    private boolean mNetworkAllowed;
+
+    private LastFmPrefetcher mPrefetcher;
+
+    @Before
+    public void setUp() throws Exception {
+        mLibrary = new SyntheticLibrary(LIBRARY_SIZE, SEED);
+        mPlayCountStore = new FakePlayCountStore(mLibrary, SEED);
+        mService = new FakeLastFmService();
+        mCache = new LastFmArtistCache(mTemporaryFolder.newFolder());
+        mScheduler = new TestScheduler();
+        mNetworkAllowed = true;
+
+        mPrefetcher = new LastFmPrefetcher(new FakeMusicStore(mLibrary), mPlayCountStore,
+                new NetworkLastFmStore(mService, mCache), () -> mNetworkAllowed, mScheduler);
+    }
+
+    @Test
+    public void testPrefetchesEveryArtistMostPlayedFirst() throws Exception {
+        mPrefetcher.start();
+        awaitCompletion();
+
+        List<String> requested = mService.getRequestedArtists();
+        assertEquals(mLibrary.getArtists().size(), requested.size());
+
+        Map<String, Integer> playCounts = getPlayCountsByArtist();
+        for (int i = 1; i < requested.size(); i++) {
+            int previous = playCounts.get(requested.get(i - 1));
+            int current = playCounts.get(requested.get(i));
+            assertTrue("Artists weren't fetched in order of play count", previous >= current);
+        }
+
+        for (Artist artist : mLibrary.getArtists()) {
+            LastFmArtistCache.Entry entry = mCache.get(artist.getArtistName());
+            assertNotNull("Artist wasn't saved in the cache", entry);
+            assertFalse(entry.isExpired());
+        }
+    }
+
+    @Test
+    public void testSkipsCachedArtists() throws Exception {
+        Artist cached = mLibrary.getArtists().get(0);
+        mCache.put(cached.getArtistName(), FakeLastFmService.makeArtist(cached.getArtistName()));
+
+        mPrefetcher.start();
+        awaitCompletion();
+
+        List<String> requested = mService.getRequestedArtists();
+        assertEquals(mLibrary.getArtists().size() - 1, requested.size());
+        assertFalse(requested.contains(cached.getArtistName()));
+    }
+
+    @Test
+    public void testDoesNotStartWithoutNetwork() throws Exception {
+        mNetworkAllowed = false;
+        mPrefetcher.start();
+
+        assertFalse(mPrefetcher.isRunning());
+        assertTrue(mService.getRequestedArtists().isEmpty());
+    }
+
+    @Test
+    public void testStopsWhenNetworkIsLost() throws Exception {
+        mPrefetcher.start();
+        awaitRequests(1);
+
+        mNetworkAllowed = false;
+        awaitCompletion();
+
+        assertTrue(mService.getRequestedArtists().size() < mLibrary.getArtists().size());
+    }
+
+    @Test
+    public void testStopCancelsPrefetching() throws Exception {
+        mPrefetcher.start();
+        awaitRequests(1);
+
+        mPrefetcher.stop();
+        assertFalse(mPrefetcher.isRunning());
+
+        // Let requests that were already sent finish before counting them
+        Thread.sleep(50);
+        int requestCount = mService.getRequestedArtists().size();
+
+        mScheduler.advanceTimeBy(1, TimeUnit.HOURS);
+        Thread.sleep(50);
+
+        assertEquals(requestCount, mService.getRequestedArtists().size());
+    }
+
+    private Map<String, Integer> getPlayCountsByArtist() {
+        Map<String, Integer> playCounts = new HashMap<>();
+        for (Artist artist : mLibrary.getArtists()) {
+            playCounts.put(artist.getArtistName(), 0);
+        }
+
+        for (Song song : mLibrary.getSongs()) {
+            String artistName = song.getArtistName();
+            playCounts.put(artistName,
+                    playCounts.get(artistName) + mPlayCountStore.getPlayCount(song));
+        }
+        return playCounts;
+    }
+
+    /**
+     * Moves the rate limiter's clock forward until the service has received a number of requests.
+     * Cache lookups and requests run on real background threads, so the clock is advanced in
+     * small steps until they catch up.
+     */
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mService.getRequestedArtists().size() < count) {
+            assertTrue("Timed out waiting for requests", System.currentTimeMillis() < deadline);
+            mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitCompletion() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mPrefetcher.isRunning()) {
+            assertTrue("Timed out waiting for prefetching", System.currentTimeMillis() < deadline);
+            mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * A {@link LastFmService} that answers every request with an artist that only has a name,
+     * and records which artists were requested
+     */
+    private static class FakeLastFmService implements LastFmService {
+
+        private static final Gson GSON = new Gson();
+
+        private final List<String> mRequestedArtists = new CopyOnWriteArrayList<>();
+
+        static LfmArtist makeArtist(String artistName) {
+            return makeResponse(artistName).getArtist();
+        }
+
+        private static LfmArtistResponse makeResponse(String artistName) {
+            JsonObject artist = new JsonObject();
+            artist.addProperty("name", artistName);
+
+            JsonObject response = new JsonObject();
+            response.add("artist", artist);
+
+            return GSON.fromJson(response, LfmArtistResponse.class);
+        }
+
+        List<String> getRequestedArtists() {
+            return mRequestedArtists;
+        }
+
+        @Override
+        public Observable<Response<LfmArtistResponse>> getArtistInfo(String artistName) {
+            return Observable.fromCallable(() -> {
+                mRequestedArtists.add(artistName);
+                return Response.success(makeResponse(artistName));
+            });
+        }
+    }
+}
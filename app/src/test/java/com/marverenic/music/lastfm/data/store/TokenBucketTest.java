@@ -0,0 +1,56 @@
+package com.marverenic.music.lastfm.data.store;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenBucketTest {
+
+    private TestScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TestScheduler();
+    }
+
+    @Test
+    public void testAllowsBurstThenLimitsRate() {
+        TokenBucket bucket = new TokenBucket(3, 1000, mScheduler);
+
+        assertEquals(0, bucket.take());
+        assertEquals(0, bucket.take());
+        assertEquals(0, bucket.take());
+        assertEquals(1000, bucket.take());
+        assertEquals(2000, bucket.take());
+
+        mScheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertEquals(0, bucket.take());
+        assertEquals(0, bucket.take());
+        assertEquals(0, bucket.take());
+        assertEquals(1000, bucket.take());
+    }
+
+    @Test
+    public void testRefillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(2, 1000, mScheduler);
+
+        assertEquals(0, bucket.take());
+        assertEquals(0, bucket.take());
+
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertEquals(0, bucket.take());
+        assertEquals(1000, bucket.take());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyBucket() {
+        new TokenBucket(0, 1000, mScheduler);
+    }
+}
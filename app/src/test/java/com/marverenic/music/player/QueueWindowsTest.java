@@ -0,0 +1,50 @@
+package com.marverenic.music.player;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class QueueWindowsTest {
+
+    private static final int QUEUE_SIZE = 5;
+
+    @Test
+    public void testRepeatAllSkipMovesToNextWindow() {
+        // The looping timeline repeats the queue, so the window after the last song in the first
+        // loop is the first song in the second loop
+        int next = QueueWindows.getNextWindow(QUEUE_SIZE - 1, QUEUE_SIZE - 1, QUEUE_SIZE, true);
+
+        assertEquals(QUEUE_SIZE, next);
+        assertEquals(0, QueueWindows.toQueueIndex(next, QUEUE_SIZE));
+    }
+
+    @Test
+    public void testRepeatAllSkipFollowsQueueAcrossLoops() {
+        int window = 2;
+        for (int i = 0; i < 3 * QUEUE_SIZE; i++) {
+            int queueIndex = QueueWindows.toQueueIndex(window, QUEUE_SIZE);
+            window = QueueWindows.getNextWindow(window, queueIndex, QUEUE_SIZE, true);
+
+            assertEquals((queueIndex + 1) % QUEUE_SIZE,
+                    QueueWindows.toQueueIndex(window, QUEUE_SIZE));
+        }
+    }
+
+    @Test
+    public void testRepeatAllSkipPrevious() {
+        int previous = QueueWindows.getPreviousWindow(QUEUE_SIZE, 0, QUEUE_SIZE, true);
+        assertEquals(QUEUE_SIZE - 1, previous);
+        assertEquals(QUEUE_SIZE - 1, QueueWindows.toQueueIndex(previous, QUEUE_SIZE));
+
+        // There's no earlier window before the first loop, so seek to the last song in it
+        assertEquals(QUEUE_SIZE - 1, QueueWindows.getPreviousWindow(0, 0, QUEUE_SIZE, true));
+    }
+
+    @Test
+    public void testSkipWithoutRepeatAllUsesQueueIndex() {
+        assertEquals(3, QueueWindows.getNextWindow(2, 2, QUEUE_SIZE, false));
+        assertEquals(0, QueueWindows.getNextWindow(4, 4, QUEUE_SIZE, false));
+        assertEquals(1, QueueWindows.getPreviousWindow(2, 2, QUEUE_SIZE, false));
+        assertEquals(QUEUE_SIZE - 1, QueueWindows.getPreviousWindow(0, 0, QUEUE_SIZE, false));
+    }
+}
@@ -0,0 +1,46 @@
+package com.marverenic.heterogeneousadapter;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * A {@link HeterogeneousAdapter.Section} backed by a list that can be replaced. Sections that
+ * implement this interface can be updated with
+ * {@link HeterogeneousAdapter#setSectionData(HeterogeneousAdapter.Section, List)}, which only
+ * notifies the adapter about the items that actually changed instead of rebinding every row.
+ * @param <Type> The type of data that this Section holds
+ */
+public interface DiffableSection<Type> {
+
+    /**
+     * @return The list currently backing this section
+     */
+    List<Type> getData();
+
+    /**
+     * Replaces the list backing this section. This should only update the section's data, and
+     * should not notify the adapter.
+     * @param data The new data set to back this Section
+     */
+    void setData(@NonNull List<Type> data);
+
+    /**
+     * Finds the IDs that the items in a data set would have if it replaced this section's data.
+     * This must not change the section's data or the IDs of the items it's currently showing.
+     * @param data The data set to find IDs for
+     * @return The ID of each item in {@code data}, in the same order, as they would be returned
+     *         by {@link HeterogeneousAdapter.Section#getId(int)} after calling
+     *         {@link #setData(List)}
+     */
+    int[] getIds(@NonNull List<Type> data);
+
+    /**
+     * Checks whether two versions of an item will be displayed the same way. This is only called
+     * for items that have the same ID, and may be called from a background thread.
+     * @param oldItem The item that is currently being shown
+     * @param newItem The item that will replace it
+     * @return true if the item's view doesn't need to be rebound
+     */
+    boolean areContentsTheSame(Type oldItem, Type newItem);
+}
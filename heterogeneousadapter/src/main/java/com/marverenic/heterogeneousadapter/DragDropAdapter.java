@@ -76,15 +76,19 @@ public class DragDropAdapter extends HeterogeneousAdapter {
 
     private void drop(RecyclerView.ViewHolder viewHolder) {
         int leadingViews = getLeadingViewCount(mDragSection.getTypeId());
-        mDragSection.onDrop(
-                ((DragMarker) viewHolder.itemView.getTag()).from - leadingViews,
-                viewHolder.getAdapterPosition() - leadingViews);
+        final int from = ((DragMarker) viewHolder.itemView.getTag()).from;
+        final int to = viewHolder.getAdapterPosition();
+
+        mDragSection.onDrop(from - leadingViews, to - leadingViews);
         viewHolder.itemView.setTag(null);
 
+        // Views were only moved while dragging, so the items between the start and end of the
+        // drag still have their old positions bound. Only these items need to be rebound.
         mHandler.post(new Runnable() {
             @Override
             public void run() {
-                notifyDataSetChanged();
+                int start = Math.min(from, to);
+                notifyItemRangeChanged(start, Math.abs(to - from) + 1);
             }
         });
     }
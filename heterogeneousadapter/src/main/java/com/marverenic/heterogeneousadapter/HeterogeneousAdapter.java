@@ -45,6 +45,32 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
      */
     private Coordinate mCoordinate;
 
+    /**
+     * Cached prefix sums of section sizes, used to map adapter positions to sections in
+     * logarithmic time. {@code mSectionOffsets[i]} is the adapter position of the first item in
+     * section {@code i}, and the last entry is the total number of data items in this adapter.
+     * This is {@code null} when the offsets have to be recalculated.
+     *
+     * @see #getSectionOffsets()
+     */
+    private int[] mSectionOffsets;
+
+    /**
+     * Invalidates {@link #mSectionOffsets} and increments {@link #mModificationCount} whenever
+     * this adapter reports that its contents have changed. It's registered when this adapter is
+     * attached to a RecyclerView, since {@link #setHasStableIds(boolean)} can't be called once an
+     * adapter has observers.
+     */
+    private final RecyclerView.AdapterDataObserver mOffsetInvalidator;
+    private int mAttachedViewCount;
+
+    /**
+     * The number of changes this adapter has reported while attached to a RecyclerView
+     */
+    private int mModificationCount;
+
+    private SectionDiffer mDiffer;
+
     /**
      * Sets up a new HeterogeneousAdapter with no children
      */
@@ -53,6 +79,7 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
         mSectionIdMap = new SparseArray<>();
         mCoordinate = new Coordinate();
         mSectionBindingCount = 0;
+        mOffsetInvalidator = new OffsetInvalidator();
     }
 
     /**
@@ -85,6 +112,7 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
         section.setTypeId(getNextSectionId());
         mSections.add(index, section);
         mSectionIdMap.put(section.getTypeId(), section);
+        invalidateSectionOffsets();
         notifyDataSetChanged();
         return this;
     }
@@ -96,9 +124,31 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
     public void removeSection(int index) {
         Section removed = mSections.remove(index);
         mSectionIdMap.remove(removed.getTypeId());
+        invalidateSectionOffsets();
         notifyDataSetChanged();
     }
 
+    /**
+     * Replaces the data in a section and notifies this adapter about only the items that were
+     * inserted, removed, moved or changed. Items are matched using the IDs returned by
+     * {@link Section#getId(int)}. Large data sets are compared on a background thread, in which
+     * case the section keeps showing its old data until the comparison has finished.
+     *
+     * This method must be called on the main thread. Callers should not also call
+     * {@link #notifyDataSetChanged()}. The new list should be a different instance than the
+     * current list, since changes made to the current list in place can't be detected.
+     *
+     * @param section The section to update. This section must be attached to this adapter.
+     * @param data The new data set to back this Section
+     */
+    public <T, S extends Section<T> & DiffableSection<T>> void setSectionData(
+            @NonNull S section, @NonNull List<T> data) {
+        if (mDiffer == null) {
+            mDiffer = new SectionDiffer(this);
+        }
+        mDiffer.setData(section, data);
+    }
+
     public void setEmptyState(@Nullable EmptyState emptyState) {
         mEmptyState = emptyState;
     }
@@ -111,18 +161,82 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
      * @param position The position in the entire data set to lookup a coordinate of
      * @param coordinate @ {@code Coordinate} object to put the result into
      */
-    private void lookupCoordinates(int position, Coordinate coordinate) {
-        int runningTotal = 0;
-        for (int i = 0; i < mSections.size(); i++) {
-            int sectionTotal = mSections.get(i).getItemCount(this);
-            if (position < runningTotal + sectionTotal) {
-                coordinate.setSection(i);
-                coordinate.setItemIndex(position - runningTotal);
-                return;
+    void lookupCoordinates(int position, Coordinate coordinate) {
+        int[] offsets = getSectionOffsets();
+        int sectionCount = offsets.length - 1;
+
+        if (position < 0 || position >= offsets[sectionCount]) {
+            coordinate.clear();
+            return;
+        }
+
+        // Find the last section that starts at or before this position. Empty sections start at
+        // the same position as the section after them, so they're always skipped over.
+        int low = 0;
+        int high = sectionCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
             }
-            runningTotal += sectionTotal;
         }
-        coordinate.clear();
+
+        coordinate.setSection(low);
+        coordinate.setItemIndex(position - offsets[low]);
+    }
+
+    /**
+     * @return The prefix sums of the sizes of all sections in this adapter, calculating them if
+     *         necessary. The returned array has one more entry than there are sections.
+     * @see #mSectionOffsets
+     */
+    private int[] getSectionOffsets() {
+        if (mSectionOffsets == null) {
+            int[] offsets = new int[mSections.size() + 1];
+            for (int i = 0; i < mSections.size(); i++) {
+                offsets[i + 1] = offsets[i] + mSections.get(i).getItemCount(this);
+            }
+            mSectionOffsets = offsets;
+        }
+        return mSectionOffsets;
+    }
+
+    /**
+     * Discards the cached section offsets. This happens automatically whenever any of the
+     * {@code notify} methods are called, so this only needs to be called directly if a section
+     * changes size while this adapter isn't attached to a RecyclerView.
+     */
+    public void invalidateSectionOffsets() {
+        mSectionOffsets = null;
+    }
+
+    /**
+     * @return A number that changes whenever this adapter notifies the RecyclerView it's attached
+     *         to about a change. This is used to detect changes that were made while a diff was
+     *         being calculated.
+     */
+    int getModificationCount() {
+        return mModificationCount;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        // Sections may have changed size without notifying anyone while this adapter was detached
+        invalidateSectionOffsets();
+        if (mAttachedViewCount++ == 0) {
+            registerAdapterDataObserver(mOffsetInvalidator);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (--mAttachedViewCount == 0) {
+            unregisterAdapterDataObserver(mOffsetInvalidator);
+        }
     }
 
     /**
@@ -131,14 +245,13 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
      * @return The number of views in this list that are above the first view in the given section
      */
     protected int getLeadingViewCount(int typeId) {
-        int count = 0;
-        for (Section section : mSections) {
-            if (section.getTypeId() == typeId) {
-                break;
+        int[] offsets = getSectionOffsets();
+        for (int i = 0; i < mSections.size(); i++) {
+            if (mSections.get(i).getTypeId() == typeId) {
+                return offsets[i];
             }
-            count += section.getItemCount(this);
         }
-        return count;
+        return offsets[mSections.size()];
     }
 
     @Override
@@ -204,11 +317,8 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
      *         correspond to the value returned by {@link #getItemCount()}
      */
     private int getDataSize() {
-        int sum = 0;
-        for (Section s : mSections) {
-            sum += s.getItemCount(this);
-        }
-        return sum;
+        int[] offsets = getSectionOffsets();
+        return offsets[offsets.length - 1];
     }
 
     @Override
@@ -247,6 +357,38 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
         return mSections.get(index);
     }
 
+    private class OffsetInvalidator extends RecyclerView.AdapterDataObserver {
+
+        @Override
+        public void onChanged() {
+            invalidateSectionOffsets();
+            mModificationCount++;
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            mModificationCount++;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidateSectionOffsets();
+            mModificationCount++;
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidateSectionOffsets();
+            mModificationCount++;
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidateSectionOffsets();
+            mModificationCount++;
+        }
+    }
+
     /**
      * Holds a group of sequential items if the same type to be displayed in a
      * {@link HeterogeneousAdapter}. Sections act as {@link RecyclerView.Adapter}s with the
@@ -357,7 +499,8 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
      * same type
      * @param <Type> The class of the data that this Section shows.
      */
-    public static abstract class ListSection<Type> extends Section<Type> {
+    public static abstract class ListSection<Type> extends Section<Type>
+            implements DiffableSection<Type> {
 
         private List<Type> mData;
 
@@ -371,19 +514,60 @@ public class HeterogeneousAdapter extends RecyclerView.Adapter<EnhancedViewHolde
         /**
          * @return the backing data set
          */
+        @Override
         public List<Type> getData() {
             return mData;
         }
 
         /**
          * Replace the active data set. Callers are responsible for calling
-         * {@link RecyclerView.Adapter#notifyDataSetChanged()}
+         * {@link RecyclerView.Adapter#notifyDataSetChanged()}, which also updates the position
+         * offsets cached by {@link HeterogeneousAdapter}. To only update the rows that changed,
+         * use {@link HeterogeneousAdapter#setSectionData(Section, List)} instead.
          * @param mData The new data set to back this Section
          */
+        @Override
         public void setData(@NonNull List<Type> mData) {
             this.mData = mData;
         }
 
+        /**
+         * The default implementation compares items with {@link Object#equals(Object)}. Override
+         * this method if items that are equal may be displayed differently.
+         */
+        @Override
+        public boolean areContentsTheSame(Type oldItem, Type newItem) {
+            return (oldItem == null) ? newItem == null : oldItem.equals(newItem);
+        }
+
+        /**
+         * Items in a ListSection are identified by {@link #getItemId(Object)}, so that IDs can
+         * also be found for data that hasn't been set yet
+         */
+        @Override
+        public final int getId(int position) {
+            return getItemId(get(position));
+        }
+
+        /**
+         * Get the ID of an item in this Section. The default implementation returns
+         * {@link RecyclerView#NO_ID}.
+         * @param item The item that an ID has been requested for
+         * @return The ID of this item or {@link RecyclerView#NO_ID}
+         */
+        public int getItemId(Type item) {
+            return NO_ID;
+        }
+
+        @Override
+        public int[] getIds(@NonNull List<Type> data) {
+            int[] ids = new int[data.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = getItemId(data.get(i));
+            }
+            return ids;
+        }
+
         @Override
         public final int getItemCount(HeterogeneousAdapter adapter) {
             return showSection(adapter) ? mData.size() : 0;
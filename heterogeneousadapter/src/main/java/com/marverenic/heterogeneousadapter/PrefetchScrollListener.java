@@ -0,0 +1,270 @@
+package com.marverenic.heterogeneousadapter;
+
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+
+/**
+ * Watches the scroll direction and speed of a RecyclerView backed by a
+ * {@link HeterogeneousAdapter} and asks {@link PrefetchSection}s to load resources for items that
+ * are about to be scrolled into view. The faster the list is moving, the further ahead items are
+ * prefetched. Prefetches for items that leave this range before they're shown (for instance, when
+ * the scroll direction changes) are cancelled.
+ *
+ * This listener only supports {@link LinearLayoutManager}s and its subclasses, such as
+ * {@link android.support.v7.widget.GridLayoutManager}.
+ */
+public class PrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int DEFAULT_MIN_PREFETCH_COUNT = 6;
+    private static final int DEFAULT_MAX_PREFETCH_COUNT = 48;
+
+    /**
+     * How far into the future (in milliseconds) items should be prefetched at the current scroll
+     * velocity
+     */
+    private static final long LOOKAHEAD_MS = 600;
+
+    /**
+     * The maximum amount of time between two scroll events for them to be considered part of the
+     * same gesture when calculating the scroll velocity
+     */
+    private static final long VELOCITY_TIMEOUT_MS = 100;
+
+    /**
+     * How much of each new velocity sample is applied to the current estimate. Smoothing keeps the
+     * prefetch range from jittering when individual frames take longer than others.
+     */
+    private static final float VELOCITY_SMOOTHING = 0.4f;
+
+    /**
+     * Placeholder for items that have been prefetched, but can't be cancelled. Keeping track of
+     * these avoids asking their section to prefetch them again on every scroll event.
+     */
+    private static final PrefetchSection.PrefetchRequest NO_REQUEST =
+            new PrefetchSection.PrefetchRequest() {
+                @Override
+                public void cancel() {
+                }
+            };
+
+    private final HeterogeneousAdapter mAdapter;
+    private final int mMinPrefetchCount;
+    private final int mMaxPrefetchCount;
+
+    /**
+     * Outstanding prefetches, keyed by adapter position
+     */
+    private final SparseArray<PrefetchSection.PrefetchRequest> mRequests;
+    private final Coordinate mCoordinate;
+    private final RecyclerView.AdapterDataObserver mDataObserver;
+
+    private long mLastScrollTime;
+    private float mVelocity;
+
+    /**
+     * Creates a new PrefetchScrollListener with the default prefetch range
+     * @param adapter The adapter that will be attached to the RecyclerView this listener is added
+     *                to
+     */
+    public PrefetchScrollListener(HeterogeneousAdapter adapter) {
+        this(adapter, DEFAULT_MIN_PREFETCH_COUNT, DEFAULT_MAX_PREFETCH_COUNT);
+    }
+
+    /**
+     * @param adapter The adapter that will be attached to the RecyclerView this listener is added
+     *                to
+     * @param minPrefetchCount The number of items to prefetch past the edge of the screen when the
+     *                         list is scrolled slowly
+     * @param maxPrefetchCount The maximum number of items to prefetch past the edge of the screen,
+     *                         regardless of how fast the list is scrolled
+     */
+    public PrefetchScrollListener(HeterogeneousAdapter adapter, int minPrefetchCount,
+                                  int maxPrefetchCount) {
+        if (minPrefetchCount < 0 || maxPrefetchCount < minPrefetchCount) {
+            throw new IllegalArgumentException("Invalid prefetch range [" + minPrefetchCount
+                    + ", " + maxPrefetchCount + "]");
+        }
+
+        mAdapter = adapter;
+        mMinPrefetchCount = minPrefetchCount;
+        mMaxPrefetchCount = maxPrefetchCount;
+        mRequests = new SparseArray<>();
+        mCoordinate = new Coordinate();
+
+        mDataObserver = new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                forgetRequests();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                forgetRequests();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                forgetRequests();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                forgetRequests();
+            }
+        };
+    }
+
+    /**
+     * Starts prefetching items as the given RecyclerView is scrolled
+     * @param recyclerView The RecyclerView to attach to. Its adapter must be the adapter that was
+     *                     passed into this listener's constructor.
+     */
+    public void attach(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(this);
+        mAdapter.registerAdapterDataObserver(mDataObserver);
+    }
+
+    /**
+     * Stops prefetching items for a RecyclerView and cancels any outstanding prefetches
+     * @param recyclerView The RecyclerView that was passed to {@link #attach(RecyclerView)}
+     */
+    public void detach(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(this);
+        mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        cancelRequests();
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mVelocity = 0;
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        boolean vertical = layoutManager.getOrientation() == LinearLayoutManager.VERTICAL;
+        int delta = vertical ? dy : dx;
+        int extent = vertical ? recyclerView.getHeight() : recyclerView.getWidth();
+
+        updateVelocity(delta);
+
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION || extent <= 0) {
+            return;
+        }
+
+        int prefetchCount = getPrefetchCount(last - first + 1, extent);
+        boolean reverse = layoutManager.getReverseLayout();
+        boolean forward = (delta >= 0) != reverse;
+
+        int start;
+        int end;
+        if (forward) {
+            start = last + 1;
+            end = Math.min(last + prefetchCount, mAdapter.getItemCount() - 1);
+        } else {
+            start = Math.max(first - prefetchCount, 0);
+            end = first - 1;
+        }
+
+        trimRequests(first, last, start, end);
+
+        for (int position = start; position <= end; position++) {
+            if (mRequests.get(position) == null) {
+                prefetch(position);
+            }
+        }
+    }
+
+    private void updateVelocity(int delta) {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - mLastScrollTime;
+        mLastScrollTime = now;
+
+        if (elapsed <= 0 || elapsed > VELOCITY_TIMEOUT_MS) {
+            mVelocity = 0;
+            return;
+        }
+
+        float sample = Math.abs(delta) / (float) elapsed;
+        mVelocity += (sample - mVelocity) * VELOCITY_SMOOTHING;
+    }
+
+    /**
+     * Estimates how many items will be scrolled past in the next {@link #LOOKAHEAD_MS}
+     * milliseconds at the current velocity
+     * @param visibleCount The number of items currently on screen
+     * @param extent The size of the RecyclerView in pixels along its scroll axis
+     * @return The number of items past the edge of the screen to prefetch
+     */
+    private int getPrefetchCount(int visibleCount, int extent) {
+        float distance = mVelocity * LOOKAHEAD_MS;
+        int lookahead = (int) Math.ceil(distance * visibleCount / extent);
+
+        return Math.min(mMinPrefetchCount + lookahead, mMaxPrefetchCount);
+    }
+
+    /**
+     * Removes outstanding prefetches that are no longer needed. Items that are now on screen have
+     * been bound, so their prefetches are left to finish. Items that are neither on screen nor in
+     * the prefetch range are cancelled.
+     */
+    private void trimRequests(int firstVisible, int lastVisible, int start, int end) {
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            int position = mRequests.keyAt(i);
+            boolean visible = position >= firstVisible && position <= lastVisible;
+            boolean inRange = position >= start && position <= end;
+
+            if (visible) {
+                mRequests.removeAt(i);
+            } else if (!inRange) {
+                mRequests.valueAt(i).cancel();
+                mRequests.removeAt(i);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void prefetch(int position) {
+        mAdapter.lookupCoordinates(position, mCoordinate);
+        if (mCoordinate.getSection() == Coordinate.UNKNOWN_POSITION) {
+            return;
+        }
+
+        HeterogeneousAdapter.Section section = mAdapter.getSection(mCoordinate.getSection());
+        if (!(section instanceof PrefetchSection)) {
+            return;
+        }
+
+        int index = mCoordinate.getItemIndex();
+        PrefetchSection.PrefetchRequest request =
+                ((PrefetchSection) section).prefetch(section.get(index), index);
+
+        mRequests.put(position, (request == null) ? NO_REQUEST : request);
+    }
+
+    /**
+     * Drops all outstanding prefetches without cancelling them. This is used when the adapter's
+     * contents change, since the positions of pending requests may no longer be accurate. These
+     * prefetches will still finish, and their items will be prefetched again if needed.
+     */
+    private void forgetRequests() {
+        mRequests.clear();
+    }
+
+    private void cancelRequests() {
+        for (int i = 0; i < mRequests.size(); i++) {
+            mRequests.valueAt(i).cancel();
+        }
+        mRequests.clear();
+    }
+}
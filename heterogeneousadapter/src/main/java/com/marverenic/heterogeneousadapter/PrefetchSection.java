@@ -0,0 +1,33 @@
+package com.marverenic.heterogeneousadapter;
+
+import android.support.annotation.Nullable;
+
+/**
+ * A {@link HeterogeneousAdapter.Section} that can load resources for its items before they're
+ * bound. Sections that implement this interface will be asked to prefetch items that are about to
+ * be scrolled into view by a {@link PrefetchScrollListener}.
+ * @param <Type> The type of data that this Section holds
+ */
+public interface PrefetchSection<Type> {
+
+    /**
+     * Starts loading any resources needed to display an item that is about to be shown
+     * @param item The item that will be shown soon
+     * @param sectionPosition The position of this item within its section
+     * @return A request that can be used to stop the prefetch if this item leaves the prefetch
+     *         range before it's shown, or {@code null} if the prefetch can't be cancelled
+     */
+    @Nullable
+    PrefetchRequest prefetch(Type item, int sectionPosition);
+
+    /**
+     * A handle to an in-flight prefetch started by {@link #prefetch(Object, int)}
+     */
+    interface PrefetchRequest {
+        /**
+         * Stops this prefetch. This is only called if the item hasn't been bound yet, so
+         * implementations may free any resources that were loaded for it.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,366 @@
+package com.marverenic.heterogeneousadapter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Replaces the data in a {@link DiffableSection} and dispatches the smallest set of insertions,
+ * removals, moves and changes needed to update a {@link HeterogeneousAdapter}. Items are matched
+ * using the IDs returned by {@link HeterogeneousAdapter.Section#getId(int)} for the old data and
+ * by {@link DiffableSection#getIds(List)} for the new data.
+ *
+ * Small updates are calculated and applied immediately. Larger updates are calculated on a
+ * background thread, and the section keeps its old data until the result has been dispatched, so
+ * that the adapter is never out of sync with the RecyclerView it's attached to.
+ *
+ * @see HeterogeneousAdapter#setSectionData(HeterogeneousAdapter.Section, List)
+ */
+final class SectionDiffer {
+
+    private static final int NO_ID = (int) RecyclerView.NO_ID;
+
+    /**
+     * The combined number of old and new items above which diffs are calculated off of the main
+     * thread
+     */
+    private static final int ASYNC_THRESHOLD = 300;
+
+    /**
+     * The maximum number of items between the first and last changed items of the old and new
+     * lists combined for a diff to be calculated. Beyond this point (for instance, when a list
+     * is shuffled) the diff becomes very expensive to calculate and wouldn't be much cheaper to
+     * apply than refreshing the entire adapter.
+     */
+    private static final int MAX_CHANGED_SPAN = 4000;
+
+    private static Executor sDiffExecutor;
+
+    private final HeterogeneousAdapter mAdapter;
+    private final Handler mMainHandler;
+
+    /**
+     * The most recent update requested for each section, keyed by section type ID. Background
+     * diffs that have been superseded by a newer update are discarded.
+     */
+    private final SparseIntArray mGenerations;
+
+    SectionDiffer(HeterogeneousAdapter adapter) {
+        mAdapter = adapter;
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mGenerations = new SparseIntArray();
+    }
+
+    private static synchronized Executor getDiffExecutor() {
+        if (sDiffExecutor == null) {
+            sDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SectionDiffer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDiffExecutor;
+    }
+
+    /**
+     * Must be called on the main thread
+     */
+    <T, S extends HeterogeneousAdapter.Section<T> & DiffableSection<T>> void setData(
+            final S section, @NonNull final List<T> data) {
+
+        final int typeId = section.getTypeId();
+        final int generation = mGenerations.get(typeId) + 1;
+        mGenerations.put(typeId, generation);
+
+        final List<T> oldData = section.getData();
+        final Snapshot<T> oldSnapshot = new Snapshot<>(mAdapter, section);
+        final Snapshot<T> newSnapshot = new Snapshot<>(mAdapter, section, data);
+
+        if (oldSnapshot.size() == 0 || newSnapshot.size() == 0
+                || getChangedSpan(oldSnapshot, newSnapshot) > MAX_CHANGED_SPAN) {
+            apply(section, data, oldSnapshot, newSnapshot, null);
+            return;
+        }
+
+        final DiffCallback<T> callback = new DiffCallback<>(section, oldSnapshot, newSnapshot);
+
+        if (oldSnapshot.size() + newSnapshot.size() <= ASYNC_THRESHOLD) {
+            apply(section, data, oldSnapshot, newSnapshot, DiffUtil.calculateDiff(callback));
+            return;
+        }
+
+        final int modificationCount = mAdapter.getModificationCount();
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(callback);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mGenerations.get(typeId) != generation) {
+                            return;
+                        }
+
+                        if (section.getData() != oldData
+                                || mAdapter.getModificationCount() != modificationCount) {
+                            // The adapter changed while the diff was being calculated (for
+                            // instance, items were dragged), so the diff no longer describes
+                            // what the RecyclerView is showing
+                            replace(section, data);
+                        } else {
+                            apply(section, data, oldSnapshot, newSnapshot, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces a section's data and refreshes the entire adapter
+     */
+    private <T> void replace(DiffableSection<T> section, List<T> data) {
+        section.setData(data);
+        mAdapter.invalidateSectionOffsets();
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Replaces a section's data and notifies the adapter
+     * @param result The diff between the old and new snapshots, or {@code null} if a diff wasn't
+     *               calculated. Without a diff, the section's items are only dispatched
+     *               individually if one of the snapshots is empty.
+     */
+    private <T, S extends HeterogeneousAdapter.Section<T> & DiffableSection<T>> void apply(
+            S section, List<T> data, Snapshot<T> oldSnapshot, Snapshot<T> newSnapshot,
+            @Nullable DiffUtil.DiffResult result) {
+
+        if (mAdapter.getSectionIndex(section) < 0) {
+            // The section was removed while the diff was being calculated
+            section.setData(data);
+            return;
+        }
+
+        int[] countsBefore = getSectionCounts();
+        int leadingViews = mAdapter.getLeadingViewCount(section.getTypeId());
+
+        section.setData(data);
+        mAdapter.invalidateSectionOffsets();
+
+        int[] countsAfter = getSectionCounts();
+        int sectionIndex = mAdapter.getSectionIndex(section);
+
+        if (!canDispatch(countsBefore, countsAfter, sectionIndex, oldSnapshot, newSnapshot)) {
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        ListUpdateCallback callback = new OffsetUpdateCallback(mAdapter, leadingViews);
+        if (result != null) {
+            result.dispatchUpdatesTo(callback);
+        } else if (newSnapshot.size() == 0) {
+            callback.onRemoved(0, oldSnapshot.size());
+        } else if (oldSnapshot.size() == 0) {
+            callback.onInserted(0, newSnapshot.size());
+        } else {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Finds the number of items that aren't part of the common prefix or common suffix of two
+     * snapshots. Any difference between the two lists has to be within this range.
+     */
+    private static int getChangedSpan(Snapshot<?> oldSnapshot, Snapshot<?> newSnapshot) {
+        int[] oldIds = oldSnapshot.mIds;
+        int[] newIds = newSnapshot.mIds;
+        int maxCommon = Math.min(oldIds.length, newIds.length);
+
+        int prefix = 0;
+        while (prefix < maxCommon && oldIds[prefix] == newIds[prefix]) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && oldIds[oldIds.length - 1 - suffix] == newIds[newIds.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        return oldIds.length + newIds.length - 2 * (prefix + suffix);
+    }
+
+    /**
+     * A diff can only be dispatched if it describes the entire change to the adapter. If this
+     * update caused other sections to appear or disappear (like headers over the updated
+     * section), if the adapter moved in or out of its empty state, or if the section's size
+     * doesn't match the calculated diff, the whole adapter has to be refreshed instead. Diffs
+     * calculated in the background are also checked for changes made while they were being
+     * calculated before they get here.
+     */
+    private static boolean canDispatch(int[] countsBefore, int[] countsAfter, int sectionIndex,
+                                       Snapshot<?> oldSnapshot, Snapshot<?> newSnapshot) {
+
+        if (countsBefore[sectionIndex] != oldSnapshot.size()
+                || countsAfter[sectionIndex] != newSnapshot.size()) {
+            return false;
+        }
+
+        int totalBefore = 0;
+        int totalAfter = 0;
+        for (int i = 0; i < countsBefore.length; i++) {
+            if (i != sectionIndex && countsBefore[i] != countsAfter[i]) {
+                return false;
+            }
+            totalBefore += countsBefore[i];
+            totalAfter += countsAfter[i];
+        }
+
+        return totalBefore != 0 && totalAfter != 0;
+    }
+
+    private int[] getSectionCounts() {
+        int[] counts = new int[mAdapter.getSectionCount()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mAdapter.getSection(i).getItemCount(mAdapter);
+        }
+        return counts;
+    }
+
+    /**
+     * A copy of the items shown by a section and their IDs at a point in time. Copying these
+     * allows diffs to be calculated in the background while the section's data changes.
+     */
+    private static final class Snapshot<T> {
+
+        private final int[] mIds;
+        private final List<T> mItems;
+
+        Snapshot(HeterogeneousAdapter adapter, HeterogeneousAdapter.Section<T> section) {
+            int count = section.getItemCount(adapter);
+            mIds = new int[count];
+            mItems = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                mIds[i] = section.getId(i);
+                mItems.add(section.get(i));
+            }
+        }
+
+        /**
+         * Creates a snapshot of the items that a section would show if its data were replaced
+         */
+        <S extends HeterogeneousAdapter.Section<T> & DiffableSection<T>> Snapshot(
+                HeterogeneousAdapter adapter, S section, List<T> data) {
+
+            if (section.showSection(adapter)) {
+                mIds = section.getIds(data);
+                mItems = new ArrayList<>(data);
+            } else {
+                mIds = new int[0];
+                mItems = new ArrayList<>(0);
+            }
+        }
+
+        int size() {
+            return mIds.length;
+        }
+    }
+
+    private static final class DiffCallback<T> extends DiffUtil.Callback {
+
+        private final DiffableSection<T> mSection;
+        private final Snapshot<T> mOld;
+        private final Snapshot<T> mNew;
+
+        DiffCallback(DiffableSection<T> section, Snapshot<T> oldSnapshot,
+                     Snapshot<T> newSnapshot) {
+            mSection = section;
+            mOld = oldSnapshot;
+            mNew = newSnapshot;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOld.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            int oldId = mOld.mIds[oldItemPosition];
+            int newId = mNew.mIds[newItemPosition];
+
+            if (oldId != NO_ID || newId != NO_ID) {
+                return oldId == newId;
+            }
+
+            // Items without IDs can only be matched by equality
+            T oldItem = mOld.mItems.get(oldItemPosition);
+            T newItem = mNew.mItems.get(newItemPosition);
+            return (oldItem == null) ? newItem == null : oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mSection.areContentsTheSame(
+                    mOld.mItems.get(oldItemPosition),
+                    mNew.mItems.get(newItemPosition));
+        }
+    }
+
+    /**
+     * Forwards updates for a single section to the adapter, offset by the number of views above
+     * that section
+     */
+    private static final class OffsetUpdateCallback implements ListUpdateCallback {
+
+        private final HeterogeneousAdapter mAdapter;
+        private final int mOffset;
+
+        OffsetUpdateCallback(HeterogeneousAdapter adapter, int offset) {
+            mAdapter = adapter;
+            mOffset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mAdapter.notifyItemRangeInserted(mOffset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mAdapter.notifyItemRangeRemoved(mOffset + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mAdapter.notifyItemMoved(mOffset + fromPosition, mOffset + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mAdapter.notifyItemRangeChanged(mOffset + position, count, payload);
+        }
+    }
+}